@@ -0,0 +1,345 @@
+import groovy.json.JsonSlurper
+import org.gradle.api.GradleException
+
+/**
+ * Validates the PathPlanner deploy tree for the validatePathPlannerAssets task.
+ *
+ * Every file is checked: settings.json, navgrid.json, each path (waypoints, constraints, zones,
+ * rotation targets, event markers) and each auto (every referenced path or Choreo trajectory must
+ * exist). Robot code naming a missing auto or path also fails the build, as does an auto or event
+ * marker using a named command that no NamedCommands.registerCommand call in robot code registers;
+ * PathPlanner would otherwise run an empty command in its place. Nothing is written: PathPlanner
+ * still loads the JSON files deployed with the static deploy tree.
+ */
+class PathPlannerAssetValidator {
+    static final List<String> kPositiveSettings = [
+        'robotWidth', 'robotLength', 'defaultMaxVel', 'defaultMaxAccel', 'defaultMaxAngVel', 'defaultMaxAngAccel',
+        'defaultNominalVoltage', 'robotMass', 'robotMOI', 'driveWheelRadius', 'driveGearing', 'maxDriveSpeed',
+        'driveCurrentLimit', 'wheelCOF']
+    static final List<String> kModuleSettings = [
+        'flModuleX', 'flModuleY', 'frModuleX', 'frModuleY', 'blModuleX', 'blModuleY', 'brModuleX', 'brModuleY']
+
+    private final File sourceDir
+    private final List<String> errors = []
+    private final JsonSlurper slurper = new JsonSlurper()
+
+    private Map navgrid
+    /* Named commands each path's event markers and each auto's command tree use */
+    private final Map<String, Collection<String>> pathNamedCommands = new TreeMap<>()
+    private final Map<String, Collection<String>> autoNamedCommands = new TreeMap<>()
+    private final Map<String, List> linkedWaypoints = [:]
+
+    PathPlannerAssetValidator(File sourceDir) {
+        this.sourceDir = sourceDir
+    }
+
+    void validate(Collection<File> javaSources) {
+        readSettings()
+        readNavgrid()
+        listFiles('paths', '.path').each { readPath(it) }
+        listFiles('autos', '.auto').each { readAuto(it) }
+        checkJavaReferences(javaSources)
+
+        if (!errors.isEmpty()) {
+            throw new GradleException("PathPlanner assets are invalid:\n  " + errors.join('\n  '))
+        }
+    }
+
+    // ===== VALIDATION =====
+
+    private void readSettings() {
+        def settings = parse(new File(sourceDir, 'settings.json'), 'settings.json')
+        if (settings == null) {
+            return
+        }
+        kPositiveSettings.each { key -> positive(settings, key, 'settings.json') }
+        if (settings.holonomicMode != false) {
+            kModuleSettings.each { key -> number(settings, key, 'settings.json') }
+        }
+    }
+
+    private void readNavgrid() {
+        def where = 'navgrid.json'
+        def file = new File(sourceDir, where)
+        if (!file.isFile()) {
+            // The navgrid is optional; the pathfinder falls back to an empty field
+            return
+        }
+        def root = parse(file, where)
+        if (root == null) {
+            return
+        }
+        double nodeSize = positive(root, 'nodeSizeMeters', where)
+        double fieldLength = positive(root.field_size, 'x', "${where} field_size")
+        double fieldWidth = positive(root.field_size, 'y', "${where} field_size")
+        def grid = root.grid
+        if (!(grid instanceof List) || grid.isEmpty() || !(grid[0] instanceof List) || grid[0].isEmpty()) {
+            errors << "${where}: 'grid' must be a non-empty array of rows"
+            return
+        }
+        int rows = grid.size()
+        int cols = grid[0].size()
+        for (int row = 0; row < rows; row++) {
+            def rowNodes = grid[row]
+            if (!(rowNodes instanceof List) || rowNodes.size() != cols) {
+                errors << "${where}: row ${row} has ${rowNodes instanceof List ? rowNodes.size() : 0} nodes, expected ${cols}"
+                return
+            }
+            for (int col = 0; col < cols; col++) {
+                def node = rowNodes[col]
+                if (!(node instanceof Boolean)) {
+                    errors << "${where}: node [${row}][${col}] is not a boolean"
+                    return
+                }
+            }
+        }
+        if (nodeSize > 0 && (cols * nodeSize < fieldLength - 1e-6 || rows * nodeSize < fieldWidth - 1e-6)) {
+            errors << "${where}: ${rows}x${cols} grid of ${nodeSize} m nodes does not cover the ${fieldLength} x ${fieldWidth} m field"
+        }
+        navgrid = [fieldLength: fieldLength, fieldWidth: fieldWidth]
+    }
+
+    private void readPath(File file) {
+        String name = baseName(file, '.path')
+        String where = "paths/${file.name}"
+        def root = parse(file, where)
+        if (root == null) {
+            return
+        }
+
+        def waypoints = root.waypoints
+        if (!(waypoints instanceof List) || waypoints.size() < 2) {
+            errors << "${where}: a path needs at least two waypoints"
+            return
+        }
+        int last = waypoints.size() - 1
+        boolean valid = true
+        waypoints.eachWithIndex { waypoint, i ->
+            String at = "${where} waypoint ${i}"
+            double[] anchor = point(waypoint?.anchor, "${at} anchor")
+            double[] prev = i == 0 ? null : point(waypoint?.prevControl, "${at} prevControl")
+            double[] next = i == last ? null : point(waypoint?.nextControl, "${at} nextControl")
+            if (anchor == null || (i > 0 && prev == null) || (i < last && next == null)) {
+                valid = false
+                return
+            }
+            if (navgrid != null && (anchor[0] < 0 || anchor[1] < 0
+                    || anchor[0] > navgrid.fieldLength || anchor[1] > navgrid.fieldWidth)) {
+                errors << "${at}: anchor (${anchor[0]}, ${anchor[1]}) is off the field"
+            }
+            if (waypoint.linkedName instanceof String) {
+                linkedWaypoints.computeIfAbsent(waypoint.linkedName) { [] } << [where: at, anchor: anchor]
+            }
+        }
+        if (!valid) {
+            return
+        }
+
+        if (root.useDefaultConstraints != true) {
+            readConstraints(root.globalConstraints, "${where} globalConstraints")
+        }
+        root.constraintZones?.eachWithIndex { zone, i ->
+            String at = "${where} constraint zone ${i}"
+            double min = relativePosition(zone, 'minWaypointRelativePos', last, at)
+            double max = relativePosition(zone, 'maxWaypointRelativePos', last, at)
+            if (min > max) {
+                errors << "${at}: minWaypointRelativePos is after maxWaypointRelativePos"
+            }
+            readConstraints(zone?.constraints, at)
+        }
+        root.rotationTargets?.eachWithIndex { target, i ->
+            String at = "${where} rotation target ${i}"
+            relativePosition(target, 'waypointRelativePos', last, at)
+            number(target, 'rotationDegrees', at)
+        }
+        List<String> named = []
+        root.eventMarkers?.eachWithIndex { marker, i ->
+            String at = "${where} event marker ${i}"
+            relativePosition(marker, 'waypointRelativePos', last, at)
+            if (marker?.command != null) {
+                walkCommand(marker.command, at, named, false)
+            }
+        }
+
+        number(root.idealStartingState, 'velocity', "${where} idealStartingState")
+        number(root.idealStartingState, 'rotation', "${where} idealStartingState")
+        number(root.goalEndState, 'velocity', "${where} goalEndState")
+        number(root.goalEndState, 'rotation', "${where} goalEndState")
+
+        pathNamedCommands[name] = named
+    }
+
+    private void readAuto(File file) {
+        String name = baseName(file, '.auto')
+        String where = "autos/${file.name}"
+        def root = parse(file, where)
+        if (root == null) {
+            return
+        }
+        Set<String> named = new LinkedHashSet<>()
+        walkCommand(root.command, where, named, root.choreoAuto == true)
+        autoNamedCommands[name] = named
+    }
+
+    /* Collects named-command references from a command tree, checking every path exists */
+    private void walkCommand(Object command, String where, Collection<String> named, boolean choreo) {
+        if (!(command instanceof Map)) {
+            errors << "${where}: command must be an object"
+            return
+        }
+        Map data = command.data instanceof Map ? command.data : [:]
+        switch (command.type) {
+            case 'sequential':
+            case 'parallel':
+            case 'race':
+            case 'deadline':
+                if (!(data.commands instanceof List)) {
+                    errors << "${where}: ${command.type} group has no 'commands' array"
+                    return
+                }
+                data.commands.each { walkCommand(it, where, named, choreo) }
+                break
+            case 'path':
+                if (!(data.pathName instanceof String) || data.pathName.isEmpty()) {
+                    errors << "${where}: path command has no path selected"
+                } else if (choreo) {
+                    String trajectory = data.pathName.split('\\.')[0]
+                    if (!new File(sourceDir.parentFile, "choreo/${trajectory}.traj").isFile()) {
+                        errors << "${where}: references missing Choreo trajectory '${trajectory}'"
+                    }
+                } else if (!new File(sourceDir, "paths/${data.pathName}.path").isFile()) {
+                    errors << "${where}: references missing path '${data.pathName}'"
+                }
+                break
+            case 'named':
+                if (!(data.name instanceof String) || data.name.isEmpty()) {
+                    errors << "${where}: named command has no name selected"
+                } else if (!named.contains(data.name)) {
+                    named << data.name
+                }
+                break
+            case 'wait':
+                if (number(data, 'waitTime', "${where} wait command") < 0) {
+                    errors << "${where}: wait command has a negative waitTime"
+                }
+                break
+            default:
+                errors << "${where}: unknown command type '${command.type}'"
+        }
+    }
+
+    /*
+     * Auto and path names used as string literals in robot code must exist in the deploy tree, and
+     * every named command the autos and paths use must be registered under a string literal
+     */
+    private void checkJavaReferences(Collection<File> javaSources) {
+        def autoPattern = ~/(?:buildAutoChooser|new\s+PathPlannerAuto)\(\s*"([^"]+)"/
+        def pathPattern = ~/PathPlannerPath\.fromPathFile\(\s*"([^"]+)"/
+        def namedCommandPattern = ~/NamedCommands\.registerCommand\(\s*"([^"]+)"/
+        Set<String> registered = new HashSet<>()
+        javaSources.each { file ->
+            String text = file.getText('UTF-8')
+            text.eachMatch(autoPattern) { match, auto ->
+                if (!new File(sourceDir, "autos/${auto}.auto").isFile()) {
+                    errors << "${file.name}: references missing auto '${auto}'"
+                }
+            }
+            text.eachMatch(pathPattern) { match, path ->
+                if (!new File(sourceDir, "paths/${path}.path").isFile()) {
+                    errors << "${file.name}: references missing path '${path}'"
+                }
+            }
+            text.eachMatch(namedCommandPattern) { match, command -> registered << command }
+        }
+        [paths: pathNamedCommands, autos: autoNamedCommands].each { folder, uses ->
+            String extension = folder == 'paths' ? 'path' : 'auto'
+            uses.each { name, commands ->
+                commands.findAll { !registered.contains(it) }.each { command ->
+                    errors << "${folder}/${name}.${extension}: named command '${command}' is never registered"
+                }
+            }
+        }
+        linkedWaypoints.each { linkedName, uses ->
+            def first = uses[0]
+            uses.drop(1).each { use ->
+                if (Math.abs(use.anchor[0] - first.anchor[0]) > 1e-6 || Math.abs(use.anchor[1] - first.anchor[1]) > 1e-6) {
+                    errors << "${use.where}: linked waypoint '${linkedName}' does not match ${first.where}"
+                }
+            }
+        }
+    }
+
+    private void readConstraints(Object node, String where) {
+        if (node instanceof Map && node.unlimited == true) {
+            return
+        }
+        ['maxVelocity', 'maxAcceleration', 'maxAngularVelocity', 'maxAngularAcceleration'].each { key ->
+            positive(node, key, where)
+        }
+    }
+
+    // ===== HELPERS =====
+
+    private List<File> listFiles(String folder, String extension) {
+        File dir = new File(sourceDir, folder)
+        File[] files = dir.listFiles({ File f -> f.isFile() && f.name.endsWith(extension) } as FileFilter)
+        return files == null ? [] : files.sort { it.name }
+    }
+
+    private Object parse(File file, String where) {
+        if (!file.isFile()) {
+            errors << "${where}: file not found"
+            return null
+        }
+        byte[] bytes = file.bytes
+        try {
+            def root = slurper.parse(bytes)
+            if (!(root instanceof Map)) {
+                errors << "${where}: top level must be a JSON object"
+                return null
+            }
+            return root
+        } catch (Exception ex) {
+            errors << "${where}: ${ex.message?.readLines()?.find() ?: ex.class.simpleName}"
+            return null
+        }
+    }
+
+    private double number(Object node, String key, String where) {
+        def value = node instanceof Map ? node[key] : null
+        if (!(value instanceof Number) || !Double.isFinite(value as double)) {
+            errors << "${where}: '${key}' must be a number"
+            return 0
+        }
+        return value as double
+    }
+
+    private double positive(Object node, String key, String where) {
+        def value = node instanceof Map ? node[key] : null
+        if (!(value instanceof Number) || !((value as double) > 0) || !Double.isFinite(value as double)) {
+            errors << "${where}: '${key}' must be a positive number"
+            return 0
+        }
+        return value as double
+    }
+
+    private double relativePosition(Object node, String key, int lastWaypoint, String where) {
+        double value = number(node, key, where)
+        if (value < 0 || value > lastWaypoint) {
+            errors << "${where}: '${key}' ${value} is outside the path (0 to ${lastWaypoint})"
+        }
+        return value
+    }
+
+    private double[] point(Object node, String where) {
+        if (!(node instanceof Map) || !(node.x instanceof Number) || !(node.y instanceof Number)) {
+            errors << "${where}: expected a point with numeric x and y"
+            return null
+        }
+        return [node.x as double, node.y as double] as double[]
+    }
+
+    private static String baseName(File file, String extension) {
+        return file.name.substring(0, file.name.length() - extension.length())
+    }
+}
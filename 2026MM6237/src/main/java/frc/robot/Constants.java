@@ -4,6 +4,8 @@
 
 package frc.robot;
 
+import frc.robot.vision.CameraConfig;
+
 /**
  * The Constants class provides a convenient place for teams to hold robot-wide numerical or boolean
  * constants. This class should not be used for any other purpose. All constants should be declared
@@ -26,4 +28,241 @@ public final class Constants {
     public static final double MaxSpeed = 2.0; // meters per second
     public static final double MaxAngularRate = 2 * Math.PI; // radians per second
   } 
+
+  public static class NavigationConstants {
+    // Relative to the operating directory (/home/lvuser on the roboRIO)
+    public static final String kDistanceFieldCacheFile = "cache/navgrid-distance.bin";
+
+    // Autos follow paths on the drivetrain's odometry thread instead of once per scheduler loop
+    public static final boolean kFollowPathsAtOdometryRate = true;
+    // Field speed per meter of position error, and turn rate per radian of heading error
+    public static final double kPathTranslationP = 10;
+    public static final double kPathRotationP = 7;
+    // A path's pre-generated trajectory is used when the robot starts this close to its ideal state
+    public static final double kPathIdealStartVelocityToleranceMps = 0.25;
+    public static final double kPathIdealStartRotationToleranceDegrees = 30;
+    // A path ending slower than this stops the drivetrain when it finishes
+    public static final double kPathEndStopVelocityMps = 0.1;
+    // Tracking samples kept per path; one per loop covers a 20 s path
+    public static final int kPathTrackingMaxSamples = 1024;
+    // Below this target speed an along-track error is not turned into lag
+    public static final double kPathTrackingMinLagSpeedMps = 0.25;
+  }
+
+  public static class FieldConstants {
+    // Blue alliance scoring targets as x, y pairs in meters; red's are mirrored through the field center.
+    // Placeholder hub center until checked against the field drawings.
+    public static final double[] kBlueScoringTargets = {4.626, 4.035};
+    // Edge length of the cells the tag visibility index divides the field into
+    public static final double kIndexCellSizeMeters = 1.0;
+    // Must cover the longest range any tag visibility prediction uses
+    public static final double kIndexMaxTagDistanceMeters = 8.0;
+    // How often the cached alliance is re-read from the DS while disabled
+    public static final double kAllianceRefreshPeriodSeconds = 0.5;
+  }
+
+  public static class SignalConstants {
+    // Fraction of CAN bus bandwidth declared status signals may use before a warning is raised
+    public static final double kBusUtilizationBudget = 0.6;
+    // Classic CAN on the roboRIO bus
+    public static final double kBusBitrate = 1_000_000;
+    // Extended-ID status frame with 8 data bytes, including typical bit stuffing
+    public static final double kBitsPerFrame = 135;
+    // Steer motors fuse their CANcoder, so its position must keep arriving after bus optimization
+    public static final double kFusedEncoderFrequencyHz = 100;
+  }
+
+  public static class RateGroupConstants {
+    // Periods for work registered with the RateGroupScheduler instead of running every loop
+    public static final double kDashboardPeriodSeconds = 0.1;
+    public static final double kHealthPeriodSeconds = 1.0;
+  }
+
+  public static class TelemetryConstants {
+    // NetworkTables table the struct pose and module state topics are published under
+    public static final String kTableName = "Telemetry";
+    // Pose and module states every loop so AdvantageScope replays odometry at full resolution
+    public static final double kDrivetrainPeriodSeconds = 0.02;
+    public static final double kVisionPeriodSeconds = 0.1;
+    public static final double kPathPeriodSeconds = 0.1;
+    // Vision estimates per camera kept between publishes; at 0.1 s this covers a 50 fps camera with headroom
+    public static final int kMaxVisionEstimatesPerPublish = 8;
+  }
+
+  public static class AllocationConstants {
+    // Allocation is always tracked in simulation; on the robot it costs a counter read per section per loop
+    public static final boolean kTrackOnRobot = false;
+    // Bytes allocated per loop before a warning is raised. Once the JIT has warmed up the drive
+    // commands should allocate nothing; the headroom covers boxing in vendor calls.
+    public static final long kCycleBudgetBytes = 16 * 1024;
+    public static final long kDefaultDriveBudgetBytes = 256;
+    public static final long kFaceDirectionBudgetBytes = 256;
+    // One Limelight JSON parse builds the whole results tree, so it gets a far larger budget
+    public static final long kLimelightDecodeBudgetBytes = 64 * 1024;
+  }
+
+  public static class WorkerConstants {
+    // Background threads for JSON parsing, HTTP calls and other work kept off the main loop
+    public static final int kWorkerThreads = 2;
+    // Jobs each worker may hold before new submissions are rejected
+    public static final int kWorkerQueueCapacity = 16;
+  }
+
+  public static class SimVisionConstants {
+    // Simulated Limelight timing, roughly a Limelight 3 running an AprilTag pipeline
+    public static final double kFramesPerSecond = 30;
+    public static final double kPipelineLatencyMillis = 20;
+    public static final double kCaptureLatencyMillis = 12;
+    // Standard deviation of tag angles, and of botpose with one tag at 1 m (grows with distance)
+    public static final double kAngleNoiseDegrees = 0.1;
+    public static final double kPoseNoiseMeters = 0.02;
+    public static final double kYawNoiseDegrees = 1.0;
+    public static final double kTagSizeMeters = 0.1651;
+    public static final double kMaxTagDistanceMeters = 6.0;
+    // Tags seen more obliquely than this are not detected
+    public static final double kMaxViewAngleDegrees = 70;
+    // Fixed seed so simulated runs are repeatable
+    public static final long kNoiseSeed = 6237;
+  }
+
+  public static class VisionConstants {
+    // Mounting of the primary Limelight; placeholder values until measured on the robot
+    public static final CameraConfig kDefaultCamera =
+        new CameraConfig("limelight", 0.30, 0.0, 0.50, 0.0, 15.0, 0.0, 62.5, 48.9);
+    // Camera whose neural detector feeds the obstacle map and game piece tracking
+    public static final CameraConfig kDetectorCamera = kDefaultCamera;
+    // AprilTag-only camera that crop, downscale and pipeline tuning and the fiducial ID filter drive.
+    // Both crop away detections and force an AprilTag pipeline, so they never run on the detector
+    // camera. Null until the robot has a second camera, so neither is built on the robot until then.
+    public static final CameraConfig kTunedAprilTagCamera = null;
+
+    // Detector class index of opposing robots in the deployed neural model
+    public static final int kDetectorRobotClassId = 0;
+    public static final double kRobotObstacleRadiusMeters = 0.5;
+    // Height of the detector box center (bumpers) above the carpet
+    public static final double kRobotDetectionHeightMeters = 0.10;
+    public static final double kDetectionHitProbability = 0.6;
+    public static final double kMaxDetectionRangeMeters = 6.0;
+    // Detections projected closer than this to a navgrid obstacle are dropped. A real robot's center sits
+    // half a bumper width out from any field element; this only has to cover the interpolated clearance
+    // inside an obstacle node's corners (under 0.06 m with 0.3 m nodes).
+    public static final double kMinDetectionClearanceMeters = 0.1;
+    // Time for an unobserved obstacle to fade to 1/e of its occupancy
+    public static final double kObstacleDecaySeconds = 1.5;
+    public static final double kOccupiedThreshold = 0.5;
+    // How often obstacle changes are pushed to the pathfinder
+    public static final double kPathfinderObstacleUpdatePeriodSeconds = 0.1;
+
+    // Detector class index of game pieces in the deployed neural model
+    public static final int kDetectorGamePieceClassId = 1;
+    // Height of a resting game piece's center above the carpet
+    public static final double kGamePieceHeightMeters = 0.075;
+    public static final double kGamePieceMeasurementStdDevMeters = 0.10;
+    public static final double kGamePieceAccelerationStdDev = 2.0;
+    public static final double kGamePieceGateDistanceMeters = 0.75;
+    public static final int kGamePieceHitsToConfirm = 3;
+    public static final double kGamePieceCoastSeconds = 0.5;
+
+    // Frames read once per camera and handed to every vision consumer
+    // Values of each topic kept per camera between loops; a Limelight at 90 fps publishes about 2 per loop
+    public static final int kPoseFrameQueueDepth = 16;
+    // A camera publishes a frame's pose, fiducials and detections within this of each other
+    public static final double kFrameGroupingSeconds = 0.002;
+    // Frames held for a subscriber that has not asked for them yet; the oldest is dropped when full
+    public static final int kFrameSubscriberBufferSize = 16;
+
+    // MegaTag2 pose fusion into the drivetrain's pose estimator
+    // MegaTag2 needs the heading at capture time; above this turn rate the sent heading is too stale
+    public static final double kPoseMaxYawRateDegreesPerSecond = 720;
+    public static final double kPoseMaxTagDistanceMeters = 5.0;
+    // XY standard deviation of one tag at 1 m before the noise model learns; scales with distance squared
+    public static final double kPoseXyStdDevMeters = 0.05;
+    // Heading comes from the gyro; MegaTag2 heading is only the heading we sent. Large enough that the
+    // pose estimator's heading gain is zero, yet small enough that its square stays finite
+    public static final double kIgnoreVisionHeadingStdDevRadians = 1e7;
+
+    // Per tag and distance band noise learned from MegaTag2 residuals against the pose estimate
+    public static final int kNoiseMaxTagId = 32;
+    public static final int kNoiseDistanceBands = 6;
+    public static final double kNoiseBandWidthMeters = 1.0;
+    // A tag's scale stays near 1 until it has this many samples, and follows its most recent samples
+    public static final double kNoisePriorWeight = 20;
+    public static final double kNoiseMemorySamples = 200;
+    // Limits on the learned variance scale, so no tag becomes fully trusted or ignored
+    public static final double kNoiseMinScale = 0.25;
+    public static final double kNoiseMaxScale = 16;
+    public static final double kNoiseAmbiguityGain = 1.0;
+    // Residuals larger than this mean the estimate or the frame is wrong, not noisy
+    public static final double kNoiseMaxResidualMeters = 1.0;
+
+    // One pose solved on the roboRIO from every AprilTag camera's raw fiducials, fused instead of
+    // each camera's MegaTag2 pose; MegaTag2 poses are still logged for comparison. Off while the robot
+    // has a single camera, where MegaTag2 already uses every tag that camera sees
+    public static final boolean kMultiCameraSolverEnabled = false;
+    // Frames captured within this of the newest one are solved together
+    public static final double kMultiCameraSyncWindowSeconds = 0.03;
+    public static final int kMultiCameraMaxTags = 24;
+    // Fiducial center angle noise, and gyro heading error at capture time
+    public static final double kMultiCameraAngleStdDevDegrees = 0.3;
+    public static final double kMultiCameraHeadingStdDevDegrees = 0.5;
+    // 99.9% point of chi-squared with 2 degrees of freedom
+    public static final double kMultiCameraOutlierChiSquared = 13.8;
+    // Floor on the reported XY standard deviation, for calibration error the noise model leaves out
+    public static final double kMultiCameraMinXyStdDevMeters = 0.02;
+
+    // Limelight health from the per-frame heartbeat
+    // No heartbeat for this long means the camera stopped processing; several frames even at 10 fps
+    public static final double kHealthDisconnectTimeoutSeconds = 0.5;
+    // Frames captured longer ago than this are not used by any vision consumer
+    public static final double kMaxFrameAgeSeconds = 0.25;
+    public static final double kHealthRateWindowSeconds = 1.0;
+
+    // Crop, downscaling and pipeline chosen from the robot pose and the tags it should see
+    public static final double kCameraTuningPeriodSeconds = 0.2;
+    public static final double kTagSizeMeters = 0.1651;
+    public static final double kTuningMaxTagDistanceMeters = 6.0;
+    public static final double kTuningMaxViewAngleDegrees = 70;
+    // Margin around the predicted tags, as a fraction of the frame, for pose error and motion between updates
+    public static final double kTuningCropMargin = 0.15;
+    // Smallest tag edge, in pixels after downscaling, the AprilTag detector reliably finds
+    public static final double kTuningMinTagPixels = 24;
+    public static final double kAprilTagImageWidthPixels = 1280;
+    // Both phases use the same pipeline until a dedicated teleop pipeline is tuned
+    public static final int kAutoAprilTagPipeline = 0;
+    public static final int kTeleopAprilTagPipeline = 0;
+    // Tuning updates with tags predicted but none seen before falling back to the full frame
+    public static final int kTuningLostUpdatesBeforeFullFrame = 3;
+
+    // Tag IDs each camera could see from the pose, pushed as its fiducial ID filter
+    public static final double kFiducialFilterPeriodSeconds = 0.2;
+    // Wider than the tuning limits so pose error never filters out a tag that is really in view
+    public static final double kFilterMaxTagDistanceMeters = 7.0;
+    public static final double kFilterMaxViewAngleDegrees = 80;
+    public static final double kFilterFovMarginDegrees = 10;
+    // The filter is only applied while vision has corrected the pose this recently
+    public static final double kFilterTrustedPoseSeconds = 2.0;
+
+    // Limelight REST API (snapshots, results, uploads), port 5807 on each camera
+    public static final String kHttpUrlFormat = "http://%s.local:5807/";
+    public static final int kHttpThreads = 1;
+    // Requests on the wire at once across all cameras, and how many may wait behind them
+    public static final int kHttpMaxConcurrentRequests = 2;
+    public static final int kHttpMaxQueuedRequests = 8;
+    public static final double kHttpConnectTimeoutSeconds = 0.5;
+    // Snapshots and uploads can take a while on a busy camera
+    public static final double kHttpRequestTimeoutSeconds = 3.0;
+  }
+
+  public static class VisionLoadTestConstants {
+    // Setting this environment variable in simulation runs the vision load test, e.g. "cameras=4,fps=50,tags=8"
+    public static final String kEnvironmentVariable = "VISION_LOAD_TEST";
+    public static final int kDefaultCameras = 4;
+    public static final double kDefaultFramesPerSecond = 50;
+    public static final int kDefaultTagsPerFrame = 4;
+    public static final double kDefaultDurationSeconds = 20;
+    // Pipeline plus capture latency written into each synthetic frame
+    public static final double kSyntheticLatencyMillis = 30;
+    // Time after the publishers stop for in-flight frames to arrive before counting drops
+    public static final double kDrainSeconds = 1.0;
+  }
 }
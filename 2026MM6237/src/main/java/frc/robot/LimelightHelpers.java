@@ -1595,6 +1595,14 @@ public class LimelightHelpers {
         });
     }
 
+    /**
+     * Takes a snapshot, blocking on the HTTP request. Run it on a background worker, never the main loop.
+     * @return true if the Limelight accepted the request
+     */
+    public static boolean takeSnapshotBlocking(String tableName, String snapshotName) {
+        return SYNCH_TAKESNAPSHOT(tableName, snapshotName);
+    }
+
     private static boolean SYNCH_TAKESNAPSHOT(String tableName, String snapshotName) {
         URL url = getLimelightURLString(tableName, "capturesnapshot");
         try {
@@ -1622,15 +1630,22 @@ public class LimelightHelpers {
      * @return LimelightResults object containing all current target data
      */
     public static LimelightResults getLatestResults(String limelightName) {
+        return parseResults(getJSONDump(limelightName));
+    }
+
+    /**
+     * Parses a JSON results dump, as read from the "json" entry, into a LimelightResults object.
+     * Safe to call from a background thread.
+     * @param json JSON results dump
+     * @return LimelightResults object, with its error field set if the dump could not be parsed
+     */
+    public static LimelightResults parseResults(String json) {
 
         long start = System.nanoTime();
         LimelightHelpers.LimelightResults results = new LimelightHelpers.LimelightResults();
-        if (mapper == null) {
-            mapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-        }
 
         try {
-            results = mapper.readValue(getJSONDump(limelightName), LimelightResults.class);
+            results = jsonMapper().readValue(json, LimelightResults.class);
         } catch (JsonProcessingException e) {
             results.error = "lljson error: " + e.getMessage();
         }
@@ -1644,4 +1659,28 @@ public class LimelightHelpers {
 
         return results;
     }
+
+    /**
+     * Gets the shared JSON mapper used to decode results dumps. ObjectMapper is thread-safe once
+     * configured, so the same instance serves the main loop and background workers.
+     */
+    public static synchronized ObjectMapper jsonMapper() {
+        if (mapper == null) {
+            mapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        }
+        return mapper;
+    }
+
+    /**
+     * Builds the JSON mapper and the LimelightResults deserializer ahead of time, so the first
+     * getLatestResults call in a match does not pay for Jackson's class loading and reflection.
+     * Call once during startup, before anything else parses results.
+     */
+    public static void warmUpJsonParser() {
+        try {
+            jsonMapper().readValue("{}", LimelightResults.class);
+        } catch (JsonProcessingException e) {
+            // Nothing to report; the next real parse surfaces any problem in its results
+        }
+    }
 }
\ No newline at end of file
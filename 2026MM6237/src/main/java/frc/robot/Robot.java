@@ -4,11 +4,16 @@
 
 package frc.robot;
 
+import edu.wpi.first.wpilibj.DataLogManager;
 import edu.wpi.first.wpilibj.TimedRobot;
-import edu.wpi.first.wpilibj.smartdashboard.Field2d;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import frc.robot.navigation.AllianceState;
+import frc.robot.util.AllocationTracker;
+import frc.robot.util.StartupTimeline;
+import frc.robot.vision.LimelightHealthMonitor;
+import frc.robot.vision.LimelightWriteManager;
+import frc.robot.vision.VisionFrameStream;
 
 /**
  * The methods in this class are called automatically corresponding to each mode, as described in
@@ -18,17 +23,20 @@ import edu.wpi.first.wpilibj2.command.CommandScheduler;
 public class Robot extends TimedRobot {
   private Command m_autonomousCommand;
 
+  private final StartupTimeline m_startupTimeline = new StartupTimeline();
   private final RobotContainer m_robotContainer;
-  private Field2d m_field = new Field2d();
 
   /**
    * This function is run when the robot is first started up and should be used for any
    * initialization code.
    */
   public Robot() {
+    // Record NetworkTables and the vision and path logs for every match, for tuning from logs afterward
+    DataLogManager.start();
     // Instantiate our RobotContainer.  This will perform all our button bindings, and put our
     // autonomous chooser on the dashboard.
-    m_robotContainer = new RobotContainer();
+    m_robotContainer = m_startupTimeline.call("RobotContainer", () -> new RobotContainer(m_startupTimeline));
+    m_startupTimeline.publish();
   }
 
   /**
@@ -40,16 +48,48 @@ public class Robot extends TimedRobot {
    */
   @Override
   public void robotPeriodic() {
+    // Each mark charges what the loop allocated since the previous mark to the named section.
+    AllocationTracker allocations = m_robotContainer.allocations;
+    allocations.beginCycle();
+    // Camera heartbeats first, so every vision consumer gates frames on this loop's health.
+    LimelightHealthMonitor.updateAll();
+    allocations.mark("Vision health");
+    // Then every camera's new frames, each read once and handed to all of its subscribers.
+    VisionFrameStream.pollAll();
+    allocations.mark("Vision frames");
+    // Hand finished background work back to the main thread at a fixed point, before commands read it.
+    m_robotContainer.workers.drain();
+    allocations.mark("Worker results");
+    m_robotContainer.limelightHttp.drain();
+    allocations.mark("HTTP responses");
     // Runs the Scheduler.  This is responsible for polling buttons, adding newly-scheduled
     // commands, running already-scheduled commands, removing finished or interrupted commands,
     // and running subsystem periodic() methods.  This must be called from the robot's periodic
     // block in order for anything in the Command-based framework to work.
     CommandScheduler.getInstance().run();
+    allocations.mark("Scheduler");
+    // Slower periodic work (dashboards, health checks) runs after the scheduler, spread across loops.
+    m_robotContainer.rateGroups.run();
+    allocations.mark("Rate groups");
+    // Every camera setting written this loop leaves in one NetworkTables flush.
+    LimelightWriteManager.flushAll();
+    allocations.mark("Limelight flush");
+    allocations.endCycle();
+  }
+
+  /** This function is called once when the DS first connects; the alliance is known from here on. */
+  @Override
+  public void driverStationConnected() {
+    AllianceState.refresh();
   }
 
   /** This function is called once each time the robot enters Disabled mode. */
   @Override
-  public void disabledInit() {}
+  public void disabledInit() {
+    AllianceState.refresh();
+    // An alliance change that arrived while enabled was not applied to driving; apply it now
+    m_robotContainer.drivetrain.updateOperatorPerspective();
+  }
 
   @Override
   public void disabledPeriodic() {}
@@ -57,6 +97,7 @@ public class Robot extends TimedRobot {
   /** This autonomous runs the autonomous command selected by your {@link RobotContainer} class. */
   @Override
   public void autonomousInit() {
+    AllianceState.refresh();
     m_autonomousCommand = m_robotContainer.getAutonomousCommand();
 
     // schedule the autonomous command (example)
@@ -71,6 +112,7 @@ public class Robot extends TimedRobot {
 
   @Override
   public void teleopInit() {
+    AllianceState.refresh();
     // This makes sure that the autonomous stops running when
     // teleop starts running. If you want the autonomous to
     // continue until interrupted by another command, remove
@@ -96,13 +138,11 @@ public class Robot extends TimedRobot {
 
   /** This function is called once when the robot is first started up. */
   @Override
-  public void simulationInit() {
-    SmartDashboard.putData("Field", m_field);
-  }
+  public void simulationInit() {}
 
   /** This function is called periodically whilst in simulation. */
   @Override
   public void simulationPeriodic() {
-        m_robotContainer.getSimPeriodic(m_field);
+    m_robotContainer.getSimPeriodic();
   }
 }
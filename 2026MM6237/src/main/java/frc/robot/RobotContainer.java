@@ -4,25 +4,71 @@
 
 package frc.robot;
 
+import frc.robot.Constants.AllocationConstants;
+import frc.robot.Constants.FieldConstants;
+import frc.robot.Constants.NavigationConstants;
 import frc.robot.Constants.OperatorConstants;
+import frc.robot.Constants.RateGroupConstants;
+import frc.robot.Constants.SignalConstants;
+import frc.robot.Constants.TelemetryConstants;
+import frc.robot.Constants.VisionConstants;
+import frc.robot.Constants.WorkerConstants;
+import frc.robot.commands.FaceDirectionCommand;
 import frc.robot.controllers.DriverController;
 import frc.robot.generated.TunerConstants;
+import frc.robot.navigation.AllianceState;
+import frc.robot.navigation.FieldModel;
+import frc.robot.navigation.NavGridDistanceField;
+import frc.robot.navigation.PathTrackingRecorder;
 import frc.robot.subsystems.CommandSwerveDrivetrainOld;
 import frc.robot.subsystems.ExampleSubsystem;
+import frc.robot.subsystems.GamePieceTrackingSubsystem;
+import frc.robot.subsystems.LimelightSubsystem;
+import frc.robot.subsystems.ObstacleMapSubsystem;
+import frc.robot.subsystems.VisionFusionSubsystem;
+import frc.robot.util.AllocationTracker;
+import frc.robot.util.BackgroundWorkers;
+import frc.robot.util.PoseTelemetry;
+import frc.robot.util.RateGroupScheduler;
+import frc.robot.util.StartupOrchestrator;
+import frc.robot.util.StartupTimeline;
+import frc.robot.util.StatusSignalRegistry;
+import frc.robot.vision.CameraConfig;
+import frc.robot.vision.CameraTuningController;
+import frc.robot.vision.FiducialFilterService;
+import frc.robot.vision.LimelightHealthMonitor;
+import frc.robot.vision.LimelightHttpClient;
+import frc.robot.vision.LimelightWriteManager;
+import frc.robot.vision.SimulatedLimelight;
+import frc.robot.vision.TagVisibilityPredictor;
+import frc.robot.vision.VisionFrameStream;
+import frc.robot.vision.VisionLoadTest;
 
 import static edu.wpi.first.units.Units.MetersPerSecond;
 import static edu.wpi.first.units.Units.RadiansPerSecond;
 import static edu.wpi.first.units.Units.RotationsPerSecond;
 
+import com.ctre.phoenix6.hardware.CANcoder;
+import com.ctre.phoenix6.hardware.Pigeon2;
+import com.ctre.phoenix6.hardware.TalonFX;
+import com.ctre.phoenix6.swerve.SwerveModule;
 import com.ctre.phoenix6.swerve.SwerveModule.DriveRequestType;
 import com.ctre.phoenix6.swerve.SwerveRequest;
 import com.pathplanner.lib.auto.AutoBuilder;
+import com.pathplanner.lib.util.PathPlannerLogging;
 
+import edu.wpi.first.apriltag.AprilTagFieldLayout;
+import edu.wpi.first.apriltag.AprilTagFields;
+import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.networktables.NetworkTableInstance;
-import edu.wpi.first.wpilibj.smartdashboard.Field2d;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.RobotBase;
+import edu.wpi.first.wpilibj.TimedRobot;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.smartdashboard.SendableChooser;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
 import edu.wpi.first.wpilibj2.command.button.CommandXboxController;
 import edu.wpi.first.wpilibj2.command.button.Trigger;
 
@@ -40,7 +86,7 @@ public class RobotContainer {
     private final CommandXboxController driver = new CommandXboxController(Constants.OperatorConstants.kDriverControllerPort);
     // private final CommandXboxController operator = new CommandXboxController(Constants.OperatorConstants.kOperatorControllerPort);
 
-    public final CommandSwerveDrivetrainOld drivetrain = TunerConstants.createDrivetrain();
+    public final CommandSwerveDrivetrainOld drivetrain;
       private final SendableChooser<Command> autoChooser;
 
     // Replace with CommandPS4Controller or CommandJoystick if needed
@@ -51,16 +97,216 @@ public class RobotContainer {
       .withDeadband(TunerConstants.kSpeedAt12Volts.in(MetersPerSecond)).withRotationalDeadband(RotationsPerSecond.of(0.5).in(RadiansPerSecond))
       .withDriveRequestType(DriveRequestType.OpenLoopVoltage); // Use open-loop control for drive motors
 
-    // private final LimelightSubsystem limelight = new LimelightSubsystem();
+    // Tag poses, scoring targets and headings for both alliances, with a tag visibility index
+    public final FieldModel field;
+    // Obstacle clearance for the deployed navgrid; null if the navgrid failed to load
+    public final NavGridDistanceField navGrid;
+    // Robots seen by the detector camera, layered over the navgrid; null without a navgrid
+    private final ObstacleMapSubsystem obstacleMap;
+    public final GamePieceTrackingSubsystem gamePieces;
+    // Tag lookups and alignment measurements from the default camera's JSON results, parsed on the workers
+    public final LimelightSubsystem limelight;
+    // AprilTag poses from the cameras, solved together on the roboRIO and fused into the drivetrain's pose estimate
+    public final VisionFusionSubsystem visionFusion;
+    // Publishes what the default camera would see from the simulated pose; null on the robot
+    private final SimulatedLimelight simulatedCamera;
+    // Crops and downscales the AprilTag camera around the tags the robot should see; null without a dedicated one
+    private final CameraTuningController cameraTuning;
+    // Limits the AprilTag camera to the tag IDs it could see from the pose; null without a dedicated one
+    private final FiducialFilterService fiducialFilter;
+    // Synthetic cameras driving the vision consumers; only in simulation with the load test variable set
+    private final VisionLoadTest visionLoadTest;
+
+    // Every Phoenix status signal robot code reads, kept alive while the rest are slowed to save CAN bandwidth
+    public final StatusSignalRegistry signals =
+        new StatusSignalRegistry(TunerConstants.kCANBus, SignalConstants.kBusUtilizationBudget);
+    // Periodic work that does not need to run every loop, spread across loops
+    public final RateGroupScheduler rateGroups =
+        new RateGroupScheduler(TimedRobot.kDefaultPeriod, RateGroupConstants.kHealthPeriodSeconds);
+    // Heavy work kept off the main loop; results are delivered when Robot drains it each loop
+    public final BackgroundWorkers workers =
+        new BackgroundWorkers("Worker", WorkerConstants.kWorkerThreads, WorkerConstants.kWorkerQueueCapacity);
+    // Limelight REST calls (snapshots, results, uploads); responses are drained by Robot like worker results
+    public final LimelightHttpClient limelightHttp = new LimelightHttpClient(VisionConstants.kHttpUrlFormat,
+        VisionConstants.kHttpThreads, VisionConstants.kHttpMaxConcurrentRequests, VisionConstants.kHttpMaxQueuedRequests,
+        VisionConstants.kHttpConnectTimeoutSeconds, VisionConstants.kHttpRequestTimeoutSeconds);
+    // Pose, module states, vision estimates and the followed path as struct topics for AdvantageScope
+    public final PoseTelemetry poseTelemetry =
+        new PoseTelemetry(TelemetryConstants.kTableName, TelemetryConstants.kMaxVisionEstimatesPerPublish);
+    // Heap allocation per loop by section; always on in simulation
+    public final AllocationTracker allocations =
+        new AllocationTracker(RobotBase.isSimulation() || AllocationConstants.kTrackOnRobot);
+
+    /**
+     * The container for the robot. Contains subsystems, OI devices, and commands.
+     *
+     * @param timeline Startup timeline to record each initialization phase into
+     */
+    public RobotContainer(StartupTimeline timeline) {
+      StartupOrchestrator startup = new StartupOrchestrator(timeline, 3);
+
+      // Configuring the swerve CAN devices dominates boot time; load everything that does not need
+      // the drivetrain alongside it. Background phases must not touch the CommandScheduler or
+      // AutoBuilder, so AutoBuilder is configured on the main thread once the drivetrain is built.
+      var drivetrainPhase = startup.start("Drivetrain", TunerConstants::createDrivetrain);
+      var navGridPhase = startup.start("Navgrid distance field", NavGridDistanceField::loadDefault);
+      startup.startTask("Vision setup", LimelightHelpers::warmUpJsonParser);
+      var fieldLayoutPhase = startup.start("Field layout", () -> AprilTagFieldLayout.loadField(AprilTagFields.kDefaultField));
+      var fieldModelPhase = startup.start("Field model", () -> new FieldModel(fieldLayoutPhase.join(),
+          FieldConstants.kBlueScoringTargets, FieldConstants.kIndexCellSizeMeters, FieldConstants.kIndexMaxTagDistanceMeters),
+          fieldLayoutPhase);
+      var simulatedCameraPhase = startup.start("Simulated camera", () -> RobotBase.isSimulation()
+          ? new SimulatedLimelight(VisionConstants.kDefaultCamera, fieldLayoutPhase.join())
+          : null, fieldLayoutPhase);
+      // Cropping and ID filtering would hide detections, so they only run on an AprilTag-only camera
+      CameraConfig tunedCamera = VisionConstants.kTunedAprilTagCamera != null
+          && !VisionConstants.kTunedAprilTagCamera.name.equals(VisionConstants.kDetectorCamera.name)
+          ? VisionConstants.kTunedAprilTagCamera : null;
+      var cameraTuningPhase = startup.start("Camera tuning", () -> tunedCamera == null ? null : new CameraTuningController(
+          new TagVisibilityPredictor(tunedCamera, fieldModelPhase.join(), VisionConstants.kTagSizeMeters,
+              VisionConstants.kTuningMaxTagDistanceMeters, VisionConstants.kTuningMaxViewAngleDegrees, 0),
+          VisionConstants.kTuningCropMargin, VisionConstants.kTuningMinTagPixels, VisionConstants.kAprilTagImageWidthPixels,
+          VisionConstants.kAutoAprilTagPipeline, VisionConstants.kTeleopAprilTagPipeline,
+          VisionConstants.kTuningLostUpdatesBeforeFullFrame), fieldModelPhase);
+      var fiducialFilterPhase = startup.start("Fiducial filter", () -> tunedCamera == null ? null : new FiducialFilterService(
+          fieldModelPhase.join(), VisionConstants.kTagSizeMeters, VisionConstants.kFilterMaxTagDistanceMeters,
+          VisionConstants.kFilterMaxViewAngleDegrees, VisionConstants.kFilterFovMarginDegrees,
+          tunedCamera), fieldModelPhase);
+
+      drivetrain = drivetrainPhase.join();
+      startup.runOnMainThread("AutoBuilder", drivetrain::configureAutoBuilder);
+      field = fieldModelPhase.join();
+      navGrid = navGridPhase.join();
+      simulatedCamera = simulatedCameraPhase.join();
+      cameraTuning = cameraTuningPhase.join();
+      fiducialFilter = fiducialFilterPhase.join();
+
+      obstacleMap = startup.onMainThread("Obstacle map",
+          () -> navGrid != null ? new ObstacleMapSubsystem(navGrid, drivetrain, VisionConstants.kDetectorCamera) : null);
+      gamePieces = startup.onMainThread("Game piece tracking",
+          () -> new GamePieceTrackingSubsystem(drivetrain, VisionConstants.kDetectorCamera));
+      limelight = startup.onMainThread("Limelight", () -> {
+        LimelightSubsystem camera = new LimelightSubsystem(VisionConstants.kDefaultCamera.name, workers, limelightHttp);
+        camera.register();
+        return camera;
+      });
+      visionFusion = startup.onMainThread("Vision fusion",
+          () -> new VisionFusionSubsystem(drivetrain, poseTelemetry, field, VisionConstants.kDefaultCamera));
+      visionLoadTest = startup.onMainThread("Vision load test",
+          () -> RobotBase.isSimulation() ? VisionLoadTest.fromEnvironment(workers, drivetrain::addVisionMeasurement) : null);
+      registerDrivetrainSignals();
+      // Subsystems have declared their signals; applying rates blocks on CAN acks, so do it off the main thread
+      startup.startTask("Status signals", signals::configure);
+
+      startup.runOnMainThread("Rate groups", this::configureRateGroups);
 
-    /** The container for the robot. Contains subsystems, OI devices, and commands. */
-    public RobotContainer() {
       // Configure the trigger bindings
-      configureBindings();
-      autoChooser = AutoBuilder.buildAutoChooser("DefaultPath");
+      startup.runOnMainThread("Bindings", this::configureBindings);
+      startup.runOnMainThread("Allocation tracking", this::configureAllocationTracking);
+      autoChooser = startup.onMainThread("Autos", () -> AutoBuilder.buildAutoChooser("DefaultAuto"));
       SmartDashboard.putData("Auto Mode", autoChooser);
+
+      startup.finish();
+    }
+
+
+    /**
+     * Declares the swerve devices to the signal registry. The odometry thread refreshes the drive,
+     * steer and gyro signals itself at the odometry rate, so they are only protected from bus
+     * optimization, never refreshed by the registry.
+     */
+    private void registerDrivetrainSignals() {
+      for (SwerveModule<TalonFX, TalonFX, CANcoder> module : drivetrain.getModules()) {
+        TalonFX drive = module.getDriveMotor();
+        TalonFX steer = module.getSteerMotor();
+        CANcoder encoder = module.getEncoder();
+        signals.addDevices(drive, steer, encoder);
+        signals.registerExternal(drive.getPosition(false), drive.getVelocity(false),
+            steer.getPosition(false), steer.getVelocity(false));
+        signals.registerExternal(SignalConstants.kFusedEncoderFrequencyHz,
+            encoder.getPosition(false), encoder.getVelocity(false));
+      }
+      Pigeon2 pigeon = drivetrain.getPigeon2();
+      signals.addDevices(pigeon);
+      signals.registerExternal(pigeon.getYaw(false), pigeon.getAngularVelocityZWorld(false));
     }
 
+    /**
+     * Registers periodic work that runs slower than the main loop.
+     */
+    private void configureRateGroups() {
+      // The alliance only changes while disabled; mode changes refresh it from Robot
+      rateGroups.register("Alliance", FieldConstants.kAllianceRefreshPeriodSeconds, () -> {
+        if (DriverStation.isDisabled()) {
+          AllianceState.refresh();
+        }
+      });
+      AllianceState.addListener(drivetrain::updateOperatorPerspective);
+      rateGroups.register("Limelight dashboard", RateGroupConstants.kDashboardPeriodSeconds, limelight::updateDashboard);
+      rateGroups.register("Game piece dashboard", RateGroupConstants.kDashboardPeriodSeconds, gamePieces::publishTelemetry);
+      rateGroups.register("Vision fusion dashboard", RateGroupConstants.kDashboardPeriodSeconds, visionFusion::publishTelemetry);
+      rateGroups.register("Vision noise model", RateGroupConstants.kHealthPeriodSeconds, visionFusion::publishNoiseTelemetry);
+      if (cameraTuning != null) {
+        rateGroups.register("Camera tuning", VisionConstants.kCameraTuningPeriodSeconds, this::updateCameraTuning);
+      }
+      if (fiducialFilter != null) {
+        rateGroups.register("Fiducial filter", VisionConstants.kFiducialFilterPeriodSeconds, this::updateFiducialFilter);
+      }
+      rateGroups.register("Vision health", RateGroupConstants.kDashboardPeriodSeconds, LimelightHealthMonitor::publishAllTelemetry);
+      rateGroups.register("Vision frames", RateGroupConstants.kDashboardPeriodSeconds, VisionFrameStream::publishAllTelemetry);
+      rateGroups.register("Limelight writes", RateGroupConstants.kHealthPeriodSeconds, LimelightWriteManager::publishTelemetry);
+      if (obstacleMap != null) {
+        rateGroups.register("Pathfinder obstacles", VisionConstants.kPathfinderObstacleUpdatePeriodSeconds,
+            obstacleMap::updatePathfinderObstacles);
+      }
+      rateGroups.register("Drivetrain telemetry", TelemetryConstants.kDrivetrainPeriodSeconds,
+          () -> poseTelemetry.publishDrivetrain(drivetrain.getState()));
+      rateGroups.register("Vision telemetry", TelemetryConstants.kVisionPeriodSeconds, poseTelemetry::publishVision);
+      rateGroups.register("Path telemetry", TelemetryConstants.kPathPeriodSeconds, poseTelemetry::publishPath);
+      // Each PathPlannerLogging callback is a single slot, so the path telemetry and tracking record share it
+      PathTrackingRecorder pathTracking = new PathTrackingRecorder(drivetrain::getState,
+          NavigationConstants.kPathTrackingMaxSamples, NavigationConstants.kPathTrackingMinLagSpeedMps);
+      PathPlannerLogging.setLogTargetPoseCallback(target -> {
+        poseTelemetry.setTargetPose(target);
+        pathTracking.recordTarget(target);
+      });
+      PathPlannerLogging.setLogActivePathCallback(poses -> {
+        poseTelemetry.setActiveTrajectory(poses);
+        pathTracking.setActivePath(poses);
+      });
+      rateGroups.register("CAN utilization", RateGroupConstants.kHealthPeriodSeconds, signals::publishTelemetry);
+      rateGroups.register("Background workers", RateGroupConstants.kHealthPeriodSeconds, workers::publishTelemetry);
+      rateGroups.register("Limelight HTTP", RateGroupConstants.kHealthPeriodSeconds, limelightHttp::publishTelemetry);
+    }
+
+    private void updateCameraTuning() {
+      Pose2d pose = drivetrain.getState().Pose;
+      cameraTuning.update(pose.getX(), pose.getY(), pose.getRotation().getRadians(),
+          LimelightHelpers.getTV(VisionConstants.kTunedAprilTagCamera.name));
+    }
+
+    private void updateFiducialFilter() {
+      Pose2d pose = drivetrain.getState().Pose;
+      boolean trusted = visionFusion.hasRecentMeasurement(Timer.getFPGATimestamp(), VisionConstants.kFilterTrustedPoseSeconds);
+      fiducialFilter.update(pose.getX(), pose.getY(), pose.getRotation().getRadians(), trusted);
+    }
+
+    /**
+     * Sets per-loop allocation budgets and hooks the tracker into the scheduler, rate groups and
+     * background workers. Runs after the bindings so the scheduler hook sees every trigger.
+     */
+    private void configureAllocationTracking() {
+      allocations.setBudget(AllocationTracker.kCycleSection, AllocationConstants.kCycleBudgetBytes);
+      allocations.setBudget(DriverController.kDefaultDriveCommandName, AllocationConstants.kDefaultDriveBudgetBytes);
+      allocations.setBudget(FaceDirectionCommand.class.getSimpleName(), AllocationConstants.kFaceDirectionBudgetBytes);
+      allocations.setBudget(LimelightSubsystem.kJsonParseJobName, AllocationConstants.kLimelightDecodeBudgetBytes);
+      allocations.install(CommandScheduler.getInstance());
+      rateGroups.setAllocationTracker(allocations);
+      workers.setAllocationTracker(allocations);
+      if (allocations.isEnabled()) {
+        rateGroups.register("Allocation telemetry", RateGroupConstants.kHealthPeriodSeconds, allocations::publishTelemetry);
+      }
+    }
 
     /**
      * Use this method to define your trigger->command mappings. Triggers can be created via the
@@ -100,7 +346,12 @@ public class RobotContainer {
       // return new Command(){};
     }
 
-    public void getSimPeriodic(Field2d field) {
-      field.setRobotPose(drivetrain.getState().Pose);
+    public void getSimPeriodic() {
+      if (simulatedCamera != null) {
+        simulatedCamera.update(Timer.getFPGATimestamp(), drivetrain.getState().Pose);
+      }
+      if (visionLoadTest != null) {
+        visionLoadTest.runCycle();
+      }
     }
 }
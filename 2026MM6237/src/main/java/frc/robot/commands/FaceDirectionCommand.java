@@ -10,7 +10,9 @@ import com.ctre.phoenix6.swerve.SwerveModule.DriveRequestType;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.wpilibj2.command.Command;
 import frc.robot.Constants;
+import frc.robot.navigation.FieldModel;
 import frc.robot.subsystems.CommandSwerveDrivetrainOld;
+import frc.robot.util.PoseMath;
 
 /**
  * Command that rotates the robot to face a specific direction relative to the field.
@@ -18,7 +20,9 @@ import frc.robot.subsystems.CommandSwerveDrivetrainOld;
  */
 public class FaceDirectionCommand extends Command {
     private final CommandSwerveDrivetrainOld drivetrain;
-    private final Rotation2d targetRotation;
+    /* Heading relative to the alliance wall, resolved when the command starts; null for a fixed heading */
+    private final FieldModel.Heading heading;
+    private Rotation2d targetRotation;
     private final SwerveRequest.FieldCentric driveRequest;
 
     /**
@@ -28,7 +32,22 @@ public class FaceDirectionCommand extends Command {
      * @param targetRotation The target rotation to face (0° = forward, 90° = left, 180° = back, 270° = right)
      */
     public FaceDirectionCommand(CommandSwerveDrivetrainOld drivetrain, Rotation2d targetRotation) {
+        this(drivetrain, null, targetRotation);
+    }
+
+    /**
+     * Creates a FaceDirectionCommand for a heading relative to the current alliance's driver station.
+     *
+     * @param drivetrain The swerve drivetrain subsystem
+     * @param heading The heading to face, looked up for the alliance each time the command starts
+     */
+    public FaceDirectionCommand(CommandSwerveDrivetrainOld drivetrain, FieldModel.Heading heading) {
+        this(drivetrain, heading, FieldModel.getHeading(heading));
+    }
+
+    private FaceDirectionCommand(CommandSwerveDrivetrainOld drivetrain, FieldModel.Heading heading, Rotation2d targetRotation) {
         this.drivetrain = drivetrain;
+        this.heading = heading;
         this.targetRotation = targetRotation;
         
         // Create a field-centric request for applying direct rotational rates
@@ -47,28 +66,27 @@ public class FaceDirectionCommand extends Command {
      * @param direction The direction to face: "forward", "left", "backward", "right", or "operator"
      */
     public FaceDirectionCommand(CommandSwerveDrivetrainOld drivetrain, String direction) {
-        this(drivetrain, getRotationForDirection(direction));
+        this(drivetrain, getHeadingForDirection(direction));
     }
 
     /**
-     * Helper method to convert direction strings to Rotation2d angles.
-     * Assuming the field is oriented with:
-     * - 0° = Forward (toward red alliance wall)
-     * - 90° = Left wall
-     * - 180° = Backward (toward blue alliance wall)
-     * - 270°/−90° = Right wall
-     * - 180° = Operator (assuming operator is at blue alliance wall)
+     * Helper method to convert direction strings to headings relative to the alliance's driver station:
+     * - Forward = away from the driver station
+     * - Left = left wall as seen from the driver station
+     * - Backward = toward the driver station
+     * - Right = right wall as seen from the driver station
+     * - Operator = alternative name for backward
      *
      * @param direction The direction string ("forward", "left", "backward", "right", "operator")
-     * @return The corresponding Rotation2d angle
+     * @return The corresponding heading
      */
-    private static Rotation2d getRotationForDirection(String direction) {
+    private static FieldModel.Heading getHeadingForDirection(String direction) {
         return switch (direction.toLowerCase()) {
-            case "forward" -> Rotation2d.kZero; // Y button: face forward (0°)
-            case "left" -> Rotation2d.fromDegrees(90); // X button: face left wall (90°)
-            case "backward" -> Rotation2d.k180deg; // A button: face operator/backward (180°)
-            case "right" -> Rotation2d.fromDegrees(270); // B button: face right wall (270°)
-            case "operator" -> Rotation2d.k180deg; // Alternative name for backward
+            case "forward" -> FieldModel.Heading.FORWARD; // Y button
+            case "left" -> FieldModel.Heading.LEFT; // X button
+            case "backward" -> FieldModel.Heading.BACKWARD; // A button
+            case "right" -> FieldModel.Heading.RIGHT; // B button
+            case "operator" -> FieldModel.Heading.BACKWARD; // Alternative name for backward
             default -> throw new IllegalArgumentException("Invalid direction: " + direction);
         };
     }
@@ -76,16 +94,36 @@ public class FaceDirectionCommand extends Command {
     @Override
     public void initialize() {
         // Command starts - will continuously try to face the target direction
+        if (heading != null) {
+            targetRotation = FieldModel.getHeading(heading);
+        }
     }
 
     @Override
     public void execute() {
         // Get current robot rotation
-        Rotation2d currentRotation = drivetrain.getState().Pose.getRotation();
+        double currentRadians = drivetrain.getState().Pose.getRotation().getRadians();
         
+        // Apply the command with no translation, only rotation
+        drivetrain.setControl(
+            driveRequest
+                .withVelocityX(0)
+                .withVelocityY(0)
+                .withRotationalRate(getRotationalRate(targetRotation.getRadians(), currentRadians))
+        );
+    }
+
+    /**
+     * Computes the turn rate toward a heading. Runs every loop the command is active, so it must not
+     * allocate.
+     *
+     * @param targetRadians Heading to face
+     * @param currentRadians Robot's current heading
+     * @return Rotational rate in radians per second, clamped to the maximum angular rate
+     */
+    public static double getRotationalRate(double targetRadians, double currentRadians) {
         // Calculate the shortest rotation error
-        Rotation2d rotationError = targetRotation.minus(currentRotation);
-        double errorRadians = rotationError.getRadians();
+        double errorRadians = PoseMath.angleDifference(targetRadians, currentRadians);
         
         // Calculate desired rotational rate with proportional control
         // Scale the error by a gain to convert angle error to rotation speed
@@ -109,18 +147,10 @@ public class FaceDirectionCommand extends Command {
         }
         
         // Clamp to maximum angular rate
-        rotationalRate = Math.max(
+        return Math.max(
             -Constants.TempSwerve.MaxAngularRate,
             Math.min(Constants.TempSwerve.MaxAngularRate, rotationalRate)
         );
-        
-        // Apply the command with no translation, only rotation
-        drivetrain.setControl(
-            driveRequest
-                .withVelocityX(0)
-                .withVelocityY(0)
-                .withRotationalRate(rotationalRate)
-        );
     }
 
     @Override
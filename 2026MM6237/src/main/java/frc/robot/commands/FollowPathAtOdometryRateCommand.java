@@ -0,0 +1,109 @@
+package frc.robot.commands;
+
+import com.ctre.phoenix6.swerve.SwerveDrivetrain.SwerveDriveState;
+import com.ctre.phoenix6.swerve.SwerveRequest;
+import com.pathplanner.lib.config.RobotConfig;
+import com.pathplanner.lib.events.EventScheduler;
+import com.pathplanner.lib.path.IdealStartingState;
+import com.pathplanner.lib.path.PathPlannerPath;
+import com.pathplanner.lib.trajectory.PathPlannerTrajectory;
+import com.pathplanner.lib.util.PathPlannerLogging;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.wpilibj2.command.Command;
+import frc.robot.Constants.NavigationConstants;
+import frc.robot.navigation.AllianceState;
+import frc.robot.navigation.FollowTrajectoryRequest;
+import frc.robot.subsystems.CommandSwerveDrivetrainOld;
+
+/**
+ * Follows a PathPlanner path with the sampling and feedback running on the drivetrain's odometry
+ * thread through a {@link FollowTrajectoryRequest}. AutoBuilder builds one of these for every path an
+ * auto follows.
+ *
+ * Everything else matches PathPlanner's FollowPathCommand: the path is flipped for the red alliance,
+ * the pre-generated ideal trajectory is used when the robot starts close enough to its ideal state,
+ * event markers run on the main thread, and the path and target pose go to PathPlannerLogging.
+ */
+public class FollowPathAtOdometryRateCommand extends Command {
+    private final PathPlannerPath originalPath;
+    private final CommandSwerveDrivetrainOld drivetrain;
+    private final RobotConfig robotConfig;
+    private final FollowTrajectoryRequest request;
+    private final SwerveRequest.ApplyRobotSpeeds stop = new SwerveRequest.ApplyRobotSpeeds();
+    private final EventScheduler eventScheduler = new EventScheduler();
+
+    private PathPlannerPath path;
+    private PathPlannerTrajectory trajectory;
+
+    /**
+     * @param path Path as drawn for the blue alliance
+     * @param drivetrain Drivetrain to follow it with
+     * @param robotConfig Robot limits for generating the trajectory
+     * @param request Request shared by every path, so the drivetrain keeps one control object
+     */
+    public FollowPathAtOdometryRateCommand(PathPlannerPath path, CommandSwerveDrivetrainOld drivetrain,
+            RobotConfig robotConfig, FollowTrajectoryRequest request) {
+        this.originalPath = path;
+        this.drivetrain = drivetrain;
+        this.robotConfig = robotConfig;
+        this.request = request;
+        addRequirements(drivetrain);
+        addRequirements(EventScheduler.getSchedulerRequirements(path));
+    }
+
+    @Override
+    public void initialize() {
+        path = AllianceState.isRed() && !originalPath.preventFlipping ? originalPath.flipPath() : originalPath;
+
+        SwerveDriveState state = drivetrain.getState();
+        Pose2d pose = state.Pose;
+        ChassisSpeeds speeds = state.Speeds;
+        trajectory = null;
+        IdealStartingState ideal = path.getIdealStartingState();
+        if (ideal != null) {
+            // Same tolerances as FollowPathCommand for reusing the trajectory generated at load time
+            boolean idealVelocity = Math.abs(Math.hypot(speeds.vxMetersPerSecond, speeds.vyMetersPerSecond)
+                - ideal.velocityMPS()) <= NavigationConstants.kPathIdealStartVelocityToleranceMps;
+            boolean idealRotation = Math.abs(pose.getRotation().minus(ideal.rotation()).getDegrees())
+                <= NavigationConstants.kPathIdealStartRotationToleranceDegrees;
+            if (idealVelocity && idealRotation) {
+                trajectory = path.getIdealTrajectory(robotConfig).orElse(null);
+            }
+        }
+        if (trajectory == null) {
+            trajectory = path.generateTrajectory(speeds, pose.getRotation(), robotConfig);
+        }
+
+        drivetrain.setControl(request.setTrajectory(trajectory));
+        PathPlannerLogging.logActivePath(path);
+        eventScheduler.initialize(trajectory);
+    }
+
+    @Override
+    public void execute() {
+        eventScheduler.execute(request.getElapsedSeconds());
+        PathPlannerLogging.logCurrentPose(drivetrain.getState().Pose);
+        PathPlannerLogging.logTargetPose(new Pose2d(request.getTargetX(), request.getTargetY(),
+            new Rotation2d(request.getTargetHeading())));
+    }
+
+    @Override
+    public boolean isFinished() {
+        return request.isFinished();
+    }
+
+    @Override
+    public void end(boolean interrupted) {
+        // An interrupted path must not keep driving on the odometry thread with nothing requiring the
+        // drivetrain. A finished path stops only where it ends at rest; one ending at speed hands its
+        // motion to whatever follows
+        if (interrupted || trajectory.getEndState().linearVelocity < NavigationConstants.kPathEndStopVelocityMps) {
+            drivetrain.setControl(stop.withSpeeds(new ChassisSpeeds()));
+        }
+        PathPlannerLogging.logActivePath(null);
+        eventScheduler.end();
+    }
+}
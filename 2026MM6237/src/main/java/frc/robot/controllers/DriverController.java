@@ -22,6 +22,8 @@ public class DriverController {
 
     public static Trigger robotCentricControl;
 
+    public static final String kDefaultDriveCommandName = "Default drive";
+
     private static final SwerveRequest.FieldCentric drive = new SwerveRequest.FieldCentric()
         .withDeadband(Constants.TempSwerve.MaxSpeed * OperatorConstants.driverStickDeadband).withRotationalDeadband(Constants.TempSwerve.MaxAngularRate * Constants.OperatorConstants.driverStickDeadband)
         .withDriveRequestType(DriveRequestType.OpenLoopVoltage);
@@ -31,23 +33,11 @@ public class DriverController {
         .withDriveRequestType(DriveRequestType.OpenLoopVoltage);
 
     public static void mapXboxController(CommandXboxController driverController, CommandSwerveDrivetrainOld drivetrain, NetworkTable limelight) {
-        robotCentricControl = new Trigger(() -> driverController.getLeftTriggerAxis() > Constants.OperatorConstants.kTriggerButtonThreshold);
+        robotCentricControl = new Trigger(() -> isRobotCentric(driverController));
 
-        Command defaultDrivetrainCommand = drivetrain.applyRequest(() -> {
-            if (robotCentricControl.getAsBoolean()) {
-                // Robot-centric control when left trigger is pressed
-                return robotCentricDrive
-                    .withVelocityX(invertXNumberRobotCentric * driverController.getLeftY() * Constants.TempSwerve.MaxSpeed) // Drive forward with negative Y (forward)
-                    .withVelocityY(invertYNumberRobotCentric * driverController.getLeftX() * Constants.TempSwerve.MaxSpeed) // Drive left with negative X (left)
-                    .withRotationalRate(-1 * driverController.getRightX() * Constants.TempSwerve.MaxAngularRate); // Drive counterclockwise with negative X (left)
-            } else {
-                // Field-centric control (default)
-                return drive
-                    .withVelocityX(invertXNumberFieldCentric * driverController.getLeftY() * Constants.TempSwerve.MaxSpeed) // Drive forward with negative Y (forward)
-                    .withVelocityY(invertXNumberFieldCentric * driverController.getLeftX() * Constants.TempSwerve.MaxSpeed) // Drive left with negative X (left)
-                    .withRotationalRate(-1 * driverController.getRightX() * Constants.TempSwerve.MaxAngularRate); // Drive counterclockwise with negative X (left)
-            }
-        });
+        Command defaultDrivetrainCommand = drivetrain.applyRequest(() -> getDriveRequest(driverController));
+        // Named so allocation tracking and the scheduler dashboard can tell it apart
+        defaultDrivetrainCommand.setName(kDefaultDriveCommandName);
 
         drivetrain.setDefaultCommand(
             // Drivetrain will execute this command periodically
@@ -55,16 +45,43 @@ public class DriverController {
         );
 
         // Map face buttons to face specific directions
-        // Y button: Face forward (toward red alliance wall)
+        // Y button: Face forward (away from our driver station)
         driverController.y().whileTrue(new FaceDirectionCommand(drivetrain, "forward"));
         
-        // X button: Face left wall
+        // X button: Face the left wall as seen from our driver station
         driverController.x().whileTrue(new FaceDirectionCommand(drivetrain, "left"));
         
-        // B button: Face right wall
+        // B button: Face the right wall as seen from our driver station
         driverController.b().whileTrue(new FaceDirectionCommand(drivetrain, "right"));
         
-        // A button: Face operator/backward (toward blue alliance wall)
+        // A button: Face operator/backward (toward our driver station)
         driverController.a().whileTrue(new FaceDirectionCommand(drivetrain, "operator"));
     }
+
+    private static boolean isRobotCentric(CommandXboxController driverController) {
+        return driverController.getLeftTriggerAxis() > Constants.OperatorConstants.kTriggerButtonThreshold;
+    }
+
+    /**
+     * Builds the default drive command's request from the sticks. Runs every loop the default
+     * command is active, so it must not allocate.
+     *
+     * @param driverController Driver controller to read the sticks and left trigger from
+     * @return Shared request updated with this loop's speeds
+     */
+    public static SwerveRequest getDriveRequest(CommandXboxController driverController) {
+        if (isRobotCentric(driverController)) {
+            // Robot-centric control when left trigger is pressed
+            return robotCentricDrive
+                .withVelocityX(invertXNumberRobotCentric * driverController.getLeftY() * Constants.TempSwerve.MaxSpeed) // Drive forward with negative Y (forward)
+                .withVelocityY(invertYNumberRobotCentric * driverController.getLeftX() * Constants.TempSwerve.MaxSpeed) // Drive left with negative X (left)
+                .withRotationalRate(-1 * driverController.getRightX() * Constants.TempSwerve.MaxAngularRate); // Drive counterclockwise with negative X (left)
+        } else {
+            // Field-centric control (default)
+            return drive
+                .withVelocityX(invertXNumberFieldCentric * driverController.getLeftY() * Constants.TempSwerve.MaxSpeed) // Drive forward with negative Y (forward)
+                .withVelocityY(invertXNumberFieldCentric * driverController.getLeftX() * Constants.TempSwerve.MaxSpeed) // Drive left with negative X (left)
+                .withRotationalRate(-1 * driverController.getRightX() * Constants.TempSwerve.MaxAngularRate); // Drive counterclockwise with negative X (left)
+        }
+    }
 }
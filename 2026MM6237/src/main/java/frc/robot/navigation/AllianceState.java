@@ -0,0 +1,73 @@
+package frc.robot.navigation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.DriverStation.Alliance;
+
+/**
+ * The one cached copy of the robot's alliance.
+ *
+ * The alliance only changes when the DS or FMS sends it, which happens while disabled. Robot refreshes
+ * this cache on DS events (first connection and every mode change) and at a slow rate while disabled;
+ * everything else reads a plain field instead of calling {@link DriverStation#getAlliance()}, which
+ * locks and builds an Optional on every call. Until the DS reports an alliance, blue is assumed.
+ *
+ * Main thread only.
+ */
+public final class AllianceState {
+    /** Index of the blue alliance in per-alliance arrays */
+    public static final int kBlue = 0;
+    /** Index of the red alliance in per-alliance arrays */
+    public static final int kRed = 1;
+
+    private static int alliance = kBlue;
+    private static boolean known = false;
+    private static final List<Runnable> listeners = new ArrayList<>();
+
+    private AllianceState() {
+        throw new UnsupportedOperationException("This is a utility class!");
+    }
+
+    /**
+     * Reads the alliance from the DS and notifies listeners if it changed.
+     */
+    public static void refresh() {
+        Optional<Alliance> reported = DriverStation.getAlliance();
+        if (reported.isEmpty()) {
+            return;
+        }
+        int updated = reported.get() == Alliance.Red ? kRed : kBlue;
+        boolean changed = !known || updated != alliance;
+        alliance = updated;
+        known = true;
+        if (changed) {
+            for (Runnable listener : listeners) {
+                listener.run();
+            }
+        }
+    }
+
+    /**
+     * Runs a callback on the main thread every time the alliance is first reported or changes.
+     */
+    public static void addListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    /** Index of the current alliance, {@link #kBlue} or {@link #kRed} */
+    public static int get() {
+        return alliance;
+    }
+
+    public static boolean isRed() {
+        return alliance == kRed;
+    }
+
+    /** Whether the DS has reported an alliance yet */
+    public static boolean isKnown() {
+        return known;
+    }
+}
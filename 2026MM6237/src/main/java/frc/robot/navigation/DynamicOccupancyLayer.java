@@ -0,0 +1,258 @@
+package frc.robot.navigation;
+
+import java.util.Arrays;
+
+import frc.robot.vision.CameraConfig;
+import frc.robot.vision.GroundProjection;
+
+/**
+ * Time-decaying occupancy layer over the navgrid, fed by neural detector results.
+ *
+ * Each detection is projected onto the field using the robot pose at the frame timestamp and raises
+ * the occupancy of every node under the detected object's footprint. Occupancy decays exponentially
+ * toward zero when nothing re-observes a node, so objects that leave the field of view fade out
+ * instead of sticking forever. A layer built with {@link #matching} also drops detections that project
+ * into or right against a field element of its navgrid: no robot's center can be there, so they are
+ * misprojections, or robots seen over the element whose true position the projection cannot recover.
+ *
+ * All state lives in fixed primitive arrays sized once at construction, so updates at camera rate do
+ * not allocate. Decay is applied lazily per node when it is touched or read.
+ */
+public class DynamicOccupancyLayer {
+    /** Largest detector class ID that can be configured */
+    public static final int kMaxClasses = 32;
+    /** Number of values per detection in the Limelight "rawdetections" array */
+    public static final int kValuesPerRawDetection = 12;
+
+    private final int rows;
+    private final int cols;
+    private final double nodeSizeMeters;
+    private final double decayTimeConstantSeconds;
+    /* Static field the layer is aligned with; null to accept detections anywhere on the grid */
+    private final NavGridDistanceField staticField;
+    private final double minStaticClearanceMeters;
+
+    /* Row-major occupancy probability as of the matching stamp */
+    private final float[] occupancy;
+    private final double[] stamps;
+
+    /* Per-class footprint; a radius of 0 means the class is ignored */
+    private final double[] classRadiusMeters = new double[kMaxClasses];
+    private final double[] classHitProbability = new double[kMaxClasses];
+    private final double[] classHeightMeters = new double[kMaxClasses];
+
+    private final double[] projection = new double[3];
+
+    private final Object snapshotLock = new Object();
+    private final float[] snapshot;
+    private double snapshotTimestamp = Double.NaN;
+
+    /**
+     * Creates an empty occupancy layer.
+     *
+     * @param rows Number of rows (Y direction)
+     * @param cols Number of columns (X direction)
+     * @param nodeSizeMeters Edge length of one node
+     * @param decayTimeConstantSeconds Time for an unobserved node to decay to 1/e of its occupancy
+     */
+    public DynamicOccupancyLayer(int rows, int cols, double nodeSizeMeters, double decayTimeConstantSeconds) {
+        this(rows, cols, nodeSizeMeters, decayTimeConstantSeconds, null, 0);
+    }
+
+    private DynamicOccupancyLayer(int rows, int cols, double nodeSizeMeters, double decayTimeConstantSeconds,
+                                  NavGridDistanceField staticField, double minStaticClearanceMeters) {
+        this.rows = rows;
+        this.cols = cols;
+        this.nodeSizeMeters = nodeSizeMeters;
+        this.decayTimeConstantSeconds = decayTimeConstantSeconds;
+        this.staticField = staticField;
+        this.minStaticClearanceMeters = minStaticClearanceMeters;
+        this.occupancy = new float[rows * cols];
+        this.stamps = new double[rows * cols];
+        this.snapshot = new float[rows * cols];
+    }
+
+    /**
+     * Creates an empty occupancy layer aligned node-for-node with a static navgrid.
+     *
+     * @param navGrid Static navgrid to align with
+     * @param decayTimeConstantSeconds Time for an unobserved node to decay to 1/e of its occupancy
+     * @param minStaticClearanceMeters Detections projected closer than this to a navgrid obstacle's edge,
+     *     or inside one, are dropped
+     */
+    public static DynamicOccupancyLayer matching(NavGridDistanceField navGrid, double decayTimeConstantSeconds,
+                                                 double minStaticClearanceMeters) {
+        return new DynamicOccupancyLayer(navGrid.getRows(), navGrid.getCols(), navGrid.getNodeSizeMeters(),
+            decayTimeConstantSeconds, navGrid, minStaticClearanceMeters);
+    }
+
+    /**
+     * Configures how detections of one detector class are written into the layer.
+     *
+     * @param classId Detector class ID
+     * @param radiusMeters Radius of the footprint marked around the detection, 0 to ignore the class
+     * @param hitProbability Occupancy evidence added by one detection, in (0, 1]
+     * @param targetHeightMeters Height of the box center above the floor, used for ground projection
+     */
+    public void setClassFootprint(int classId, double radiusMeters, double hitProbability, double targetHeightMeters) {
+        if (classId < 0 || classId >= kMaxClasses) {
+            throw new IllegalArgumentException("Detector class ID out of range: " + classId);
+        }
+        classRadiusMeters[classId] = radiusMeters;
+        classHitProbability[classId] = Math.max(0.0, Math.min(1.0, hitProbability));
+        classHeightMeters[classId] = targetHeightMeters;
+    }
+
+    // ======================== UPDATES ========================
+
+    /**
+     * Adds one camera frame of detections in the Limelight "rawdetections" layout
+     * (classId, txnc, tync, ta, then four corner pairs per detection).
+     *
+     * @param camera Camera that produced the frame
+     * @param rawDetections Flat detection array
+     * @param timestampSeconds Frame capture time
+     * @param robotX Robot field X at the capture time
+     * @param robotY Robot field Y at the capture time
+     * @param robotHeadingRadians Robot heading at the capture time
+     * @param maxRangeMeters Detections projected farther than this are ignored
+     * @return Number of detections written into the layer, not counting those dropped against a static obstacle
+     */
+    public int addDetections(CameraConfig camera, double[] rawDetections, double timestampSeconds,
+                             double robotX, double robotY, double robotHeadingRadians, double maxRangeMeters) {
+        if (rawDetections.length % kValuesPerRawDetection != 0) {
+            return 0;
+        }
+        int written = 0;
+        for (int base = 0; base < rawDetections.length; base += kValuesPerRawDetection) {
+            int classId = (int) rawDetections[base];
+            if (classId < 0 || classId >= kMaxClasses || classRadiusMeters[classId] <= 0) {
+                continue;
+            }
+            if (!GroundProjection.projectToField(camera, rawDetections[base + 1], rawDetections[base + 2],
+                    classHeightMeters[classId], robotX, robotY, robotHeadingRadians, maxRangeMeters, projection, 0)) {
+                continue;
+            }
+            if (staticField != null && staticField.getEdgeClearance(projection[0], projection[1]) < minStaticClearanceMeters) {
+                continue;
+            }
+            markObstacle(projection[0], projection[1], classRadiusMeters[classId], classHitProbability[classId], timestampSeconds);
+            written++;
+        }
+        return written;
+    }
+
+    /**
+     * Raises the occupancy of every node whose cell overlaps a disk on the field.
+     *
+     * @param xMeters Disk center field X
+     * @param yMeters Disk center field Y
+     * @param radiusMeters Disk radius
+     * @param hitProbability Occupancy evidence added, in (0, 1]
+     * @param timestampSeconds Observation time
+     */
+    public void markObstacle(double xMeters, double yMeters, double radiusMeters, double hitProbability, double timestampSeconds) {
+        // Include every node whose center is within the radius plus half a node of the disk center
+        double reach = radiusMeters + nodeSizeMeters * 0.5;
+        int minCol = Math.max(0, (int) Math.floor((xMeters - reach) / nodeSizeMeters));
+        int maxCol = Math.min(cols - 1, (int) Math.floor((xMeters + reach) / nodeSizeMeters));
+        int minRow = Math.max(0, (int) Math.floor((yMeters - reach) / nodeSizeMeters));
+        int maxRow = Math.min(rows - 1, (int) Math.floor((yMeters + reach) / nodeSizeMeters));
+        double reachSquared = reach * reach;
+
+        for (int row = minRow; row <= maxRow; row++) {
+            double dy = (row + 0.5) * nodeSizeMeters - yMeters;
+            for (int col = minCol; col <= maxCol; col++) {
+                double dx = (col + 0.5) * nodeSizeMeters - xMeters;
+                if (dx * dx + dy * dy > reachSquared) {
+                    continue;
+                }
+                int index = row * cols + col;
+                double current = decayed(index, timestampSeconds);
+                occupancy[index] = (float) (1.0 - (1.0 - current) * (1.0 - hitProbability));
+                stamps[index] = Math.max(stamps[index], timestampSeconds);
+            }
+        }
+    }
+
+    /**
+     * Forgets every observation.
+     */
+    public void clear() {
+        Arrays.fill(occupancy, 0f);
+        Arrays.fill(stamps, 0.0);
+    }
+
+    // ======================== QUERIES ========================
+
+    /**
+     * Gets the occupancy of a node at a given time.
+     *
+     * @return Occupancy probability in [0, 1], or 0 for nodes off the grid
+     */
+    public double getOccupancy(int row, int col, double nowSeconds) {
+        if (row < 0 || col < 0 || row >= rows || col >= cols) {
+            return 0;
+        }
+        return decayed(row * cols + col, nowSeconds);
+    }
+
+    /**
+     * Gets the occupancy of the node containing a field position at a given time.
+     */
+    public double getOccupancyAt(double xMeters, double yMeters, double nowSeconds) {
+        return getOccupancy((int) Math.floor(yMeters / nodeSizeMeters), (int) Math.floor(xMeters / nodeSizeMeters), nowSeconds);
+    }
+
+    /**
+     * Evaluates every node at the given time into the shared snapshot. Call once per cycle from the
+     * thread that adds detections; other threads read it with {@link #copySnapshot(float[])}.
+     *
+     * @param nowSeconds Time to evaluate decay at
+     */
+    public void publishSnapshot(double nowSeconds) {
+        synchronized (snapshotLock) {
+            for (int i = 0; i < snapshot.length; i++) {
+                snapshot[i] = (float) decayed(i, nowSeconds);
+            }
+            snapshotTimestamp = nowSeconds;
+        }
+    }
+
+    /**
+     * Copies the latest snapshot into a caller-owned row-major array of getRows() * getCols() values.
+     *
+     * @param destination Array to fill
+     * @return Time the snapshot was evaluated at, or NaN if none has been published
+     */
+    public double copySnapshot(float[] destination) {
+        synchronized (snapshotLock) {
+            System.arraycopy(snapshot, 0, destination, 0, snapshot.length);
+            return snapshotTimestamp;
+        }
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public double getNodeSizeMeters() {
+        return nodeSizeMeters;
+    }
+
+    private double decayed(int index, double nowSeconds) {
+        float value = occupancy[index];
+        if (value == 0f) {
+            return 0;
+        }
+        double age = nowSeconds - stamps[index];
+        if (age <= 0) {
+            return value;
+        }
+        return value * Math.exp(-age / decayTimeConstantSeconds);
+    }
+}
@@ -0,0 +1,344 @@
+package frc.robot.navigation;
+
+import java.util.Arrays;
+import java.util.List;
+
+import edu.wpi.first.apriltag.AprilTag;
+import edu.wpi.first.apriltag.AprilTagFieldLayout;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Rotation3d;
+import frc.robot.util.PoseMath;
+
+/**
+ * Field geometry loaded once at startup: AprilTag poses, scoring targets and key headings for both
+ * alliances, and a grid index of which tags face each part of the field.
+ *
+ * All positions are in blue-origin field coordinates, the frame odometry and vision use. Per-alliance
+ * values are indexed by {@link AllianceState#kBlue} and {@link AllianceState#kRed}; the red values are
+ * the blue ones rotated 180 degrees about the field center, the symmetry of this year's field, so no
+ * caller flips coordinates at runtime.
+ *
+ * The index splits the field into square cells. Each cell lists the tags within range of some point in
+ * the cell whose face points toward that point, so "which tags can this camera see" only tests a
+ * handful of candidates instead of every tag on the field.
+ */
+public class FieldModel {
+    /**
+     * Headings relative to the alliance's driver station wall.
+     */
+    public enum Heading {
+        /** Away from the driver station */
+        FORWARD,
+        /** Toward the left wall as seen from the driver station */
+        LEFT,
+        /** Toward the driver station */
+        BACKWARD,
+        /** Toward the right wall as seen from the driver station */
+        RIGHT
+    }
+
+    /* Precomputed field headings per alliance, indexed [alliance][heading] */
+    private static final Rotation2d[][] kHeadings = new Rotation2d[2][Heading.values().length];
+
+    static {
+        for (Heading heading : Heading.values()) {
+            double blue = heading.ordinal() * Math.PI / 2.0;
+            kHeadings[AllianceState.kBlue][heading.ordinal()] = new Rotation2d(blue);
+            kHeadings[AllianceState.kRed][heading.ordinal()] = new Rotation2d(PoseMath.angleModulus(blue + Math.PI));
+        }
+    }
+
+    private final double fieldLength;
+    private final double fieldWidth;
+
+    private final int[] tagIds;
+    /* Layout index per fiducial ID, or -1 for IDs not on the field */
+    private final int[] tagIndexById;
+    /* Per tag: x, y, z */
+    private final double[] tagPositions;
+    /* Per tag: unit vector out of the tag's face */
+    private final double[] tagNormals;
+    /* Per tag: layout index of the tag in the mirrored position on the other alliance's side, or -1 */
+    private final int[] mirroredTags;
+
+    /* Scoring targets per alliance: x, y per target */
+    private final double[][] targets = new double[2][];
+
+    /* Grid index: tags listed for cell c are cellTags[cellStart[c]] to cellTags[cellStart[c + 1] - 1] */
+    private final double cellSize;
+    private final int rows;
+    private final int cols;
+    private final int[] cellStart;
+    private final int[] cellTags;
+
+    /**
+     * @param layout Field tags
+     * @param blueTargets Blue alliance scoring targets as x, y pairs
+     * @param cellSizeMeters Edge length of one index cell
+     * @param maxTagDistanceMeters Farthest a tag can be from a cell and still be listed for it
+     */
+    public FieldModel(AprilTagFieldLayout layout, double[] blueTargets, double cellSizeMeters, double maxTagDistanceMeters) {
+        this.fieldLength = layout.getFieldLength();
+        this.fieldWidth = layout.getFieldWidth();
+
+        List<AprilTag> tags = layout.getTags();
+        int n = tags.size();
+        this.tagIds = new int[n];
+        this.tagPositions = new double[n * 3];
+        this.tagNormals = new double[n * 3];
+        double[] rotation = new double[9];
+        for (int i = 0; i < n; i++) {
+            AprilTag tag = tags.get(i);
+            tagIds[i] = tag.ID;
+            tagPositions[i * 3] = tag.pose.getX();
+            tagPositions[i * 3 + 1] = tag.pose.getY();
+            tagPositions[i * 3 + 2] = tag.pose.getZ();
+            Rotation3d r = tag.pose.getRotation();
+            PoseMath.rotationFromRollPitchYaw(r.getX(), r.getY(), r.getZ(), rotation, 0);
+            tagNormals[i * 3] = rotation[0];
+            tagNormals[i * 3 + 1] = rotation[3];
+            tagNormals[i * 3 + 2] = rotation[6];
+        }
+
+        int maxId = 0;
+        for (int id : tagIds) {
+            maxId = Math.max(maxId, id);
+        }
+        this.tagIndexById = new int[maxId + 1];
+        Arrays.fill(tagIndexById, -1);
+        for (int i = 0; i < n; i++) {
+            if (tagIds[i] >= 0) {
+                tagIndexById[tagIds[i]] = i;
+            }
+        }
+
+        this.mirroredTags = new int[n];
+        for (int i = 0; i < n; i++) {
+            mirroredTags[i] = findTagNear(flipX(tagPositions[i * 3]), flipY(tagPositions[i * 3 + 1]), tagPositions[i * 3 + 2]);
+        }
+
+        targets[AllianceState.kBlue] = blueTargets.clone();
+        targets[AllianceState.kRed] = new double[blueTargets.length];
+        for (int t = 0; t + 1 < blueTargets.length; t += 2) {
+            targets[AllianceState.kRed][t] = flipX(blueTargets[t]);
+            targets[AllianceState.kRed][t + 1] = flipY(blueTargets[t + 1]);
+        }
+
+        this.cellSize = cellSizeMeters;
+        this.cols = Math.max(1, (int) Math.ceil(fieldLength / cellSizeMeters));
+        this.rows = Math.max(1, (int) Math.ceil(fieldWidth / cellSizeMeters));
+        this.cellStart = new int[rows * cols + 1];
+        // Two passes: count each cell's tags, then fill them in
+        int total = 0;
+        for (int cell = 0; cell < rows * cols; cell++) {
+            cellStart[cell] = total;
+            for (int i = 0; i < n; i++) {
+                if (tagServesCell(i, cell, maxTagDistanceMeters)) {
+                    total++;
+                }
+            }
+        }
+        cellStart[rows * cols] = total;
+        this.cellTags = new int[total];
+        int next = 0;
+        for (int cell = 0; cell < rows * cols; cell++) {
+            for (int i = 0; i < n; i++) {
+                if (tagServesCell(i, cell, maxTagDistanceMeters)) {
+                    cellTags[next++] = i;
+                }
+            }
+        }
+    }
+
+    /**
+     * Whether tag i is within range of, and faces, some point of the cell. The cell's corners bound
+     * both: the nearest point is found by clamping, and the tag faces some point of a convex cell
+     * exactly when it faces one of its corners.
+     */
+    private boolean tagServesCell(int i, int cell, double maxDistance) {
+        double x0 = (cell % cols) * cellSize;
+        double y0 = (cell / cols) * cellSize;
+        double tx = tagPositions[i * 3];
+        double ty = tagPositions[i * 3 + 1];
+        double nearestX = Math.max(x0, Math.min(x0 + cellSize, tx));
+        double nearestY = Math.max(y0, Math.min(y0 + cellSize, ty));
+        if (Math.hypot(nearestX - tx, nearestY - ty) > maxDistance) {
+            return false;
+        }
+        for (int corner = 0; corner < 4; corner++) {
+            double cx = x0 + (corner & 1) * cellSize;
+            double cy = y0 + (corner >> 1) * cellSize;
+            if (tagNormals[i * 3] * (cx - tx) + tagNormals[i * 3 + 1] * (cy - ty) > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int findTagNear(double x, double y, double z) {
+        int best = -1;
+        double bestDistance = 0.05;
+        for (int i = 0; i < tagIds.length; i++) {
+            double d = Math.sqrt(square(tagPositions[i * 3] - x) + square(tagPositions[i * 3 + 1] - y)
+                + square(tagPositions[i * 3 + 2] - z));
+            if (d < bestDistance) {
+                best = i;
+                bestDistance = d;
+            }
+        }
+        return best;
+    }
+
+    private static double square(double value) {
+        return value * value;
+    }
+
+    // ======================== ALLIANCE MIRRORING ========================
+
+    /** X of the point mirrored onto the other alliance's side */
+    public double flipX(double x) {
+        return fieldLength - x;
+    }
+
+    /** Y of the point mirrored onto the other alliance's side */
+    public double flipY(double y) {
+        return fieldWidth - y;
+    }
+
+    /** Heading mirrored onto the other alliance's side, in radians */
+    public static double flipHeading(double radians) {
+        return PoseMath.angleModulus(radians + Math.PI);
+    }
+
+    /**
+     * Field heading of a direction relative to an alliance's driver station.
+     *
+     * @param alliance {@link AllianceState#kBlue} or {@link AllianceState#kRed}
+     */
+    public static Rotation2d getHeading(Heading heading, int alliance) {
+        return kHeadings[alliance][heading.ordinal()];
+    }
+
+    /**
+     * Field heading of a direction relative to the current alliance's driver station.
+     */
+    public static Rotation2d getHeading(Heading heading) {
+        return kHeadings[AllianceState.get()][heading.ordinal()];
+    }
+
+    // ======================== TAGS ========================
+
+    /** Number of tags on the field */
+    public int getTagCount() {
+        return tagIds.length;
+    }
+
+    /** Fiducial ID of the tag at a layout index */
+    public int getTagId(int index) {
+        return tagIds[index];
+    }
+
+    /**
+     * Layout index of a tag, for looking up fiducials a camera reports by ID.
+     *
+     * @return Layout index, or -1 if the ID is not on the field
+     */
+    public int getTagIndex(int tagId) {
+        return tagId >= 0 && tagId < tagIndexById.length ? tagIndexById[tagId] : -1;
+    }
+
+    /** Tag positions as x, y, z per layout index; do not modify */
+    public double[] getTagPositions() {
+        return tagPositions;
+    }
+
+    /** Unit vectors out of each tag's face as x, y, z per layout index; do not modify */
+    public double[] getTagNormals() {
+        return tagNormals;
+    }
+
+    /**
+     * Layout index of the tag in the mirrored spot on the other alliance's side.
+     *
+     * @return Layout index, or -1 if no tag sits there
+     */
+    public int getMirroredTag(int index) {
+        return mirroredTags[index];
+    }
+
+    // ======================== SCORING TARGETS ========================
+
+    /** Number of scoring targets each alliance has */
+    public int getTargetCount() {
+        return targets[AllianceState.kBlue].length / 2;
+    }
+
+    /**
+     * @param alliance {@link AllianceState#kBlue} or {@link AllianceState#kRed}
+     * @param target Target index
+     */
+    public double getTargetX(int alliance, int target) {
+        return targets[alliance][target * 2];
+    }
+
+    /**
+     * @param alliance {@link AllianceState#kBlue} or {@link AllianceState#kRed}
+     * @param target Target index
+     */
+    public double getTargetY(int alliance, int target) {
+        return targets[alliance][target * 2 + 1];
+    }
+
+    /**
+     * Finds the current alliance's scoring target closest to a point.
+     *
+     * @return Target index, or -1 if there are no targets
+     */
+    public int findClosestTarget(double x, double y) {
+        double[] allianceTargets = targets[AllianceState.get()];
+        int best = -1;
+        double bestDistance = Double.POSITIVE_INFINITY;
+        for (int t = 0; t + 1 < allianceTargets.length; t += 2) {
+            double d = square(allianceTargets[t] - x) + square(allianceTargets[t + 1] - y);
+            if (d < bestDistance) {
+                best = t / 2;
+                bestDistance = d;
+            }
+        }
+        return best;
+    }
+
+    // ======================== SPATIAL INDEX ========================
+
+    /**
+     * Index of the cell containing a point; points off the field use the nearest edge cell.
+     */
+    public int getCell(double x, double y) {
+        int col = Math.max(0, Math.min(cols - 1, (int) (x / cellSize)));
+        int row = Math.max(0, Math.min(rows - 1, (int) (y / cellSize)));
+        return row * cols + col;
+    }
+
+    /** Position in {@link #getCellTags()} of the first candidate tag listed for a cell */
+    public int getCellStart(int cell) {
+        return cellStart[cell];
+    }
+
+    /** Position in {@link #getCellTags()} just past the last candidate tag listed for a cell */
+    public int getCellEnd(int cell) {
+        return cellStart[cell + 1];
+    }
+
+    /** Layout indices of candidate tags for every cell, in cell order; do not modify */
+    public int[] getCellTags() {
+        return cellTags;
+    }
+
+    public double getFieldLengthMeters() {
+        return fieldLength;
+    }
+
+    public double getFieldWidthMeters() {
+        return fieldWidth;
+    }
+}
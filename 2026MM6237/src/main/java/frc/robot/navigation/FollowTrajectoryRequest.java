@@ -0,0 +1,231 @@
+package frc.robot.navigation;
+
+import java.util.List;
+
+import com.ctre.phoenix6.StatusCode;
+import com.ctre.phoenix6.swerve.SwerveModule;
+import com.ctre.phoenix6.swerve.SwerveRequest;
+import com.pathplanner.lib.trajectory.PathPlannerTrajectory;
+import com.pathplanner.lib.trajectory.PathPlannerTrajectoryState;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import frc.robot.util.PoseMath;
+
+/**
+ * Swerve request that follows a PathPlanner trajectory on the drivetrain's odometry thread.
+ *
+ * PathPlanner's FollowPathCommand samples the trajectory and runs its feedback once per 20 ms scheduler
+ * loop, and the drivetrain then applies the resulting speeds for every odometry update until the next
+ * loop. Phoenix calls a swerve request's apply on every odometry update instead, with the pose it has
+ * just computed, so this request samples the trajectory and closes the loop there: every 4 ms at 250 Hz.
+ *
+ * The trajectory is copied into primitive arrays when it is handed over, and sampling interpolates
+ * between neighboring states without allocating, since apply runs on the control thread. Feedback is
+ * proportional on field position and heading, added to the trajectory's field speeds and wheel force
+ * feedforwards like PPHolonomicDriveController. The clock starts at the first update after
+ * {@link #setTrajectory}; past the end the final state is held.
+ *
+ * {@link #setTrajectory} is called from the main thread, apply from the odometry thread; the hand-over
+ * is one volatile write of an immutable plan, and the latest target is published back through volatile
+ * fields for logging.
+ */
+public class FollowTrajectoryRequest implements SwerveRequest {
+    /** A trajectory copied into arrays; never modified after construction */
+    private static final class Plan {
+        final int states;
+        final int modules;
+        final double[] time;
+        final double[] x;
+        final double[] y;
+        final double[] heading;
+        final double[] vx;
+        final double[] vy;
+        final double[] omega;
+        /* Per state, one value per module */
+        final double[] forceX;
+        final double[] forceY;
+
+        Plan(PathPlannerTrajectory trajectory) {
+            List<PathPlannerTrajectoryState> list = trajectory.getStates();
+            this.states = list.size();
+            this.modules = states > 0 ? list.get(0).feedforwards.robotRelativeForcesXNewtons().length : 0;
+            this.time = new double[states];
+            this.x = new double[states];
+            this.y = new double[states];
+            this.heading = new double[states];
+            this.vx = new double[states];
+            this.vy = new double[states];
+            this.omega = new double[states];
+            this.forceX = new double[states * modules];
+            this.forceY = new double[states * modules];
+            for (int i = 0; i < states; i++) {
+                PathPlannerTrajectoryState state = list.get(i);
+                time[i] = state.timeSeconds;
+                x[i] = state.pose.getX();
+                y[i] = state.pose.getY();
+                heading[i] = state.pose.getRotation().getRadians();
+                vx[i] = state.fieldSpeeds.vxMetersPerSecond;
+                vy[i] = state.fieldSpeeds.vyMetersPerSecond;
+                omega[i] = state.fieldSpeeds.omegaRadiansPerSecond;
+                System.arraycopy(state.feedforwards.robotRelativeForcesXNewtons(), 0, forceX, i * modules, modules);
+                System.arraycopy(state.feedforwards.robotRelativeForcesYNewtons(), 0, forceY, i * modules, modules);
+            }
+        }
+
+        double getDuration() {
+            return states > 0 ? time[states - 1] : 0;
+        }
+    }
+
+    private final double translationP;
+    private final double rotationP;
+    private final SwerveRequest.ApplyRobotSpeeds applySpeeds = new SwerveRequest.ApplyRobotSpeeds();
+
+    /* Written by the main thread, read by the odometry thread */
+    private volatile Plan plan = null;
+    private volatile boolean restart = false;
+
+    /* Odometry thread only */
+    private Plan activePlan = null;
+    private double startSeconds;
+    private int segment = 0;
+    private final ChassisSpeeds speeds = new ChassisSpeeds();
+    private double[] wheelForcesX = new double[0];
+    private double[] wheelForcesY = new double[0];
+
+    /* Latest target, written by the odometry thread for logging on the main thread */
+    /* Plan the values below came from, written after them, so a reader that sees the current plan here sees its values */
+    private volatile Plan sampledPlan = null;
+    private volatile double elapsedSeconds = 0;
+    private volatile double targetX;
+    private volatile double targetY;
+    private volatile double targetHeading;
+    private volatile double targetSpeed;
+
+    /**
+     * @param translationP Field speed per meter of position error
+     * @param rotationP Turn rate per radian of heading error
+     */
+    public FollowTrajectoryRequest(double translationP, double rotationP) {
+        this.translationP = translationP;
+        this.rotationP = rotationP;
+    }
+
+    /**
+     * Starts following a trajectory from its beginning at the next odometry update. Call from the main thread.
+     *
+     * @return This request, to pass to setControl
+     */
+    public FollowTrajectoryRequest setTrajectory(PathPlannerTrajectory trajectory) {
+        Plan next = new Plan(trajectory);
+        plan = next;
+        restart = true;
+        return this;
+    }
+
+    @Override
+    public StatusCode apply(SwerveControlParameters parameters, SwerveModule<?, ?, ?>... modulesToApply) {
+        if (restart) {
+            restart = false;
+            activePlan = plan;
+            startSeconds = parameters.timestamp;
+            segment = 0;
+            if (wheelForcesX.length != activePlan.modules) {
+                wheelForcesX = new double[activePlan.modules];
+                wheelForcesY = new double[activePlan.modules];
+            }
+        }
+        Plan p = activePlan;
+        if (p == null || p.states == 0) {
+            speeds.vxMetersPerSecond = 0;
+            speeds.vyMetersPerSecond = 0;
+            speeds.omegaRadiansPerSecond = 0;
+            return applySpeeds.withSpeeds(speeds).apply(parameters, modulesToApply);
+        }
+
+        double t = parameters.timestamp - startSeconds;
+        // Time only moves forward, so the segment search resumes where the last update left it
+        while (segment < p.states - 2 && p.time[segment + 1] < t) {
+            segment++;
+        }
+        int a = segment;
+        int b = Math.min(segment + 1, p.states - 1);
+        double span = p.time[b] - p.time[a];
+        double f = span > 0 ? Math.max(0.0, Math.min(1.0, (t - p.time[a]) / span)) : 1.0;
+
+        double x = p.x[a] + (p.x[b] - p.x[a]) * f;
+        double y = p.y[a] + (p.y[b] - p.y[a]) * f;
+        double heading = PoseMath.angleModulus(p.heading[a] + PoseMath.angleDifference(p.heading[b], p.heading[a]) * f);
+        double vx = p.vx[a] + (p.vx[b] - p.vx[a]) * f;
+        double vy = p.vy[a] + (p.vy[b] - p.vy[a]) * f;
+        double omega = p.omega[a] + (p.omega[b] - p.omega[a]) * f;
+        for (int m = 0; m < p.modules; m++) {
+            int ia = a * p.modules + m;
+            int ib = b * p.modules + m;
+            wheelForcesX[m] = p.forceX[ia] + (p.forceX[ib] - p.forceX[ia]) * f;
+            wheelForcesY[m] = p.forceY[ia] + (p.forceY[ib] - p.forceY[ia]) * f;
+        }
+
+        Pose2d pose = parameters.currentPose;
+        double currentHeading = pose.getRotation().getRadians();
+        double fieldVx = vx + translationP * (x - pose.getX());
+        double fieldVy = vy + translationP * (y - pose.getY());
+        double fieldOmega = omega + rotationP * PoseMath.angleDifference(heading, currentHeading);
+
+        // Field speeds into the robot frame at the measured heading
+        double cos = Math.cos(currentHeading);
+        double sin = Math.sin(currentHeading);
+        speeds.vxMetersPerSecond = cos * fieldVx + sin * fieldVy;
+        speeds.vyMetersPerSecond = -sin * fieldVx + cos * fieldVy;
+        speeds.omegaRadiansPerSecond = fieldOmega;
+
+        elapsedSeconds = t;
+        targetX = x;
+        targetY = y;
+        targetHeading = heading;
+        targetSpeed = Math.hypot(vx, vy);
+        sampledPlan = p;
+        return applySpeeds.withSpeeds(speeds)
+            .withWheelForceFeedforwardsX(wheelForcesX)
+            .withWheelForceFeedforwardsY(wheelForcesY)
+            .apply(parameters, modulesToApply);
+    }
+
+    /** Seconds since the current trajectory started, as of the last odometry update; 0 until it starts */
+    public double getElapsedSeconds() {
+        return sampledPlan == plan ? elapsedSeconds : 0;
+    }
+
+    /** Duration of the trajectory last handed over, or 0 if none */
+    public double getDurationSeconds() {
+        Plan p = plan;
+        return p != null ? p.getDuration() : 0;
+    }
+
+    /** Whether the odometry thread has reached the end of the current trajectory */
+    public boolean isFinished() {
+        Plan p = plan;
+        return p != null && sampledPlan == p && elapsedSeconds >= p.getDuration();
+    }
+
+    /** Target X of the last update, on the blue-origin field */
+    public double getTargetX() {
+        return targetX;
+    }
+
+    /** Target Y of the last update, on the blue-origin field */
+    public double getTargetY() {
+        return targetY;
+    }
+
+    /** Target heading of the last update in radians */
+    public double getTargetHeading() {
+        return targetHeading;
+    }
+
+    /** Target linear speed of the last update */
+    public double getTargetSpeed() {
+        return targetSpeed;
+    }
+}
@@ -0,0 +1,349 @@
+package frc.robot.navigation;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Filesystem;
+import edu.wpi.first.wpilibj.RobotBase;
+import frc.robot.Constants.NavigationConstants;
+
+/**
+ * Obstacle distance field built from PathPlanner's navgrid.json.
+ *
+ * The boolean navgrid is converted once at load time into a flat array holding, for every node,
+ * the distance in meters from the node center to the nearest obstacle node. Obstacle nodes hold 0.
+ * Every query after that is a constant-time array lookup, so checks against the static field never
+ * have to re-scan the raw grid. {@link DynamicOccupancyLayer} uses it to drop detections that project
+ * into or against a field element. Distances run between node centers, while an obstacle node fills its whole
+ * square, so {@link #getEdgeClearance} takes off the half node an obstacle reaches past its center.
+ *
+ * On the robot the computed field is written to a small binary cache file keyed by the CRC of the
+ * source JSON. Subsequent boots memory-map the cache instead of parsing JSON and re-running the
+ * transform; a changed navgrid.json invalidates the cache automatically.
+ */
+public class NavGridDistanceField {
+    private static final int kCacheMagic = 0x4E474446; // "NGDF"
+    private static final int kCacheVersion = 1;
+    private static final int kCacheHeaderBytes = 4 + 4 + 8 + 4 + 4 + 4 + 4 + 4;
+
+    private final int rows;
+    private final int cols;
+    private final double nodeSizeMeters;
+    private final double fieldLengthMeters;
+    private final double fieldWidthMeters;
+    /* Row-major (row = Y index, col = X index) distance to the nearest obstacle node, in meters */
+    private final float[] distances;
+
+    private NavGridDistanceField(int rows, int cols, double nodeSizeMeters,
+                                 double fieldLengthMeters, double fieldWidthMeters, float[] distances) {
+        this.rows = rows;
+        this.cols = cols;
+        this.nodeSizeMeters = nodeSizeMeters;
+        this.fieldLengthMeters = fieldLengthMeters;
+        this.fieldWidthMeters = fieldWidthMeters;
+        this.distances = distances;
+    }
+
+    // ======================== LOADING ========================
+
+    /**
+     * Loads the distance field for the deployed navgrid.json, using the on-robot cache when it is valid.
+     * Errors are reported to the Driver Station rather than thrown.
+     *
+     * @return The distance field, or null if the navgrid could not be loaded
+     */
+    public static NavGridDistanceField loadDefault() {
+        Path navgrid = Filesystem.getDeployDirectory().toPath().resolve("pathplanner").resolve("navgrid.json");
+        Path cache = RobotBase.isReal()
+            ? Filesystem.getOperatingDirectory().toPath().resolve(NavigationConstants.kDistanceFieldCacheFile)
+            : null;
+        try {
+            return load(navgrid, cache);
+        } catch (IOException | RuntimeException ex) {
+            DriverStation.reportError("Failed to load navgrid distance field", ex.getStackTrace());
+            return null;
+        }
+    }
+
+    /**
+     * Loads the distance field for a navgrid file.
+     *
+     * @param navgridJson Path to a PathPlanner navgrid.json
+     * @param cacheFile Binary cache to read from / write to, or null to disable caching
+     * @return The distance field
+     * @throws IOException if navgrid.json cannot be read or is malformed
+     */
+    public static NavGridDistanceField load(Path navgridJson, Path cacheFile) throws IOException {
+        byte[] source = Files.readAllBytes(navgridJson);
+        CRC32 crc = new CRC32();
+        crc.update(source);
+        long sourceCrc = crc.getValue();
+
+        if (cacheFile != null) {
+            NavGridDistanceField cached = readCache(cacheFile, sourceCrc);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        NavGridDistanceField field = fromJson(source);
+        if (cacheFile != null) {
+            try {
+                field.writeCache(cacheFile, sourceCrc);
+            } catch (IOException ex) {
+                // The cache is only an optimization, the freshly computed field is still valid
+                DriverStation.reportWarning("Could not write navgrid distance cache: " + ex.getMessage(), false);
+            }
+        }
+        return field;
+    }
+
+    /**
+     * Parses a navgrid.json document and computes its distance field.
+     *
+     * @param json Raw navgrid.json contents
+     * @return The distance field
+     * @throws IOException if the document is malformed
+     */
+    public static NavGridDistanceField fromJson(byte[] json) throws IOException {
+        JsonNode root = new ObjectMapper().readTree(json);
+        JsonNode grid = root.path("grid");
+        double nodeSize = root.path("nodeSizeMeters").asDouble(0);
+        if (!grid.isArray() || grid.size() == 0 || nodeSize <= 0) {
+            throw new IOException("navgrid.json is missing its grid or nodeSizeMeters");
+        }
+
+        int rows = grid.size();
+        int cols = grid.get(0).size();
+        boolean[] obstacles = new boolean[rows * cols];
+        for (int row = 0; row < rows; row++) {
+            JsonNode rowNode = grid.get(row);
+            if (rowNode.size() != cols) {
+                throw new IOException("navgrid.json row " + row + " has " + rowNode.size() + " nodes, expected " + cols);
+            }
+            for (int col = 0; col < cols; col++) {
+                obstacles[row * cols + col] = rowNode.get(col).asBoolean();
+            }
+        }
+
+        JsonNode fieldSize = root.path("field_size");
+        return fromObstacles(rows, cols, nodeSize,
+            fieldSize.path("x").asDouble(cols * nodeSize), fieldSize.path("y").asDouble(rows * nodeSize), obstacles);
+    }
+
+    /**
+     * Computes the distance field for a raw obstacle grid.
+     *
+     * @param rows Number of rows (Y direction)
+     * @param cols Number of columns (X direction)
+     * @param nodeSizeMeters Edge length of one grid node
+     * @param fieldLengthMeters Field length (X)
+     * @param fieldWidthMeters Field width (Y)
+     * @param obstacles Row-major obstacle flags, true where the node is blocked
+     * @return The distance field
+     */
+    public static NavGridDistanceField fromObstacles(int rows, int cols, double nodeSizeMeters,
+                                                     double fieldLengthMeters, double fieldWidthMeters,
+                                                     boolean[] obstacles) {
+        float[] distances = computeDistanceTransform(rows, cols, nodeSizeMeters, obstacles);
+        return new NavGridDistanceField(rows, cols, nodeSizeMeters, fieldLengthMeters, fieldWidthMeters, distances);
+    }
+
+    private static NavGridDistanceField readCache(Path cacheFile, long sourceCrc) {
+        if (!Files.isRegularFile(cacheFile)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(cacheFile, StandardOpenOption.READ)) {
+            if (channel.size() < kCacheHeaderBytes) {
+                return null;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != kCacheMagic || buffer.getInt() != kCacheVersion || buffer.getLong() != sourceCrc) {
+                return null;
+            }
+            int rows = buffer.getInt();
+            int cols = buffer.getInt();
+            double nodeSize = buffer.getFloat();
+            double fieldLength = buffer.getFloat();
+            double fieldWidth = buffer.getFloat();
+            if (rows <= 0 || cols <= 0 || buffer.remaining() != rows * cols * Float.BYTES) {
+                return null;
+            }
+            float[] distances = new float[rows * cols];
+            buffer.asFloatBuffer().get(distances);
+            return new NavGridDistanceField(rows, cols, nodeSize, fieldLength, fieldWidth, distances);
+        } catch (IOException ex) {
+            return null;
+        }
+    }
+
+    private void writeCache(Path cacheFile, long sourceCrc) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(kCacheHeaderBytes + distances.length * Float.BYTES);
+        buffer.putInt(kCacheMagic)
+            .putInt(kCacheVersion)
+            .putLong(sourceCrc)
+            .putInt(rows)
+            .putInt(cols)
+            .putFloat((float) nodeSizeMeters)
+            .putFloat((float) fieldLengthMeters)
+            .putFloat((float) fieldWidthMeters);
+        buffer.asFloatBuffer().put(distances);
+
+        Path parent = cacheFile.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        // Write to a temp file and move it into place so a brownout mid-write never leaves a torn cache
+        Path temp = cacheFile.resolveSibling(cacheFile.getFileName() + ".tmp");
+        Files.write(temp, buffer.array());
+        Files.move(temp, cacheFile, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    // ======================== DISTANCE TRANSFORM ========================
+
+    /**
+     * Exact Euclidean distance transform (Felzenszwalb & Huttenlocher), run as a column pass
+     * followed by a row pass over squared distances. Runs in O(rows * cols).
+     */
+    private static float[] computeDistanceTransform(int rows, int cols, double nodeSizeMeters, boolean[] obstacles) {
+        final double inf = 1e20;
+        int n = Math.max(rows, cols);
+        double[] squared = new double[rows * cols];
+        double[] f = new double[n];
+        double[] d = new double[n];
+        int[] v = new int[n];
+        double[] z = new double[n + 1];
+
+        for (int i = 0; i < squared.length; i++) {
+            squared[i] = obstacles[i] ? 0 : inf;
+        }
+
+        // Transform along each column (Y direction)
+        for (int col = 0; col < cols; col++) {
+            for (int row = 0; row < rows; row++) {
+                f[row] = squared[row * cols + col];
+            }
+            transform1d(f, rows, d, v, z);
+            for (int row = 0; row < rows; row++) {
+                squared[row * cols + col] = d[row];
+            }
+        }
+
+        // Transform along each row (X direction)
+        for (int row = 0; row < rows; row++) {
+            System.arraycopy(squared, row * cols, f, 0, cols);
+            transform1d(f, cols, d, v, z);
+            System.arraycopy(d, 0, squared, row * cols, cols);
+        }
+
+        float[] distances = new float[rows * cols];
+        for (int i = 0; i < distances.length; i++) {
+            // A grid with no obstacles at all leaves every node at "infinity"
+            distances[i] = squared[i] >= inf ? Float.MAX_VALUE : (float) (Math.sqrt(squared[i]) * nodeSizeMeters);
+        }
+        return distances;
+    }
+
+    /* 1D squared distance transform of sampled function f over [0, n) using the lower envelope of parabolas */
+    private static void transform1d(double[] f, int n, double[] d, int[] v, double[] z) {
+        int k = 0;
+        v[0] = 0;
+        z[0] = Double.NEGATIVE_INFINITY;
+        z[1] = Double.POSITIVE_INFINITY;
+        for (int q = 1; q < n; q++) {
+            double s = ((f[q] + q * q) - (f[v[k]] + v[k] * v[k])) / (2.0 * q - 2.0 * v[k]);
+            while (s <= z[k]) {
+                k--;
+                s = ((f[q] + q * q) - (f[v[k]] + v[k] * v[k])) / (2.0 * q - 2.0 * v[k]);
+            }
+            k++;
+            v[k] = q;
+            z[k] = s;
+            z[k + 1] = Double.POSITIVE_INFINITY;
+        }
+        k = 0;
+        for (int q = 0; q < n; q++) {
+            while (z[k + 1] < q) {
+                k++;
+            }
+            double dq = q - v[k];
+            d[q] = dq * dq + f[v[k]];
+        }
+    }
+
+    // ======================== QUERIES ========================
+
+    /**
+     * Gets the distance from a field position to the nearest obstacle node center, bilinearly
+     * interpolated between the surrounding node centers. Positions off the grid report zero clearance.
+     *
+     * @param xMeters Field X (blue-origin)
+     * @param yMeters Field Y (blue-origin)
+     * @return Clearance in meters
+     */
+    public double getClearance(double xMeters, double yMeters) {
+        // Node centers sit at (index + 0.5) * nodeSize
+        double gx = xMeters / nodeSizeMeters - 0.5;
+        double gy = yMeters / nodeSizeMeters - 0.5;
+        if (gx < -0.5 || gy < -0.5 || gx > cols - 0.5 || gy > rows - 0.5) {
+            return 0;
+        }
+        int c0 = clamp((int) Math.floor(gx), 0, cols - 1);
+        int r0 = clamp((int) Math.floor(gy), 0, rows - 1);
+        int c1 = Math.min(c0 + 1, cols - 1);
+        int r1 = Math.min(r0 + 1, rows - 1);
+        double tx = clamp01(gx - c0);
+        double ty = clamp01(gy - r0);
+
+        double d00 = distances[r0 * cols + c0];
+        double d01 = distances[r0 * cols + c1];
+        double d10 = distances[r1 * cols + c0];
+        double d11 = distances[r1 * cols + c1];
+        double top = d00 + (d01 - d00) * tx;
+        double bottom = d10 + (d11 - d10) * tx;
+        return top + (bottom - top) * ty;
+    }
+
+    /**
+     * Gets the distance from a field position to the nearest obstacle's edge: the center distance of
+     * {@link #getClearance} less half a node. Positions off the grid or inside an obstacle report zero.
+     *
+     * @param xMeters Field X (blue-origin)
+     * @param yMeters Field Y (blue-origin)
+     * @return Clearance in meters
+     */
+    public double getEdgeClearance(double xMeters, double yMeters) {
+        return Math.max(0.0, getClearance(xMeters, yMeters) - nodeSizeMeters * 0.5);
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public double getNodeSizeMeters() {
+        return nodeSizeMeters;
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    private static double clamp01(double value) {
+        return Math.max(0.0, Math.min(1.0, value));
+    }
+}
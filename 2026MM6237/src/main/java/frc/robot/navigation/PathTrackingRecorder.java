@@ -0,0 +1,294 @@
+package frc.robot.navigation;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import com.ctre.phoenix6.swerve.SwerveDrivetrain.SwerveDriveState;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.util.datalog.DoubleArrayLogEntry;
+import edu.wpi.first.wpilibj.DataLogManager;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import frc.robot.util.PoseMath;
+
+/**
+ * Records how closely the drivetrain tracks each PathPlanner path, so gain changes can be judged by
+ * numbers instead of by eye.
+ *
+ * Fed from PathPlanner's logging callbacks: {@link #setActivePath} marks a path's start and end, and
+ * every {@link #recordTarget} stores the follower's target pose next to the drivetrain's pose and speed
+ * at that moment. Samples go into fixed primitive buffers; a path longer than the buffer keeps its
+ * first samples and is flagged as truncated.
+ *
+ * When the path ends, each sample's position error is split along and across the target's direction
+ * of travel, taken from the neighboring targets. Along-track error is positive when the robot is
+ * ahead; cross-track error is positive to the left. Lag is the along-track shortfall divided by the
+ * target speed, at samples fast enough for that to mean anything. Time lost is how long before
+ * arriving at its final pose the plan passed the point the robot actually reached, found by walking
+ * back along the recorded targets from that arrival to the nearest one.
+ *
+ * Results go to the dashboard under "PathTracking/", and to the match log: every sample under
+ * "PathTracking/Samples" as [path, time, targetX, targetY, targetHeading, actualX, actualY,
+ * actualHeading, targetSpeed, actualSpeed, crossTrack, alongTrack, headingError], and one row per path
+ * under "PathTracking/Summary" in the order of {@link #getSummary}. Angles are radians, times are
+ * seconds since the path started. Main thread only.
+ */
+public class PathTrackingRecorder {
+    /* Summary row layout */
+    private static final int kSummaryPath = 0;
+    private static final int kSummarySamples = 1;
+    private static final int kSummaryDuration = 2;
+    private static final int kSummaryCrossTrackRms = 3;
+    private static final int kSummaryCrossTrackMax = 4;
+    private static final int kSummaryAlongTrackRms = 5;
+    private static final int kSummaryAlongTrackMax = 6;
+    private static final int kSummaryHeadingRms = 7;
+    private static final int kSummaryHeadingMax = 8;
+    private static final int kSummarySpeedRms = 9;
+    private static final int kSummaryMaxLag = 10;
+    private static final int kSummaryTimeLost = 11;
+    private static final int kSummaryEndError = 12;
+    private static final int kSummaryTruncated = 13;
+    private static final int kSummarySize = 14;
+
+    private final Supplier<SwerveDriveState> drivetrainState;
+    private final double minLagSpeedMps;
+
+    /* One entry per sample of the current path */
+    private final double[] time;
+    private final double[] targetX;
+    private final double[] targetY;
+    private final double[] targetHeading;
+    private final double[] actualX;
+    private final double[] actualY;
+    private final double[] actualHeading;
+    private final double[] actualSpeed;
+    private final double[] targetSpeed;
+    private final double[] crossTrack;
+    private final double[] alongTrack;
+    private final double[] headingError;
+
+    private final DoubleArrayLogEntry sampleLog;
+    private final DoubleArrayLogEntry summaryLog;
+    private final double[] sampleRow = new double[13];
+    private final double[] summary = new double[kSummarySize];
+
+    private boolean active = false;
+    private double startSeconds;
+    private int count = 0;
+    private boolean truncated = false;
+    private int paths = 0;
+
+    /**
+     * @param drivetrainState Supplier of the drivetrain's current state
+     * @param maxSamples Samples kept per path; at one per loop, 1024 covers 20 s
+     * @param minLagSpeedMps Target speed below which lag is not computed
+     */
+    public PathTrackingRecorder(Supplier<SwerveDriveState> drivetrainState, int maxSamples, double minLagSpeedMps) {
+        this.drivetrainState = drivetrainState;
+        this.minLagSpeedMps = minLagSpeedMps;
+        this.time = new double[maxSamples];
+        this.targetX = new double[maxSamples];
+        this.targetY = new double[maxSamples];
+        this.targetHeading = new double[maxSamples];
+        this.actualX = new double[maxSamples];
+        this.actualY = new double[maxSamples];
+        this.actualHeading = new double[maxSamples];
+        this.actualSpeed = new double[maxSamples];
+        this.targetSpeed = new double[maxSamples];
+        this.crossTrack = new double[maxSamples];
+        this.alongTrack = new double[maxSamples];
+        this.headingError = new double[maxSamples];
+        this.sampleLog = new DoubleArrayLogEntry(DataLogManager.getLog(), "PathTracking/Samples");
+        this.summaryLog = new DoubleArrayLogEntry(DataLogManager.getLog(), "PathTracking/Summary");
+    }
+
+    /**
+     * Starts recording a path, or finishes the current one when the list is empty. Matches
+     * PathPlannerLogging's active path callback.
+     */
+    public void setActivePath(List<Pose2d> poses) {
+        if (active) {
+            finishPath();
+        }
+        if (!poses.isEmpty()) {
+            active = true;
+            startSeconds = Timer.getFPGATimestamp();
+            count = 0;
+            truncated = false;
+        }
+    }
+
+    /**
+     * Records the follower's target against the drivetrain's current pose and speed. Matches
+     * PathPlannerLogging's target pose callback; ignored outside a path.
+     */
+    public void recordTarget(Pose2d target) {
+        if (!active) {
+            return;
+        }
+        if (count == time.length) {
+            truncated = true;
+            return;
+        }
+        SwerveDriveState state = drivetrainState.get();
+        int i = count++;
+        time[i] = Timer.getFPGATimestamp() - startSeconds;
+        targetX[i] = target.getX();
+        targetY[i] = target.getY();
+        targetHeading[i] = target.getRotation().getRadians();
+        actualX[i] = state.Pose.getX();
+        actualY[i] = state.Pose.getY();
+        actualHeading[i] = state.Pose.getRotation().getRadians();
+        actualSpeed[i] = Math.hypot(state.Speeds.vxMetersPerSecond, state.Speeds.vyMetersPerSecond);
+    }
+
+    /* Splits every sample's error along the path and writes the samples and summary out */
+    private void finishPath() {
+        active = false;
+        int path = paths++;
+        if (count == 0) {
+            return;
+        }
+
+        // Direction of travel from the neighboring targets, held through stops; before the first
+        // movement along-track error is measured on the field X axis
+        double dirX = 1;
+        double dirY = 0;
+        double crossSquared = 0, alongSquared = 0, headingSquared = 0, speedSquared = 0;
+        double crossMax = 0, alongMax = 0, headingMax = 0, maxLag = 0;
+        for (int i = 0; i < count; i++) {
+            int prev = Math.max(0, i - 1);
+            int next = Math.min(count - 1, i + 1);
+            double dx = targetX[next] - targetX[prev];
+            double dy = targetY[next] - targetY[prev];
+            double dt = time[next] - time[prev];
+            double distance = Math.hypot(dx, dy);
+            targetSpeed[i] = dt > 0 ? distance / dt : 0;
+            if (distance > 1e-6) {
+                dirX = dx / distance;
+                dirY = dy / distance;
+            }
+
+            double ex = actualX[i] - targetX[i];
+            double ey = actualY[i] - targetY[i];
+            alongTrack[i] = ex * dirX + ey * dirY;
+            crossTrack[i] = -ex * dirY + ey * dirX;
+            headingError[i] = PoseMath.angleDifference(actualHeading[i], targetHeading[i]);
+
+            crossSquared += crossTrack[i] * crossTrack[i];
+            alongSquared += alongTrack[i] * alongTrack[i];
+            headingSquared += headingError[i] * headingError[i];
+            double speedError = actualSpeed[i] - targetSpeed[i];
+            speedSquared += speedError * speedError;
+            crossMax = Math.max(crossMax, Math.abs(crossTrack[i]));
+            alongMax = Math.max(alongMax, Math.abs(alongTrack[i]));
+            headingMax = Math.max(headingMax, Math.abs(headingError[i]));
+            if (targetSpeed[i] >= minLagSpeedMps) {
+                maxLag = Math.max(maxLag, -alongTrack[i] / targetSpeed[i]);
+            }
+
+            sampleRow[0] = path;
+            sampleRow[1] = time[i];
+            sampleRow[2] = targetX[i];
+            sampleRow[3] = targetY[i];
+            sampleRow[4] = targetHeading[i];
+            sampleRow[5] = actualX[i];
+            sampleRow[6] = actualY[i];
+            sampleRow[7] = actualHeading[i];
+            sampleRow[8] = targetSpeed[i];
+            sampleRow[9] = actualSpeed[i];
+            sampleRow[10] = crossTrack[i];
+            sampleRow[11] = alongTrack[i];
+            sampleRow[12] = headingError[i];
+            sampleLog.append(sampleRow);
+        }
+
+        int last = count - 1;
+        summary[kSummaryPath] = path;
+        summary[kSummarySamples] = count;
+        summary[kSummaryDuration] = time[last];
+        summary[kSummaryCrossTrackRms] = Math.sqrt(crossSquared / count);
+        summary[kSummaryCrossTrackMax] = crossMax;
+        summary[kSummaryAlongTrackRms] = Math.sqrt(alongSquared / count);
+        summary[kSummaryAlongTrackMax] = alongMax;
+        summary[kSummaryHeadingRms] = Math.sqrt(headingSquared / count);
+        summary[kSummaryHeadingMax] = headingMax;
+        summary[kSummarySpeedRms] = Math.sqrt(speedSquared / count);
+        summary[kSummaryMaxLag] = maxLag;
+        summary[kSummaryTimeLost] = getTimeLost();
+        summary[kSummaryEndError] = Math.hypot(actualX[last] - targetX[last], actualY[last] - targetY[last]);
+        summary[kSummaryTruncated] = truncated ? 1 : 0;
+        summaryLog.append(summary);
+        publishSummary();
+        if (truncated) {
+            DriverStation.reportWarning("Path " + path + " tracking record truncated at " + count + " samples", false);
+        }
+    }
+
+    /* Time between the plan reaching the robot's final position and the plan reaching its own end */
+    private double getTimeLost() {
+        int last = count - 1;
+        // A plan holding its final pose is not ahead of a robot still catching up, so measure to its arrival
+        int arrival = last;
+        while (arrival > 0 && targetX[arrival - 1] == targetX[last] && targetY[arrival - 1] == targetY[last]) {
+            arrival--;
+        }
+        double x = actualX[last];
+        double y = actualY[last];
+        // Walk back from the end while the targets get closer, so a path that loops past its end is not matched
+        int nearest = arrival;
+        double nearestDistance = Math.hypot(targetX[arrival] - x, targetY[arrival] - y);
+        for (int i = arrival - 1; i >= 0; i--) {
+            double distance = Math.hypot(targetX[i] - x, targetY[i] - y);
+            if (distance > nearestDistance) {
+                break;
+            }
+            nearest = i;
+            nearestDistance = distance;
+        }
+        // Refine within the segment to the next target
+        double reachedSeconds = time[nearest];
+        if (nearest < arrival) {
+            double sx = targetX[nearest + 1] - targetX[nearest];
+            double sy = targetY[nearest + 1] - targetY[nearest];
+            double lengthSquared = sx * sx + sy * sy;
+            if (lengthSquared > 0) {
+                double f = ((x - targetX[nearest]) * sx + (y - targetY[nearest]) * sy) / lengthSquared;
+                f = Math.max(0.0, Math.min(1.0, f));
+                reachedSeconds += (time[nearest + 1] - time[nearest]) * f;
+            }
+        }
+        return time[arrival] - reachedSeconds;
+    }
+
+    private void publishSummary() {
+        SmartDashboard.putNumber("PathTracking/Path", summary[kSummaryPath]);
+        SmartDashboard.putNumber("PathTracking/Samples", summary[kSummarySamples]);
+        SmartDashboard.putNumber("PathTracking/Duration", summary[kSummaryDuration]);
+        SmartDashboard.putNumber("PathTracking/Cross Track RMS", summary[kSummaryCrossTrackRms]);
+        SmartDashboard.putNumber("PathTracking/Cross Track Max", summary[kSummaryCrossTrackMax]);
+        SmartDashboard.putNumber("PathTracking/Along Track RMS", summary[kSummaryAlongTrackRms]);
+        SmartDashboard.putNumber("PathTracking/Along Track Max", summary[kSummaryAlongTrackMax]);
+        SmartDashboard.putNumber("PathTracking/Heading RMS Degrees", Math.toDegrees(summary[kSummaryHeadingRms]));
+        SmartDashboard.putNumber("PathTracking/Heading Max Degrees", Math.toDegrees(summary[kSummaryHeadingMax]));
+        SmartDashboard.putNumber("PathTracking/Speed RMS", summary[kSummarySpeedRms]);
+        SmartDashboard.putNumber("PathTracking/Max Lag", summary[kSummaryMaxLag]);
+        SmartDashboard.putNumber("PathTracking/Time Lost", summary[kSummaryTimeLost]);
+        SmartDashboard.putNumber("PathTracking/End Error", summary[kSummaryEndError]);
+        SmartDashboard.putBoolean("PathTracking/Truncated", truncated);
+    }
+
+    /**
+     * Statistics of the last finished path: path index, samples, duration, cross-track RMS and max,
+     * along-track RMS and max, heading RMS and max, speed error RMS, max lag, time lost, end position
+     * error, and 1 if truncated. Distances in meters, angles in radians, times in seconds.
+     *
+     * @return The recorder's own array; copy it to keep it past the next path
+     */
+    public double[] getSummary() {
+        return summary;
+    }
+}
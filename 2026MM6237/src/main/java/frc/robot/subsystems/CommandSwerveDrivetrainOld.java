@@ -25,14 +25,17 @@ import edu.wpi.first.math.kinematics.SwerveModuleState;
 import edu.wpi.first.math.numbers.N1;
 import edu.wpi.first.math.numbers.N3;
 import edu.wpi.first.wpilibj.DriverStation;
-import edu.wpi.first.wpilibj.DriverStation.Alliance;
 import edu.wpi.first.wpilibj.Notifier;
 import edu.wpi.first.wpilibj.RobotController;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.Subsystem;
 import edu.wpi.first.wpilibj2.command.sysid.SysIdRoutine;
 
+import frc.robot.Constants.NavigationConstants;
+import frc.robot.commands.FollowPathAtOdometryRateCommand;
 import frc.robot.generated.TunerConstants.TunerSwerveDrivetrain;
+import frc.robot.navigation.AllianceState;
+import frc.robot.navigation.FollowTrajectoryRequest;
 
 /**
  * Class that extends the Phoenix 6 SwerveDrivetrain class and implements
@@ -58,9 +61,30 @@ public class CommandSwerveDrivetrainOld extends TunerSwerveDrivetrain implements
     /** Swerve request to apply during robot-centric path following */
     private final SwerveRequest.ApplyRobotSpeeds m_pathApplyRobotSpeeds = new SwerveRequest.ApplyRobotSpeeds();
 
-    private void configureAutoBuilder() {
+    /** Swerve request that follows auto paths on the odometry thread */
+    private final FollowTrajectoryRequest m_followTrajectory =
+        new FollowTrajectoryRequest(NavigationConstants.kPathTranslationP, NavigationConstants.kPathRotationP);
+
+    /**
+     * Configures PathPlanner's AutoBuilder to drive this drivetrain. AutoBuilder is global state used
+     * by the CommandScheduler, so this runs on the main thread once the drivetrain is built rather than
+     * in the constructor, which may run on a startup thread.
+     */
+    public void configureAutoBuilder() {
         try {
             var config = RobotConfig.fromGUISettings();
+            if (NavigationConstants.kFollowPathsAtOdometryRate) {
+                // Each path is sampled and corrected every odometry update rather than once per loop.
+                // Pathfinding commands are not built by AutoBuilder in this mode.
+                AutoBuilder.configureCustom(
+                    path -> new FollowPathAtOdometryRateCommand(path, this, config, m_followTrajectory),
+                    () -> getState().Pose, // Supplier of current robot pose
+                    this::resetPose,       // Consumer for seeding pose against auto
+                    true,                  // Swerve is holonomic
+                    AllianceState::isRed   // Paths are drawn for blue and flipped for red
+                );
+                return;
+            }
             AutoBuilder.configure(
                 () -> getState().Pose,   // Supplier of current robot pose
                 this::resetPose,         // Consumer for seeding pose against auto
@@ -73,13 +97,13 @@ public class CommandSwerveDrivetrainOld extends TunerSwerveDrivetrain implements
                 ),
                 new PPHolonomicDriveController(
                     // PID constants for translation
-                    new PIDConstants(10, 0, 0),
+                    new PIDConstants(NavigationConstants.kPathTranslationP, 0, 0),
                     // PID constants for rotation
-                    new PIDConstants(7, 0, 0)
+                    new PIDConstants(NavigationConstants.kPathRotationP, 0, 0)
                 ),
                 config,
                 // Assume the path needs to be flipped for Red vs Blue, this is normally the case
-                () -> DriverStation.getAlliance().orElse(Alliance.Blue) == Alliance.Red,
+                AllianceState::isRed,
                 this // Subsystem for requirements
             );
         } catch (Exception ex) {
@@ -171,7 +195,6 @@ public class CommandSwerveDrivetrainOld extends TunerSwerveDrivetrain implements
         if (Utils.isSimulation()) {
             startSimThread();
         }
-        configureAutoBuilder();        
     }
 
     /**
@@ -196,7 +219,6 @@ public class CommandSwerveDrivetrainOld extends TunerSwerveDrivetrain implements
         if (Utils.isSimulation()) {
             startSimThread();
         }
-        configureAutoBuilder();
     }
 
     /**
@@ -226,7 +248,6 @@ public class CommandSwerveDrivetrainOld extends TunerSwerveDrivetrain implements
         SwerveModuleConstants<?, ?, ?>... modules
     ) {
         super(drivetrainConstants, odometryUpdateFrequency, odometryStandardDeviation, visionStandardDeviation, modules);
-        configureAutoBuilder();
         if (Utils.isSimulation()) {
             startSimThread();
         }
@@ -264,24 +285,25 @@ public class CommandSwerveDrivetrainOld extends TunerSwerveDrivetrain implements
         return m_sysIdRoutineToApply.dynamic(direction);
     }
 
-    @Override
-    public void periodic() {
+    /**
+     * Applies the operator perspective for the current alliance. Registered as an {@link AllianceState}
+     * listener, so it runs when the alliance is first reported and whenever it changes, and called from
+     * Robot.disabledInit so a change that arrived while enabled is applied at the next disable.
+     */
+    public void updateOperatorPerspective() {
         /*
-         * Periodically try to apply the operator perspective.
          * If we haven't applied the operator perspective before, then we should apply it regardless of DS state.
          * This allows us to correct the perspective in case the robot code restarts mid-match.
-         * Otherwise, only check and apply the operator perspective if the DS is disabled.
+         * Otherwise, only apply the operator perspective if the DS is disabled.
          * This ensures driving behavior doesn't change until an explicit disable event occurs during testing.
          */
-        if (!m_hasAppliedOperatorPerspective || DriverStation.isDisabled()) {
-            DriverStation.getAlliance().ifPresent(allianceColor -> {
-                setOperatorPerspectiveForward(
-                    allianceColor == Alliance.Red
-                        ? kRedAlliancePerspectiveRotation
-                        : kBlueAlliancePerspectiveRotation
-                );
-                m_hasAppliedOperatorPerspective = true;
-            });
+        if (AllianceState.isKnown() && (!m_hasAppliedOperatorPerspective || DriverStation.isDisabled())) {
+            setOperatorPerspectiveForward(
+                AllianceState.isRed()
+                    ? kRedAlliancePerspectiveRotation
+                    : kBlueAlliancePerspectiveRotation
+            );
+            m_hasAppliedOperatorPerspective = true;
         }
     }
 
@@ -0,0 +1,127 @@
+package frc.robot.subsystems;
+
+import java.util.Optional;
+
+import com.ctre.phoenix6.Utils;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import frc.robot.Constants.VisionConstants;
+import frc.robot.navigation.DynamicOccupancyLayer;
+import frc.robot.vision.CameraConfig;
+import frc.robot.vision.GamePieceTracker;
+import frc.robot.vision.GroundProjection;
+import frc.robot.vision.VisionFrame;
+import frc.robot.vision.VisionFrameStream;
+import frc.robot.vision.VisionFrameSubscriber;
+
+/**
+ * Tracks game pieces seen by a neural detector camera across frames.
+ *
+ * Detections are projected onto the field with the drivetrain pose at each frame's capture time and
+ * fed to a {@link GamePieceTracker}, so intake-aim commands can steer toward a stable track ID with a
+ * filtered position instead of re-reading raw, per-frame detector boxes.
+ */
+public class GamePieceTrackingSubsystem extends SubsystemBase {
+    private final CommandSwerveDrivetrainOld drivetrain;
+    private final CameraConfig camera;
+    private final GamePieceTracker tracker = new GamePieceTracker(
+        VisionConstants.kGamePieceMeasurementStdDevMeters,
+        VisionConstants.kGamePieceAccelerationStdDev,
+        VisionConstants.kGamePieceGateDistanceMeters,
+        VisionConstants.kGamePieceHitsToConfirm,
+        VisionConstants.kGamePieceCoastSeconds);
+
+    private final double[] projection = new double[3];
+    private final double[] positions = new double[2 * GamePieceTracker.kMaxDetections];
+
+    /**
+     * @param drivetrain Drivetrain used to look up the pose at each frame's capture time
+     * @param camera Camera running the neural detector pipeline
+     */
+    public GamePieceTrackingSubsystem(CommandSwerveDrivetrainOld drivetrain, CameraConfig camera) {
+        this.drivetrain = drivetrain;
+        this.camera = camera;
+        VisionFrameStream.forCamera(camera.name).subscribe(new VisionFrameSubscriber(this::addFrame));
+    }
+
+    @Override
+    public void periodic() {
+        // Frames arrive through the camera's frame stream before the scheduler runs
+        tracker.dropStale(Timer.getFPGATimestamp());
+    }
+
+    /**
+     * Publishes the current target track to SmartDashboard. Register with a RateGroupScheduler at
+     * dashboard rate rather than calling it every loop.
+     */
+    public void publishTelemetry() {
+        double now = Timer.getFPGATimestamp();
+        Pose2d robotPose = drivetrain.getState().Pose;
+        int target = tracker.findClosestConfirmed(robotPose.getX(), robotPose.getY(), now);
+        SmartDashboard.putNumber("GamePieces/Target Track", target >= 0 ? tracker.getTrackId(target) : -1);
+        if (target >= 0) {
+            SmartDashboard.putNumber("GamePieces/Target X", tracker.getX(target, now));
+            SmartDashboard.putNumber("GamePieces/Target Y", tracker.getY(target, now));
+            SmartDashboard.putNumber("GamePieces/Target Confidence", tracker.getConfidence(target));
+        }
+    }
+
+    private void addFrame(VisionFrame frame) {
+        if (!frame.hasRawDetections()) {
+            return;
+        }
+        double[] rawDetections = frame.getRawDetections();
+        double captureTimeSeconds = frame.getCaptureTimeSeconds();
+        Optional<Pose2d> pose = drivetrain.samplePoseAt(Utils.fpgaToCurrentTime(captureTimeSeconds));
+        if (pose.isEmpty()) {
+            return;
+        }
+        Pose2d robotPose = pose.get();
+        double heading = robotPose.getRotation().getRadians();
+
+        int count = 0;
+        int stride = DynamicOccupancyLayer.kValuesPerRawDetection;
+        for (int base = 0; base + stride <= rawDetections.length && count < GamePieceTracker.kMaxDetections; base += stride) {
+            if ((int) rawDetections[base] != VisionConstants.kDetectorGamePieceClassId) {
+                continue;
+            }
+            if (GroundProjection.projectToField(camera, rawDetections[base + 1], rawDetections[base + 2],
+                    VisionConstants.kGamePieceHeightMeters, robotPose.getX(), robotPose.getY(), heading,
+                    VisionConstants.kMaxDetectionRangeMeters, projection, 0)) {
+                positions[2 * count] = projection[0];
+                positions[2 * count + 1] = projection[1];
+                count++;
+            }
+        }
+        tracker.update(captureTimeSeconds, positions, count);
+    }
+
+    /**
+     * Gets the tracker for commands that want to follow a specific track ID.
+     * Positions are in field coordinates on the FPGA clock ({@link Timer#getFPGATimestamp()}).
+     */
+    public GamePieceTracker getTracker() {
+        return tracker;
+    }
+
+    /**
+     * Writes the filtered position of the confirmed game piece closest to the robot, extrapolated to now.
+     *
+     * @param out Receives [fieldX, fieldY]
+     * @return The target's track ID, or -1 if no confirmed game piece is being tracked
+     */
+    public int getClosestGamePiece(double[] out) {
+        double now = Timer.getFPGATimestamp();
+        Pose2d robotPose = drivetrain.getState().Pose;
+        int slot = tracker.findClosestConfirmed(robotPose.getX(), robotPose.getY(), now);
+        if (slot < 0) {
+            return -1;
+        }
+        out[0] = tracker.getX(slot, now);
+        out[1] = tracker.getY(slot, now);
+        return tracker.getTrackId(slot);
+    }
+}
@@ -3,10 +3,22 @@ package frc.robot.subsystems;
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Pose3d;
 import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.networktables.NetworkTableEntry;
+import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.Subsystem;
 import frc.robot.LimelightHelpers;
 import frc.robot.LimelightHelpers.LimelightTarget_Fiducial;
+import frc.robot.util.BackgroundWorkers;
+import frc.robot.util.PoseMath;
+import frc.robot.vision.LimelightHealthMonitor;
+import frc.robot.vision.LimelightHttpClient;
+import frc.robot.vision.LimelightResultsView;
+import frc.robot.vision.LimelightWriteManager;
+import frc.robot.vision.VisionFrame;
+import frc.robot.vision.VisionFrameStream;
+import frc.robot.vision.VisionFrameSubscriber;
+import frc.robot.vision.LimelightResultsView.FiducialPose;
 
 /**
  * Limelight subsystem for vision-based AprilTag detection and pose estimation.
@@ -20,9 +32,29 @@ import frc.robot.LimelightHelpers.LimelightTarget_Fiducial;
  * allowing it to persist across drivetrain generation/replacement cycles.
  */
 public class LimelightSubsystem implements Subsystem {
+    /** Name of the background job that parses JSON results */
+    public static final String kJsonParseJobName = "Limelight JSON parse";
+
     private final String limelightName;
+    private final BackgroundWorkers workers;
+    private final LimelightHttpClient http;
+    private final NetworkTableEntry jsonEntry;
+    private final LimelightHealthMonitor health;
+    private final LimelightWriteManager writer;
+    private final VisionFrameStream frames;
+    /* Latest-only pull of the frame stream for the dashboard */
+    private final VisionFrameSubscriber dashboardFrames = new VisionFrameSubscriber(this::recordDashboardFrame, 0);
+    private int dashboardFrameTags = 0;
+    private double dashboardFrameCaptureSeconds = 0;
     private boolean limelightConnected = false;
 
+    /* Most recently indexed JSON results; replaced and read on the main thread only */
+    private LimelightResultsView latestResults = LimelightResultsView.empty();
+    private long lastParsedChange = -1;
+    private boolean parseInFlight = false;
+    /* Robot pose in the frame of the last tag looked up, as a Limelight pose array */
+    private final double[] tagPose = new double[PoseMath.kLimelightPoseSize];
+
     /**
      * Constructs a LimelightSubsystem with the default Limelight name.
      * Uses empty string "" which corresponds to "limelight" on the network.
@@ -33,38 +65,118 @@ public class LimelightSubsystem implements Subsystem {
 
     /**
      * Constructs a LimelightSubsystem with a specific Limelight name.
+     * JSON results are parsed on the main thread.
      * @param name The network name of the Limelight (e.g., "limelight-front", "limelight")
      */
     public LimelightSubsystem(String name) {
+        this(name, null);
+    }
+
+    /**
+     * Constructs a LimelightSubsystem that parses JSON results and takes snapshots off the main loop.
+     * @param name The network name of the Limelight (e.g., "limelight-front", "limelight")
+     * @param workers Background workers for parsing and HTTP calls, or null to do both inline
+     */
+    public LimelightSubsystem(String name, BackgroundWorkers workers) {
+        this(name, workers, null);
+    }
+
+    /**
+     * Constructs a LimelightSubsystem that sends its REST requests through a shared HTTP client.
+     * @param name The network name of the Limelight (e.g., "limelight-front", "limelight")
+     * @param workers Background workers for parsing, or null to parse inline
+     * @param http Shared client for snapshots and other REST calls, or null to use the workers
+     */
+    public LimelightSubsystem(String name, BackgroundWorkers workers, LimelightHttpClient http) {
         this.limelightName = name;
+        this.workers = workers;
+        this.http = http;
+        this.jsonEntry = LimelightHelpers.getLimelightNTTableEntry(name, "json");
+        this.health = LimelightHealthMonitor.forCamera(name);
+        this.writer = LimelightWriteManager.forCamera(name);
+        this.frames = VisionFrameStream.forCamera(name);
+        frames.subscribe(dashboardFrames, 1);
     }
 
     @Override
     public void periodic() {
         // Check Limelight connection status periodically
         updateConnectionStatus();
-        
-        // Update SmartDashboard with current status
-        updateDashboard();
+        refreshResults();
     }
 
     /**
-     * Checks if the Limelight is currently connected and receiving frames.
-     * @return true if Limelight is connected, false otherwise
+     * Parses the JSON results when the Limelight publishes new ones. With background workers the
+     * parse runs off the main loop and the result lands at the next drain, one loop later; a new dump
+     * that arrives while a parse is in flight is picked up once it finishes. A parse that throws keeps
+     * the previous results, and the next dump is parsed as usual.
+     */
+    private void refreshResults() {
+        long change = jsonEntry.getLastChange();
+        if (change == lastParsedChange || parseInFlight) {
+            return;
+        }
+        String json = jsonEntry.getString("");
+        if (workers == null) {
+            latestResults = LimelightResultsView.parse(json);
+            lastParsedChange = change;
+            return;
+        }
+        boolean accepted = workers.submit(kJsonParseJobName, () -> LimelightResultsView.parse(json), results -> {
+            latestResults = results;
+            parseInFlight = false;
+        }, error -> parseInFlight = false);
+        if (accepted) {
+            parseInFlight = true;
+            lastParsedChange = change;
+        }
+    }
+
+    /**
+     * Checks if the Limelight is currently connected and processing frames, from its heartbeat.
      */
     private void updateConnectionStatus() {
-        // Limelight is considered connected if we have valid target data
-        // This is a basic check - you can refine based on your needs
-        limelightConnected = hasValidTarget();
+        limelightConnected = health.isConnected();
+        if (!limelightConnected && latestResults != LimelightResultsView.empty()) {
+            // A frozen camera's last results would otherwise keep reporting tags forever
+            latestResults = LimelightResultsView.empty();
+        }
+    }
+
+    /**
+     * Gets the heartbeat-based health of this Limelight, shared with every other consumer of it.
+     * @return Health monitor for this camera
+     */
+    public LimelightHealthMonitor getHealth() {
+        return health;
+    }
+
+    /**
+     * Gets this camera's frame stream. Subscribers receive each frame's MegaTag2 pose, raw fiducials
+     * and raw detections once, without reading NetworkTables themselves.
+     * @return Frame stream shared by every consumer of this camera
+     */
+    public VisionFrameStream getFrames() {
+        return frames;
     }
 
     /**
      * Updates SmartDashboard with current Limelight status and detection data.
+     * Register with a RateGroupScheduler at dashboard rate; it is not run from periodic().
      */
-    private void updateDashboard() {
+    public void updateDashboard() {
+        // Only the newest frame since the last update is delivered; older ones are dropped unseen
+        dashboardFrames.requestLatest();
         SmartDashboard.putBoolean("Limelight/Connected", limelightConnected);
         SmartDashboard.putBoolean("Limelight/Has Target", hasValidTarget());
         SmartDashboard.putNumber("Limelight/Fiducials Detected", getDetectedFiducialCount());
+        SmartDashboard.putNumber("Limelight/Frame Tags", dashboardFrameTags);
+        SmartDashboard.putNumber("Limelight/Frame Capture Time", dashboardFrameCaptureSeconds);
+    }
+
+    private void recordDashboardFrame(VisionFrame frame) {
+        dashboardFrameTags = frame.getTagCount();
+        dashboardFrameCaptureSeconds = frame.getCaptureTimeSeconds();
     }
 
     // ======================== TARGET DETECTION ========================
@@ -83,12 +195,16 @@ public class LimelightSubsystem implements Subsystem {
      * @return Array of LimelightTarget_Fiducial objects
      */
     public LimelightTarget_Fiducial[] getDetectedFiducials() {
-        LimelightHelpers.LimelightResults results = LimelightHelpers.getLatestResults(limelightName);
-        if (results == null) {
-            return new LimelightTarget_Fiducial[0];
-        }
-        LimelightTarget_Fiducial[] fiducials = results.targets_Fiducials;
-        return fiducials != null ? fiducials : new LimelightTarget_Fiducial[0];
+        return latestResults.getFiducialTargets();
+    }
+
+    /**
+     * Gets the most recently indexed JSON results. Refreshed in periodic(), so it can trail the
+     * Limelight by a loop when parsing runs on background workers. Sections are decoded on first read.
+     * @return Latest results view, never null
+     */
+    public LimelightResultsView getLatestResults() {
+        return latestResults;
     }
 
     /**
@@ -96,7 +212,7 @@ public class LimelightSubsystem implements Subsystem {
      * @return Number of detected fiducials
      */
     public int getDetectedFiducialCount() {
-        return getDetectedFiducials().length;
+        return latestResults.getFiducialCount();
     }
 
     /**
@@ -105,12 +221,7 @@ public class LimelightSubsystem implements Subsystem {
      * @return true if the tag is detected, false otherwise
      */
     public boolean isTagVisible(int tagId) {
-        for (LimelightTarget_Fiducial fiducial : getDetectedFiducials()) {
-            if ((int)fiducial.fiducialID == tagId) {
-                return true;
-            }
-        }
-        return false;
+        return latestResults.indexOfFiducial(tagId) >= 0;
     }
 
     // ======================== POSE ESTIMATION ========================
@@ -125,17 +236,12 @@ public class LimelightSubsystem implements Subsystem {
      * @return Pose3d representing robot pose relative to tag, or null if tag not visible
      */
     public Pose3d getRobotPoseRelativeToTag(int tagId) {
-        if (!isTagVisible(tagId)) {
+        int index = latestResults.indexOfFiducial(tagId);
+        if (index < 0) {
             return null;
         }
-
-        for (LimelightTarget_Fiducial fiducial : getDetectedFiducials()) {
-            if ((int)fiducial.fiducialID == tagId) {
-                // getRobotPose_TargetSpace() returns the robot pose in the target's coordinate frame
-                return fiducial.getRobotPose_TargetSpace();
-            }
-        }
-        return null;
+        // Robot pose in the target's coordinate frame; only this pose of this tag is decoded
+        return latestResults.getFiducialPose(index, FiducialPose.ROBOT_TARGET_SPACE);
     }
 
     /**
@@ -145,16 +251,10 @@ public class LimelightSubsystem implements Subsystem {
      * @return Pose2d representing robot's X, Y, and rotation relative to tag, or null if not visible
      */
     public Pose2d getRobotPose2dRelativeToTag(int tagId) {
-        if (!isTagVisible(tagId)) {
+        if (!readRobotPoseInTagSpace(tagId)) {
             return null;
         }
-
-        for (LimelightTarget_Fiducial fiducial : getDetectedFiducials()) {
-            if ((int)fiducial.fiducialID == tagId) {
-                return fiducial.getRobotPose_TargetSpace2D();
-            }
-        }
-        return null;
+        return new Pose2d(tagPose[0], tagPose[1], Rotation2d.fromDegrees(tagPose[5]));
     }
 
     /**
@@ -165,14 +265,7 @@ public class LimelightSubsystem implements Subsystem {
      * @return Pose2d representing simplified robot pose, or null if tag not visible
      */
     public Pose2d getSimplifiedPose2dRelativeToTag(int tagId) {
-        Pose3d pose3d = getRobotPoseRelativeToTag(tagId);
-        if (pose3d == null) {
-            return null;
-        }
-        double x = pose3d.getX();
-        double y = pose3d.getY();
-        double yaw = pose3d.getRotation().getZ();
-        return new Pose2d(x, y, new Rotation2d(yaw));
+        return getRobotPose2dRelativeToTag(tagId);
     }
 
     // ======================== DISTANCE & ANGLE MEASUREMENTS ========================
@@ -184,16 +277,11 @@ public class LimelightSubsystem implements Subsystem {
      * @return Distance in meters, or -1 if tag not visible
      */
     public double getDistanceToTag(int tagId) {
-        Pose3d pose = getRobotPoseRelativeToTag(tagId);
-        if (pose == null) {
+        if (!readRobotPoseInTagSpace(tagId)) {
             return -1;
         }
         // Distance is the magnitude of the translation vector
-        return Math.sqrt(
-            pose.getX() * pose.getX() +
-            pose.getY() * pose.getY() +
-            pose.getZ() * pose.getZ()
-        );
+        return PoseMath.norm3d(tagPose, 0);
     }
 
     /**
@@ -204,11 +292,10 @@ public class LimelightSubsystem implements Subsystem {
      * @return Horizontal distance in meters, or -1 if tag not visible
      */
     public double getHorizontalDistanceToTag(int tagId) {
-        Pose3d pose = getRobotPoseRelativeToTag(tagId);
-        if (pose == null) {
+        if (!readRobotPoseInTagSpace(tagId)) {
             return -1;
         }
-        return Math.sqrt(pose.getX() * pose.getX() + pose.getY() * pose.getY());
+        return Math.sqrt(tagPose[0] * tagPose[0] + tagPose[1] * tagPose[1]);
     }
 
     /**
@@ -219,12 +306,11 @@ public class LimelightSubsystem implements Subsystem {
      * @return Angle in radians, or 0 if tag not visible
      */
     public double getAngleToTag(int tagId) {
-        Pose3d pose = getRobotPoseRelativeToTag(tagId);
-        if (pose == null) {
+        if (!readRobotPoseInTagSpace(tagId)) {
             return 0;
         }
         // The angle in the X-Y plane
-        return Math.atan2(pose.getY(), pose.getX());
+        return Math.atan2(tagPose[1], tagPose[0]);
     }
 
     /**
@@ -235,11 +321,23 @@ public class LimelightSubsystem implements Subsystem {
      * @return Rotation2d representing the tag's heading, or null if not visible
      */
     public Rotation2d getTagHeading(int tagId) {
-        Pose3d pose = getRobotPoseRelativeToTag(tagId);
-        if (pose == null) {
+        if (!readRobotPoseInTagSpace(tagId)) {
             return null;
         }
-        return new Rotation2d(pose.getRotation().getZ());
+        return Rotation2d.fromDegrees(tagPose[5]);
+    }
+
+    /**
+     * Copies the robot pose in a tag's frame into {@link #tagPose} without allocating.
+     * @return false if the tag is not visible
+     */
+    private boolean readRobotPoseInTagSpace(int tagId) {
+        int index = latestResults.indexOfFiducial(tagId);
+        if (index < 0) {
+            return false;
+        }
+        latestResults.getFiducialPose(index, FiducialPose.ROBOT_TARGET_SPACE, tagPose, 0);
+        return true;
     }
 
     // ======================== ALIGNMENT SUPPORT ========================
@@ -256,12 +354,12 @@ public class LimelightSubsystem implements Subsystem {
      * @return AlignmentError object containing distance and angle errors, or null if tag not visible
      */
     public AlignmentError calculateAlignmentError(int tagId, double desiredDistance, double desiredAngle) {
-        double actualDistance = getHorizontalDistanceToTag(tagId);
-        double actualAngle = getAngleToTag(tagId);
-
-        if (actualDistance < 0) {
+        if (!readRobotPoseInTagSpace(tagId)) {
             return null; // Tag not visible
         }
+        // Both errors come from one read of the tag pose
+        double actualDistance = Math.sqrt(tagPose[0] * tagPose[0] + tagPose[1] * tagPose[1]);
+        double actualAngle = Math.atan2(tagPose[1], tagPose[0]);
 
         return new AlignmentError(
             actualDistance - desiredDistance,  // positive = too close, negative = too far
@@ -328,7 +426,7 @@ public class LimelightSubsystem implements Subsystem {
      * @param pipelineIndex The pipeline index to activate (0-9)
      */
     public void setPipeline(int pipelineIndex) {
-        LimelightHelpers.setPipelineIndex(limelightName, pipelineIndex);
+        writer.setPipelineIndex(pipelineIndex);
     }
 
     /**
@@ -347,6 +445,35 @@ public class LimelightSubsystem implements Subsystem {
         return LimelightHelpers.getLatency_Capture(limelightName);
     }
 
+    /**
+     * Asks the Limelight to save a snapshot. The request goes through the shared HTTP client, or, when
+     * this subsystem has none, runs on a background worker or the common pool.
+     * @param snapshotName Name to save the snapshot under
+     */
+    public void takeSnapshot(String snapshotName) {
+        if (http != null) {
+            boolean queued = http.takeSnapshot(limelightName, snapshotName, response -> {
+                if (!response.isOk()) {
+                    DriverStation.reportWarning("Limelight snapshot '" + snapshotName + "' failed: "
+                        + (response.error != null ? response.error : "HTTP " + response.statusCode), false);
+                }
+            });
+            if (!queued) {
+                DriverStation.reportWarning("Limelight snapshot '" + snapshotName + "' dropped, HTTP queue full", false);
+            }
+            return;
+        }
+        if (workers == null) {
+            LimelightHelpers.takeSnapshot(limelightName, snapshotName);
+            return;
+        }
+        workers.submit("Limelight snapshot", () -> LimelightHelpers.takeSnapshotBlocking(limelightName, snapshotName), ok -> {
+            if (!ok) {
+                DriverStation.reportWarning("Limelight snapshot '" + snapshotName + "' failed", false);
+            }
+        });
+    }
+
     // ======================== HELPER CLASS ========================
 
     /**
@@ -0,0 +1,133 @@
+package frc.robot.subsystems;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import com.ctre.phoenix6.Utils;
+import com.pathplanner.lib.auto.AutoBuilder;
+import com.pathplanner.lib.pathfinding.Pathfinding;
+
+import edu.wpi.first.math.Pair;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import frc.robot.Constants.VisionConstants;
+import frc.robot.navigation.DynamicOccupancyLayer;
+import frc.robot.navigation.NavGridDistanceField;
+import frc.robot.vision.CameraConfig;
+import frc.robot.vision.VisionFrame;
+import frc.robot.vision.VisionFrameStream;
+import frc.robot.vision.VisionFrameSubscriber;
+
+/**
+ * Keeps a {@link DynamicOccupancyLayer} up to date from a Limelight running a neural detector pipeline
+ * and shares the result with PathPlanner's pathfinder.
+ *
+ * Every detector frame the camera's frame stream delivers is projected using the drivetrain pose sampled
+ * at that frame's capture time, so fast robot motion does not smear detections across the field.
+ */
+public class ObstacleMapSubsystem extends SubsystemBase {
+    private final CommandSwerveDrivetrainOld drivetrain;
+    private final CameraConfig camera;
+    private final DynamicOccupancyLayer layer;
+
+    /* Occupied-node bitsets for the last snapshot pushed to the pathfinder and the current one */
+    private final long[] pushedObstacles;
+    private final long[] currentObstacles;
+    private final float[] snapshot;
+
+    /**
+     * Creates an obstacle map over the given navgrid fed by one detector camera.
+     *
+     * @param navGrid Static navgrid the layer is aligned with
+     * @param drivetrain Drivetrain used to look up the pose at each frame's capture time
+     * @param camera Camera running the neural detector pipeline
+     */
+    public ObstacleMapSubsystem(NavGridDistanceField navGrid, CommandSwerveDrivetrainOld drivetrain, CameraConfig camera) {
+        this.drivetrain = drivetrain;
+        this.camera = camera;
+        this.layer = DynamicOccupancyLayer.matching(navGrid, VisionConstants.kObstacleDecaySeconds,
+            VisionConstants.kMinDetectionClearanceMeters);
+        layer.setClassFootprint(VisionConstants.kDetectorRobotClassId,
+            VisionConstants.kRobotObstacleRadiusMeters, VisionConstants.kDetectionHitProbability, VisionConstants.kRobotDetectionHeightMeters);
+
+        VisionFrameStream.forCamera(camera.name).subscribe(new VisionFrameSubscriber(this::addFrame));
+
+        int nodes = layer.getRows() * layer.getCols();
+        this.pushedObstacles = new long[(nodes + 63) / 64];
+        this.currentObstacles = new long[pushedObstacles.length];
+        this.snapshot = new float[nodes];
+    }
+
+    @Override
+    public void periodic() {
+        layer.publishSnapshot(Timer.getFPGATimestamp());
+    }
+
+    private void addFrame(VisionFrame frame) {
+        if (!frame.hasRawDetections()) {
+            return;
+        }
+        double[] rawDetections = frame.getRawDetections();
+        double captureTimeSeconds = frame.getCaptureTimeSeconds();
+        Optional<Pose2d> pose = drivetrain.samplePoseAt(Utils.fpgaToCurrentTime(captureTimeSeconds));
+        if (pose.isEmpty()) {
+            return;
+        }
+        Pose2d robotPose = pose.get();
+        layer.addDetections(camera, rawDetections, captureTimeSeconds,
+            robotPose.getX(), robotPose.getY(), robotPose.getRotation().getRadians(), VisionConstants.kMaxDetectionRangeMeters);
+    }
+
+    /**
+     * Gets the occupancy layer so planners can query or snapshot it.
+     */
+    public DynamicOccupancyLayer getLayer() {
+        return layer;
+    }
+
+    /**
+     * Hands occupied nodes to PathPlanner as dynamic obstacles. The pathfinder replans whenever its
+     * obstacle list is set, so this only pushes when the set of occupied nodes actually changed.
+     * Does nothing unless AutoBuilder was configured for pathfinding, which creates the pathfinder.
+     * Register with a RateGroupScheduler at kPathfinderObstacleUpdatePeriodSeconds.
+     */
+    public void updatePathfinderObstacles() {
+        if (!AutoBuilder.isPathfindingConfigured()) {
+            return;
+        }
+        layer.copySnapshot(snapshot);
+        Arrays.fill(currentObstacles, 0L);
+        int occupiedCount = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            if (snapshot[i] >= VisionConstants.kOccupiedThreshold) {
+                currentObstacles[i >> 6] |= 1L << (i & 63);
+                occupiedCount++;
+            }
+        }
+        SmartDashboard.putNumber("ObstacleMap/Occupied Nodes", occupiedCount);
+
+        if (Arrays.equals(currentObstacles, pushedObstacles)) {
+            return;
+        }
+        System.arraycopy(currentObstacles, 0, pushedObstacles, 0, currentObstacles.length);
+
+        int cols = layer.getCols();
+        double size = layer.getNodeSizeMeters();
+        List<Pair<Translation2d, Translation2d>> obstacles = new ArrayList<>(occupiedCount);
+        for (int i = 0; i < snapshot.length; i++) {
+            if ((currentObstacles[i >> 6] & (1L << (i & 63))) != 0) {
+                int row = i / cols;
+                int col = i % cols;
+                obstacles.add(Pair.of(
+                    new Translation2d(col * size, row * size),
+                    new Translation2d((col + 1) * size, (row + 1) * size)));
+            }
+        }
+        Pathfinding.setDynamicObstacles(obstacles, drivetrain.getState().Pose.getTranslation());
+    }
+}
@@ -0,0 +1,287 @@
+package frc.robot.subsystems;
+
+import java.util.Optional;
+
+import com.ctre.phoenix6.Utils;
+import com.ctre.phoenix6.swerve.SwerveDrivetrain.SwerveDriveState;
+
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.VecBuilder;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N3;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import frc.robot.Constants.VisionConstants;
+import frc.robot.navigation.FieldModel;
+import frc.robot.util.PoseTelemetry;
+import frc.robot.vision.CameraConfig;
+import frc.robot.vision.MultiCameraPoseSolver;
+import frc.robot.vision.VisionFrame;
+import frc.robot.vision.VisionFrameStream;
+import frc.robot.vision.VisionFrameSubscriber;
+import frc.robot.vision.VisionNoiseModel;
+import frc.robot.vision.VisionPoseFuser;
+
+/**
+ * Corrects the drivetrain's pose estimator from the AprilTag cameras, and sends each camera the robot
+ * heading every loop.
+ *
+ * With {@link VisionConstants#kMultiCameraSolverEnabled}, each loop the newest raw fiducials from every
+ * camera captured within the sync window are solved together into one pose by a
+ * {@link MultiCameraPoseSolver}, and the cameras' own MegaTag2 poses only go to telemetry. Otherwise
+ * each camera's MegaTag2 poses are fused as frames arrive. Either way each camera's MegaTag2 poses train
+ * its {@link VisionNoiseModel}, which sets the MegaTag2 standard deviations and weights the camera's
+ * tags in the multi-camera solve.
+ */
+public class VisionFusionSubsystem extends SubsystemBase {
+    /* Values per tag in rawfiducials */
+    private static final int kValuesPerRawFiducial = 7;
+
+    private final CommandSwerveDrivetrainOld drivetrain;
+    private final PoseTelemetry telemetry;
+    private final VisionPoseFuser[] fusers;
+    /* Dashboard key prefix per camera, built once */
+    private final String[] keyPrefixes;
+    /* Capture time of the newest fused measurement from any camera */
+    private double lastFusedSeconds = Double.NEGATIVE_INFINITY;
+
+    /* Multi-camera solve; null when disabled */
+    private final MultiCameraPoseSolver solver;
+    private final int solverTelemetryCamera;
+    private final Matrix<N3, N1> solverStdDevs = VecBuilder.fill(0, 0, 0);
+    /* Newest raw fiducials per camera not yet solved, copied out of the frame */
+    private final double[][] latestFiducials;
+    private final int[] latestFiducialLength;
+    private final double[] latestCaptureSeconds;
+    private final boolean[] hasLatest;
+
+    /* Multi-camera counters since construction */
+    private long solves = 0;
+    private long solvesFailed = 0;
+    private long framesOutOfWindow = 0;
+    private long tagsRejected = 0;
+    private double maxSolveMicros = 0;
+
+    /**
+     * @param drivetrain Drivetrain whose heading is sent to the cameras and whose estimator is corrected
+     * @param telemetry Receives every fused pose for the dashboard field view
+     * @param field Tag positions for the multi-camera solve
+     * @param cameras Cameras running an AprilTag pipeline
+     */
+    public VisionFusionSubsystem(CommandSwerveDrivetrainOld drivetrain, PoseTelemetry telemetry, FieldModel field,
+            CameraConfig... cameras) {
+        this.drivetrain = drivetrain;
+        this.telemetry = telemetry;
+        this.fusers = new VisionPoseFuser[cameras.length];
+        this.keyPrefixes = new String[cameras.length];
+        boolean solveTogether = VisionConstants.kMultiCameraSolverEnabled;
+        for (int i = 0; i < cameras.length; i++) {
+            int camera = telemetry.addCamera(cameras[i].name);
+            fusers[i] = createFuser(cameras[i].name, (pose, timestampSeconds, stdDevs) -> {
+                if (!solveTogether) {
+                    drivetrain.addVisionMeasurement(pose, timestampSeconds, stdDevs);
+                    lastFusedSeconds = Math.max(lastFusedSeconds, timestampSeconds);
+                }
+                telemetry.recordVisionEstimate(camera, pose);
+            }, timestampSeconds -> drivetrain.samplePoseAt(Utils.fpgaToCurrentTime(timestampSeconds)));
+            keyPrefixes[i] = "Vision/" + cameras[i].name + "/";
+        }
+
+        if (solveTogether) {
+            this.solver = new MultiCameraPoseSolver(field, cameras, VisionConstants.kMultiCameraMaxTags,
+                Math.toRadians(VisionConstants.kMultiCameraAngleStdDevDegrees),
+                Math.toRadians(VisionConstants.kMultiCameraHeadingStdDevDegrees), VisionConstants.kPoseMaxTagDistanceMeters,
+                VisionConstants.kMultiCameraOutlierChiSquared);
+            this.solverTelemetryCamera = telemetry.addCamera("Multi-camera");
+            this.latestFiducials = new double[cameras.length][VisionConstants.kMultiCameraMaxTags * kValuesPerRawFiducial];
+            this.latestFiducialLength = new int[cameras.length];
+            this.latestCaptureSeconds = new double[cameras.length];
+            this.hasLatest = new boolean[cameras.length];
+            for (int i = 0; i < cameras.length; i++) {
+                int camera = i;
+                solver.setNoiseModel(i, fusers[i].getNoiseModel());
+                VisionFrameStream.forCamera(cameras[i].name).subscribe(new VisionFrameSubscriber(frame -> keepFiducials(camera, frame)));
+            }
+        } else {
+            this.solver = null;
+            this.solverTelemetryCamera = -1;
+            this.latestFiducials = null;
+            this.latestFiducialLength = null;
+            this.latestCaptureSeconds = null;
+            this.hasLatest = null;
+        }
+    }
+
+    /**
+     * Creates a fuser and its noise model with the tuning in {@link VisionConstants}.
+     *
+     * @param cameraName NetworkTables name of the Limelight
+     * @param consumer Receives accepted measurements
+     * @param estimate Pose estimate history the noise model learns against
+     */
+    public static VisionPoseFuser createFuser(String cameraName, VisionPoseFuser.MeasurementConsumer consumer,
+            VisionPoseFuser.PoseSampler estimate) {
+        VisionNoiseModel noiseModel = new VisionNoiseModel(cameraName, VisionConstants.kNoiseMaxTagId,
+            VisionConstants.kNoiseDistanceBands, VisionConstants.kNoiseBandWidthMeters, VisionConstants.kPoseXyStdDevMeters,
+            VisionConstants.kNoisePriorWeight, VisionConstants.kNoiseMemorySamples, VisionConstants.kNoiseMinScale,
+            VisionConstants.kNoiseMaxScale, VisionConstants.kNoiseAmbiguityGain, VisionConstants.kNoiseMaxResidualMeters);
+        return new VisionPoseFuser(cameraName, consumer, estimate, noiseModel,
+            VisionConstants.kPoseMaxYawRateDegreesPerSecond, VisionConstants.kPoseMaxTagDistanceMeters,
+            VisionConstants.kIgnoreVisionHeadingStdDevRadians);
+    }
+
+    /**
+     * Creates a fuser whose noise model has no estimate to learn against, so it keeps the prior.
+     *
+     * @param cameraName NetworkTables name of the Limelight
+     * @param consumer Receives accepted measurements
+     */
+    public static VisionPoseFuser createFuser(String cameraName, VisionPoseFuser.MeasurementConsumer consumer) {
+        return createFuser(cameraName, consumer, timestampSeconds -> Optional.empty());
+    }
+
+    @Override
+    public void periodic() {
+        SwerveDriveState state = drivetrain.getState();
+        double yawDegrees = state.Pose.getRotation().getDegrees();
+        double yawRateDegreesPerSecond = Math.toDegrees(state.Speeds.omegaRadiansPerSecond);
+        for (VisionPoseFuser fuser : fusers) {
+            fuser.update(yawDegrees, yawRateDegreesPerSecond);
+        }
+        if (solver != null) {
+            solveTogether(yawRateDegreesPerSecond);
+        }
+    }
+
+    /* Later frames from a camera in the same loop replace earlier ones; only the newest is solved */
+    private void keepFiducials(int camera, VisionFrame frame) {
+        if (!frame.hasRawFiducials() || frame.getRawFiducials().length < kValuesPerRawFiducial) {
+            return;
+        }
+        double[] rawFiducials = frame.getRawFiducials();
+        int length = Math.min(rawFiducials.length, latestFiducials[camera].length);
+        System.arraycopy(rawFiducials, 0, latestFiducials[camera], 0, length);
+        latestFiducialLength[camera] = length;
+        latestCaptureSeconds[camera] = frame.getCaptureTimeSeconds();
+        hasLatest[camera] = true;
+    }
+
+    private void solveTogether(double yawRateDegreesPerSecond) {
+        double newestSeconds = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < hasLatest.length; i++) {
+            if (hasLatest[i]) {
+                newestSeconds = Math.max(newestSeconds, latestCaptureSeconds[i]);
+            }
+        }
+        if (newestSeconds == Double.NEGATIVE_INFINITY) {
+            return;
+        }
+        // Same gate as the MegaTag2 fusers, on this loop's turn rate
+        if (Math.abs(yawRateDegreesPerSecond) > VisionConstants.kPoseMaxYawRateDegreesPerSecond) {
+            clearLatest();
+            solvesFailed++;
+            return;
+        }
+        Optional<Pose2d> reference = drivetrain.samplePoseAt(Utils.fpgaToCurrentTime(newestSeconds));
+        if (reference.isEmpty()) {
+            clearLatest();
+            return;
+        }
+        Pose2d referencePose = reference.get();
+
+        long start = System.nanoTime();
+        solver.reset();
+        for (int i = 0; i < hasLatest.length; i++) {
+            if (!hasLatest[i]) {
+                continue;
+            }
+            if (newestSeconds - latestCaptureSeconds[i] > VisionConstants.kMultiCameraSyncWindowSeconds) {
+                framesOutOfWindow++;
+                continue;
+            }
+            Pose2d capturePose = referencePose;
+            if (latestCaptureSeconds[i] != newestSeconds) {
+                Optional<Pose2d> sampled = drivetrain.samplePoseAt(Utils.fpgaToCurrentTime(latestCaptureSeconds[i]));
+                if (sampled.isEmpty()) {
+                    continue;
+                }
+                capturePose = sampled.get();
+            }
+            solver.addFiducials(i, latestFiducials[i], latestFiducialLength[i], capturePose.getRotation().getRadians(),
+                capturePose.getX() - referencePose.getX(), capturePose.getY() - referencePose.getY());
+        }
+        clearLatest();
+        if (solver.getObservationCount() == 0) {
+            return;
+        }
+        boolean solved = solver.solve();
+        maxSolveMicros = Math.max(maxSolveMicros, (System.nanoTime() - start) / 1e3);
+        if (!solved) {
+            solvesFailed++;
+            return;
+        }
+        solves++;
+        tagsRejected += solver.getTagsRejected();
+
+        solverStdDevs.set(0, 0, Math.max(VisionConstants.kMultiCameraMinXyStdDevMeters, solver.getXStdDev()));
+        solverStdDevs.set(1, 0, Math.max(VisionConstants.kMultiCameraMinXyStdDevMeters, solver.getYStdDev()));
+        solverStdDevs.set(2, 0, VisionConstants.kIgnoreVisionHeadingStdDevRadians);
+        Pose2d pose = new Pose2d(solver.getX(), solver.getY(), referencePose.getRotation());
+        drivetrain.addVisionMeasurement(pose, newestSeconds, solverStdDevs);
+        telemetry.recordVisionEstimate(solverTelemetryCamera, pose);
+        lastFusedSeconds = Math.max(lastFusedSeconds, newestSeconds);
+    }
+
+    private void clearLatest() {
+        for (int i = 0; i < hasLatest.length; i++) {
+            hasLatest[i] = false;
+        }
+    }
+
+    /**
+     * Whether any camera corrected the pose estimate recently.
+     *
+     * @param nowSeconds Current FPGA time
+     * @param maxAgeSeconds Oldest capture time that counts as recent
+     */
+    public boolean hasRecentMeasurement(double nowSeconds, double maxAgeSeconds) {
+        return nowSeconds - lastFusedSeconds <= maxAgeSeconds;
+    }
+
+    /**
+     * Publishes per-camera frame counts, and multi-camera solve results, to SmartDashboard. Register
+     * with a RateGroupScheduler at dashboard rate rather than calling it every loop.
+     */
+    public void publishTelemetry() {
+        for (int i = 0; i < fusers.length; i++) {
+            VisionPoseFuser fuser = fusers[i];
+            String prefix = keyPrefixes[i];
+            SmartDashboard.putNumber(prefix + "Frames", fuser.getFramesReceived());
+            SmartDashboard.putNumber(prefix + "Fused", fuser.getFramesAccepted());
+            SmartDashboard.putNumber(prefix + "Rejected", fuser.getFramesRejected());
+            SmartDashboard.putNumber(prefix + "Stale", fuser.getFramesStale());
+        }
+        if (solver != null) {
+            SmartDashboard.putNumber("Vision/MultiCamera/Solves", solves);
+            SmartDashboard.putNumber("Vision/MultiCamera/Failed", solvesFailed);
+            SmartDashboard.putNumber("Vision/MultiCamera/Out Of Window", framesOutOfWindow);
+            SmartDashboard.putNumber("Vision/MultiCamera/Tags Rejected", tagsRejected);
+            SmartDashboard.putNumber("Vision/MultiCamera/Last Tags", solver.getTagsUsed());
+            SmartDashboard.putNumber("Vision/MultiCamera/Last Cameras", solver.getCamerasUsed());
+            SmartDashboard.putNumber("Vision/MultiCamera/Last Chi Squared", solver.getChiSquared());
+            SmartDashboard.putNumber("Vision/MultiCamera/Max Solve us", maxSolveMicros);
+            maxSolveMicros = 0;
+        }
+    }
+
+    /**
+     * Publishes each camera's noise model calibration and logs its learned scales. Register with a
+     * RateGroupScheduler at health rate.
+     */
+    public void publishNoiseTelemetry() {
+        for (VisionPoseFuser fuser : fusers) {
+            fuser.getNoiseModel().publishTelemetry();
+        }
+    }
+}
@@ -0,0 +1,336 @@
+package frc.robot.util;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+
+/**
+ * Measures heap allocation per robot loop, broken down by section, from the JVM's per-thread
+ * allocation counters.
+ *
+ * Garbage collection pauses are driven by how much the loop allocates, so every allocation in a
+ * periodic path eventually costs loop time. A cycle starts with {@link #beginCycle()} and ends with
+ * {@link #endCycle()}; in between, each {@link #mark(String)} charges everything the main thread
+ * allocated since the previous mark to the named section. Once installed on the CommandScheduler,
+ * subsystem periodics and trigger polling are charged to one section and each command's execute to a
+ * section named after the command. Work done on other threads is charged with {@link #record}.
+ *
+ * Sections may declare a per-loop budget; crossing it raises a warning. The static helpers measure a
+ * single piece of code in isolation, for unit tests and simulation self-checks.
+ *
+ * Marks must come from the main robot thread. When tracking is disabled every call returns
+ * immediately, so call sites can stay in place on the robot.
+ */
+public class AllocationTracker {
+    /** Section for the whole of robotPeriodic */
+    public static final String kCycleSection = "Cycle";
+    /** Section for subsystem periodics and trigger polling inside the CommandScheduler */
+    public static final String kSubsystemsSection = "Subsystems and triggers";
+
+    private static final int kWarmupRuns = 2000;
+    private static final int kMeasuredRuns = 1000;
+
+    private static final com.sun.management.ThreadMXBean threadBean = loadThreadBean();
+
+    /**
+     * Allocation totals of one section.
+     */
+    public static final class Section {
+        private final String name;
+        private final String meanKey;
+        private final String peakKey;
+        private long budgetBytes = -1;
+        private long cycleBytes = 0;
+        private boolean touched = false;
+        private boolean overBudget = false;
+
+        private long lastBytes = 0;
+        private long peakBytes = 0;
+        private long windowBytes = 0;
+        private long windowCycles = 0;
+
+        private Section(String name) {
+            this.name = name;
+            this.meanKey = "Allocations/" + name + "/Mean B";
+            this.peakKey = "Allocations/" + name + "/Peak B";
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /** Bytes allocated the last cycle this section ran */
+        public long getLastBytes() {
+            return lastBytes;
+        }
+
+        /** Most bytes allocated in one cycle since telemetry was last published */
+        public long getPeakBytes() {
+            return peakBytes;
+        }
+
+        /** Per-cycle budget, or -1 if none */
+        public long getBudgetBytes() {
+            return budgetBytes;
+        }
+    }
+
+    private final boolean enabled;
+    private final Map<String, Section> sectionsByName = new HashMap<>();
+    private final List<Section> sections = new ArrayList<>();
+    private final Section cycle;
+
+    private long cycleStart = 0;
+    private long mark = 0;
+    private boolean inCycle = false;
+
+    private long lastGcCount = 0;
+    private long lastGcMillis = 0;
+
+    /**
+     * @param enabled Whether to track; also off if the JVM cannot count per-thread allocation
+     */
+    public AllocationTracker(boolean enabled) {
+        this.enabled = enabled && isSupported();
+        this.cycle = section(kCycleSection);
+    }
+
+    // ======================== SETUP ========================
+
+    /**
+     * Gets or creates a section.
+     */
+    public Section section(String name) {
+        Section section = sectionsByName.get(name);
+        if (section == null) {
+            section = new Section(name);
+            sectionsByName.put(name, section);
+            sections.add(section);
+        }
+        return section;
+    }
+
+    /**
+     * Declares how many bytes a section may allocate per cycle before a warning is raised.
+     */
+    public void setBudget(String name, long budgetBytes) {
+        section(name).budgetBytes = budgetBytes;
+    }
+
+    /**
+     * Hooks the scheduler so subsystem periodics and trigger polling, and each command's execute, get
+     * sections of their own. Call after all trigger bindings are made: the hook bound to the button
+     * loop has to run after every other binding.
+     *
+     * The execute hook runs right after a command's execute(), so a command's isFinished() and end()
+     * are charged to the next command to execute, or to whatever is marked after the scheduler runs.
+     */
+    public void install(CommandScheduler scheduler) {
+        if (!enabled) {
+            return;
+        }
+        Section subsystems = section(kSubsystemsSection);
+        scheduler.getDefaultButtonLoop().bind(() -> mark(subsystems));
+        scheduler.onCommandExecute(this::markCommand);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // ======================== PER CYCLE ========================
+
+    /**
+     * Starts a cycle. Call first thing in robotPeriodic.
+     */
+    public void beginCycle() {
+        if (!enabled) {
+            return;
+        }
+        cycleStart = threadBean.getCurrentThreadAllocatedBytes();
+        mark = cycleStart;
+        inCycle = true;
+    }
+
+    /**
+     * Charges what the main thread allocated since the previous mark to a section.
+     */
+    public void mark(Section section) {
+        if (!inCycle) {
+            return;
+        }
+        long now = threadBean.getCurrentThreadAllocatedBytes();
+        section.cycleBytes += now - mark;
+        section.touched = true;
+        mark = now;
+    }
+
+    /**
+     * Charges what the main thread allocated since the previous mark to a section.
+     */
+    public void mark(String name) {
+        if (inCycle) {
+            mark(section(name));
+        }
+    }
+
+    /**
+     * Charges bytes measured elsewhere, such as on a background thread, to a section for this cycle.
+     */
+    public void record(String name, long bytes) {
+        if (!enabled) {
+            return;
+        }
+        Section section = section(name);
+        section.cycleBytes += bytes;
+        section.touched = true;
+    }
+
+    /**
+     * Ends a cycle and checks budgets. Call last thing in robotPeriodic.
+     */
+    public void endCycle() {
+        if (!inCycle) {
+            return;
+        }
+        cycle.cycleBytes = threadBean.getCurrentThreadAllocatedBytes() - cycleStart;
+        cycle.touched = true;
+        inCycle = false;
+
+        for (int i = 0; i < sections.size(); i++) {
+            Section section = sections.get(i);
+            if (!section.touched) {
+                continue;
+            }
+            section.lastBytes = section.cycleBytes;
+            section.peakBytes = Math.max(section.peakBytes, section.cycleBytes);
+            section.windowBytes += section.cycleBytes;
+            section.windowCycles++;
+            section.cycleBytes = 0;
+            section.touched = false;
+
+            if (section.budgetBytes >= 0) {
+                boolean over = section.lastBytes > section.budgetBytes;
+                if (over && !section.overBudget) {
+                    // Only report transitions; a steady offender would otherwise warn every loop
+                    DriverStation.reportWarning("Allocation budget exceeded: " + section.name + " allocated "
+                        + section.lastBytes + " bytes in one loop, budget " + section.budgetBytes, false);
+                }
+                section.overBudget = over;
+            }
+        }
+    }
+
+    /* Keyed by name rather than instance, so commands built on every button press share one section */
+    private void markCommand(Command command) {
+        mark(command.getName());
+    }
+
+    public List<Section> getSections() {
+        return sections;
+    }
+
+    /**
+     * Publishes each section's mean and peak bytes per cycle, plus garbage collections since the last
+     * call, to SmartDashboard under "Allocations/". Register with a RateGroupScheduler at health rate.
+     */
+    public void publishTelemetry() {
+        if (!enabled) {
+            return;
+        }
+        for (Section section : sections) {
+            SmartDashboard.putNumber(section.meanKey, section.windowCycles > 0 ? section.windowBytes / section.windowCycles : 0);
+            SmartDashboard.putNumber(section.peakKey, section.peakBytes);
+            section.peakBytes = 0;
+            section.windowBytes = 0;
+            section.windowCycles = 0;
+        }
+
+        long gcCount = 0;
+        long gcMillis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gcCount += Math.max(0, gc.getCollectionCount());
+            gcMillis += Math.max(0, gc.getCollectionTime());
+        }
+        SmartDashboard.putNumber("Allocations/GC Collections", gcCount - lastGcCount);
+        SmartDashboard.putNumber("Allocations/GC ms", gcMillis - lastGcMillis);
+        lastGcCount = gcCount;
+        lastGcMillis = gcMillis;
+    }
+
+    // ======================== MEASUREMENT ========================
+
+    /**
+     * Checks whether this JVM can count allocation per thread.
+     */
+    public static boolean isSupported() {
+        return threadBean != null;
+    }
+
+    /**
+     * Gets the bytes the calling thread has allocated since it started, or 0 if unsupported.
+     */
+    public static long getAllocatedBytes() {
+        return threadBean != null ? threadBean.getCurrentThreadAllocatedBytes() : 0;
+    }
+
+    /**
+     * Measures the mean bytes one run of a piece of code allocates on the calling thread. The code is
+     * run repeatedly first so the JIT has compiled it, and escape analysis has removed whatever it
+     * can, as it would be a few seconds into a match.
+     *
+     * @param body Code to measure
+     * @param warmupRuns Runs before measuring
+     * @param runs Runs to average over
+     * @return Mean bytes per run, or 0 if unsupported
+     */
+    public static double measureBytesPerRun(Runnable body, int warmupRuns, int runs) {
+        for (int i = 0; i < warmupRuns; i++) {
+            body.run();
+        }
+        long start = getAllocatedBytes();
+        for (int i = 0; i < runs; i++) {
+            body.run();
+        }
+        return (getAllocatedBytes() - start) / (double) runs;
+    }
+
+    /**
+     * Fails if a piece of code allocates more than its budget per run once warmed up. Intended for
+     * unit tests of periodic paths such as a command's execute(); does nothing if unsupported.
+     *
+     * @param name Name used in the failure message
+     * @param budgetBytes Bytes one run may allocate
+     * @param body Code to measure
+     * @throws AssertionError if the budget is exceeded
+     */
+    public static void assertWithinBudget(String name, long budgetBytes, Runnable body) {
+        if (!isSupported()) {
+            return;
+        }
+        double bytes = measureBytesPerRun(body, kWarmupRuns, kMeasuredRuns);
+        if (bytes > budgetBytes) {
+            throw new AssertionError(String.format("%s allocated %.0f bytes per run, over its %d byte budget", name, bytes, budgetBytes));
+        }
+    }
+
+    private static com.sun.management.ThreadMXBean loadThreadBean() {
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)) {
+            return null;
+        }
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!bean.isThreadAllocatedMemorySupported()) {
+            return null;
+        }
+        bean.setThreadAllocatedMemoryEnabled(true);
+        return bean;
+    }
+}
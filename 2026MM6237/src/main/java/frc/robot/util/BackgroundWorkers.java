@@ -0,0 +1,238 @@
+package frc.robot.util;
+
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+
+/**
+ * Fixed pool of daemon threads for heavy robot work (JSON decoding, HTTP calls, geometry) that must
+ * not run on the main loop.
+ *
+ * Work is submitted from the main robot thread and its result is handed back to the main thread,
+ * where the callback runs when {@link #drain()} is called at a fixed point in robotPeriodic. Each
+ * worker has its own pair of {@link SpscRingBuffer}s (main to worker and worker to main), so the main
+ * loop never takes a lock or waits on a worker. Capacity is bounded per worker: when every worker is
+ * full, {@link #submit} rejects the job instead of queueing without limit.
+ *
+ * submit() and drain() must both be called from the main robot thread.
+ */
+public class BackgroundWorkers {
+    private static final class Job {
+        String name;
+        Supplier<?> work;
+        Consumer<Object> onResult;
+        Consumer<Throwable> onError;
+        Object result;
+        Throwable error;
+        long submitNanos;
+        long finishNanos;
+        long allocatedBytes;
+    }
+
+    private final class Worker implements Runnable {
+        final SpscRingBuffer<Job> requests;
+        final SpscRingBuffer<Job> results;
+        final Thread thread;
+        /* Jobs submitted to this worker and not yet drained; main thread only */
+        int inFlight = 0;
+
+        Worker(String name, int capacity) {
+            this.requests = new SpscRingBuffer<>(capacity);
+            this.results = new SpscRingBuffer<>(capacity);
+            this.thread = new Thread(this, name);
+            this.thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                Job job = requests.poll();
+                if (job == null) {
+                    LockSupport.park(this);
+                    continue;
+                }
+                long allocatedBefore = AllocationTracker.getAllocatedBytes();
+                try {
+                    job.result = job.work.get();
+                } catch (Throwable ex) {
+                    job.error = ex;
+                }
+                job.allocatedBytes = AllocationTracker.getAllocatedBytes() - allocatedBefore;
+                job.finishNanos = System.nanoTime();
+                // Cannot fail: a worker never holds more jobs than its result queue's capacity
+                results.offer(job);
+            }
+        }
+    }
+
+    private final Worker[] workers;
+    private final int capacityPerWorker;
+    private AllocationTracker allocations = null;
+
+    /* Metrics, main thread only */
+    private long submitted = 0;
+    private long completed = 0;
+    private long rejected = 0;
+    private long failed = 0;
+    private int maxDepth = 0;
+    private double totalLatencyMillis = 0;
+    private double maxLatencyMillis = 0;
+    private double totalRunMillis = 0;
+    private long latencySamples = 0;
+
+    /**
+     * @param name Thread name prefix
+     * @param threads Number of worker threads
+     * @param capacityPerWorker Jobs each worker may hold, queued or finished but not yet drained
+     */
+    public BackgroundWorkers(String name, int threads, int capacityPerWorker) {
+        this.workers = new Worker[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Worker(name + "-" + (i + 1), capacityPerWorker);
+        }
+        // The ring buffers round up to a power of two; enforce the requested bound ourselves
+        this.capacityPerWorker = Math.min(capacityPerWorker, workers[0].results.capacity());
+        for (Worker worker : workers) {
+            worker.thread.start();
+        }
+    }
+
+    /**
+     * Charges the bytes each job allocates on its worker thread to a section named after the job,
+     * in the cycle its result is delivered.
+     */
+    public void setAllocationTracker(AllocationTracker allocations) {
+        this.allocations = allocations;
+    }
+
+    /**
+     * Runs work on a background thread and delivers its result to the main thread.
+     *
+     * @param name Job name used in error reports
+     * @param work Runs on a worker thread; must not touch the CommandScheduler or other main-thread state
+     * @param onResult Runs on the main thread during {@link #drain()} with the work's result; may be null
+     * @return false if every worker is at capacity and the job was dropped
+     */
+    public <T> boolean submit(String name, Supplier<T> work, Consumer<? super T> onResult) {
+        return submit(name, work, onResult, null);
+    }
+
+    /**
+     * Runs work on a background thread and delivers its result, or what it threw, to the main thread.
+     * Exactly one of the callbacks runs for every accepted job, so callers that track a job in flight
+     * can always clear it.
+     *
+     * @param name Job name used in error reports
+     * @param work Runs on a worker thread; must not touch the CommandScheduler or other main-thread state
+     * @param onResult Runs on the main thread during {@link #drain()} with the work's result; may be null
+     * @param onError Runs on the main thread during {@link #drain()}, after the failure is reported, if
+     *     the work threw; may be null
+     * @return false if every worker is at capacity and the job was dropped
+     */
+    @SuppressWarnings("unchecked")
+    public <T> boolean submit(String name, Supplier<T> work, Consumer<? super T> onResult, Consumer<Throwable> onError) {
+        Worker target = null;
+        for (Worker worker : workers) {
+            if (worker.inFlight < capacityPerWorker && (target == null || worker.inFlight < target.inFlight)) {
+                target = worker;
+            }
+        }
+        if (target == null) {
+            rejected++;
+            return false;
+        }
+
+        Job job = new Job();
+        job.name = name;
+        job.work = work;
+        job.onResult = (Consumer<Object>) onResult;
+        job.onError = onError;
+        job.submitNanos = System.nanoTime();
+        target.requests.offer(job);
+        target.inFlight++;
+        submitted++;
+        LockSupport.unpark(target.thread);
+
+        maxDepth = Math.max(maxDepth, getQueueDepth());
+        return true;
+    }
+
+    /**
+     * Runs the callbacks of every job finished since the last call, oldest first per worker.
+     * Call once per loop from robotPeriodic, before the command scheduler runs.
+     *
+     * @return Number of jobs delivered
+     */
+    public int drain() {
+        int delivered = 0;
+        long now = System.nanoTime();
+        for (Worker worker : workers) {
+            Job job;
+            while ((job = worker.results.poll()) != null) {
+                worker.inFlight--;
+                delivered++;
+                completed++;
+
+                double latencyMillis = (now - job.submitNanos) / 1e6;
+                totalLatencyMillis += latencyMillis;
+                totalRunMillis += (job.finishNanos - job.submitNanos) / 1e6;
+                maxLatencyMillis = Math.max(maxLatencyMillis, latencyMillis);
+                latencySamples++;
+                if (allocations != null) {
+                    allocations.record(job.name, job.allocatedBytes);
+                }
+
+                if (job.error != null) {
+                    failed++;
+                    DriverStation.reportError("Background job '" + job.name + "' failed: " + job.error, job.error.getStackTrace());
+                    if (job.onError != null) {
+                        job.onError.accept(job.error);
+                    }
+                } else if (job.onResult != null) {
+                    job.onResult.accept(job.result);
+                }
+            }
+        }
+        return delivered;
+    }
+
+    /**
+     * Gets the number of jobs submitted but not yet delivered.
+     */
+    public int getQueueDepth() {
+        int depth = 0;
+        for (Worker worker : workers) {
+            depth += worker.inFlight;
+        }
+        return depth;
+    }
+
+    public long getRejectedCount() {
+        return rejected;
+    }
+
+    /**
+     * Publishes queue depth, throughput and latency to SmartDashboard under "Workers/", then resets
+     * the windowed maximums and averages. Register with a RateGroupScheduler at health rate.
+     */
+    public void publishTelemetry() {
+        SmartDashboard.putNumber("Workers/Queue Depth", getQueueDepth());
+        SmartDashboard.putNumber("Workers/Max Queue Depth", maxDepth);
+        SmartDashboard.putNumber("Workers/Submitted", submitted);
+        SmartDashboard.putNumber("Workers/Completed", completed);
+        SmartDashboard.putNumber("Workers/Rejected", rejected);
+        SmartDashboard.putNumber("Workers/Failed", failed);
+        // Latency runs from submit to delivery on the main thread; run time from submit to worker finish
+        SmartDashboard.putNumber("Workers/Mean Latency ms", latencySamples > 0 ? totalLatencyMillis / latencySamples : 0);
+        SmartDashboard.putNumber("Workers/Mean Run ms", latencySamples > 0 ? totalRunMillis / latencySamples : 0);
+        SmartDashboard.putNumber("Workers/Max Latency ms", maxLatencyMillis);
+        maxDepth = getQueueDepth();
+        maxLatencyMillis = 0;
+        totalLatencyMillis = 0;
+        totalRunMillis = 0;
+        latencySamples = 0;
+    }
+}
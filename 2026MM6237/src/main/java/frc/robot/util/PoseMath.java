@@ -0,0 +1,75 @@
+package frc.robot.util;
+
+/**
+ * Rigid-body pose math on primitive arrays, for vision and alignment code that runs every loop or
+ * every camera frame.
+ *
+ * WPILib's geometry classes are immutable, so every operation allocates, and a Rotation3d goes
+ * through a quaternion each time it is built. These functions read and write slices of caller-owned
+ * double arrays instead.
+ *
+ * Layouts, each starting at the given offset:
+ * - SE(3) pose: 12 values [x, y, z, r00, r01, r02, r10, r11, r12, r20, r21, r22], a translation
+ *   followed by a row-major rotation matrix
+ * - Limelight pose: 6 values [x, y, z, roll, pitch, yaw] in meters and degrees, as in botpose and t6 arrays
+ */
+public final class PoseMath {
+    /** Values in an SE(3) pose */
+    public static final int kPose3dSize = 12;
+    /** Values in a Limelight pose */
+    public static final int kLimelightPoseSize = 6;
+
+    private PoseMath() {
+        throw new UnsupportedOperationException("This is a utility class!");
+    }
+
+    // ======================== ANGLES ========================
+
+    /**
+     * Wraps an angle to [-pi, pi).
+     */
+    public static double angleModulus(double radians) {
+        return radians - 2.0 * Math.PI * Math.floor((radians + Math.PI) / (2.0 * Math.PI));
+    }
+
+    /**
+     * Gets the shortest signed rotation from one heading to another, in [-pi, pi).
+     */
+    public static double angleDifference(double toRadians, double fromRadians) {
+        return angleModulus(toRadians - fromRadians);
+    }
+
+    // ======================== SE(3) ========================
+
+    /**
+     * Writes the row-major rotation matrix Rz(yaw) Ry(pitch) Rx(roll), matching WPILib's
+     * Rotation3d(roll, pitch, yaw).
+     *
+     * @param out Receives 9 values
+     */
+    public static void rotationFromRollPitchYaw(double roll, double pitch, double yaw, double[] out, int outOffset) {
+        double cr = Math.cos(roll);
+        double sr = Math.sin(roll);
+        double cp = Math.cos(pitch);
+        double sp = Math.sin(pitch);
+        double cy = Math.cos(yaw);
+        double sy = Math.sin(yaw);
+        out[outOffset] = cy * cp;
+        out[outOffset + 1] = cy * sp * sr - sy * cr;
+        out[outOffset + 2] = cy * sp * cr + sy * sr;
+        out[outOffset + 3] = sy * cp;
+        out[outOffset + 4] = sy * sp * sr + cy * cr;
+        out[outOffset + 5] = sy * sp * cr - cy * sr;
+        out[outOffset + 6] = -sp;
+        out[outOffset + 7] = cp * sr;
+        out[outOffset + 8] = cp * cr;
+    }
+
+    /** Length of the translation of an SE(3) or Limelight pose, which both start with x, y, z */
+    public static double norm3d(double[] p, int pOffset) {
+        double x = p[pOffset];
+        double y = p[pOffset + 1];
+        double z = p[pOffset + 2];
+        return Math.sqrt(x * x + y * y + z * z);
+    }
+}
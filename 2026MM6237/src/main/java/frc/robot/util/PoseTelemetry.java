@@ -0,0 +1,167 @@
+package frc.robot.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.ctre.phoenix6.swerve.SwerveDrivetrain.SwerveDriveState;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.StructArrayPublisher;
+import edu.wpi.first.networktables.StructPublisher;
+import edu.wpi.first.wpilibj.RobotController;
+
+/**
+ * Publishes the robot pose, module states, vision estimates, path target and active trajectory as
+ * WPILib struct topics that AdvantageScope and Elastic read directly.
+ *
+ * Structs go out as packed binary, so a pose costs 24 bytes instead of Field2d's double array plus
+ * the Sendable bookkeeping, and module states need no manual flattening. Each group is published
+ * with one timestamp per call so a dashboard sees a single consistent sample:
+ * - drivetrain pose and module states: {@link #publishDrivetrain}, at the rate it is registered at
+ * - vision estimates: recorded as they are fused, then sent as one array per camera by
+ *   {@link #publishVision}; estimates beyond the batch size keep only the newest
+ * - path target and trajectory: only sent when they change
+ */
+public class PoseTelemetry {
+    private final StructPublisher<Pose2d> pose;
+    private final StructArrayPublisher<SwerveModuleState> moduleStates;
+    private final StructArrayPublisher<SwerveModuleState> moduleTargets;
+    private final StructPublisher<Pose2d> targetPose;
+    private final StructArrayPublisher<Pose2d> trajectory;
+    private final NetworkTable visionTable;
+    private final int maxVisionBatch;
+    private final List<VisionBatch> cameras = new ArrayList<>();
+
+    private Pose2d pendingTargetPose = null;
+    private Pose2d[] pendingTrajectory = null;
+
+    /**
+     * Estimates from one camera since the last publish. Arrays for every batch length are allocated
+     * on first use so a steady publish rate allocates nothing.
+     */
+    private static class VisionBatch {
+        final StructArrayPublisher<Pose2d> publisher;
+        final Pose2d[] estimates;
+        final Pose2d[][] sized;
+        int count = 0;
+        int next = 0;
+        boolean cleared = false;
+
+        VisionBatch(StructArrayPublisher<Pose2d> publisher, int capacity) {
+            this.publisher = publisher;
+            this.estimates = new Pose2d[capacity];
+            this.sized = new Pose2d[capacity + 1][];
+        }
+    }
+
+    /**
+     * @param tableName NetworkTables table the topics are created under
+     * @param maxVisionBatch Estimates per camera kept between vision publishes
+     */
+    public PoseTelemetry(String tableName, int maxVisionBatch) {
+        NetworkTable table = NetworkTableInstance.getDefault().getTable(tableName);
+        this.pose = table.getStructTopic("Pose", Pose2d.struct).publish();
+        this.moduleStates = table.getStructArrayTopic("ModuleStates", SwerveModuleState.struct).publish();
+        this.moduleTargets = table.getStructArrayTopic("ModuleTargets", SwerveModuleState.struct).publish();
+        this.targetPose = table.getStructTopic("TargetPose", Pose2d.struct).publish();
+        this.trajectory = table.getStructArrayTopic("Trajectory", Pose2d.struct).publish();
+        this.visionTable = table.getSubTable("Vision");
+        this.maxVisionBatch = maxVisionBatch;
+    }
+
+    // ======================== DRIVETRAIN ========================
+
+    /**
+     * Publishes the estimated pose, measured module states and requested module states.
+     */
+    public void publishDrivetrain(SwerveDriveState state) {
+        long timestamp = RobotController.getFPGATime();
+        pose.set(state.Pose, timestamp);
+        moduleStates.set(state.ModuleStates, timestamp);
+        moduleTargets.set(state.ModuleTargets, timestamp);
+    }
+
+    // ======================== PATH FOLLOWING ========================
+
+    /**
+     * Sets the pose the path follower is driving to. Sent on the next {@link #publishPath()}.
+     */
+    public void setTargetPose(Pose2d target) {
+        pendingTargetPose = target;
+    }
+
+    /**
+     * Sets the path being followed; an empty list clears it. Sent on the next {@link #publishPath()}.
+     */
+    public void setActiveTrajectory(List<Pose2d> poses) {
+        pendingTrajectory = poses.toArray(new Pose2d[0]);
+    }
+
+    /**
+     * Publishes the target pose and trajectory if either changed since the last call.
+     */
+    public void publishPath() {
+        long timestamp = RobotController.getFPGATime();
+        if (pendingTargetPose != null) {
+            targetPose.set(pendingTargetPose, timestamp);
+            pendingTargetPose = null;
+        }
+        if (pendingTrajectory != null) {
+            trajectory.set(pendingTrajectory, timestamp);
+            pendingTrajectory = null;
+        }
+    }
+
+    // ======================== VISION ========================
+
+    /**
+     * Creates the estimate topic for a camera.
+     *
+     * @param cameraName Camera name, used as the topic name
+     * @return Index to pass to {@link #recordVisionEstimate}
+     */
+    public int addCamera(String cameraName) {
+        StructArrayPublisher<Pose2d> publisher =
+            visionTable.getStructArrayTopic(cameraName, Pose2d.struct).publish();
+        cameras.add(new VisionBatch(publisher, maxVisionBatch));
+        return cameras.size() - 1;
+    }
+
+    /**
+     * Adds an estimate to the camera's batch, replacing the oldest one if the batch is full.
+     */
+    public void recordVisionEstimate(int camera, Pose2d estimate) {
+        VisionBatch batch = cameras.get(camera);
+        batch.estimates[batch.next] = estimate;
+        batch.next = (batch.next + 1) % batch.estimates.length;
+        batch.count = Math.min(batch.count + 1, batch.estimates.length);
+    }
+
+    /**
+     * Publishes each camera's estimates since the last call, oldest first. A camera with no new
+     * estimates is sent one empty array so stale poses disappear from the field view, then skipped.
+     */
+    public void publishVision() {
+        long timestamp = RobotController.getFPGATime();
+        for (VisionBatch batch : cameras) {
+            if (batch.count == 0 && batch.cleared) {
+                continue;
+            }
+            Pose2d[] out = batch.sized[batch.count];
+            if (out == null) {
+                out = new Pose2d[batch.count];
+                batch.sized[batch.count] = out;
+            }
+            int start = batch.next - batch.count + batch.estimates.length;
+            for (int i = 0; i < batch.count; i++) {
+                out[i] = batch.estimates[(start + i) % batch.estimates.length];
+            }
+            batch.publisher.set(out, timestamp);
+            batch.cleared = batch.count == 0;
+            batch.count = 0;
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package frc.robot.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+
+/**
+ * Runs periodic tasks at their own rates on top of the main robot loop.
+ *
+ * Subsystem periodic() methods run every loop through the CommandScheduler. Work that does not need
+ * that rate (dashboards, health checks, slow housekeeping) registers here with its period instead, and
+ * runs every Nth loop. Each task also gets a phase offset so that, for example, five 10 Hz tasks run on
+ * five different loops rather than all on the same one. Offsets are chosen to minimize the worst loop,
+ * first by task count and then from each task's measured cost, and are rebalanced every few seconds.
+ *
+ * Call {@link #run()} once per loop from robotPeriodic. Not thread-safe.
+ */
+public class RateGroupScheduler {
+    /* Loops between rebalances of phase offsets from measured costs */
+    private static final int kRebalanceLoops = 250;
+    /* Cap on the balancing window when task periods have no small common multiple */
+    private static final int kMaxHyperperiod = 500;
+    /* Exponential smoothing factor for measured task costs */
+    private static final double kCostSmoothing = 0.1;
+    /* Cost assumed for a task that has not run yet */
+    private static final double kDefaultCostMillis = 0.1;
+
+    /**
+     * A registered periodic task.
+     */
+    public static final class Task {
+        private final String name;
+        private final Runnable body;
+        private final int divisor;
+        private int phase;
+        private double costMillis = kDefaultCostMillis;
+        private boolean measured = false;
+        private AllocationTracker.Section allocationSection = null;
+
+        private Task(String name, Runnable body, int divisor) {
+            this.name = name;
+            this.body = body;
+            this.divisor = divisor;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /** Number of loops between runs */
+        public int getDivisor() {
+            return divisor;
+        }
+
+        /** Loop offset within the period the task currently runs on */
+        public int getPhase() {
+            return phase;
+        }
+
+        /** Smoothed time one run takes */
+        public double getCostMillis() {
+            return costMillis;
+        }
+    }
+
+    private final double basePeriodSeconds;
+    private final List<Task> tasks = new ArrayList<>();
+    private AllocationTracker allocations = null;
+    private long loop = 0;
+    private double lastLoopMillis = 0;
+    private double peakLoopMillis = 0;
+
+    /**
+     * @param basePeriodSeconds Period of the robot loop that calls {@link #run()}
+     * @param telemetryPeriodSeconds Period to publish scheduler timing to SmartDashboard at
+     */
+    public RateGroupScheduler(double basePeriodSeconds, double telemetryPeriodSeconds) {
+        this.basePeriodSeconds = basePeriodSeconds;
+        register("Rate group telemetry", telemetryPeriodSeconds, this::publishTelemetry);
+    }
+
+    /**
+     * Registers a task to run at a fixed period. The period is rounded to a whole number of loops.
+     *
+     * @param name Name shown in telemetry
+     * @param periodSeconds How often the task should run
+     * @param body Task body, run on the main robot thread
+     * @return The registered task
+     */
+    public Task register(String name, double periodSeconds, Runnable body) {
+        int divisor = Math.max(1, (int) Math.round(periodSeconds / basePeriodSeconds));
+        Task task = new Task(name, body, divisor);
+        if (allocations != null) {
+            task.allocationSection = allocations.section("Rate groups/" + name);
+        }
+        tasks.add(task);
+        rebalance();
+        return task;
+    }
+
+    /**
+     * Charges each task's allocation to a section of its own, "Rate groups/" followed by the task
+     * name. The caller should mark its own section right before {@link #run()}.
+     */
+    public void setAllocationTracker(AllocationTracker allocations) {
+        this.allocations = allocations;
+        for (Task task : tasks) {
+            task.allocationSection = allocations.section("Rate groups/" + task.name);
+        }
+    }
+
+    /**
+     * Runs every task due this loop, in registration order.
+     */
+    public void run() {
+        long loopStart = System.nanoTime();
+        for (int i = 0; i < tasks.size(); i++) {
+            Task task = tasks.get(i);
+            if (loop % task.divisor != task.phase) {
+                continue;
+            }
+            long start = System.nanoTime();
+            task.body.run();
+            double millis = (System.nanoTime() - start) / 1e6;
+            task.costMillis = task.measured ? task.costMillis + kCostSmoothing * (millis - task.costMillis) : millis;
+            task.measured = true;
+            if (task.allocationSection != null) {
+                allocations.mark(task.allocationSection);
+            }
+        }
+        lastLoopMillis = (System.nanoTime() - loopStart) / 1e6;
+        peakLoopMillis = Math.max(peakLoopMillis, lastLoopMillis);
+
+        loop++;
+        if (loop % kRebalanceLoops == 0) {
+            rebalance();
+        }
+    }
+
+    /**
+     * Reassigns phase offsets to flatten the per-loop cost. Tasks that run every loop have no choice;
+     * the rest are placed from most to least expensive on whichever offset keeps the worst loop in the
+     * balancing window lowest. A task whose offset changes runs once, early or late, around the switch.
+     */
+    public void rebalance() {
+        int hyperperiod = 1;
+        for (Task task : tasks) {
+            hyperperiod = lcm(hyperperiod, task.divisor);
+            if (hyperperiod > kMaxHyperperiod) {
+                hyperperiod = kMaxHyperperiod;
+                break;
+            }
+        }
+        double[] load = new double[hyperperiod];
+
+        List<Task> order = new ArrayList<>(tasks);
+        order.sort((a, b) -> {
+            if ((a.divisor == 1) != (b.divisor == 1)) {
+                return a.divisor == 1 ? -1 : 1;
+            }
+            return Double.compare(b.costMillis, a.costMillis);
+        });
+
+        for (Task task : order) {
+            int bestPhase = 0;
+            double bestPeak = Double.POSITIVE_INFINITY;
+            double bestTotal = Double.POSITIVE_INFINITY;
+            for (int phase = 0; phase < task.divisor; phase++) {
+                double peak = 0;
+                double total = 0;
+                for (int slot = phase; slot < hyperperiod; slot += task.divisor) {
+                    peak = Math.max(peak, load[slot]);
+                    total += load[slot];
+                }
+                if (peak < bestPeak || (peak == bestPeak && total < bestTotal)) {
+                    bestPeak = peak;
+                    bestTotal = total;
+                    bestPhase = phase;
+                }
+            }
+            task.phase = bestPhase;
+            for (int slot = bestPhase; slot < hyperperiod; slot += task.divisor) {
+                load[slot] += task.costMillis;
+            }
+        }
+    }
+
+    public List<Task> getTasks() {
+        return tasks;
+    }
+
+    /** Time the last loop's tasks took */
+    public double getLastLoopMillis() {
+        return lastLoopMillis;
+    }
+
+    private void publishTelemetry() {
+        SmartDashboard.putNumber("RateGroups/Loop ms", lastLoopMillis);
+        SmartDashboard.putNumber("RateGroups/Peak Loop ms", peakLoopMillis);
+        peakLoopMillis = 0;
+        for (Task task : tasks) {
+            SmartDashboard.putNumber("RateGroups/Tasks/" + task.name + " ms", task.costMillis);
+        }
+    }
+
+    private static int lcm(int a, int b) {
+        int x = a;
+        int y = b;
+        while (y != 0) {
+            int t = x % y;
+            x = y;
+            y = t;
+        }
+        return a / x * b;
+    }
+}
@@ -0,0 +1,72 @@
+package frc.robot.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded lock-free queue for exactly one producer thread and one consumer thread.
+ *
+ * Each index is written by only one side, and publication uses release stores (lazySet) paired with
+ * volatile reads. Neither side ever blocks or takes a lock, so the consumer (usually the main robot
+ * loop) pays a couple of memory reads per call even while the producer is busy.
+ */
+public final class SpscRingBuffer<T> {
+    private final Object[] slots;
+    private final int mask;
+    /* Next index to read; written only by the consumer */
+    private final AtomicLong head = new AtomicLong();
+    /* Next index to write; written only by the producer */
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * @param capacity Maximum number of queued elements, rounded up to a power of two
+     */
+    public SpscRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        this.slots = new Object[size];
+        this.mask = size - 1;
+    }
+
+    /**
+     * Adds an element. Producer thread only.
+     *
+     * @return false if the queue is full
+     */
+    public boolean offer(T value) {
+        long t = tail.get();
+        if (t - head.get() == slots.length) {
+            return false;
+        }
+        slots[(int) (t & mask)] = value;
+        tail.lazySet(t + 1);
+        return true;
+    }
+
+    /**
+     * Removes the oldest element. Consumer thread only.
+     *
+     * @return The element, or null if the queue is empty
+     */
+    @SuppressWarnings("unchecked")
+    public T poll() {
+        long h = head.get();
+        if (h == tail.get()) {
+            return null;
+        }
+        int index = (int) (h & mask);
+        T value = (T) slots[index];
+        slots[index] = null;
+        head.lazySet(h + 1);
+        return value;
+    }
+
+    /**
+     * Gets the number of queued elements. Exact on either side's own thread, approximate elsewhere.
+     */
+    public int size() {
+        return (int) (tail.get() - head.get());
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+}
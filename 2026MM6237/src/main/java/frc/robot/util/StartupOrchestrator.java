@@ -0,0 +1,173 @@
+package frc.robot.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs independent startup phases concurrently, with explicit dependencies between them.
+ *
+ * Background phases start on a small worker pool as soon as every phase they depend on has finished.
+ * Main-thread phases run inline on the caller once their dependencies are done, which is where
+ * anything touching the CommandScheduler (subsystem registration, bindings, command composition) has
+ * to go, since the scheduler is not thread-safe. Every phase, and every stretch the main thread spends
+ * blocked waiting on a background phase, is recorded in the {@link StartupTimeline}.
+ *
+ * A phase that throws fails every phase that depends on it; the first failure is rethrown from
+ * {@link Phase#join()} or {@link #finish()} so a broken boot still crashes loudly, as it did serially.
+ */
+public class StartupOrchestrator {
+    /**
+     * Handle to a phase's result.
+     */
+    public final class Phase<T> {
+        private final String name;
+        private final CompletableFuture<T> future;
+
+        private Phase(String name, CompletableFuture<T> future) {
+            this.name = name;
+            this.future = future;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Waits for the phase to finish, recording any time spent blocked.
+         *
+         * @return The phase's result
+         * @throws RuntimeException the phase's failure, or the failure of a phase it depends on
+         */
+        public T join() {
+            if (!future.isDone()) {
+                long start = System.nanoTime();
+                try {
+                    future.join();
+                } catch (CompletionException ex) {
+                    // Rethrown below with the original cause
+                } finally {
+                    timeline.record("(waiting for " + name + ")", start, System.nanoTime());
+                }
+            }
+            try {
+                return future.join();
+            } catch (CompletionException ex) {
+                Throwable cause = ex.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw ex;
+            }
+        }
+    }
+
+    private final StartupTimeline timeline;
+    private final ExecutorService executor;
+    private final List<Phase<?>> phases = new ArrayList<>();
+
+    /**
+     * @param timeline Timeline to record phases into
+     * @param threads Number of worker threads for background phases
+     */
+    public StartupOrchestrator(StartupTimeline timeline, int threads) {
+        this.timeline = timeline;
+        AtomicInteger count = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "Startup-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts a background phase that produces a value.
+     *
+     * @param name Phase name shown in the timeline
+     * @param work Phase body; must not touch the CommandScheduler
+     * @param dependencies Phases that must finish first
+     * @return Handle to the phase's result
+     */
+    public <T> Phase<T> start(String name, Supplier<T> work, Phase<?>... dependencies) {
+        CompletableFuture<T> future = allOf(dependencies)
+            .thenApplyAsync(ignored -> timeline.call(name, work), executor);
+        Phase<T> phase = new Phase<>(name, future);
+        phases.add(phase);
+        return phase;
+    }
+
+    /**
+     * Starts a background phase that only has side effects.
+     *
+     * @param name Phase name shown in the timeline
+     * @param work Phase body; must not touch the CommandScheduler
+     * @param dependencies Phases that must finish first
+     * @return Handle to the phase's completion
+     */
+    public Phase<Void> startTask(String name, Runnable work, Phase<?>... dependencies) {
+        return start(name, () -> {
+            work.run();
+            return null;
+        }, dependencies);
+    }
+
+    /**
+     * Runs a phase that produces a value on the calling thread once its dependencies are done.
+     *
+     * @param name Phase name shown in the timeline
+     * @param work Phase body
+     * @param dependencies Phases that must finish first
+     * @return The phase's result
+     */
+    public <T> T onMainThread(String name, Supplier<T> work, Phase<?>... dependencies) {
+        for (Phase<?> dependency : dependencies) {
+            dependency.join();
+        }
+        return timeline.call(name, work);
+    }
+
+    /**
+     * Runs a phase that only has side effects on the calling thread once its dependencies are done.
+     *
+     * @param name Phase name shown in the timeline
+     * @param work Phase body
+     * @param dependencies Phases that must finish first
+     */
+    public void runOnMainThread(String name, Runnable work, Phase<?>... dependencies) {
+        for (Phase<?> dependency : dependencies) {
+            dependency.join();
+        }
+        timeline.run(name, work);
+    }
+
+    /**
+     * Waits for every background phase and releases the worker threads.
+     *
+     * @throws RuntimeException the first phase failure, in start order
+     */
+    public void finish() {
+        try {
+            for (Phase<?> phase : phases) {
+                phase.join();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static CompletableFuture<Void> allOf(Phase<?>... dependencies) {
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[dependencies.length];
+        for (int i = 0; i < dependencies.length; i++) {
+            futures[i] = dependencies[i].future;
+        }
+        return CompletableFuture.allOf(futures);
+    }
+}
@@ -0,0 +1,124 @@
+package frc.robot.util;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Supplier;
+
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+
+/**
+ * Records how long each phase of robot startup takes and on which thread it ran.
+ *
+ * Times are relative to the moment the timeline was created (normally the start of the
+ * {@code Robot} constructor). Time the JVM spent before that, including class loading and the
+ * TimedRobot base constructor, is recorded as its own phase so the total matches what the Driver
+ * Station sees between a code restart and "robot code ready".
+ *
+ * Safe to record into from several threads at once.
+ */
+public class StartupTimeline {
+    private static final double kNanosPerMilli = 1e6;
+
+    private static final class Entry {
+        final String phase;
+        final String thread;
+        final long startNanos;
+        final long endNanos;
+
+        Entry(String phase, String thread, long startNanos, long endNanos) {
+            this.phase = phase;
+            this.thread = thread;
+            this.startNanos = startNanos;
+            this.endNanos = endNanos;
+        }
+    }
+
+    private final long originNanos = System.nanoTime();
+    private final List<Entry> entries = new ArrayList<>();
+
+    public StartupTimeline() {
+        long jvmUptimeNanos = (long) (ManagementFactory.getRuntimeMXBean().getUptime() * kNanosPerMilli);
+        record("JVM start to Robot()", originNanos - jvmUptimeNanos, originNanos);
+    }
+
+    /**
+     * Runs a phase on the calling thread and records its duration.
+     *
+     * @param phase Phase name shown in the timeline
+     * @param work Phase body
+     */
+    public void run(String phase, Runnable work) {
+        long start = System.nanoTime();
+        try {
+            work.run();
+        } finally {
+            record(phase, start, System.nanoTime());
+        }
+    }
+
+    /**
+     * Runs a phase that produces a value on the calling thread and records its duration.
+     *
+     * @param phase Phase name shown in the timeline
+     * @param work Phase body
+     * @return The value produced by the phase
+     */
+    public <T> T call(String phase, Supplier<T> work) {
+        long start = System.nanoTime();
+        try {
+            return work.get();
+        } finally {
+            record(phase, start, System.nanoTime());
+        }
+    }
+
+    /**
+     * Records a phase that was timed elsewhere, attributed to the calling thread.
+     *
+     * @param phase Phase name shown in the timeline
+     * @param startNanos {@link System#nanoTime()} when the phase started
+     * @param endNanos {@link System#nanoTime()} when the phase ended
+     */
+    public void record(String phase, long startNanos, long endNanos) {
+        Entry entry = new Entry(phase, Thread.currentThread().getName(), startNanos, endNanos);
+        synchronized (entries) {
+            entries.add(entry);
+        }
+    }
+
+    /**
+     * Gets the time since the timeline was created.
+     */
+    public double getElapsedMillis() {
+        return (System.nanoTime() - originNanos) / kNanosPerMilli;
+    }
+
+    /**
+     * Prints the timeline to the console in start order and publishes each phase's duration to
+     * SmartDashboard under "Startup/".
+     */
+    public void publish() {
+        List<Entry> sorted;
+        synchronized (entries) {
+            sorted = new ArrayList<>(entries);
+        }
+        sorted.sort(Comparator.comparingLong(entry -> entry.startNanos));
+
+        long end = System.nanoTime();
+        long first = sorted.isEmpty() ? originNanos : Math.min(originNanos, sorted.get(0).startNanos);
+        StringBuilder report = new StringBuilder("********** Startup timeline **********\n");
+        report.append(String.format("%10s %10s  %-32s %s%n", "start ms", "took ms", "phase", "thread"));
+        for (Entry entry : sorted) {
+            double duration = (entry.endNanos - entry.startNanos) / kNanosPerMilli;
+            report.append(String.format("%10.1f %10.1f  %-32s %s%n",
+                (entry.startNanos - originNanos) / kNanosPerMilli, duration, entry.phase, entry.thread));
+            SmartDashboard.putNumber("Startup/" + entry.phase + " ms", duration);
+        }
+        double total = (end - first) / kNanosPerMilli;
+        report.append(String.format("Total: %.1f ms%n", total));
+        SmartDashboard.putNumber("Startup/Total ms", total);
+        System.out.print(report);
+    }
+}
@@ -0,0 +1,154 @@
+package frc.robot.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.ctre.phoenix6.BaseStatusSignal;
+import com.ctre.phoenix6.CANBus;
+import com.ctre.phoenix6.StatusCode;
+import com.ctre.phoenix6.hardware.ParentDevice;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import frc.robot.Constants.SignalConstants;
+
+/**
+ * Keeps the CAN bus down to the Phoenix status signals robot code actually uses.
+ *
+ * Robot code declares the devices it owns and the signals it needs from them. The registry then:
+ * - sets the update frequency of each declared signal that asks for one, grouped by rate
+ * - calls optimizeBusUtilization on every registered device so undeclared signals stop using bandwidth
+ * - estimates CAN bus utilization from the declared rates and compares it with the budget and with
+ *   the utilization the bus reports
+ *
+ * The registry never refreshes signals itself. Every signal robot code reads today is refreshed by
+ * its owner, the swerve odometry thread, so declared signals are all external: protected from
+ * optimization and counted in the estimate.
+ */
+public class StatusSignalRegistry {
+    private final CANBus bus;
+    private final double utilizationBudget;
+
+    private final List<ParentDevice> devices = new ArrayList<>();
+    /* Signals whose rate this registry sets, grouped by requested frequency */
+    private final Map<Double, List<BaseStatusSignal>> signalsByFrequency = new LinkedHashMap<>();
+    /* External signals whose rate is set by their owner */
+    private final List<BaseStatusSignal> ownerRated = new ArrayList<>();
+
+    private boolean configured = false;
+
+    /**
+     * @param bus CAN bus the registered devices are on, used to read the measured utilization
+     * @param utilizationBudget Fraction of bus bandwidth, in (0, 1], status signals may use
+     */
+    public StatusSignalRegistry(CANBus bus, double utilizationBudget) {
+        this.bus = bus;
+        this.utilizationBudget = utilizationBudget;
+    }
+
+    // ======================== REGISTRATION ========================
+
+    /**
+     * Adds devices whose undeclared status signals should be slowed down by {@link #configure()}.
+     */
+    public void addDevices(ParentDevice... newDevices) {
+        for (ParentDevice device : newDevices) {
+            if (!devices.contains(device)) {
+                devices.add(device);
+            }
+        }
+    }
+
+    /**
+     * Declares signals refreshed elsewhere whose rate is already set by their owner, such as the
+     * swerve odometry signals. They are counted toward bus load and survive bus optimization.
+     */
+    public void registerExternal(BaseStatusSignal... signals) {
+        for (BaseStatusSignal signal : signals) {
+            ownerRated.add(signal);
+        }
+    }
+
+    /**
+     * Declares signals refreshed elsewhere that need a specific rate, such as a CANcoder fused into a
+     * steer motor. They are counted toward bus load and survive bus optimization.
+     *
+     * @param frequencyHz Rate the device should publish the signals at
+     * @param signals Signals to keep alive
+     */
+    public void registerExternal(double frequencyHz, BaseStatusSignal... signals) {
+        for (BaseStatusSignal signal : signals) {
+            requestFrequency(frequencyHz, signal);
+        }
+    }
+
+    private void requestFrequency(double frequencyHz, BaseStatusSignal signal) {
+        signalsByFrequency.computeIfAbsent(frequencyHz, hz -> new ArrayList<>()).add(signal);
+        if (configured) {
+            // Late registrations take effect immediately; optimization already ran and left them alone
+            check("set update frequency", BaseStatusSignal.setUpdateFrequencyForAll(frequencyHz, signal));
+        }
+    }
+
+    /**
+     * Applies every declared rate and optimizes bus utilization of all registered devices. Call once
+     * after startup registration; signals registered later are applied as they arrive.
+     */
+    public void configure() {
+        for (Map.Entry<Double, List<BaseStatusSignal>> group : signalsByFrequency.entrySet()) {
+            check("set update frequency", BaseStatusSignal.setUpdateFrequencyForAll(
+                group.getKey(), group.getValue().toArray(new BaseStatusSignal[0])));
+        }
+        if (!devices.isEmpty()) {
+            check("optimize bus utilization", ParentDevice.optimizeBusUtilizationForAll(devices.toArray(new ParentDevice[0])));
+        }
+        configured = true;
+
+        double estimated = getEstimatedUtilization();
+        if (estimated > utilizationBudget) {
+            DriverStation.reportWarning(String.format("Declared status signals need an estimated %.0f%% of the CAN bus, over the %.0f%% budget",
+                estimated * 100.0, utilizationBudget * 100.0), false);
+        }
+        publishTelemetry();
+    }
+
+    // ======================== TELEMETRY ========================
+
+    /**
+     * Estimates the fraction of bus bandwidth used by every declared signal: requested rates for
+     * signals this registry rates, applied rates for external signals rated by their owner. Each
+     * signal is counted as its own frame, which overestimates when the device packs several declared
+     * signals into one frame.
+     */
+    public double getEstimatedUtilization() {
+        double framesPerSecond = 0;
+        for (Map.Entry<Double, List<BaseStatusSignal>> group : signalsByFrequency.entrySet()) {
+            framesPerSecond += group.getKey() * group.getValue().size();
+        }
+        for (BaseStatusSignal signal : ownerRated) {
+            framesPerSecond += signal.getAppliedUpdateFrequency();
+        }
+        return framesPerSecond * SignalConstants.kBitsPerFrame / SignalConstants.kBusBitrate;
+    }
+
+    /**
+     * Publishes estimated and measured bus utilization to SmartDashboard. Reading the bus status can
+     * block for up to a millisecond, so register this with a RateGroupScheduler at health rate.
+     */
+    public void publishTelemetry() {
+        double estimated = getEstimatedUtilization();
+        double measured = bus.getStatus().BusUtilization;
+        SmartDashboard.putNumber("CAN/Estimated Utilization %", estimated * 100.0);
+        SmartDashboard.putNumber("CAN/Measured Utilization %", measured * 100.0);
+        SmartDashboard.putNumber("CAN/Budget %", utilizationBudget * 100.0);
+        SmartDashboard.putBoolean("CAN/Over Budget", estimated > utilizationBudget || measured > utilizationBudget);
+    }
+
+    private static void check(String action, StatusCode status) {
+        if (!status.isOK()) {
+            DriverStation.reportWarning("Status signal registry could not " + action + ": " + status.getDescription(), false);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package frc.robot.vision;
+
+/**
+ * Mounting and lens description for one Limelight.
+ *
+ * Positions are in the robot frame (X forward, Y left, Z up, origin at the robot center on the floor).
+ * Angles use the Limelight convention: positive pitch tilts the lens up, positive yaw turns it to the left.
+ */
+public class CameraConfig {
+    /** NetworkTables name of the camera ("" or "limelight" for the default camera) */
+    public final String name;
+    public final double forwardMeters;
+    public final double sideMeters;
+    public final double upMeters;
+    public final double rollDegrees;
+    public final double pitchDegrees;
+    public final double yawDegrees;
+    public final double horizontalFovDegrees;
+    public final double verticalFovDegrees;
+
+    public CameraConfig(String name, double forwardMeters, double sideMeters, double upMeters,
+                        double rollDegrees, double pitchDegrees, double yawDegrees,
+                        double horizontalFovDegrees, double verticalFovDegrees) {
+        this.name = name;
+        this.forwardMeters = forwardMeters;
+        this.sideMeters = sideMeters;
+        this.upMeters = upMeters;
+        this.rollDegrees = rollDegrees;
+        this.pitchDegrees = pitchDegrees;
+        this.yawDegrees = yawDegrees;
+        this.horizontalFovDegrees = horizontalFovDegrees;
+        this.verticalFovDegrees = verticalFovDegrees;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CameraConfig{%s, pos=(%.3f, %.3f, %.3f)m, rpy=(%.1f, %.1f, %.1f)deg}",
+            name, forwardMeters, sideMeters, upMeters, rollDegrees, pitchDegrees, yawDegrees);
+    }
+}
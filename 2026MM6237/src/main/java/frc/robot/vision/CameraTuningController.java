@@ -0,0 +1,180 @@
+package frc.robot.vision;
+
+import edu.wpi.first.wpilibj.DriverStation;
+
+/**
+ * Keeps an AprilTag Limelight processing as few pixels as it can while still seeing the tags the
+ * robot should see from where it is.
+ *
+ * From the robot pose, a {@link TagVisibilityPredictor} predicts where each tag that faces the
+ * camera, is in range and is in the field of view will appear in the image. The controller then:
+ * - crops to the box around those tags plus a margin for pose error and robot motion; with no tags
+ *   predicted, or when tags were predicted but the camera has not seen one for a while, it falls
+ *   back to the full frame so a bad pose cannot blind the camera
+ * - raises fiducial downscaling as long as the smallest predicted tag stays above a minimum size in
+ *   pixels, so close, large tags are detected on a fraction of the pixels
+ * - gives the largest predicted tag priority for tx/ty
+ * - switches between the autonomous and teleop pipelines with the match phase
+ *
+ * Settings are only written when they change by more than a small threshold, so the camera is not
+ * reconfigured every update. Crop coordinates are normalized to [-1, 1] with X to the right and Y up,
+ * as the predictor reports them.
+ *
+ * Cropping would hide neural detections, so RobotContainer only builds a controller for
+ * VisionConstants.kTunedAprilTagCamera. The robot has no such camera yet, so none runs there.
+ */
+public class CameraTuningController {
+    /** Downscale factors the Limelight accepts, smallest first */
+    private static final float[] kDownscales = {1.0f, 1.5f, 2.0f, 3.0f, 4.0f};
+    /* Crop edges move at least this much before the crop is resent */
+    private static final double kCropDeadband = 0.05;
+    /* Headroom over the minimum tag size needed to raise downscaling, so it does not flip at the boundary */
+    private static final double kDownscaleHysteresis = 1.2;
+
+    private final TagVisibilityPredictor tags;
+    private final LimelightWriteManager writer;
+    private final double cropMargin;
+    private final double minTagPixels;
+    private final double focalLengthPixels;
+    private final int autoPipeline;
+    private final int teleopPipeline;
+    private final int lostUpdatesBeforeFullFrame;
+
+    /* What the camera was last told; NaN or -1 until first written */
+    private double sentXMin = Double.NaN;
+    private double sentXMax = Double.NaN;
+    private double sentYMin = Double.NaN;
+    private double sentYMax = Double.NaN;
+    private float sentDownscale = -1;
+    private int sentPriorityTag = -2;
+    private int sentPipeline = -1;
+
+    private int predictedTags = 0;
+    private int updatesWithoutTags = 0;
+
+    /**
+     * @param tags Visibility of the field tags from the camera to tune, with no field of view margin
+     * @param cropMargin Margin added around the predicted tags, as a fraction of the full frame
+     * @param minTagPixels Smallest tag edge, in downscaled pixels, the detector is trusted to find
+     * @param imageWidthPixels Horizontal sensor resolution of the pipeline
+     * @param autoPipeline Pipeline used in autonomous and while disabled
+     * @param teleopPipeline Pipeline used in teleop
+     * @param lostUpdatesBeforeFullFrame Updates with tags predicted but none seen before the crop is released
+     */
+    public CameraTuningController(TagVisibilityPredictor tags, double cropMargin, double minTagPixels,
+            double imageWidthPixels, int autoPipeline, int teleopPipeline, int lostUpdatesBeforeFullFrame) {
+        this.tags = tags;
+        this.writer = LimelightWriteManager.forCamera(tags.getCamera().name);
+        this.cropMargin = cropMargin;
+        this.minTagPixels = minTagPixels;
+        this.autoPipeline = autoPipeline;
+        this.teleopPipeline = teleopPipeline;
+        this.lostUpdatesBeforeFullFrame = lostUpdatesBeforeFullFrame;
+        this.focalLengthPixels = imageWidthPixels / (2.0 * Math.tan(Math.toRadians(tags.getCamera().horizontalFovDegrees) / 2.0));
+    }
+
+    /**
+     * Predicts the visible tags from the robot pose and updates the camera's crop, downscaling,
+     * priority tag and pipeline. Call at a few hertz; the camera applies changes on its next frame.
+     *
+     * @param robotX Robot X on the blue-origin field
+     * @param robotY Robot Y on the blue-origin field
+     * @param heading Robot heading in radians
+     * @param tagsSeen Whether the camera currently reports a tag
+     */
+    public void update(double robotX, double robotY, double heading, boolean tagsSeen) {
+        int pipeline = DriverStation.isAutonomous() || DriverStation.isDisabled() ? autoPipeline : teleopPipeline;
+        if (pipeline != sentPipeline) {
+            writer.setPipelineIndex(pipeline);
+            sentPipeline = pipeline;
+            // A new pipeline starts from its own settings; resend everything
+            sentXMin = Double.NaN;
+            sentDownscale = -1;
+            sentPriorityTag = -2;
+        }
+
+        double xMin = Double.POSITIVE_INFINITY;
+        double xMax = Double.NEGATIVE_INFINITY;
+        double yMin = Double.POSITIVE_INFINITY;
+        double yMax = Double.NEGATIVE_INFINITY;
+        double smallestTagPixels = Double.POSITIVE_INFINITY;
+        double largestTagPixels = 0;
+        int priorityTag = -1;
+        predictedTags = tags.predict(robotX, robotY, heading);
+
+        double tagSizeMeters = tags.getTagSizeMeters();
+        for (int n = 0; n < predictedTags; n++) {
+            xMin = Math.min(xMin, tags.getImageX(n) - tags.getHalfWidth(n));
+            xMax = Math.max(xMax, tags.getImageX(n) + tags.getHalfWidth(n));
+            yMin = Math.min(yMin, tags.getImageY(n) - tags.getHalfHeight(n));
+            yMax = Math.max(yMax, tags.getImageY(n) + tags.getHalfHeight(n));
+            double tagPixels = focalLengthPixels * tagSizeMeters * Math.sqrt(tags.getViewCos(n)) / tags.getDepth(n);
+            smallestTagPixels = Math.min(smallestTagPixels, tagPixels);
+            if (tagPixels > largestTagPixels) {
+                largestTagPixels = tagPixels;
+                priorityTag = tags.getId(n);
+            }
+        }
+
+        updatesWithoutTags = predictedTags > 0 && !tagsSeen ? updatesWithoutTags + 1 : 0;
+        if (predictedTags == 0 || updatesWithoutTags >= lostUpdatesBeforeFullFrame) {
+            sendCrop(-1, 1, -1, 1);
+            sendDownscale(kDownscales[0]);
+            sendPriorityTag(-1);
+            return;
+        }
+
+        sendCrop(Math.max(-1, xMin - cropMargin), Math.min(1, xMax + cropMargin),
+            Math.max(-1, yMin - cropMargin), Math.min(1, yMax + cropMargin));
+        float downscale = kDownscales[0];
+        for (float candidate : kDownscales) {
+            double required = candidate > sentDownscale ? minTagPixels * kDownscaleHysteresis : minTagPixels;
+            if (smallestTagPixels / candidate >= required) {
+                downscale = candidate;
+            }
+        }
+        sendDownscale(downscale);
+        sendPriorityTag(priorityTag);
+    }
+
+    private void sendCrop(double xMin, double xMax, double yMin, double yMax) {
+        if (Math.abs(xMin - sentXMin) < kCropDeadband && Math.abs(xMax - sentXMax) < kCropDeadband
+                && Math.abs(yMin - sentYMin) < kCropDeadband && Math.abs(yMax - sentYMax) < kCropDeadband) {
+            return;
+        }
+        writer.setCropWindow(xMin, xMax, yMin, yMax);
+        sentXMin = xMin;
+        sentXMax = xMax;
+        sentYMin = yMin;
+        sentYMax = yMax;
+    }
+
+    private void sendDownscale(float downscale) {
+        if (downscale != sentDownscale) {
+            writer.setFiducialDownscaling(downscale);
+            sentDownscale = downscale;
+        }
+    }
+
+    private void sendPriorityTag(int tagId) {
+        if (tagId != sentPriorityTag) {
+            writer.setPriorityTagID(tagId);
+            sentPriorityTag = tagId;
+        }
+    }
+
+    /** Tags predicted to be in view at the last update */
+    public int getPredictedTagCount() {
+        return predictedTags;
+    }
+
+    /** Fraction of the full frame inside the current crop */
+    public double getCropFraction() {
+        return (sentXMax - sentXMin) * (sentYMax - sentYMin) / 4.0;
+    }
+
+    /** Downscale factor last sent to the camera */
+    public float getDownscale() {
+        return sentDownscale;
+    }
+}
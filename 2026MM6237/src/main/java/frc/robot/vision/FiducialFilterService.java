@@ -0,0 +1,134 @@
+package frc.robot.vision;
+
+import java.util.Arrays;
+
+import frc.robot.navigation.FieldModel;
+
+/**
+ * Limits each AprilTag camera to the tag IDs it could possibly see from the current pose.
+ *
+ * The camera then skips decoding and solving every other tag, and a tag reflected off the field wall
+ * or the polycarbonate is ignored unless its ID could really be in view. The prediction uses a wide
+ * field of view and range margin so pose error never filters out a tag that is actually there.
+ *
+ * A wrong pose could still hide the tags needed to correct it, so the filter only applies while the
+ * pose is trusted, typically while vision has corrected it recently; otherwise every field tag is
+ * allowed. The ID set is sent to a camera only when it changes, keeping NetworkTables traffic to a
+ * few writes per second while the robot drives.
+ *
+ * Like the camera tuner, RobotContainer only builds a service for VisionConstants.kTunedAprilTagCamera.
+ * The robot has no such camera yet, so none runs there.
+ */
+public class FiducialFilterService {
+    private final TagVisibilityPredictor[] predictors;
+    private final LimelightWriteManager[] writers;
+    /* Allowed IDs per camera as a bit set, last sent and being built */
+    private final long[][] sent;
+    private final long[] allowed;
+    /* Every field tag, sent when the pose is not trusted */
+    private final long[] allTags;
+    private final int[] ids;
+
+    private long filterWrites = 0;
+
+    /**
+     * @param field Field tags and their spatial index
+     * @param tagSizeMeters Edge length of the tag's black square
+     * @param maxDistanceMeters Tags farther from the lens than this are filtered out
+     * @param maxViewAngleDegrees Tags seen more obliquely than this are filtered out
+     * @param fovMarginDegrees Degrees added to each side of the field of view for pose error
+     * @param cameras AprilTag cameras to filter
+     */
+    public FiducialFilterService(FieldModel field, double tagSizeMeters, double maxDistanceMeters,
+            double maxViewAngleDegrees, double fovMarginDegrees, CameraConfig... cameras) {
+        this.predictors = new TagVisibilityPredictor[cameras.length];
+        this.writers = new LimelightWriteManager[cameras.length];
+        for (int i = 0; i < cameras.length; i++) {
+            predictors[i] = new TagVisibilityPredictor(cameras[i], field, tagSizeMeters, maxDistanceMeters,
+                maxViewAngleDegrees, fovMarginDegrees);
+            writers[i] = LimelightWriteManager.forCamera(cameras[i].name);
+        }
+
+        int maxId = 0;
+        int fieldTags = field.getTagCount();
+        for (int i = 0; i < fieldTags; i++) {
+            maxId = Math.max(maxId, field.getTagId(i));
+        }
+        int words = maxId / 64 + 1;
+        this.sent = new long[cameras.length][words];
+        for (long[] cameraSent : sent) {
+            // Nothing sent yet; an impossible bit forces the first write
+            Arrays.fill(cameraSent, -1L);
+        }
+        this.allowed = new long[words];
+        this.allTags = new long[words];
+        for (int i = 0; i < fieldTags; i++) {
+            setBit(allTags, field.getTagId(i));
+        }
+        this.ids = new int[fieldTags];
+    }
+
+    /**
+     * Recomputes each camera's allowed IDs and sends the ones that changed.
+     *
+     * @param robotX Robot X on the blue-origin field
+     * @param robotY Robot Y on the blue-origin field
+     * @param heading Robot heading in radians
+     * @param poseTrusted Whether the pose is good enough to filter on
+     */
+    public void update(double robotX, double robotY, double heading, boolean poseTrusted) {
+        for (int c = 0; c < predictors.length; c++) {
+            if (poseTrusted) {
+                Arrays.fill(allowed, 0);
+                TagVisibilityPredictor predictor = predictors[c];
+                int count = predictor.predict(robotX, robotY, heading);
+                for (int n = 0; n < count; n++) {
+                    setBit(allowed, predictor.getId(n));
+                }
+                if (count == 0) {
+                    // The camera reads an empty override as no filter at all; say so explicitly
+                    System.arraycopy(allTags, 0, allowed, 0, allowed.length);
+                }
+            } else {
+                System.arraycopy(allTags, 0, allowed, 0, allowed.length);
+            }
+            if (!Arrays.equals(allowed, sent[c])) {
+                send(c);
+            }
+        }
+    }
+
+    private void send(int camera) {
+        int count = 0;
+        for (int word = 0; word < allowed.length; word++) {
+            long bits = allowed[word];
+            while (bits != 0) {
+                ids[count++] = word * 64 + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+            }
+        }
+        writers[camera].setFiducialIDFilters(ids, count);
+        System.arraycopy(allowed, 0, sent[camera], 0, allowed.length);
+        filterWrites++;
+    }
+
+    private static void setBit(long[] bits, int id) {
+        if (id >= 0 && id / 64 < bits.length) {
+            bits[id / 64] |= 1L << (id % 64);
+        }
+    }
+
+    /** ID filter writes sent to the cameras since construction */
+    public long getFilterWrites() {
+        return filterWrites;
+    }
+
+    /**
+     * Whether a tag ID is currently allowed on a camera.
+     *
+     * @param camera Camera index, in constructor order
+     */
+    public boolean isAllowed(int camera, int tagId) {
+        return tagId >= 0 && tagId / 64 < sent[camera].length && (sent[camera][tagId / 64] & (1L << (tagId % 64))) != 0;
+    }
+}
@@ -0,0 +1,354 @@
+package frc.robot.vision;
+
+/**
+ * Allocation-free multi-target tracker for game pieces in field coordinates.
+ *
+ * Each frame's detections are associated with existing tracks by gated global nearest neighbor on a
+ * small fixed cost matrix. Every track runs a constant-velocity Kalman filter; X and Y share one
+ * covariance because they use identical process and measurement noise. Unmatched detections start new
+ * tentative tracks, and tracks that stop being seen lose confidence and are eventually dropped.
+ *
+ * Track IDs are stable for the life of a track, so commands can keep chasing the same piece even when
+ * the detector reorders its boxes between frames.
+ */
+public class GamePieceTracker {
+    public static final int kMaxTracks = 8;
+    public static final int kMaxDetections = 16;
+
+    /* Chi-square 99% gate for a 2-DOF innovation */
+    private static final double kGateChiSquared = 9.21;
+
+    private final double measurementVariance;
+    private final double accelerationSpectralDensity;
+    private final double maxGateDistanceMeters;
+    private final int hitsToConfirm;
+    private final double maxCoastSeconds;
+
+    /* Track state, indexed by slot */
+    private final boolean[] active = new boolean[kMaxTracks];
+    private final int[] trackIds = new int[kMaxTracks];
+    private final double[] x = new double[kMaxTracks];
+    private final double[] y = new double[kMaxTracks];
+    private final double[] vx = new double[kMaxTracks];
+    private final double[] vy = new double[kMaxTracks];
+    private final double[] p00 = new double[kMaxTracks];
+    private final double[] p01 = new double[kMaxTracks];
+    private final double[] p11 = new double[kMaxTracks];
+    /* Time the filter state refers to, and time the track was last associated with a detection */
+    private final double[] lastUpdateSeconds = new double[kMaxTracks];
+    private final double[] lastSeenSeconds = new double[kMaxTracks];
+    private final double[] confidence = new double[kMaxTracks];
+    private final int[] hits = new int[kMaxTracks];
+
+    /* Association scratch space */
+    private final double[] cost = new double[kMaxTracks * kMaxDetections];
+    private final boolean[] trackMatched = new boolean[kMaxTracks];
+    private final boolean[] detectionMatched = new boolean[kMaxDetections];
+
+    private int nextTrackId = 1;
+    private double lastFrameSeconds = Double.NaN;
+
+    /**
+     * Creates a tracker.
+     *
+     * @param measurementStdDevMeters Standard deviation of one projected detection position
+     * @param accelerationStdDev Process noise, as the standard deviation of unmodeled acceleration (m/s²)
+     * @param maxGateDistanceMeters Detections farther than this from a track's prediction never associate with it
+     * @param hitsToConfirm Detections needed before a track is reported as confirmed
+     * @param maxCoastSeconds Tracks not re-observed for this long are dropped
+     */
+    public GamePieceTracker(double measurementStdDevMeters, double accelerationStdDev,
+                            double maxGateDistanceMeters, int hitsToConfirm, double maxCoastSeconds) {
+        this.measurementVariance = measurementStdDevMeters * measurementStdDevMeters;
+        this.accelerationSpectralDensity = accelerationStdDev * accelerationStdDev;
+        this.maxGateDistanceMeters = maxGateDistanceMeters;
+        this.hitsToConfirm = hitsToConfirm;
+        this.maxCoastSeconds = maxCoastSeconds;
+    }
+
+    // ======================== UPDATES ========================
+
+    /**
+     * Processes one frame of detections.
+     *
+     * @param timestampSeconds Capture time of the frame
+     * @param positions Field positions packed as [x0, y0, x1, y1, ...]
+     * @param count Number of detections in positions (extra detections beyond kMaxDetections are ignored)
+     */
+    public void update(double timestampSeconds, double[] positions, int count) {
+        if (!Double.isNaN(lastFrameSeconds) && timestampSeconds < lastFrameSeconds) {
+            // Frames from the past would run the filters backwards; drop them
+            return;
+        }
+        lastFrameSeconds = timestampSeconds;
+        count = Math.min(count, kMaxDetections);
+
+        for (int t = 0; t < kMaxTracks; t++) {
+            if (active[t]) {
+                predict(t, timestampSeconds);
+            }
+            trackMatched[t] = false;
+        }
+        for (int d = 0; d < count; d++) {
+            detectionMatched[d] = false;
+        }
+
+        buildCostMatrix(positions, count);
+
+        // Global nearest neighbor: repeatedly take the cheapest remaining gated pair
+        while (true) {
+            int bestTrack = -1;
+            int bestDetection = -1;
+            double bestCost = Double.POSITIVE_INFINITY;
+            for (int t = 0; t < kMaxTracks; t++) {
+                if (!active[t] || trackMatched[t]) {
+                    continue;
+                }
+                for (int d = 0; d < count; d++) {
+                    double c = cost[t * kMaxDetections + d];
+                    if (!detectionMatched[d] && c < bestCost) {
+                        bestCost = c;
+                        bestTrack = t;
+                        bestDetection = d;
+                    }
+                }
+            }
+            if (bestTrack < 0) {
+                break;
+            }
+            trackMatched[bestTrack] = true;
+            detectionMatched[bestDetection] = true;
+            correct(bestTrack, positions[2 * bestDetection], positions[2 * bestDetection + 1], timestampSeconds);
+        }
+
+        for (int t = 0; t < kMaxTracks; t++) {
+            if (active[t] && !trackMatched[t]) {
+                confidence[t] *= 0.8;
+            }
+        }
+        dropStale(timestampSeconds);
+
+        for (int d = 0; d < count; d++) {
+            if (!detectionMatched[d]) {
+                spawn(positions[2 * d], positions[2 * d + 1], timestampSeconds);
+            }
+        }
+    }
+
+    /**
+     * Drops tracks that have not been associated with a detection for longer than the coast time.
+     * Call this every loop: the camera publishes nothing new while it sees nothing, so
+     * {@link #update(double, double[], int)} alone would never age tracks out.
+     *
+     * @param nowSeconds Current time on the same clock as the frame timestamps
+     */
+    public void dropStale(double nowSeconds) {
+        for (int t = 0; t < kMaxTracks; t++) {
+            if (active[t] && nowSeconds - lastSeenSeconds[t] > maxCoastSeconds) {
+                active[t] = false;
+            }
+        }
+    }
+
+    /**
+     * Drops every track.
+     */
+    public void reset() {
+        for (int t = 0; t < kMaxTracks; t++) {
+            active[t] = false;
+        }
+        lastFrameSeconds = Double.NaN;
+    }
+
+    private void buildCostMatrix(double[] positions, int count) {
+        double maxGateSquared = maxGateDistanceMeters * maxGateDistanceMeters;
+        for (int t = 0; t < kMaxTracks; t++) {
+            int row = t * kMaxDetections;
+            if (!active[t]) {
+                continue;
+            }
+            double innovationVariance = p00[t] + measurementVariance;
+            for (int d = 0; d < count; d++) {
+                double dx = positions[2 * d] - x[t];
+                double dy = positions[2 * d + 1] - y[t];
+                double distanceSquared = dx * dx + dy * dy;
+                double mahalanobis = distanceSquared / innovationVariance;
+                cost[row + d] = (distanceSquared > maxGateSquared || mahalanobis > kGateChiSquared)
+                    ? Double.POSITIVE_INFINITY
+                    : mahalanobis;
+            }
+        }
+    }
+
+    private void predict(int t, double timestampSeconds) {
+        double dt = timestampSeconds - lastUpdateSeconds[t];
+        if (dt <= 0) {
+            return;
+        }
+        x[t] += vx[t] * dt;
+        y[t] += vy[t] * dt;
+
+        // P = F P Fᵀ + Q for F = [[1, dt], [0, 1]] and white-noise acceleration Q
+        double q = accelerationSpectralDensity;
+        double n00 = p00[t] + 2 * dt * p01[t] + dt * dt * p11[t] + q * dt * dt * dt / 3.0;
+        double n01 = p01[t] + dt * p11[t] + q * dt * dt / 2.0;
+        double n11 = p11[t] + q * dt;
+        p00[t] = n00;
+        p01[t] = n01;
+        p11[t] = n11;
+        lastUpdateSeconds[t] = timestampSeconds;
+    }
+
+    private void correct(int t, double measuredX, double measuredY, double timestampSeconds) {
+        double s = p00[t] + measurementVariance;
+        double k0 = p00[t] / s;
+        double k1 = p01[t] / s;
+
+        double ex = measuredX - x[t];
+        double ey = measuredY - y[t];
+        x[t] += k0 * ex;
+        y[t] += k0 * ey;
+        vx[t] += k1 * ex;
+        vy[t] += k1 * ey;
+
+        // P = (I - K H) P
+        double n00 = (1 - k0) * p00[t];
+        double n01 = (1 - k0) * p01[t];
+        double n11 = p11[t] - k1 * p01[t];
+        p00[t] = n00;
+        p01[t] = n01;
+        p11[t] = n11;
+
+        hits[t]++;
+        confidence[t] += 0.3 * (1.0 - confidence[t]);
+        lastUpdateSeconds[t] = timestampSeconds;
+        lastSeenSeconds[t] = timestampSeconds;
+    }
+
+    private void spawn(double measuredX, double measuredY, double timestampSeconds) {
+        int slot = -1;
+        double weakest = Double.POSITIVE_INFINITY;
+        for (int t = 0; t < kMaxTracks; t++) {
+            if (!active[t]) {
+                slot = t;
+                break;
+            }
+            if (confidence[t] < weakest) {
+                weakest = confidence[t];
+                slot = t;
+            }
+        }
+        if (active[slot] && hits[slot] >= hitsToConfirm) {
+            // Never evict a confirmed track for an unconfirmed newcomer
+            return;
+        }
+
+        active[slot] = true;
+        trackIds[slot] = nextTrackId++;
+        x[slot] = measuredX;
+        y[slot] = measuredY;
+        vx[slot] = 0;
+        vy[slot] = 0;
+        p00[slot] = measurementVariance;
+        p01[slot] = 0;
+        // Start with a loose velocity prior: game pieces are usually still, but may be rolling
+        p11[slot] = 1.0;
+        lastUpdateSeconds[slot] = timestampSeconds;
+        lastSeenSeconds[slot] = timestampSeconds;
+        confidence[slot] = 0.3;
+        hits[slot] = 1;
+    }
+
+    // ======================== QUERIES ========================
+
+    /**
+     * Checks whether a slot holds a live track. Slots are iterated from 0 to kMaxTracks - 1.
+     */
+    public boolean isActive(int slot) {
+        return active[slot];
+    }
+
+    /**
+     * Checks whether a slot holds a track that has been seen enough times to trust.
+     */
+    public boolean isConfirmed(int slot) {
+        return active[slot] && hits[slot] >= hitsToConfirm;
+    }
+
+    public int getTrackId(int slot) {
+        return trackIds[slot];
+    }
+
+    /**
+     * Finds the slot currently holding a track ID.
+     *
+     * @return Slot index, or -1 if the track no longer exists
+     */
+    public int findSlot(int trackId) {
+        for (int t = 0; t < kMaxTracks; t++) {
+            if (active[t] && trackIds[t] == trackId) {
+                return t;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Gets a track's X position extrapolated to the given time.
+     */
+    public double getX(int slot, double nowSeconds) {
+        return x[slot] + vx[slot] * Math.max(0, nowSeconds - lastUpdateSeconds[slot]);
+    }
+
+    /**
+     * Gets a track's Y position extrapolated to the given time.
+     */
+    public double getY(int slot, double nowSeconds) {
+        return y[slot] + vy[slot] * Math.max(0, nowSeconds - lastUpdateSeconds[slot]);
+    }
+
+    public double getVelocityX(int slot) {
+        return vx[slot];
+    }
+
+    public double getVelocityY(int slot) {
+        return vy[slot];
+    }
+
+    /**
+     * Gets a track's confidence in [0, 1]; rises with each association and decays on every missed frame.
+     */
+    public double getConfidence(int slot) {
+        return active[slot] ? confidence[slot] : 0;
+    }
+
+    /**
+     * Gets the standard deviation of a track's position estimate.
+     */
+    public double getPositionStdDev(int slot) {
+        return Math.sqrt(p00[slot]);
+    }
+
+    /**
+     * Finds the confirmed track closest to a field position, e.g. the robot's intake.
+     *
+     * @return Slot index, or -1 if there is no confirmed track
+     */
+    public int findClosestConfirmed(double fieldX, double fieldY, double nowSeconds) {
+        int best = -1;
+        double bestDistanceSquared = Double.POSITIVE_INFINITY;
+        for (int t = 0; t < kMaxTracks; t++) {
+            if (!isConfirmed(t)) {
+                continue;
+            }
+            double dx = getX(t, nowSeconds) - fieldX;
+            double dy = getY(t, nowSeconds) - fieldY;
+            double distanceSquared = dx * dx + dy * dy;
+            if (distanceSquared < bestDistanceSquared) {
+                bestDistanceSquared = distanceSquared;
+                best = t;
+            }
+        }
+        return best;
+    }
+}
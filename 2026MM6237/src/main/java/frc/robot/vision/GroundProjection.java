@@ -0,0 +1,77 @@
+package frc.robot.vision;
+
+/**
+ * Projects Limelight target angles onto a horizontal plane in field coordinates.
+ *
+ * All math works on primitives and writes into caller-owned arrays so it can run at camera rate
+ * without allocating.
+ */
+public final class GroundProjection {
+    private GroundProjection() {
+        throw new UnsupportedOperationException("This is a utility class!");
+    }
+
+    /**
+     * Intersects the camera ray through (txnc, tync) with the plane z = targetHeightMeters and
+     * expresses the hit point in field coordinates. Camera roll is assumed to be zero.
+     *
+     * @param camera Camera mounting
+     * @param txncDegrees Horizontal angle from the principal pixel, positive to the right (Limelight convention)
+     * @param tyncDegrees Vertical angle from the principal pixel, positive up
+     * @param targetHeightMeters Height of the target center above the floor
+     * @param robotX Robot field X at the frame timestamp
+     * @param robotY Robot field Y at the frame timestamp
+     * @param robotHeadingRadians Robot heading at the frame timestamp
+     * @param maxRangeMeters Reject hits farther than this from the camera (horizontal distance)
+     * @param out Receives [fieldX, fieldY, horizontalRangeMeters] starting at outOffset
+     * @param outOffset Index of the first output element
+     * @return true if the ray hits the plane in front of the camera within range
+     */
+    public static boolean projectToField(CameraConfig camera, double txncDegrees, double tyncDegrees,
+                                         double targetHeightMeters,
+                                         double robotX, double robotY, double robotHeadingRadians,
+                                         double maxRangeMeters, double[] out, int outOffset) {
+        // Ray in the camera frame (X forward, Y left, Z up); Limelight tx is positive to the right
+        double cx = 1.0;
+        double cy = -Math.tan(Math.toRadians(txncDegrees));
+        double cz = Math.tan(Math.toRadians(tyncDegrees));
+
+        // Tilt by the mount pitch (positive = lens up)
+        double pitch = Math.toRadians(camera.pitchDegrees);
+        double cosP = Math.cos(pitch);
+        double sinP = Math.sin(pitch);
+        double px = cx * cosP - cz * sinP;
+        double pz = cx * sinP + cz * cosP;
+
+        // Turn by the mount yaw into the robot frame
+        double yaw = Math.toRadians(camera.yawDegrees);
+        double cosY = Math.cos(yaw);
+        double sinY = Math.sin(yaw);
+        double rx = px * cosY - cy * sinY;
+        double ry = px * sinY + cy * cosY;
+
+        double dz = targetHeightMeters - camera.upMeters;
+        if (Math.abs(pz) < 1e-6) {
+            return false;
+        }
+        double t = dz / pz;
+        if (t <= 0) {
+            // The plane is behind the camera along this ray (e.g. looking above the horizon at a floor target)
+            return false;
+        }
+
+        double hitX = camera.forwardMeters + t * rx;
+        double hitY = camera.sideMeters + t * ry;
+        double range = t * Math.hypot(rx, ry);
+        if (range > maxRangeMeters) {
+            return false;
+        }
+
+        double cosH = Math.cos(robotHeadingRadians);
+        double sinH = Math.sin(robotHeadingRadians);
+        out[outOffset] = robotX + hitX * cosH - hitY * sinH;
+        out[outOffset + 1] = robotY + hitX * sinH + hitY * cosH;
+        out[outOffset + 2] = range;
+        return true;
+    }
+}
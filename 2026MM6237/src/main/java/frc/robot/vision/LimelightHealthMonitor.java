@@ -0,0 +1,205 @@
+package frc.robot.vision;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import edu.wpi.first.networktables.DoubleSubscriber;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.TimestampedDouble;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import frc.robot.Constants.VisionConstants;
+import frc.robot.LimelightHelpers;
+
+/**
+ * Tracks whether a Limelight is alive and how old its frames are, from the heartbeat it increments
+ * once per processed frame.
+ *
+ * Whether the camera sees a target says nothing about its health: a working camera facing a wall
+ * reports tv=0, and a frozen one keeps its last tv=1 forever. The heartbeat only advances while the
+ * camera is processing frames, so:
+ * - the camera is connected while the heartbeat advanced within the disconnect timeout
+ * - frame rate is heartbeat steps over a short window, which also counts frames NT coalesced
+ * - end-to-end latency is pipeline latency (tl) plus capture latency (cl) plus the transport and
+ *   queueing delay from the heartbeat's publish time to when robot code read it
+ *
+ * Every vision consumer asks {@link #isFresh(double)} before using a frame, so nothing is fused
+ * from a camera that stopped or from frames that sat in a queue too long. There is one monitor per
+ * camera, shared through {@link #forCamera(String)}; {@link #updateAll()} runs once per loop before
+ * the scheduler.
+ */
+public class LimelightHealthMonitor {
+    private static final Map<String, LimelightHealthMonitor> monitors = new HashMap<>();
+    /* Same monitors as the map, for iterating without an iterator */
+    private static LimelightHealthMonitor[] all = new LimelightHealthMonitor[0];
+
+    private final String cameraName;
+    private final String keyPrefix;
+    private final DoubleSubscriber heartbeat;
+    private final DoubleSubscriber pipelineLatency;
+    private final DoubleSubscriber captureLatency;
+    private final double disconnectTimeoutSeconds;
+    private final double maxFrameAgeSeconds;
+    private final double rateWindowSeconds;
+
+    private double nowSeconds = 0;
+    private double lastHeartbeat = Double.NaN;
+    private double lastBeatSeconds = Double.NEGATIVE_INFINITY;
+    private boolean connected = false;
+    private long frames = 0;
+    private long disconnects = 0;
+
+    private double windowStartSeconds = Double.NaN;
+    private long windowStartFrames = 0;
+    private double framesPerSecond = 0;
+    private double latencyMillis = 0;
+
+    /**
+     * Gets the shared monitor for a camera, creating it on first use. Main thread only.
+     *
+     * @param cameraName NetworkTables name of the Limelight
+     */
+    public static LimelightHealthMonitor forCamera(String cameraName) {
+        NetworkTable table = LimelightHelpers.getLimelightNTTable(cameraName);
+        LimelightHealthMonitor monitor = monitors.get(table.getPath());
+        if (monitor == null) {
+            monitor = new LimelightHealthMonitor(cameraName, table, VisionConstants.kHealthDisconnectTimeoutSeconds,
+                VisionConstants.kMaxFrameAgeSeconds, VisionConstants.kHealthRateWindowSeconds);
+            monitors.put(table.getPath(), monitor);
+            LimelightHealthMonitor[] grown = new LimelightHealthMonitor[all.length + 1];
+            System.arraycopy(all, 0, grown, 0, all.length);
+            grown[all.length] = monitor;
+            all = grown;
+        }
+        return monitor;
+    }
+
+    /**
+     * Updates every monitor. Call once per loop before anything reads vision frames.
+     */
+    public static void updateAll() {
+        double now = Timer.getFPGATimestamp();
+        for (LimelightHealthMonitor monitor : all) {
+            monitor.update(now);
+        }
+    }
+
+    /**
+     * Publishes health of every monitored camera under "Vision/Health/". Register with a
+     * RateGroupScheduler at dashboard rate.
+     */
+    public static void publishAllTelemetry() {
+        for (LimelightHealthMonitor monitor : all) {
+            monitor.publishTelemetry();
+        }
+    }
+
+    /**
+     * @param cameraName NetworkTables name of the Limelight
+     * @param table The Limelight's table
+     * @param disconnectTimeoutSeconds Time without a heartbeat before the camera counts as disconnected
+     * @param maxFrameAgeSeconds Oldest capture time, relative to now, that still counts as fresh
+     * @param rateWindowSeconds Window the frame rate is averaged over
+     */
+    private LimelightHealthMonitor(String cameraName, NetworkTable table, double disconnectTimeoutSeconds,
+            double maxFrameAgeSeconds, double rateWindowSeconds) {
+        this.cameraName = cameraName;
+        this.keyPrefix = "Vision/Health/" + cameraName + "/";
+        this.heartbeat = table.getDoubleTopic("hb").subscribe(0.0);
+        this.pipelineLatency = table.getDoubleTopic("tl").subscribe(0.0);
+        this.captureLatency = table.getDoubleTopic("cl").subscribe(0.0);
+        this.disconnectTimeoutSeconds = disconnectTimeoutSeconds;
+        this.maxFrameAgeSeconds = maxFrameAgeSeconds;
+        this.rateWindowSeconds = rateWindowSeconds;
+    }
+
+    /**
+     * Reads the heartbeat and refreshes connection, frame rate and latency.
+     *
+     * @param nowSeconds Current FPGA time
+     */
+    public void update(double nowSeconds) {
+        this.nowSeconds = nowSeconds;
+        TimestampedDouble[] beats = heartbeat.readQueue();
+        if (beats.length > 0) {
+            TimestampedDouble newest = beats[beats.length - 1];
+            // The first value read may be left over from a camera that has since stopped, so it only
+            // sets the baseline
+            if (!Double.isNaN(lastHeartbeat) && newest.value != lastHeartbeat) {
+                // The heartbeat restarts from zero when the camera reboots
+                double steps = newest.value - lastHeartbeat;
+                frames += steps > 0 ? (long) steps : beats.length;
+                lastBeatSeconds = nowSeconds;
+                double transportSeconds = Math.max(0, nowSeconds - newest.timestamp / 1e6);
+                latencyMillis = pipelineLatency.get() + captureLatency.get() + transportSeconds * 1000.0;
+            }
+            lastHeartbeat = newest.value;
+        }
+
+        boolean wasConnected = connected;
+        connected = nowSeconds - lastBeatSeconds <= disconnectTimeoutSeconds;
+        if (wasConnected && !connected) {
+            disconnects++;
+        }
+
+        if (Double.isNaN(windowStartSeconds)) {
+            windowStartSeconds = nowSeconds;
+            windowStartFrames = frames;
+        } else if (nowSeconds - windowStartSeconds >= rateWindowSeconds) {
+            framesPerSecond = (frames - windowStartFrames) / (nowSeconds - windowStartSeconds);
+            windowStartSeconds = nowSeconds;
+            windowStartFrames = frames;
+        }
+    }
+
+    /**
+     * Whether a frame may be used: the camera is connected and the frame was captured recently enough.
+     *
+     * @param captureTimeSeconds FPGA time the frame was captured
+     */
+    public boolean isFresh(double captureTimeSeconds) {
+        return connected && nowSeconds - captureTimeSeconds <= maxFrameAgeSeconds;
+    }
+
+    /** Whether the heartbeat advanced within the disconnect timeout */
+    public boolean isConnected() {
+        return connected;
+    }
+
+    /** Seconds since the heartbeat last advanced, as of the last update */
+    public double getStalenessSeconds() {
+        return nowSeconds - lastBeatSeconds;
+    }
+
+    /** Frames processed per second over the last rate window */
+    public double getFramesPerSecond() {
+        return framesPerSecond;
+    }
+
+    /** Pipeline, capture and transport latency of the newest frame, in milliseconds */
+    public double getLatencyMillis() {
+        return latencyMillis;
+    }
+
+    /** Frames the camera processed since monitoring began */
+    public long getFrames() {
+        return frames;
+    }
+
+    /** Times the camera went from connected to disconnected */
+    public long getDisconnects() {
+        return disconnects;
+    }
+
+    public String getCameraName() {
+        return cameraName;
+    }
+
+    private void publishTelemetry() {
+        SmartDashboard.putBoolean(keyPrefix + "Connected", connected);
+        SmartDashboard.putNumber(keyPrefix + "FPS", framesPerSecond);
+        SmartDashboard.putNumber(keyPrefix + "Latency ms", latencyMillis);
+        SmartDashboard.putNumber(keyPrefix + "Staleness ms", connected ? getStalenessSeconds() * 1000.0 : -1);
+        SmartDashboard.putNumber(keyPrefix + "Disconnects", disconnects);
+    }
+}
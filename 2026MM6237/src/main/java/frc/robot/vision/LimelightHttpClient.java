@@ -0,0 +1,338 @@
+package frc.robot.vision;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+
+/**
+ * Non-blocking client for the Limelight REST API (snapshots, results, uploads) shared by every camera.
+ *
+ * LimelightHelpers opens a new HttpURLConnection per call, with no timeouts, on whatever thread calls
+ * it. Here one java.net.http client keeps connections to each camera open between requests and runs
+ * on its own small pool of daemon threads. Every request has a timeout, and load is bounded:
+ * - at most maxConcurrent requests are on the wire at once; the rest wait in a queue of maxQueued
+ * - a request identical to one already waiting or in flight is coalesced into it, so both callers
+ *   get the one response
+ * - when the queue is full the request is rejected instead of piling up behind a slow camera
+ *
+ * Like {@link frc.robot.util.BackgroundWorkers}, responses are handed back to the main thread and their
+ * callbacks run in {@link #drain()}, at a fixed point in robotPeriodic. Requests are submitted from the
+ * main thread only.
+ */
+public class LimelightHttpClient {
+    /**
+     * Outcome of one request. A request that failed or timed out has status code 0, an empty body and
+     * the error that ended it.
+     */
+    public static final class Response {
+        public final int statusCode;
+        public final String body;
+        public final Throwable error;
+        /** Time from submission to the response arriving, including time spent queued */
+        public final double latencyMillis;
+
+        private Response(int statusCode, String body, Throwable error, double latencyMillis) {
+            this.statusCode = statusCode;
+            this.body = body;
+            this.error = error;
+            this.latencyMillis = latencyMillis;
+        }
+
+        /** Whether the camera answered with HTTP 200 */
+        public boolean isOk() {
+            return error == null && statusCode == 200;
+        }
+    }
+
+    private static final class Request {
+        final String key;
+        final HttpRequest request;
+        /* Everyone waiting on this request, coalesced callers included; main thread only */
+        final List<Consumer<Response>> callbacks = new ArrayList<>(1);
+        final long submitNanos = System.nanoTime();
+        /* Written by the client's threads before the request is queued as finished */
+        HttpResponse<String> response;
+        Throwable error;
+        long finishNanos;
+
+        Request(String key, HttpRequest request) {
+            this.key = key;
+            this.request = request;
+        }
+    }
+
+    private final HttpClient client;
+    private final String urlFormat;
+    private final Duration requestTimeout;
+    private final int maxConcurrent;
+    private final int maxQueued;
+
+    /* Request state, main thread only */
+    private final ArrayDeque<Request> waiting = new ArrayDeque<>();
+    private final Map<String, Request> pending = new HashMap<>();
+    private int inFlight = 0;
+    /* Filled by the client's threads, emptied by drain() */
+    private final ConcurrentLinkedQueue<Request> finished = new ConcurrentLinkedQueue<>();
+
+    /* Metrics, main thread only */
+    private long submitted = 0;
+    private long coalesced = 0;
+    private long rejected = 0;
+    private long completed = 0;
+    private long failed = 0;
+    private long timedOut = 0;
+    private int maxDepth = 0;
+    private double totalLatencyMillis = 0;
+    private double maxLatencyMillis = 0;
+    private long latencySamples = 0;
+
+    /**
+     * @param urlFormat Base URL with %s for the camera name, e.g. "http://%s.local:5807/"
+     * @param threads Threads that send requests and receive responses
+     * @param maxConcurrent Requests on the wire at once, across all cameras
+     * @param maxQueued Requests waiting for a free slot before new ones are rejected
+     * @param connectTimeoutSeconds Longest wait to open a connection to a camera
+     * @param requestTimeoutSeconds Longest wait for a whole response
+     */
+    public LimelightHttpClient(String urlFormat, int threads, int maxConcurrent, int maxQueued,
+            double connectTimeoutSeconds, double requestTimeoutSeconds) {
+        this.urlFormat = urlFormat;
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueued = maxQueued;
+        this.requestTimeout = Duration.ofMillis((long) (requestTimeoutSeconds * 1000));
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "LimelightHttp-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        // HTTP/1.1 keeps one connection per camera alive between requests; the cameras do not speak HTTP/2
+        this.client = HttpClient.newBuilder()
+            .executor(executor)
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofMillis((long) (connectTimeoutSeconds * 1000)))
+            .build();
+    }
+
+    // ======================== ENDPOINTS ========================
+
+    /**
+     * Asks a camera to save a snapshot.
+     *
+     * @param cameraName NetworkTables name of the Limelight
+     * @param snapshotName Name to save the snapshot under, or null for the camera's default
+     * @param onResult Runs on the main thread with the response; may be null
+     * @return false if the request was rejected because the queue is full
+     */
+    public boolean takeSnapshot(String cameraName, String snapshotName, Consumer<Response> onResult) {
+        HttpRequest.Builder builder = newRequest(cameraName, "capturesnapshot").GET();
+        if (snapshotName != null && !snapshotName.isEmpty()) {
+            builder.header("snapname", snapshotName);
+        }
+        return submit("snapshot " + cameraName + " " + snapshotName, builder.build(), onResult);
+    }
+
+    /**
+     * Fetches a camera's latest results as JSON, the same dump NetworkTables carries in "json".
+     *
+     * @param cameraName NetworkTables name of the Limelight
+     * @param onResult Runs on the main thread with the response; may be null
+     * @return false if the request was rejected because the queue is full
+     */
+    public boolean getResults(String cameraName, Consumer<Response> onResult) {
+        return get(cameraName, "results", onResult);
+    }
+
+    /**
+     * Sends a GET to any endpoint of a camera.
+     *
+     * @param cameraName NetworkTables name of the Limelight
+     * @param endpoint Path and query after the port, e.g. "results"
+     * @param onResult Runs on the main thread with the response; may be null
+     * @return false if the request was rejected because the queue is full
+     */
+    public boolean get(String cameraName, String endpoint, Consumer<Response> onResult) {
+        return submit("GET " + cameraName + " " + endpoint, newRequest(cameraName, endpoint).GET().build(), onResult);
+    }
+
+    /**
+     * Uploads a body to a camera endpoint, such as a pipeline or a neural network. Uploads are never
+     * coalesced, since two uploads to one endpoint usually carry different bodies.
+     *
+     * @param cameraName NetworkTables name of the Limelight
+     * @param endpoint Path and query after the port, e.g. "upload-pipeline?index=1"
+     * @param contentType MIME type of the body
+     * @param body Bytes to send; not copied, so do not modify until the response arrives
+     * @param onResult Runs on the main thread with the response; may be null
+     * @return false if the request was rejected because the queue is full
+     */
+    public boolean upload(String cameraName, String endpoint, String contentType, byte[] body, Consumer<Response> onResult) {
+        HttpRequest request = newRequest(cameraName, endpoint)
+            .header("Content-Type", contentType)
+            .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+            .build();
+        return submit(null, request, onResult);
+    }
+
+    private HttpRequest.Builder newRequest(String cameraName, String endpoint) {
+        String name = cameraName == null || cameraName.isEmpty() ? "limelight" : cameraName;
+        return HttpRequest.newBuilder(URI.create(String.format(urlFormat, name) + endpoint)).timeout(requestTimeout);
+    }
+
+    // ======================== QUEUEING ========================
+
+    /* A null key never coalesces */
+    private boolean submit(String key, HttpRequest httpRequest, Consumer<Response> onResult) {
+        Request existing = key != null ? pending.get(key) : null;
+        if (existing != null) {
+            if (onResult != null) {
+                existing.callbacks.add(onResult);
+            }
+            coalesced++;
+            return true;
+        }
+        if (inFlight >= maxConcurrent && waiting.size() >= maxQueued) {
+            rejected++;
+            return false;
+        }
+
+        Request request = new Request(key, httpRequest);
+        if (onResult != null) {
+            request.callbacks.add(onResult);
+        }
+        if (key != null) {
+            pending.put(key, request);
+        }
+        submitted++;
+        if (inFlight < maxConcurrent) {
+            start(request);
+        } else {
+            waiting.add(request);
+        }
+        maxDepth = Math.max(maxDepth, getQueueDepth());
+        return true;
+    }
+
+    private void start(Request request) {
+        inFlight++;
+        client.sendAsync(request.request, HttpResponse.BodyHandlers.ofString()).whenComplete((response, error) -> {
+            request.response = response;
+            request.error = error;
+            request.finishNanos = System.nanoTime();
+            finished.add(request);
+        });
+    }
+
+    /**
+     * Runs the callbacks of every response received since the last call and starts queued requests
+     * in the freed slots. Call once per loop from robotPeriodic, before the command scheduler runs.
+     *
+     * @return Number of responses delivered
+     */
+    public int drain() {
+        int delivered = 0;
+        Request request;
+        while ((request = finished.poll()) != null) {
+            inFlight--;
+            delivered++;
+            if (request.key != null) {
+                pending.remove(request.key);
+            }
+            deliver(request);
+        }
+        while (inFlight < maxConcurrent && !waiting.isEmpty()) {
+            start(waiting.poll());
+        }
+        return delivered;
+    }
+
+    private void deliver(Request request) {
+        double latencyMillis = (request.finishNanos - request.submitNanos) / 1e6;
+        Throwable error = request.error;
+        // sendAsync wraps the cause in a CompletionException
+        while (error != null && error.getCause() != null && !(error instanceof HttpTimeoutException)) {
+            error = error.getCause();
+        }
+        Response response = error == null
+            ? new Response(request.response.statusCode(), request.response.body(), null, latencyMillis)
+            : new Response(0, "", error, latencyMillis);
+
+        completed++;
+        totalLatencyMillis += latencyMillis;
+        maxLatencyMillis = Math.max(maxLatencyMillis, latencyMillis);
+        latencySamples++;
+        if (error instanceof HttpTimeoutException) {
+            timedOut++;
+        }
+        if (!response.isOk()) {
+            failed++;
+        }
+
+        for (Consumer<Response> callback : request.callbacks) {
+            try {
+                callback.accept(response);
+            } catch (RuntimeException ex) {
+                DriverStation.reportError("Limelight HTTP callback for " + request.request.uri() + " failed: " + ex,
+                    ex.getStackTrace());
+            }
+        }
+    }
+
+    // ======================== TELEMETRY ========================
+
+    /**
+     * Gets the number of requests waiting or on the wire.
+     */
+    public int getQueueDepth() {
+        return inFlight + waiting.size();
+    }
+
+    public long getRejectedCount() {
+        return rejected;
+    }
+
+    public long getCoalescedCount() {
+        return coalesced;
+    }
+
+    public long getTimedOutCount() {
+        return timedOut;
+    }
+
+    /**
+     * Publishes queue depth, outcomes and latency to SmartDashboard under "Vision/Http/", then resets
+     * the windowed maximums and averages. Register with a RateGroupScheduler at health rate.
+     */
+    public void publishTelemetry() {
+        SmartDashboard.putNumber("Vision/Http/Queue Depth", getQueueDepth());
+        SmartDashboard.putNumber("Vision/Http/Max Queue Depth", maxDepth);
+        SmartDashboard.putNumber("Vision/Http/Submitted", submitted);
+        SmartDashboard.putNumber("Vision/Http/Coalesced", coalesced);
+        SmartDashboard.putNumber("Vision/Http/Rejected", rejected);
+        SmartDashboard.putNumber("Vision/Http/Completed", completed);
+        SmartDashboard.putNumber("Vision/Http/Failed", failed);
+        SmartDashboard.putNumber("Vision/Http/Timed Out", timedOut);
+        SmartDashboard.putNumber("Vision/Http/Mean Latency ms", latencySamples > 0 ? totalLatencyMillis / latencySamples : 0);
+        SmartDashboard.putNumber("Vision/Http/Max Latency ms", maxLatencyMillis);
+        maxDepth = getQueueDepth();
+        maxLatencyMillis = 0;
+        totalLatencyMillis = 0;
+        latencySamples = 0;
+    }
+}
@@ -0,0 +1,528 @@
+package frc.robot.vision;
+
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.util.Arrays;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.wpi.first.math.geometry.Pose3d;
+import frc.robot.LimelightHelpers;
+import frc.robot.LimelightHelpers.LimelightResults;
+import frc.robot.LimelightHelpers.LimelightTarget_Barcode;
+import frc.robot.LimelightHelpers.LimelightTarget_Classifier;
+import frc.robot.LimelightHelpers.LimelightTarget_Detector;
+import frc.robot.LimelightHelpers.LimelightTarget_Fiducial;
+import frc.robot.LimelightHelpers.LimelightTarget_Retro;
+import frc.robot.util.PoseMath;
+
+/**
+ * Lazy view over a Limelight JSON results dump, decoding each part only when it is first read.
+ *
+ * {@link #parse(String)} makes one pass over the top level of the dump: it reads the header numbers
+ * and records where each target family and pose array starts and ends, skipping over their contents
+ * without building any objects. The first fiducial query then scans only the Fiducial array, keeping
+ * each tag's ID, tx, ty and ta and where its object lies; a tag's 3D poses are decoded one at a time
+ * when asked for. Target families and pose arrays that are never read are never decoded, and
+ * {@link LimelightHelpers.LimelightResults} is only built if {@link #toResults()} is called.
+ *
+ * Parsing the index is safe on a background thread. Everything decoded later is cached in the view
+ * without locking, so once handed over a view must only be read from one thread.
+ */
+public final class LimelightResultsView {
+    private static final JsonFactory jsonFactory = new JsonFactory();
+    private static final LimelightResultsView empty = new LimelightResultsView(new char[0]);
+
+    /**
+     * Target families in the dump.
+     */
+    public enum Section {
+        RETRO("Retro"),
+        FIDUCIAL("Fiducial"),
+        CLASSIFIER("Classifier"),
+        DETECTOR("Detector"),
+        BARCODE("Barcode");
+
+        final String key;
+
+        Section(String key) {
+            this.key = key;
+        }
+    }
+
+    /**
+     * The 3D poses reported for each fiducial.
+     */
+    public enum FiducialPose {
+        CAMERA_TARGET_SPACE("t6c_ts"),
+        ROBOT_FIELD_SPACE("t6r_fs"),
+        ROBOT_TARGET_SPACE("t6r_ts"),
+        TARGET_CAMERA_SPACE("t6t_cs"),
+        TARGET_ROBOT_SPACE("t6t_rs");
+
+        final String key;
+
+        FiducialPose(String key) {
+            this.key = key;
+        }
+    }
+
+    /**
+     * Top-level pose arrays in the dump.
+     */
+    public enum BotPose {
+        FIELD_CENTER("botpose"),
+        WPI_BLUE("botpose_wpiblue"),
+        WPI_RED("botpose_wpired"),
+        CAMERA_ROBOT_SPACE("t6c_rs");
+
+        final String key;
+
+        BotPose(String key) {
+            this.key = key;
+        }
+    }
+
+    private final char[] json;
+
+    /* Header values, read during the index pass */
+    private String error = null;
+    private double pipelineIndex = 0;
+    private double pipelineLatencyMillis = 0;
+    private double captureLatencyMillis = 0;
+    private double publishTimestampMillis = 0;
+    private double captureTimestampSeconds = 0;
+    private boolean valid = false;
+    private double botPoseTagCount = 0;
+    private double botPoseSpan = 0;
+    private double botPoseAverageDistance = 0;
+    private double botPoseAverageArea = 0;
+    private double parseMillis = 0;
+
+    /* Character range of each section and top-level pose array; start is -1 when absent */
+    private final int[] sectionStart = filled(Section.values().length);
+    private final int[] sectionEnd = new int[Section.values().length];
+    private final int[] botPoseStart = filled(BotPose.values().length);
+    private final int[] botPoseEnd = new int[BotPose.values().length];
+
+    /* Fiducial scan, filled on first fiducial query */
+    private int fiducialCount = -1;
+    private double[] fiducialIds;
+    private double[] fiducialTx;
+    private double[] fiducialTy;
+    private double[] fiducialTa;
+    private int[] fiducialStart;
+    private int[] fiducialEnd;
+
+    /* Decoded on first access */
+    private final Object[] sections = new Object[Section.values().length];
+    private final double[][] botPoses = new double[BotPose.values().length][];
+    /* Per pose kind: 6 values per fiducial, and whether each fiducial's slice has been decoded */
+    private double[][] fiducialPoseValues;
+    private boolean[][] fiducialPoseDecoded;
+    private LimelightResults results;
+
+    private LimelightResultsView(char[] json) {
+        this.json = json;
+    }
+
+    /**
+     * Gets a view with no results, for use before the first dump arrives.
+     */
+    public static LimelightResultsView empty() {
+        return empty;
+    }
+
+    /**
+     * Indexes a JSON results dump, as read from the "json" entry. Safe to call from a background thread.
+     *
+     * @param dump JSON results dump
+     * @return The view, with {@link #getError()} set if the dump could not be indexed
+     */
+    public static LimelightResultsView parse(String dump) {
+        long start = System.nanoTime();
+        LimelightResultsView view = new LimelightResultsView(dump.toCharArray());
+        try {
+            view.index();
+        } catch (IOException ex) {
+            view.error = "lljson error: " + ex.getMessage();
+        }
+        view.parseMillis = (System.nanoTime() - start) / 1e6;
+        return view;
+    }
+
+    // ======================== HEADER ========================
+
+    /** Parse error, or null if the dump was indexed */
+    public String getError() {
+        return error;
+    }
+
+    public double getPipelineIndex() {
+        return pipelineIndex;
+    }
+
+    public double getPipelineLatencyMillis() {
+        return pipelineLatencyMillis;
+    }
+
+    public double getCaptureLatencyMillis() {
+        return captureLatencyMillis;
+    }
+
+    /** Limelight clock time the results were published, in milliseconds */
+    public double getPublishTimestampMillis() {
+        return publishTimestampMillis;
+    }
+
+    /** FPGA time the frame was captured, if the Limelight reported it */
+    public double getCaptureTimestampSeconds() {
+        return captureTimestampSeconds;
+    }
+
+    public boolean isValid() {
+        return valid;
+    }
+
+    public double getBotPoseTagCount() {
+        return botPoseTagCount;
+    }
+
+    public double getBotPoseSpan() {
+        return botPoseSpan;
+    }
+
+    public double getBotPoseAverageDistance() {
+        return botPoseAverageDistance;
+    }
+
+    public double getBotPoseAverageArea() {
+        return botPoseAverageArea;
+    }
+
+    /** Time the index pass took, in milliseconds */
+    public double getParseMillis() {
+        return parseMillis;
+    }
+
+    /**
+     * Gets a top-level pose array, decoded on first access.
+     *
+     * @return [x, y, z, roll, pitch, yaw] in meters and degrees, or all zeros if absent; do not modify
+     */
+    public double[] getBotPose(BotPose pose) {
+        int i = pose.ordinal();
+        if (botPoses[i] == null) {
+            botPoses[i] = botPoseStart[i] >= 0 ? readPoseArray(botPoseStart[i], botPoseEnd[i]) : new double[PoseMath.kLimelightPoseSize];
+        }
+        return botPoses[i];
+    }
+
+    // ======================== FIDUCIALS ========================
+
+    /**
+     * Gets the number of fiducials in the dump. The first fiducial query scans the Fiducial array.
+     */
+    public int getFiducialCount() {
+        scanFiducials();
+        return fiducialCount;
+    }
+
+    /** Fiducial ID of the i-th fiducial */
+    public int getFiducialId(int i) {
+        scanFiducials();
+        return (int) fiducialIds[i];
+    }
+
+    public double getFiducialTx(int i) {
+        scanFiducials();
+        return fiducialTx[i];
+    }
+
+    public double getFiducialTy(int i) {
+        scanFiducials();
+        return fiducialTy[i];
+    }
+
+    public double getFiducialTa(int i) {
+        scanFiducials();
+        return fiducialTa[i];
+    }
+
+    /**
+     * Finds a fiducial by tag ID.
+     *
+     * @return Its index, or -1 if the tag is not in the dump
+     */
+    public int indexOfFiducial(int tagId) {
+        scanFiducials();
+        for (int i = 0; i < fiducialCount; i++) {
+            if ((int) fiducialIds[i] == tagId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Copies one pose of one fiducial, decoding only that pose on first access. Does not allocate
+     * once the pose has been decoded.
+     *
+     * @param i Fiducial index, from 0 to {@link #getFiducialCount()} - 1
+     * @param pose Which pose
+     * @param out Receives the Limelight pose [x, y, z, roll, pitch, yaw] in meters and degrees, all
+     *     zeros if the fiducial did not report it; see {@link PoseMath}
+     * @param outOffset Index of the first output element
+     */
+    public void getFiducialPose(int i, FiducialPose pose, double[] out, int outOffset) {
+        scanFiducials();
+        if (fiducialPoseValues == null) {
+            fiducialPoseValues = new double[FiducialPose.values().length][];
+            fiducialPoseDecoded = new boolean[FiducialPose.values().length][];
+        }
+        int kind = pose.ordinal();
+        if (fiducialPoseValues[kind] == null) {
+            fiducialPoseValues[kind] = new double[PoseMath.kLimelightPoseSize * fiducialCount];
+            fiducialPoseDecoded[kind] = new boolean[fiducialCount];
+        }
+        double[] values = fiducialPoseValues[kind];
+        if (!fiducialPoseDecoded[kind][i]) {
+            readFiducialPose(i, pose.key, values, PoseMath.kLimelightPoseSize * i);
+            fiducialPoseDecoded[kind][i] = true;
+        }
+        System.arraycopy(values, PoseMath.kLimelightPoseSize * i, out, outOffset, PoseMath.kLimelightPoseSize);
+    }
+
+    /**
+     * Gets one pose of one fiducial as a Pose3d, decoding only that pose on first access.
+     *
+     * @param i Fiducial index, from 0 to {@link #getFiducialCount()} - 1
+     * @param pose Which pose
+     * @return The pose, or an empty pose if the fiducial did not report it
+     */
+    public Pose3d getFiducialPose(int i, FiducialPose pose) {
+        double[] values = new double[PoseMath.kLimelightPoseSize];
+        getFiducialPose(i, pose, values, 0);
+        return LimelightHelpers.toPose3D(values);
+    }
+
+    // ======================== TARGET FAMILIES ========================
+
+    public LimelightTarget_Fiducial[] getFiducialTargets() {
+        return decodeSection(Section.FIDUCIAL, LimelightTarget_Fiducial[].class);
+    }
+
+    public LimelightTarget_Retro[] getRetroTargets() {
+        return decodeSection(Section.RETRO, LimelightTarget_Retro[].class);
+    }
+
+    public LimelightTarget_Classifier[] getClassifierTargets() {
+        return decodeSection(Section.CLASSIFIER, LimelightTarget_Classifier[].class);
+    }
+
+    public LimelightTarget_Detector[] getDetectorTargets() {
+        return decodeSection(Section.DETECTOR, LimelightTarget_Detector[].class);
+    }
+
+    public LimelightTarget_Barcode[] getBarcodeTargets() {
+        return decodeSection(Section.BARCODE, LimelightTarget_Barcode[].class);
+    }
+
+    /**
+     * Decodes the whole dump into the eager LimelightResults, for code that needs every field.
+     * Costs a full parse the first time.
+     */
+    public LimelightResults toResults() {
+        if (results == null) {
+            results = json.length > 0 ? LimelightHelpers.parseResults(new String(json)) : new LimelightResults();
+        }
+        return results;
+    }
+
+    // ======================== DECODING ========================
+
+    private void index() throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(json, 0, json.length)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("results dump is not a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                JsonToken token = parser.nextToken();
+                if (token == JsonToken.START_ARRAY || token == JsonToken.START_OBJECT) {
+                    int start = (int) parser.getTokenLocation().getCharOffset();
+                    parser.skipChildren();
+                    recordRange(name, start, (int) parser.getCurrentLocation().getCharOffset());
+                } else if (token.isNumeric() || token.isBoolean()) {
+                    readHeaderValue(name, token.isBoolean() ? (token == JsonToken.VALUE_TRUE ? 1 : 0) : parser.getDoubleValue());
+                }
+            }
+        }
+    }
+
+    private void recordRange(String name, int start, int end) {
+        for (Section section : Section.values()) {
+            if (section.key.equals(name)) {
+                sectionStart[section.ordinal()] = start;
+                sectionEnd[section.ordinal()] = end;
+                return;
+            }
+        }
+        for (BotPose pose : BotPose.values()) {
+            if (pose.key.equals(name)) {
+                botPoseStart[pose.ordinal()] = start;
+                botPoseEnd[pose.ordinal()] = end;
+                return;
+            }
+        }
+    }
+
+    private void readHeaderValue(String name, double value) {
+        switch (name) {
+            case "pID" -> pipelineIndex = value;
+            case "tl" -> pipelineLatencyMillis = value;
+            case "cl" -> captureLatencyMillis = value;
+            case "ts" -> publishTimestampMillis = value;
+            case "ts_rio" -> captureTimestampSeconds = value;
+            case "v" -> valid = value != 0;
+            case "botpose_tagcount" -> botPoseTagCount = value;
+            case "botpose_span" -> botPoseSpan = value;
+            case "botpose_avgdist" -> botPoseAverageDistance = value;
+            case "botpose_avgarea" -> botPoseAverageArea = value;
+            default -> { }
+        }
+    }
+
+    /**
+     * Reads each fiducial's ID and angles and where its object lies, skipping every pose array.
+     */
+    private void scanFiducials() {
+        if (fiducialCount >= 0) {
+            return;
+        }
+        int capacity = 8;
+        int count = 0;
+        double[] ids = new double[capacity];
+        double[] tx = new double[capacity];
+        double[] ty = new double[capacity];
+        double[] ta = new double[capacity];
+        int[] starts = new int[capacity];
+        int[] ends = new int[capacity];
+
+        int base = sectionStart[Section.FIDUCIAL.ordinal()];
+        if (base >= 0) {
+            try (JsonParser parser = jsonFactory.createParser(json, base, sectionEnd[Section.FIDUCIAL.ordinal()] - base)) {
+                parser.nextToken();
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    if (count == capacity) {
+                        capacity *= 2;
+                        ids = Arrays.copyOf(ids, capacity);
+                        tx = Arrays.copyOf(tx, capacity);
+                        ty = Arrays.copyOf(ty, capacity);
+                        ta = Arrays.copyOf(ta, capacity);
+                        starts = Arrays.copyOf(starts, capacity);
+                        ends = Arrays.copyOf(ends, capacity);
+                    }
+                    starts[count] = base + (int) parser.getTokenLocation().getCharOffset();
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String name = parser.getCurrentName();
+                        JsonToken token = parser.nextToken();
+                        if (!token.isNumeric()) {
+                            parser.skipChildren();
+                            continue;
+                        }
+                        switch (name) {
+                            case "fID" -> ids[count] = parser.getDoubleValue();
+                            case "tx" -> tx[count] = parser.getDoubleValue();
+                            case "ty" -> ty[count] = parser.getDoubleValue();
+                            case "ta" -> ta[count] = parser.getDoubleValue();
+                            default -> { }
+                        }
+                    }
+                    ends[count] = base + (int) parser.getCurrentLocation().getCharOffset();
+                    count++;
+                }
+            } catch (IOException ex) {
+                // Keep the fiducials scanned before the malformed one
+                error = "lljson error: " + ex.getMessage();
+            }
+        }
+
+        fiducialIds = ids;
+        fiducialTx = tx;
+        fiducialTy = ty;
+        fiducialTa = ta;
+        fiducialStart = starts;
+        fiducialEnd = ends;
+        fiducialCount = count;
+    }
+
+    private void readFiducialPose(int i, String key, double[] out, int outOffset) {
+        int start = fiducialStart[i];
+        try (JsonParser parser = jsonFactory.createParser(json, start, fiducialEnd[i] - start)) {
+            parser.nextToken();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                boolean match = key.equals(parser.getCurrentName());
+                parser.nextToken();
+                if (match) {
+                    readDoubles(parser, out, outOffset);
+                    return;
+                }
+                parser.skipChildren();
+            }
+        } catch (IOException ex) {
+            error = "lljson error: " + ex.getMessage();
+        }
+    }
+
+    private double[] readPoseArray(int start, int end) {
+        double[] values = new double[PoseMath.kLimelightPoseSize];
+        try (JsonParser parser = jsonFactory.createParser(json, start, end - start)) {
+            parser.nextToken();
+            readDoubles(parser, values, 0);
+        } catch (IOException ex) {
+            error = "lljson error: " + ex.getMessage();
+        }
+        return values;
+    }
+
+    /** Reads a numeric array of up to six values; the parser is on its START_ARRAY */
+    private static void readDoubles(JsonParser parser, double[] out, int outOffset) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            return;
+        }
+        int n = 0;
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (n < PoseMath.kLimelightPoseSize) {
+                out[outOffset + n++] = parser.getDoubleValue();
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T[] decodeSection(Section section, Class<T[]> type) {
+        int i = section.ordinal();
+        if (sections[i] == null) {
+            T[] decoded = type.cast(Array.newInstance(type.getComponentType(), 0));
+            if (sectionStart[i] >= 0) {
+                ObjectMapper mapper = LimelightHelpers.jsonMapper();
+                try (JsonParser parser = mapper.getFactory().createParser(json, sectionStart[i], sectionEnd[i] - sectionStart[i])) {
+                    decoded = mapper.readValue(parser, type);
+                } catch (IOException ex) {
+                    error = "lljson error: " + ex.getMessage();
+                }
+            }
+            sections[i] = decoded;
+        }
+        return (T[]) sections[i];
+    }
+
+    private static int[] filled(int length) {
+        int[] values = new int[length];
+        Arrays.fill(values, -1);
+        return values;
+    }
+}
@@ -0,0 +1,288 @@
+package frc.robot.vision;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import edu.wpi.first.networktables.DoubleArrayPublisher;
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import frc.robot.LimelightHelpers;
+
+/**
+ * Sends every robot-to-Limelight setting through one place, so unchanged values are never resent and
+ * a loop's writes leave in a single NetworkTables flush.
+ *
+ * The LimelightHelpers setters look the entry up by name and publish on every call, and
+ * SetRobotOrientation flushes the whole NetworkTables instance each time it is called. Here each
+ * topic keeps a cached publisher and the last value sent; a write equal to it is dropped. Writes that
+ * go out mark the loop dirty, and {@link #flushAll()} at the end of the loop issues one flush for all
+ * of them, so the robot orientation a camera uses for MegaTag2 still reaches it the loop it was
+ * computed.
+ *
+ * There is one manager per camera, shared through {@link #forCamera(String)}. Writes and flushes
+ * are main thread only.
+ */
+public class LimelightWriteManager {
+    /** LED mode values for {@link #setLEDMode(int)} */
+    public static final int kLedPipelineControl = 0;
+    public static final int kLedForceOff = 1;
+    public static final int kLedForceBlink = 2;
+    public static final int kLedForceOn = 3;
+
+    private static final Map<String, LimelightWriteManager> managers = new HashMap<>();
+
+    /* Set when a write went out this loop and has not been flushed */
+    private static boolean flushPending = false;
+    /* Counters since startup, across every camera */
+    private static long writes = 0;
+    private static long skippedWrites = 0;
+    private static long flushes = 0;
+
+    /** One topic's publisher and the last value sent on it */
+    private static final class DoubleTopicWriter {
+        final DoublePublisher publisher;
+        double sent;
+        boolean hasSent = false;
+
+        DoubleTopicWriter(NetworkTable table, String key) {
+            this.publisher = table.getDoubleTopic(key).publish();
+        }
+    }
+
+    /** One array topic's publisher and a copy of the last value sent on it */
+    private static final class ArrayTopicWriter {
+        final DoubleArrayPublisher publisher;
+        double[] sent = null;
+
+        ArrayTopicWriter(NetworkTable table, String key) {
+            this.publisher = table.getDoubleArrayTopic(key).publish();
+        }
+    }
+
+    private final NetworkTable table;
+    private final Map<String, DoubleTopicWriter> doubleTopics = new HashMap<>();
+    private final Map<String, ArrayTopicWriter> arrayTopics = new HashMap<>();
+
+    /* Topics with their own setters, held directly to skip the map lookup */
+    private final ArrayTopicWriter orientation;
+    private final ArrayTopicWriter crop;
+    private final ArrayTopicWriter idFilters;
+    private final ArrayTopicWriter cameraPose;
+    private final DoubleTopicWriter pipeline;
+    private final DoubleTopicWriter priorityId;
+    private final DoubleTopicWriter downscale;
+
+    /* Reused for building array values before comparing them with what was sent */
+    private final double[] orientationScratch = new double[6];
+    private final double[] cropScratch = new double[4];
+    private final double[] cameraPoseScratch = new double[6];
+    private double[] idScratch = new double[0];
+
+    /**
+     * Gets the shared write manager for a camera, creating it on first use. Safe to call from startup
+     * threads; the manager's setters are still main thread only.
+     *
+     * @param cameraName NetworkTables name of the Limelight
+     */
+    public static synchronized LimelightWriteManager forCamera(String cameraName) {
+        NetworkTable table = LimelightHelpers.getLimelightNTTable(cameraName);
+        LimelightWriteManager manager = managers.get(table.getPath());
+        if (manager == null) {
+            manager = new LimelightWriteManager(table);
+            managers.put(table.getPath(), manager);
+        }
+        return manager;
+    }
+
+    /**
+     * Flushes NetworkTables once if any camera setting changed since the last call. Call once per loop,
+     * after everything that writes camera settings has run.
+     */
+    public static void flushAll() {
+        if (flushPending) {
+            NetworkTableInstance.getDefault().flush();
+            flushPending = false;
+            flushes++;
+        }
+    }
+
+    /**
+     * Publishes write counters under "Vision/Writes/". Register with a RateGroupScheduler at health rate.
+     */
+    public static void publishTelemetry() {
+        SmartDashboard.putNumber("Vision/Writes/Sent", writes);
+        SmartDashboard.putNumber("Vision/Writes/Skipped", skippedWrites);
+        SmartDashboard.putNumber("Vision/Writes/Flushes", flushes);
+    }
+
+    private LimelightWriteManager(NetworkTable table) {
+        this.table = table;
+        this.orientation = arrayTopic("robot_orientation_set");
+        this.crop = arrayTopic("crop");
+        this.idFilters = arrayTopic("fiducial_id_filters_set");
+        this.cameraPose = arrayTopic("camerapose_robotspace_set");
+        this.pipeline = doubleTopic("pipeline");
+        this.priorityId = doubleTopic("priorityid");
+        this.downscale = doubleTopic("fiducial_downscale_set");
+    }
+
+    private DoubleTopicWriter doubleTopic(String key) {
+        return doubleTopics.computeIfAbsent(key, k -> new DoubleTopicWriter(table, k));
+    }
+
+    private ArrayTopicWriter arrayTopic(String key) {
+        return arrayTopics.computeIfAbsent(key, k -> new ArrayTopicWriter(table, k));
+    }
+
+    private static void write(DoubleTopicWriter topic, double value) {
+        if (topic.hasSent && topic.sent == value) {
+            skippedWrites++;
+            return;
+        }
+        topic.publisher.set(value);
+        topic.sent = value;
+        topic.hasSent = true;
+        writes++;
+        flushPending = true;
+    }
+
+    /* Sends the first length values of value; value is copied only when it is actually sent */
+    private static void write(ArrayTopicWriter topic, double[] value, int length) {
+        if (topic.sent != null && Arrays.equals(topic.sent, 0, topic.sent.length, value, 0, length)) {
+            skippedWrites++;
+            return;
+        }
+        double[] copy = Arrays.copyOf(value, length);
+        topic.publisher.set(copy);
+        topic.sent = copy;
+        writes++;
+        flushPending = true;
+    }
+
+    // ======================== SETTINGS ========================
+
+    /**
+     * Sends the robot's orientation for MegaTag2. Pitch and roll are sent as zero.
+     *
+     * @param yawDegrees Robot heading on the blue-origin field
+     * @param yawRateDegreesPerSecond Robot turn rate
+     */
+    public void setRobotOrientation(double yawDegrees, double yawRateDegreesPerSecond) {
+        orientationScratch[0] = yawDegrees;
+        orientationScratch[1] = yawRateDegreesPerSecond;
+        write(orientation, orientationScratch, orientationScratch.length);
+    }
+
+    public void setPipelineIndex(int pipelineIndex) {
+        write(pipeline, pipelineIndex);
+    }
+
+    /**
+     * @param tagId Tag to report in tx/ty, or -1 for no priority
+     */
+    public void setPriorityTagID(int tagId) {
+        write(priorityId, tagId);
+    }
+
+    /**
+     * @param mode One of the kLed constants
+     */
+    public void setLEDMode(int mode) {
+        write(doubleTopic("ledMode"), mode);
+    }
+
+    /**
+     * Limits processing to a window of the image, normalized to [-1, 1].
+     */
+    public void setCropWindow(double xMin, double xMax, double yMin, double yMax) {
+        cropScratch[0] = xMin;
+        cropScratch[1] = xMax;
+        cropScratch[2] = yMin;
+        cropScratch[3] = yMax;
+        write(crop, cropScratch, cropScratch.length);
+    }
+
+    /**
+     * @param factor 1.0, 1.5, 2.0, 3.0 or 4.0; anything else hands downscaling back to the pipeline
+     */
+    public void setFiducialDownscaling(float factor) {
+        write(downscale, downscaleCode(factor));
+    }
+
+    /* The camera takes downscaling as an index, 0 meaning pipeline control, as in LimelightHelpers */
+    private static int downscaleCode(float factor) {
+        if (factor == 1.0f) {
+            return 1;
+        } else if (factor == 1.5f) {
+            return 2;
+        } else if (factor == 2.0f) {
+            return 3;
+        } else if (factor == 3.0f) {
+            return 4;
+        } else if (factor == 4.0f) {
+            return 5;
+        }
+        return 0;
+    }
+
+    /**
+     * Limits AprilTag detection to a set of IDs.
+     *
+     * @param ids Allowed IDs; only the first count are used
+     * @param count Number of IDs; zero removes the filter
+     */
+    public void setFiducialIDFilters(int[] ids, int count) {
+        if (idScratch.length < count) {
+            idScratch = new double[count];
+        }
+        for (int i = 0; i < count; i++) {
+            idScratch[i] = ids[i];
+        }
+        write(idFilters, idScratch, count);
+    }
+
+    /**
+     * Sets the camera's mounting pose on the robot.
+     */
+    public void setCameraPoseRobotSpace(double forward, double side, double up, double roll, double pitch, double yaw) {
+        cameraPoseScratch[0] = forward;
+        cameraPoseScratch[1] = side;
+        cameraPoseScratch[2] = up;
+        cameraPoseScratch[3] = roll;
+        cameraPoseScratch[4] = pitch;
+        cameraPoseScratch[5] = yaw;
+        write(cameraPose, cameraPoseScratch, cameraPoseScratch.length);
+    }
+
+    /**
+     * Sends any other numeric setting by its NetworkTables key.
+     */
+    public void setDouble(String key, double value) {
+        write(doubleTopic(key), value);
+    }
+
+    /**
+     * Sends any other array setting by its NetworkTables key.
+     */
+    public void setDoubleArray(String key, double[] value) {
+        write(arrayTopic(key), value, value.length);
+    }
+
+    /** Setting writes sent to any camera since startup */
+    public static long getWrites() {
+        return writes;
+    }
+
+    /** Setting writes dropped because the value was unchanged, since startup */
+    public static long getSkippedWrites() {
+        return skippedWrites;
+    }
+
+    /** NetworkTables flushes issued since startup */
+    public static long getFlushes() {
+        return flushes;
+    }
+}
@@ -0,0 +1,351 @@
+package frc.robot.vision;
+
+import frc.robot.navigation.FieldModel;
+import frc.robot.util.PoseMath;
+
+/**
+ * Solves one robot position from the AprilTags every camera sees, with the heading taken from the gyro.
+ *
+ * Each Limelight solves MegaTag on its own, so two cameras that each see one tag give two weak
+ * single-tag poses. This solver takes the raw fiducial angles (txnc, tync) from all cameras instead.
+ * With the heading known, each tag's ray fixes where its camera must be: the bearing places the camera
+ * on a line through the tag, and the elevation, from the known tag and camera heights, places it at a
+ * distance along that line. Every tag therefore gives one position estimate with a 2x2 information
+ * matrix, tight across the ray and loose along it, and the weighted least-squares position is the
+ * combination of all of them. Tags whose residual is far out of line with the rest are dropped.
+ *
+ * Observations may come from frames captured at slightly different times: each carries the robot
+ * heading at its capture and the odometry offset from the reference time, so the result is the
+ * position at the reference time. A camera given a {@link VisionNoiseModel} has each tag's weight
+ * divided by the variance scale the model learned for that tag and distance.
+ *
+ * Everything is stored in preallocated primitive arrays and the solve is closed form, a few
+ * microseconds for a dozen tags. Main thread only.
+ */
+public class MultiCameraPoseSolver {
+    /* Values per tag in rawfiducials: id, txnc, tync, ta, distToCamera, distToRobot, ambiguity */
+    private static final int kValuesPerRawFiducial = 7;
+    /* Below this the normal equations are treated as singular */
+    private static final double kMinDeterminant = 1e-12;
+
+    private final FieldModel field;
+    private final double[] tagPositions;
+    /* Per camera: robot-frame position x, y, z, then the camera-to-robot rotation, row major */
+    private final double[] cameraPoses;
+    /* Per camera, or null entries for the fixed angle noise alone */
+    private final VisionNoiseModel[] noiseModels;
+    private final double angleVariance;
+    private final double headingVariance;
+    private final double maxTagDistanceMeters;
+    private final double outlierChiSquared;
+
+    /* Per observation: robot position implied by the tag, and its information matrix */
+    private final double[] estimateX;
+    private final double[] estimateY;
+    private final double[] info00;
+    private final double[] info01;
+    private final double[] info11;
+    private final int[] observationCamera;
+    private final boolean[] used;
+    private int observations = 0;
+
+    /* Result of the last solve */
+    private double x;
+    private double y;
+    private double xStdDev;
+    private double yStdDev;
+    private double chiSquared;
+    private int tagsUsed;
+    private int camerasUsed;
+    private int tagsRejected;
+
+    /**
+     * @param field Field tag positions
+     * @param cameras Camera mountings; observations refer to cameras by index into this array
+     * @param maxObservations Tags held per solve, across all cameras; further tags are ignored
+     * @param angleStdDevRadians Standard deviation of a fiducial's txnc and tync
+     * @param headingStdDevRadians Standard deviation of the gyro heading at capture time
+     * @param maxTagDistanceMeters Tags farther than this from their camera are ignored
+     * @param outlierChiSquared A tag whose weighted residual is above this is dropped; outliers are only
+     *     looked for while 3 or more tags are used, so a solve never drops below 2
+     */
+    public MultiCameraPoseSolver(FieldModel field, CameraConfig[] cameras, int maxObservations,
+            double angleStdDevRadians, double headingStdDevRadians, double maxTagDistanceMeters, double outlierChiSquared) {
+        this.field = field;
+        this.tagPositions = field.getTagPositions();
+        this.angleVariance = angleStdDevRadians * angleStdDevRadians;
+        this.headingVariance = headingStdDevRadians * headingStdDevRadians;
+        this.maxTagDistanceMeters = maxTagDistanceMeters;
+        this.outlierChiSquared = outlierChiSquared;
+
+        this.cameraPoses = new double[cameras.length * PoseMath.kPose3dSize];
+        this.noiseModels = new VisionNoiseModel[cameras.length];
+        for (int i = 0; i < cameras.length; i++) {
+            CameraConfig camera = cameras[i];
+            int base = i * PoseMath.kPose3dSize;
+            cameraPoses[base] = camera.forwardMeters;
+            cameraPoses[base + 1] = camera.sideMeters;
+            cameraPoses[base + 2] = camera.upMeters;
+            // Lens-up pitch is a negative rotation about Y in WPILib's convention
+            PoseMath.rotationFromRollPitchYaw(Math.toRadians(camera.rollDegrees), -Math.toRadians(camera.pitchDegrees),
+                Math.toRadians(camera.yawDegrees), cameraPoses, base + 3);
+        }
+
+        this.estimateX = new double[maxObservations];
+        this.estimateY = new double[maxObservations];
+        this.info00 = new double[maxObservations];
+        this.info01 = new double[maxObservations];
+        this.info11 = new double[maxObservations];
+        this.observationCamera = new int[maxObservations];
+        this.used = new boolean[maxObservations];
+    }
+
+    /**
+     * Weights a camera's tags by what its noise model has learned about them.
+     *
+     * @param camera Index of the camera in the constructor's array
+     */
+    public void setNoiseModel(int camera, VisionNoiseModel noiseModel) {
+        noiseModels[camera] = noiseModel;
+    }
+
+    /**
+     * Drops the observations of the previous solve.
+     */
+    public void reset() {
+        observations = 0;
+    }
+
+    /**
+     * Adds every tag in a camera's rawfiducials.
+     *
+     * @param camera Index of the camera in the constructor's array
+     * @param rawFiducials Fiducials in the Limelight rawfiducials layout
+     * @param length Number of values of rawFiducials to read
+     * @param robotHeadingRadians Robot heading on the blue-origin field at the frame's capture time
+     * @param offsetX Robot X at capture minus robot X at the reference time, from odometry
+     * @param offsetY Robot Y at capture minus robot Y at the reference time, from odometry
+     * @return Number of tags added
+     */
+    public int addFiducials(int camera, double[] rawFiducials, int length, double robotHeadingRadians,
+            double offsetX, double offsetY) {
+        int added = 0;
+        for (int base = 0; base + kValuesPerRawFiducial <= length; base += kValuesPerRawFiducial) {
+            if (addObservation(camera, (int) rawFiducials[base], rawFiducials[base + 1], rawFiducials[base + 2],
+                    robotHeadingRadians, offsetX, offsetY)) {
+                added++;
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Adds one tag seen by one camera.
+     *
+     * @param camera Index of the camera in the constructor's array
+     * @param tagId Fiducial ID
+     * @param txncDegrees Horizontal angle from the principal pixel, positive to the right
+     * @param tyncDegrees Vertical angle from the principal pixel, positive up
+     * @param robotHeadingRadians Robot heading on the blue-origin field at the frame's capture time
+     * @param offsetX Robot X at capture minus robot X at the reference time, from odometry
+     * @param offsetY Robot Y at capture minus robot Y at the reference time, from odometry
+     * @return false if the tag is not on the field, out of range, or its ray cannot reach it
+     */
+    public boolean addObservation(int camera, int tagId, double txncDegrees, double tyncDegrees,
+            double robotHeadingRadians, double offsetX, double offsetY) {
+        int tag = field.getTagIndex(tagId);
+        if (tag < 0 || observations >= estimateX.length) {
+            return false;
+        }
+        int c = camera * PoseMath.kPose3dSize;
+
+        // Ray in the camera frame (X forward, Y left, Z up); Limelight tx is positive to the right
+        double cx = 1.0;
+        double cy = -Math.tan(Math.toRadians(txncDegrees));
+        double cz = Math.tan(Math.toRadians(tyncDegrees));
+        // Into the robot frame
+        double rx = cameraPoses[c + 3] * cx + cameraPoses[c + 4] * cy + cameraPoses[c + 5] * cz;
+        double ry = cameraPoses[c + 6] * cx + cameraPoses[c + 7] * cy + cameraPoses[c + 8] * cz;
+        double rz = cameraPoses[c + 9] * cx + cameraPoses[c + 10] * cy + cameraPoses[c + 11] * cz;
+
+        double horizontal = Math.hypot(rx, ry);
+        double dz = tagPositions[tag * 3 + 2] - cameraPoses[c + 2];
+        // Horizontal distance from the camera to the tag, from the elevation of the ray
+        double range = dz * horizontal / rz;
+        if (!(range > 0) || range > maxTagDistanceMeters) {
+            // The ray points away from the tag's height, or is too close to level to place it
+            return false;
+        }
+
+        // Bearing on the field, and the camera's position in the field-aligned robot frame
+        double cos = Math.cos(robotHeadingRadians);
+        double sin = Math.sin(robotHeadingRadians);
+        double ux = (cos * rx - sin * ry) / horizontal;
+        double uy = (sin * rx + cos * ry) / horizontal;
+        double mountX = cos * cameraPoses[c] - sin * cameraPoses[c + 1];
+        double mountY = sin * cameraPoses[c] + cos * cameraPoses[c + 1];
+
+        int i = observations++;
+        estimateX[i] = tagPositions[tag * 3] - range * ux - mountX - offsetX;
+        estimateY[i] = tagPositions[tag * 3 + 1] - range * uy - mountY - offsetY;
+
+        // Across the ray, angle and heading error move the estimate by distance times angle. Along it,
+        // elevation error moves the range by distance squared over the height difference, so tags near
+        // the camera's height barely constrain range.
+        double distanceSquared = range * range + dz * dz;
+        double acrossVariance = distanceSquared * (angleVariance + headingVariance);
+        double alongVariance = distanceSquared * distanceSquared / (dz * dz) * angleVariance;
+        double scale = noiseModels[camera] != null ? noiseModels[camera].getScale(tagId, Math.sqrt(distanceSquared)) : 1.0;
+        double along = 1.0 / (alongVariance * scale);
+        double across = 1.0 / (acrossVariance * scale);
+        info00[i] = along * ux * ux + across * uy * uy;
+        info01[i] = (along - across) * ux * uy;
+        info11[i] = along * uy * uy + across * ux * ux;
+        observationCamera[i] = camera;
+        used[i] = true;
+        return true;
+    }
+
+    /**
+     * Solves the robot position from the observations added since {@link #reset()}.
+     *
+     * @return false if there were no usable observations
+     */
+    public boolean solve() {
+        tagsRejected = 0;
+        tagsUsed = 0;
+        if (observations == 0) {
+            return false;
+        }
+        while (true) {
+            if (!solveUsed()) {
+                return false;
+            }
+            if (tagsUsed < 3) {
+                break;
+            }
+            // Drop the single worst tag if it is an outlier, then solve again without it
+            int worst = -1;
+            double worstChiSquared = outlierChiSquared;
+            for (int i = 0; i < observations; i++) {
+                if (used[i]) {
+                    double residual = residualChiSquared(i);
+                    if (residual > worstChiSquared) {
+                        worst = i;
+                        worstChiSquared = residual;
+                    }
+                }
+            }
+            if (worst < 0) {
+                break;
+            }
+            used[worst] = false;
+            tagsRejected++;
+        }
+
+        // Inflate the covariance when the tags disagree more than their noise explains
+        int degreesOfFreedom = 2 * tagsUsed - 2;
+        if (degreesOfFreedom > 0 && chiSquared > degreesOfFreedom) {
+            double scale = Math.sqrt(chiSquared / degreesOfFreedom);
+            xStdDev *= scale;
+            yStdDev *= scale;
+        }
+        return true;
+    }
+
+    /* Weighted least squares over the used observations; fills the result fields */
+    private boolean solveUsed() {
+        double a00 = 0;
+        double a01 = 0;
+        double a11 = 0;
+        double b0 = 0;
+        double b1 = 0;
+        int count = 0;
+        int cameraMask = 0;
+        for (int i = 0; i < observations; i++) {
+            if (!used[i]) {
+                continue;
+            }
+            a00 += info00[i];
+            a01 += info01[i];
+            a11 += info11[i];
+            b0 += info00[i] * estimateX[i] + info01[i] * estimateY[i];
+            b1 += info01[i] * estimateX[i] + info11[i] * estimateY[i];
+            count++;
+            cameraMask |= 1 << Math.min(observationCamera[i], 31);
+        }
+        double determinant = a00 * a11 - a01 * a01;
+        if (count == 0 || determinant < kMinDeterminant * a00 * a11) {
+            return false;
+        }
+        // The inverse of the normal matrix is the covariance of the solution
+        double inverse00 = a11 / determinant;
+        double inverse01 = -a01 / determinant;
+        double inverse11 = a00 / determinant;
+        x = inverse00 * b0 + inverse01 * b1;
+        y = inverse01 * b0 + inverse11 * b1;
+        xStdDev = Math.sqrt(inverse00);
+        yStdDev = Math.sqrt(inverse11);
+        tagsUsed = count;
+        camerasUsed = Integer.bitCount(cameraMask);
+
+        chiSquared = 0;
+        for (int i = 0; i < observations; i++) {
+            if (used[i]) {
+                chiSquared += residualChiSquared(i);
+            }
+        }
+        return true;
+    }
+
+    private double residualChiSquared(int i) {
+        double dx = estimateX[i] - x;
+        double dy = estimateY[i] - y;
+        return info00[i] * dx * dx + 2 * info01[i] * dx * dy + info11[i] * dy * dy;
+    }
+
+    /** Robot X on the blue-origin field at the reference time, from the last solve */
+    public double getX() {
+        return x;
+    }
+
+    /** Robot Y on the blue-origin field at the reference time, from the last solve */
+    public double getY() {
+        return y;
+    }
+
+    /** Standard deviation of X from the last solve, in meters */
+    public double getXStdDev() {
+        return xStdDev;
+    }
+
+    /** Standard deviation of Y from the last solve, in meters */
+    public double getYStdDev() {
+        return yStdDev;
+    }
+
+    /** Weighted sum of squared residuals of the tags used in the last solve */
+    public double getChiSquared() {
+        return chiSquared;
+    }
+
+    /** Tags used in the last solve */
+    public int getTagsUsed() {
+        return tagsUsed;
+    }
+
+    /** Distinct cameras whose tags were used in the last solve */
+    public int getCamerasUsed() {
+        return camerasUsed;
+    }
+
+    /** Tags dropped as outliers in the last solve */
+    public int getTagsRejected() {
+        return tagsRejected;
+    }
+
+    /** Tags added since the last {@link #reset()} */
+    public int getObservationCount() {
+        return observations;
+    }
+}
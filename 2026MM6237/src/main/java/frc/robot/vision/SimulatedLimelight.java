@@ -0,0 +1,582 @@
+package frc.robot.vision;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import edu.wpi.first.apriltag.AprilTag;
+import edu.wpi.first.apriltag.AprilTagFieldLayout;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Quaternion;
+import edu.wpi.first.networktables.DoubleArrayPublisher;
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.StringPublisher;
+import frc.robot.Constants.SimVisionConstants;
+import frc.robot.LimelightHelpers;
+import frc.robot.util.PoseMath;
+
+/**
+ * Stand-in for a Limelight in simulation: renders which AprilTags the camera would see from the
+ * simulated robot pose and publishes the same NetworkTables topics a real camera does.
+ *
+ * Frames are captured at a fixed rate and each is published once its pipeline and capture latency
+ * have passed, so consumers see the same delay and timestamps as on the robot. Published topics:
+ * tv, tid, tx, ty, ta, txnc, tync, tl, cl, hb, botpose_wpiblue, botpose_orb_wpiblue, rawfiducials
+ * and json. Noise is Gaussian: tag angles get a fixed amount, pose translation grows with the square
+ * of the average tag distance, and MegaTag1 yaw grows linearly with it. MegaTag2 (botpose_orb) uses
+ * the true heading, as the real camera uses the heading the robot sends it.
+ *
+ * 3D poses in the json output follow the Limelight conventions: camera and target space are X right,
+ * Y down, Z out of the lens or tag; robot and field space are X forward, Y left, Z up.
+ */
+public class SimulatedLimelight {
+    /* Most tags reported in one frame */
+    private static final int kMaxTags = 16;
+    /* Frames captured but not yet published; must cover the latency at the frame rate */
+    private static final int kMaxPendingFrames = 16;
+    /* Values per tag in botpose arrays and rawfiducials */
+    private static final int kValuesPerTag = 7;
+    private static final int kBotPoseHeaderLength = 11;
+    /* Sensor resolution used for the pixel coordinates in the json output */
+    private static final double kImageWidthPixels = 1280;
+    private static final double kImageHeightPixels = 960;
+
+    /* Camera space and target space axes in terms of the WPILib camera and tag frames */
+    private static final double[] kCameraBasis = {0, -1, 0, 0, 0, -1, 1, 0, 0};
+    private static final double[] kTagBasis = {0, 1, 0, 0, 0, -1, 1, 0, 0};
+    private static final double[] kIdentity = {1, 0, 0, 0, 1, 0, 0, 0, 1};
+
+    /**
+     * One captured frame, reused through a fixed pool.
+     */
+    private static final class Frame {
+        double captureTimeSeconds;
+        double publishTimeSeconds;
+        int tagCount;
+        int primary;
+        final int[] ids = new int[kMaxTags];
+        final double[] tx = new double[kMaxTags];
+        final double[] ty = new double[kMaxTags];
+        final double[] ta = new double[kMaxTags];
+        final double[] distanceToCamera = new double[kMaxTags];
+        final double[] distanceToRobot = new double[kMaxTags];
+        final double[] ambiguity = new double[kMaxTags];
+        final double[] tagFieldX = new double[kMaxTags];
+        final double[] tagFieldY = new double[kMaxTags];
+        /* Per tag: camera in target space, robot in field space, robot in target space,
+           target in camera space, target in robot space; 6 values each */
+        final double[][] poses = new double[kMaxTags][30];
+        final double[] botPose = new double[6];
+        final double[] botPoseOrb = new double[6];
+        double span;
+        double averageDistance;
+        double averageArea;
+    }
+
+    private final CameraConfig camera;
+    private final int[] tagIds;
+    /* Per tag: x, y, z */
+    private final double[] tagPositions;
+    /* Per tag: row-major rotation matrix */
+    private final double[] tagRotations;
+    private final double fieldLength;
+    private final double fieldWidth;
+
+    private double framesPerSecond;
+    private double pipelineLatencyMillis;
+    private double captureLatencyMillis;
+    private double angleNoiseDegrees;
+    private double poseNoiseMeters;
+    private double yawNoiseDegrees;
+    private double tagSizeMeters;
+    private double maxDistanceMeters;
+    private double minViewCos;
+    private final Random random;
+
+    private final Frame[] pending = new Frame[kMaxPendingFrames];
+    private int pendingHead = 0;
+    private int pendingCount = 0;
+    private double nextCaptureSeconds = Double.NEGATIVE_INFINITY;
+    private long heartbeat = 0;
+
+    /* Scratch for one capture */
+    private final double[] cameraPosition = new double[3];
+    private final double[] cameraRotation = new double[9];
+    private final double[] robotRotation = new double[9];
+    private final double[] tagRotation = new double[9];
+    private final double[] relative = new double[3];
+    private final double[] local = new double[3];
+    private final double[] scratchRotation = new double[9];
+    private final double[] scratchBasis = new double[9];
+    private final double[] scratchVector = new double[3];
+    private final StringBuilder json = new StringBuilder(4096);
+
+    private final DoublePublisher tvPublisher;
+    private final DoublePublisher tidPublisher;
+    private final DoublePublisher txPublisher;
+    private final DoublePublisher tyPublisher;
+    private final DoublePublisher taPublisher;
+    private final DoublePublisher txncPublisher;
+    private final DoublePublisher tyncPublisher;
+    private final DoublePublisher tlPublisher;
+    private final DoublePublisher clPublisher;
+    private final DoublePublisher heartbeatPublisher;
+    private final DoubleArrayPublisher botPosePublisher;
+    private final DoubleArrayPublisher botPoseOrbPublisher;
+    private final DoubleArrayPublisher rawFiducialsPublisher;
+    private final StringPublisher jsonPublisher;
+
+    /**
+     * @param camera Camera mounting and field of view; its name picks the NetworkTables table
+     * @param layout Field tags to render
+     */
+    public SimulatedLimelight(CameraConfig camera, AprilTagFieldLayout layout) {
+        this.camera = camera;
+        this.random = new Random(SimVisionConstants.kNoiseSeed);
+        this.fieldLength = layout.getFieldLength();
+        this.fieldWidth = layout.getFieldWidth();
+
+        List<AprilTag> tags = layout.getTags();
+        this.tagIds = new int[tags.size()];
+        this.tagPositions = new double[tags.size() * 3];
+        this.tagRotations = new double[tags.size() * 9];
+        for (int i = 0; i < tags.size(); i++) {
+            AprilTag tag = tags.get(i);
+            tagIds[i] = tag.ID;
+            tagPositions[i * 3] = tag.pose.getX();
+            tagPositions[i * 3 + 1] = tag.pose.getY();
+            tagPositions[i * 3 + 2] = tag.pose.getZ();
+            quaternionToMatrix(tag.pose.getRotation().getQuaternion(), tagRotations, i * 9);
+        }
+        for (int i = 0; i < kMaxPendingFrames; i++) {
+            pending[i] = new Frame();
+        }
+
+        setTiming(SimVisionConstants.kFramesPerSecond, SimVisionConstants.kPipelineLatencyMillis,
+            SimVisionConstants.kCaptureLatencyMillis);
+        setNoise(SimVisionConstants.kAngleNoiseDegrees, SimVisionConstants.kPoseNoiseMeters,
+            SimVisionConstants.kYawNoiseDegrees);
+        setTagVisibility(SimVisionConstants.kTagSizeMeters, SimVisionConstants.kMaxTagDistanceMeters,
+            SimVisionConstants.kMaxViewAngleDegrees);
+
+        NetworkTable table = LimelightHelpers.getLimelightNTTable(camera.name);
+        this.tvPublisher = table.getDoubleTopic("tv").publish();
+        this.tidPublisher = table.getDoubleTopic("tid").publish();
+        this.txPublisher = table.getDoubleTopic("tx").publish();
+        this.tyPublisher = table.getDoubleTopic("ty").publish();
+        this.taPublisher = table.getDoubleTopic("ta").publish();
+        this.txncPublisher = table.getDoubleTopic("txnc").publish();
+        this.tyncPublisher = table.getDoubleTopic("tync").publish();
+        this.tlPublisher = table.getDoubleTopic("tl").publish();
+        this.clPublisher = table.getDoubleTopic("cl").publish();
+        this.heartbeatPublisher = table.getDoubleTopic("hb").publish();
+        this.botPosePublisher = table.getDoubleArrayTopic("botpose_wpiblue").publish();
+        this.botPoseOrbPublisher = table.getDoubleArrayTopic("botpose_orb_wpiblue").publish();
+        this.rawFiducialsPublisher = table.getDoubleArrayTopic("rawfiducials").publish();
+        this.jsonPublisher = table.getStringTopic("json").publish();
+    }
+
+    // ======================== CONFIGURATION ========================
+
+    /**
+     * @param framesPerSecond Capture rate
+     * @param pipelineLatencyMillis Processing time per frame, published as tl
+     * @param captureLatencyMillis Sensor to pipeline time, published as cl
+     */
+    public void setTiming(double framesPerSecond, double pipelineLatencyMillis, double captureLatencyMillis) {
+        this.framesPerSecond = framesPerSecond;
+        this.pipelineLatencyMillis = pipelineLatencyMillis;
+        this.captureLatencyMillis = captureLatencyMillis;
+    }
+
+    /**
+     * @param angleNoiseDegrees Standard deviation of tx and ty
+     * @param poseNoiseMeters Standard deviation of botpose X and Y with one tag at 1 m; scales with
+     *     the square of the average tag distance and down with the square root of the tag count
+     * @param yawNoiseDegrees Standard deviation of MegaTag1 yaw with one tag at 1 m; scales with the
+     *     average tag distance and down with the square root of the tag count
+     */
+    public void setNoise(double angleNoiseDegrees, double poseNoiseMeters, double yawNoiseDegrees) {
+        this.angleNoiseDegrees = angleNoiseDegrees;
+        this.poseNoiseMeters = poseNoiseMeters;
+        this.yawNoiseDegrees = yawNoiseDegrees;
+    }
+
+    /**
+     * @param tagSizeMeters Edge length of the tag's black square
+     * @param maxDistanceMeters Tags farther from the lens are not detected
+     * @param maxViewAngleDegrees Tags seen more obliquely than this are not detected
+     */
+    public void setTagVisibility(double tagSizeMeters, double maxDistanceMeters, double maxViewAngleDegrees) {
+        this.tagSizeMeters = tagSizeMeters;
+        this.maxDistanceMeters = maxDistanceMeters;
+        this.minViewCos = Math.cos(Math.toRadians(maxViewAngleDegrees));
+    }
+
+    // ======================== SIMULATION STEP ========================
+
+    /**
+     * Captures a frame if one is due and publishes every frame whose latency has passed. Call once per
+     * simulation step.
+     *
+     * @param nowSeconds Current FPGA time
+     * @param robotPose Simulated robot pose, blue-origin field coordinates
+     */
+    public void update(double nowSeconds, Pose2d robotPose) {
+        if (nowSeconds >= nextCaptureSeconds && pendingCount < kMaxPendingFrames) {
+            Frame frame = pending[(pendingHead + pendingCount) % kMaxPendingFrames];
+            capture(frame, nowSeconds, robotPose.getX(), robotPose.getY(), robotPose.getRotation().getRadians());
+            frame.publishTimeSeconds = nowSeconds + (pipelineLatencyMillis + captureLatencyMillis) / 1000.0;
+            pendingCount++;
+            // Keep the cadence even if a step was missed, but never capture twice in one step
+            nextCaptureSeconds = Math.max(nextCaptureSeconds + 1.0 / framesPerSecond, nowSeconds);
+        }
+
+        while (pendingCount > 0 && pending[pendingHead].publishTimeSeconds <= nowSeconds) {
+            publish(pending[pendingHead]);
+            pendingHead = (pendingHead + 1) % kMaxPendingFrames;
+            pendingCount--;
+        }
+    }
+
+    private void capture(Frame frame, double nowSeconds, double robotX, double robotY, double heading) {
+        frame.captureTimeSeconds = nowSeconds;
+        frame.tagCount = 0;
+        frame.primary = -1;
+
+        PoseMath.rotationFromRollPitchYaw(0, 0, heading, robotRotation, 0);
+        PoseMath.rotationFromRollPitchYaw(Math.toRadians(camera.rollDegrees), -Math.toRadians(camera.pitchDegrees),
+            heading + Math.toRadians(camera.yawDegrees), cameraRotation, 0);
+        local[0] = camera.forwardMeters;
+        local[1] = camera.sideMeters;
+        local[2] = camera.upMeters;
+        multiply(robotRotation, local, cameraPosition);
+        cameraPosition[0] += robotX;
+        cameraPosition[1] += robotY;
+
+        double halfHorizontal = Math.toRadians(camera.horizontalFovDegrees) / 2.0;
+        double halfVertical = Math.toRadians(camera.verticalFovDegrees) / 2.0;
+        double imageArea = 4.0 * Math.tan(halfHorizontal) * Math.tan(halfVertical);
+
+        double distanceSum = 0;
+        double areaSum = 0;
+        for (int i = 0; i < tagIds.length && frame.tagCount < kMaxTags; i++) {
+            relative[0] = tagPositions[i * 3] - cameraPosition[0];
+            relative[1] = tagPositions[i * 3 + 1] - cameraPosition[1];
+            relative[2] = tagPositions[i * 3 + 2] - cameraPosition[2];
+            multiplyTransposed(cameraRotation, relative, local);
+            if (local[0] <= 1e-3) {
+                continue;
+            }
+            double horizontal = Math.atan(local[1] / local[0]);
+            double vertical = Math.atan(local[2] / local[0]);
+            if (Math.abs(horizontal) > halfHorizontal || Math.abs(vertical) > halfVertical) {
+                continue;
+            }
+            double distance = Math.sqrt(relative[0] * relative[0] + relative[1] * relative[1] + relative[2] * relative[2]);
+            if (distance > maxDistanceMeters) {
+                continue;
+            }
+            // The tag's X axis points out of its face; it must face the camera
+            int r = i * 9;
+            double viewCos = -(tagRotations[r] * relative[0] + tagRotations[r + 3] * relative[1] + tagRotations[r + 6] * relative[2]) / distance;
+            if (viewCos < minViewCos) {
+                continue;
+            }
+
+            int n = frame.tagCount++;
+            frame.ids[n] = tagIds[i];
+            frame.tx[n] = -Math.toDegrees(horizontal) + random.nextGaussian() * angleNoiseDegrees;
+            frame.ty[n] = Math.toDegrees(vertical) + random.nextGaussian() * angleNoiseDegrees;
+            frame.ta[n] = 100.0 * tagSizeMeters * tagSizeMeters * viewCos / (local[0] * local[0]) / imageArea;
+            frame.distanceToCamera[n] = distance;
+            frame.distanceToRobot[n] = Math.sqrt(square(tagPositions[i * 3] - robotX) + square(tagPositions[i * 3 + 1] - robotY)
+                + square(tagPositions[i * 3 + 2]));
+            // Pose ambiguity rises as the tag shrinks in the image and is seen face-on, where the
+            // planar pose flips are hardest to tell apart
+            frame.ambiguity[n] = Math.min(1.0, 0.01 * square(distance / tagSizeMeters / 10.0) * (0.5 + 0.5 * viewCos));
+            frame.tagFieldX[n] = tagPositions[i * 3];
+            frame.tagFieldY[n] = tagPositions[i * 3 + 1];
+            fillTagPoses(frame.poses[n], i, robotX, robotY);
+
+            distanceSum += distance;
+            areaSum += frame.ta[n];
+            if (frame.primary < 0 || frame.ta[n] > frame.ta[frame.primary]) {
+                frame.primary = n;
+            }
+        }
+
+        frame.span = 0;
+        for (int a = 0; a < frame.tagCount; a++) {
+            for (int b = a + 1; b < frame.tagCount; b++) {
+                frame.span = Math.max(frame.span,
+                    Math.hypot(frame.tagFieldX[a] - frame.tagFieldX[b], frame.tagFieldY[a] - frame.tagFieldY[b]));
+            }
+        }
+        int count = frame.tagCount;
+        frame.averageDistance = count > 0 ? distanceSum / count : 0;
+        frame.averageArea = count > 0 ? areaSum / count : 0;
+
+        Arrays.fill(frame.botPose, 0);
+        Arrays.fill(frame.botPoseOrb, 0);
+        if (count > 0) {
+            double translationStdDev = poseNoiseMeters * square(frame.averageDistance) / Math.sqrt(count);
+            double yawStdDev = yawNoiseDegrees * frame.averageDistance / Math.sqrt(count);
+            frame.botPose[0] = robotX + random.nextGaussian() * translationStdDev;
+            frame.botPose[1] = robotY + random.nextGaussian() * translationStdDev;
+            frame.botPose[5] = Math.toDegrees(heading) + random.nextGaussian() * yawStdDev;
+            frame.botPoseOrb[0] = robotX + random.nextGaussian() * translationStdDev;
+            frame.botPoseOrb[1] = robotY + random.nextGaussian() * translationStdDev;
+            frame.botPoseOrb[5] = Math.toDegrees(heading);
+        }
+        // The camera reports its robot-in-field pose from the same solve as MegaTag1
+        for (int n = 0; n < count; n++) {
+            frame.poses[n][6] = frame.botPose[0];
+            frame.poses[n][7] = frame.botPose[1];
+            frame.poses[n][11] = frame.botPose[5];
+        }
+    }
+
+    /**
+     * Fills the five 3D poses the json output reports for one tag, 6 values each: camera in target
+     * space, robot in field space (set by the caller), robot in target space, target in camera space
+     * and target in robot space.
+     */
+    private void fillTagPoses(double[] poses, int tag, double robotX, double robotY) {
+        System.arraycopy(tagRotations, tag * 9, tagRotation, 0, 9);
+        double tagX = tagPositions[tag * 3];
+        double tagY = tagPositions[tag * 3 + 1];
+        double tagZ = tagPositions[tag * 3 + 2];
+
+        relative[0] = cameraPosition[0] - tagX;
+        relative[1] = cameraPosition[1] - tagY;
+        relative[2] = cameraPosition[2] - tagZ;
+        writeRelativePose(tagRotation, cameraRotation, kTagBasis, poses, 0);
+
+        relative[0] = robotX - tagX;
+        relative[1] = robotY - tagY;
+        relative[2] = -tagZ;
+        writeRelativePose(tagRotation, robotRotation, kTagBasis, poses, 12);
+
+        relative[0] = tagX - cameraPosition[0];
+        relative[1] = tagY - cameraPosition[1];
+        relative[2] = tagZ - cameraPosition[2];
+        writeRelativePose(cameraRotation, tagRotation, kCameraBasis, poses, 18);
+
+        relative[0] = tagX - robotX;
+        relative[1] = tagY - robotY;
+        relative[2] = tagZ;
+        writeRelativePose(robotRotation, tagRotation, kIdentity, poses, 24);
+    }
+
+    /**
+     * Writes the pose of a body at {@link #relative} (field frame, from the reference origin) with
+     * rotation {@code body}, expressed in the reference frame with rotation {@code reference} and then
+     * in the axes given by {@code basis}.
+     */
+    private void writeRelativePose(double[] reference, double[] body, double[] basis, double[] out, int offset) {
+        multiplyTransposed(reference, relative, scratchVector);
+        multiply(basis, scratchVector, local);
+        // R = B (Ref^T Body) B^T
+        multiplyTransposedMatrix(reference, body, scratchRotation);
+        multiplyMatrix(basis, scratchRotation, scratchBasis);
+        multiplyMatrixTransposed(scratchBasis, basis, scratchRotation);
+        out[offset] = local[0];
+        out[offset + 1] = local[1];
+        out[offset + 2] = local[2];
+        writeEulerDegrees(scratchRotation, out, offset + 3);
+    }
+
+    // ======================== PUBLISHING ========================
+
+    private void publish(Frame frame) {
+        boolean valid = frame.tagCount > 0;
+        int p = frame.primary;
+        tvPublisher.set(valid ? 1 : 0);
+        tidPublisher.set(valid ? frame.ids[p] : -1);
+        txPublisher.set(valid ? frame.tx[p] : 0);
+        tyPublisher.set(valid ? frame.ty[p] : 0);
+        taPublisher.set(valid ? frame.ta[p] : 0);
+        // The simulated crosshair sits on the principal pixel
+        txncPublisher.set(valid ? frame.tx[p] : 0);
+        tyncPublisher.set(valid ? frame.ty[p] : 0);
+        tlPublisher.set(pipelineLatencyMillis);
+        clPublisher.set(captureLatencyMillis);
+        heartbeatPublisher.set(++heartbeat);
+
+        double[] rawFiducials = new double[frame.tagCount * kValuesPerTag];
+        for (int n = 0; n < frame.tagCount; n++) {
+            writeRawFiducial(frame, n, rawFiducials, n * kValuesPerTag);
+        }
+        rawFiducialsPublisher.set(rawFiducials);
+        botPosePublisher.set(botPoseArray(frame, frame.botPose, rawFiducials));
+        botPoseOrbPublisher.set(botPoseArray(frame, frame.botPoseOrb, rawFiducials));
+        jsonPublisher.set(buildJson(frame));
+    }
+
+    private void writeRawFiducial(Frame frame, int n, double[] out, int offset) {
+        out[offset] = frame.ids[n];
+        out[offset + 1] = frame.tx[n];
+        out[offset + 2] = frame.ty[n];
+        out[offset + 3] = frame.ta[n];
+        out[offset + 4] = frame.distanceToCamera[n];
+        out[offset + 5] = frame.distanceToRobot[n];
+        out[offset + 6] = frame.ambiguity[n];
+    }
+
+    private double[] botPoseArray(Frame frame, double[] pose, double[] rawFiducials) {
+        double[] out = new double[kBotPoseHeaderLength + rawFiducials.length];
+        System.arraycopy(pose, 0, out, 0, 6);
+        out[6] = pipelineLatencyMillis + captureLatencyMillis;
+        out[7] = frame.tagCount;
+        out[8] = frame.span;
+        out[9] = frame.averageDistance;
+        out[10] = frame.averageArea;
+        System.arraycopy(rawFiducials, 0, out, kBotPoseHeaderLength, rawFiducials.length);
+        return out;
+    }
+
+    private String buildJson(Frame frame) {
+        boolean valid = frame.tagCount > 0;
+        double[] pose = frame.botPose;
+        json.setLength(0);
+        json.append("{\"pID\":0,\"tl\":").append(pipelineLatencyMillis)
+            .append(",\"cl\":").append(captureLatencyMillis)
+            .append(",\"ts\":").append(frame.captureTimeSeconds * 1000.0)
+            .append(",\"ts_rio\":").append(frame.captureTimeSeconds)
+            .append(",\"v\":").append(valid ? 1 : 0);
+        // Field-centered and red-origin poses derived from the blue-origin estimate
+        json.append(",\"botpose\":");
+        appendPose(pose[0] - fieldLength / 2.0, pose[1] - fieldWidth / 2.0, pose[5], valid);
+        json.append(",\"botpose_wpiblue\":");
+        appendPose(pose[0], pose[1], pose[5], valid);
+        json.append(",\"botpose_wpired\":");
+        appendPose(fieldLength - pose[0], fieldWidth - pose[1], pose[5] + 180.0, valid);
+        json.append(",\"botpose_tagcount\":").append(frame.tagCount)
+            .append(",\"botpose_span\":").append(frame.span)
+            .append(",\"botpose_avgdist\":").append(frame.averageDistance)
+            .append(",\"botpose_avgarea\":").append(frame.averageArea)
+            .append(",\"t6c_rs\":[").append(camera.forwardMeters).append(',').append(camera.sideMeters).append(',')
+            .append(camera.upMeters).append(',').append(camera.rollDegrees).append(',').append(camera.pitchDegrees).append(',')
+            .append(camera.yawDegrees).append(']');
+
+        double halfHorizontalTan = Math.tan(Math.toRadians(camera.horizontalFovDegrees) / 2.0);
+        double halfVerticalTan = Math.tan(Math.toRadians(camera.verticalFovDegrees) / 2.0);
+        json.append(",\"Fiducial\":[");
+        for (int n = 0; n < frame.tagCount; n++) {
+            double[] poses = frame.poses[n];
+            if (n > 0) {
+                json.append(',');
+            }
+            json.append("{\"fID\":").append(frame.ids[n]).append(",\"fam\":\"36H11\"");
+            appendArray(",\"t6c_ts\":", poses, 0);
+            appendArray(",\"t6r_fs\":", poses, 6);
+            appendArray(",\"t6r_ts\":", poses, 12);
+            appendArray(",\"t6t_cs\":", poses, 18);
+            appendArray(",\"t6t_rs\":", poses, 24);
+            double txPixels = kImageWidthPixels / 2.0 * (1.0 + Math.tan(Math.toRadians(frame.tx[n])) / halfHorizontalTan);
+            double tyPixels = kImageHeightPixels / 2.0 * (1.0 - Math.tan(Math.toRadians(frame.ty[n])) / halfVerticalTan);
+            json.append(",\"ta\":").append(frame.ta[n])
+                .append(",\"tx\":").append(frame.tx[n])
+                .append(",\"ty\":").append(frame.ty[n])
+                .append(",\"txp\":").append(txPixels)
+                .append(",\"typ\":").append(tyPixels)
+                .append(",\"tx_nocross\":").append(frame.tx[n])
+                .append(",\"ty_nocross\":").append(frame.ty[n])
+                .append(",\"ts\":").append(frame.captureTimeSeconds * 1000.0)
+                .append('}');
+        }
+        json.append("],\"Retro\":[],\"Classifier\":[],\"Detector\":[],\"Barcode\":[]}");
+        return json.toString();
+    }
+
+    private void appendPose(double x, double y, double yawDegrees, boolean valid) {
+        if (!valid) {
+            json.append("[0,0,0,0,0,0]");
+            return;
+        }
+        json.append('[').append(x).append(',').append(y).append(",0,0,0,").append(yawDegrees).append(']');
+    }
+
+    private void appendArray(String key, double[] values, int offset) {
+        json.append(key).append('[');
+        for (int i = 0; i < 6; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append(values[offset + i]);
+        }
+        json.append(']');
+    }
+
+    // ======================== MATH ========================
+
+    private static double square(double value) {
+        return value * value;
+    }
+
+    private static void quaternionToMatrix(Quaternion q, double[] out, int offset) {
+        double w = q.getW();
+        double x = q.getX();
+        double y = q.getY();
+        double z = q.getZ();
+        out[offset] = 1 - 2 * (y * y + z * z);
+        out[offset + 1] = 2 * (x * y - w * z);
+        out[offset + 2] = 2 * (x * z + w * y);
+        out[offset + 3] = 2 * (x * y + w * z);
+        out[offset + 4] = 1 - 2 * (x * x + z * z);
+        out[offset + 5] = 2 * (y * z - w * x);
+        out[offset + 6] = 2 * (x * z - w * y);
+        out[offset + 7] = 2 * (y * z + w * x);
+        out[offset + 8] = 1 - 2 * (x * x + y * y);
+    }
+
+    /** Roll, pitch, yaw in degrees of a rotation matrix, inverse of {@link PoseMath#rotationFromRollPitchYaw} */
+    private static void writeEulerDegrees(double[] r, double[] out, int offset) {
+        out[offset] = Math.toDegrees(Math.atan2(r[7], r[8]));
+        out[offset + 1] = Math.toDegrees(-Math.asin(Math.max(-1.0, Math.min(1.0, r[6]))));
+        out[offset + 2] = Math.toDegrees(Math.atan2(r[3], r[0]));
+    }
+
+    /** out = m v */
+    private static void multiply(double[] m, double[] v, double[] out) {
+        out[0] = m[0] * v[0] + m[1] * v[1] + m[2] * v[2];
+        out[1] = m[3] * v[0] + m[4] * v[1] + m[5] * v[2];
+        out[2] = m[6] * v[0] + m[7] * v[1] + m[8] * v[2];
+    }
+
+    /** out = m^T v */
+    private static void multiplyTransposed(double[] m, double[] v, double[] out) {
+        out[0] = m[0] * v[0] + m[3] * v[1] + m[6] * v[2];
+        out[1] = m[1] * v[0] + m[4] * v[1] + m[7] * v[2];
+        out[2] = m[2] * v[0] + m[5] * v[1] + m[8] * v[2];
+    }
+
+    /** out = a b */
+    private static void multiplyMatrix(double[] a, double[] b, double[] out) {
+        for (int row = 0; row < 3; row++) {
+            for (int col = 0; col < 3; col++) {
+                out[row * 3 + col] = a[row * 3] * b[col] + a[row * 3 + 1] * b[3 + col] + a[row * 3 + 2] * b[6 + col];
+            }
+        }
+    }
+
+    /** out = a^T b */
+    private static void multiplyTransposedMatrix(double[] a, double[] b, double[] out) {
+        for (int row = 0; row < 3; row++) {
+            for (int col = 0; col < 3; col++) {
+                out[row * 3 + col] = a[row] * b[col] + a[3 + row] * b[3 + col] + a[6 + row] * b[6 + col];
+            }
+        }
+    }
+
+    /** out = a b^T */
+    private static void multiplyMatrixTransposed(double[] a, double[] b, double[] out) {
+        for (int row = 0; row < 3; row++) {
+            for (int col = 0; col < 3; col++) {
+                out[row * 3 + col] = a[row * 3] * b[col * 3] + a[row * 3 + 1] * b[col * 3 + 1] + a[row * 3 + 2] * b[col * 3 + 2];
+            }
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package frc.robot.vision;
+
+import frc.robot.navigation.FieldModel;
+import frc.robot.util.PoseMath;
+
+/**
+ * Predicts which field AprilTags one camera should see from a robot pose, and where in the image.
+ *
+ * A tag is predicted when it faces the lens within the view angle limit, is within range, and some
+ * part of it falls inside the field of view widened by a margin. The margin lets callers that must
+ * not miss a tag, like the fiducial ID filter, allow for pose error and robot motion between updates.
+ *
+ * Candidates come from the {@link FieldModel} grid cell the camera is in, so each prediction tests
+ * only the few tags that face that part of the field.
+ *
+ * Results are kept in flat arrays indexed 0 to {@link #predict} - 1 and are overwritten by the next
+ * call. Image coordinates are normalized to [-1, 1] across the unwidened field of view, X to the
+ * right and Y up, matching the signs of tx and ty.
+ */
+public class TagVisibilityPredictor {
+    private final CameraConfig camera;
+    private final FieldModel field;
+    private final int[] tagIds;
+    /* Per tag: x, y, z */
+    private final double[] tagPositions;
+    /* Per tag: unit vector out of the tag's face */
+    private final double[] tagNormals;
+    private final int[] cellTags;
+
+    private final double tagSizeMeters;
+    private final double maxDistanceMeters;
+    private final double minViewCos;
+    private final double tanHalfHorizontal;
+    private final double tanHalfVertical;
+    /* Normalized image bound a tag must overlap, 1 plus the margin */
+    private final double horizontalBound;
+    private final double verticalBound;
+
+    /* Scratch for one prediction */
+    private final double[] robotRotation = new double[9];
+    private final double[] cameraRotation = new double[9];
+    private final double[] cameraPosition = new double[3];
+
+    /* Predicted tags, indexed by prediction */
+    private int count = 0;
+    private final int[] ids;
+    private final double[] imageX;
+    private final double[] imageY;
+    private final double[] halfWidth;
+    private final double[] halfHeight;
+    private final double[] depth;
+    private final double[] viewCos;
+
+    /**
+     * @param camera Camera mounting and field of view
+     * @param field Field tags and their spatial index; its index range must cover maxDistanceMeters
+     * @param tagSizeMeters Edge length of the tag's black square
+     * @param maxDistanceMeters Tags farther from the lens are not predicted
+     * @param maxViewAngleDegrees Tags seen more obliquely than this are not predicted
+     * @param fovMarginDegrees Degrees added to each side of the field of view
+     */
+    public TagVisibilityPredictor(CameraConfig camera, FieldModel field, double tagSizeMeters,
+            double maxDistanceMeters, double maxViewAngleDegrees, double fovMarginDegrees) {
+        this.camera = camera;
+        this.tagSizeMeters = tagSizeMeters;
+        this.maxDistanceMeters = maxDistanceMeters;
+        this.minViewCos = Math.cos(Math.toRadians(maxViewAngleDegrees));
+        double halfHorizontal = Math.toRadians(camera.horizontalFovDegrees) / 2.0;
+        double halfVertical = Math.toRadians(camera.verticalFovDegrees) / 2.0;
+        double margin = Math.toRadians(fovMarginDegrees);
+        this.tanHalfHorizontal = Math.tan(halfHorizontal);
+        this.tanHalfVertical = Math.tan(halfVertical);
+        this.horizontalBound = Math.tan(Math.min(halfHorizontal + margin, Math.PI / 2 - 1e-3)) / tanHalfHorizontal;
+        this.verticalBound = Math.tan(Math.min(halfVertical + margin, Math.PI / 2 - 1e-3)) / tanHalfVertical;
+
+        this.field = field;
+        this.tagIds = new int[field.getTagCount()];
+        for (int i = 0; i < tagIds.length; i++) {
+            tagIds[i] = field.getTagId(i);
+        }
+        this.tagPositions = field.getTagPositions();
+        this.tagNormals = field.getTagNormals();
+        this.cellTags = field.getCellTags();
+
+        this.ids = new int[tagIds.length];
+        this.imageX = new double[tagIds.length];
+        this.imageY = new double[tagIds.length];
+        this.halfWidth = new double[tagIds.length];
+        this.halfHeight = new double[tagIds.length];
+        this.depth = new double[tagIds.length];
+        this.viewCos = new double[tagIds.length];
+    }
+
+    /**
+     * Predicts the tags in view from a robot pose.
+     *
+     * @param robotX Robot X on the blue-origin field
+     * @param robotY Robot Y on the blue-origin field
+     * @param heading Robot heading in radians
+     * @return Number of tags predicted
+     */
+    public int predict(double robotX, double robotY, double heading) {
+        PoseMath.rotationFromRollPitchYaw(0, 0, heading, robotRotation, 0);
+        PoseMath.rotationFromRollPitchYaw(Math.toRadians(camera.rollDegrees), -Math.toRadians(camera.pitchDegrees),
+            heading + Math.toRadians(camera.yawDegrees), cameraRotation, 0);
+        cameraPosition[0] = robotX + robotRotation[0] * camera.forwardMeters + robotRotation[1] * camera.sideMeters;
+        cameraPosition[1] = robotY + robotRotation[3] * camera.forwardMeters + robotRotation[4] * camera.sideMeters;
+        cameraPosition[2] = camera.upMeters;
+
+        count = 0;
+        // Only tags that face the camera's cell and are in range of it can pass the checks below
+        int cell = field.getCell(cameraPosition[0], cameraPosition[1]);
+        int end = field.getCellEnd(cell);
+        for (int k = field.getCellStart(cell); k < end; k++) {
+            int i = cellTags[k];
+            double dx = tagPositions[i * 3] - cameraPosition[0];
+            double dy = tagPositions[i * 3 + 1] - cameraPosition[1];
+            double dz = tagPositions[i * 3 + 2] - cameraPosition[2];
+            double distance = Math.sqrt(dx * dx + dy * dy + dz * dz);
+            if (distance > maxDistanceMeters) {
+                continue;
+            }
+            double facing = -(tagNormals[i * 3] * dx + tagNormals[i * 3 + 1] * dy + tagNormals[i * 3 + 2] * dz) / distance;
+            if (facing < minViewCos) {
+                continue;
+            }
+            // Into the camera frame: X out of the lens, Y left, Z up
+            double forward = cameraRotation[0] * dx + cameraRotation[3] * dy + cameraRotation[6] * dz;
+            double left = cameraRotation[1] * dx + cameraRotation[4] * dy + cameraRotation[7] * dz;
+            double up = cameraRotation[2] * dx + cameraRotation[5] * dy + cameraRotation[8] * dz;
+            if (forward <= 1e-3) {
+                continue;
+            }
+            double x = -left / forward / tanHalfHorizontal;
+            double y = up / forward / tanHalfVertical;
+            // Half the tag's extent in normalized units, so any visible part of it counts
+            double width = 0.5 * tagSizeMeters / forward / tanHalfHorizontal;
+            double height = 0.5 * tagSizeMeters / forward / tanHalfVertical;
+            if (x + width < -horizontalBound || x - width > horizontalBound
+                    || y + height < -verticalBound || y - height > verticalBound) {
+                continue;
+            }
+
+            int n = count++;
+            ids[n] = tagIds[i];
+            imageX[n] = x;
+            imageY[n] = y;
+            halfWidth[n] = width;
+            halfHeight[n] = height;
+            depth[n] = forward;
+            viewCos[n] = facing;
+        }
+        return count;
+    }
+
+    /** Tags predicted by the last {@link #predict} call */
+    public int getCount() {
+        return count;
+    }
+
+    /** Fiducial ID of the n-th predicted tag */
+    public int getId(int n) {
+        return ids[n];
+    }
+
+    /** Normalized image X of the n-th predicted tag's center, positive right */
+    public double getImageX(int n) {
+        return imageX[n];
+    }
+
+    /** Normalized image Y of the n-th predicted tag's center, positive up */
+    public double getImageY(int n) {
+        return imageY[n];
+    }
+
+    /** Half the n-th predicted tag's width in normalized image units */
+    public double getHalfWidth(int n) {
+        return halfWidth[n];
+    }
+
+    /** Half the n-th predicted tag's height in normalized image units */
+    public double getHalfHeight(int n) {
+        return halfHeight[n];
+    }
+
+    /** Distance of the n-th predicted tag along the lens axis, in meters */
+    public double getDepth(int n) {
+        return depth[n];
+    }
+
+    /** Cosine of the angle between the n-th predicted tag's face and the line to the camera */
+    public double getViewCos(int n) {
+        return viewCos[n];
+    }
+
+    public CameraConfig getCamera() {
+        return camera;
+    }
+
+    public double getTagSizeMeters() {
+        return tagSizeMeters;
+    }
+}
@@ -0,0 +1,101 @@
+package frc.robot.vision;
+
+/**
+ * One processed Limelight frame: the MegaTag2 pose, raw fiducials and raw detections the camera
+ * published for it, with its capture time.
+ *
+ * Frames are pooled by the {@link VisionFrameStream} that publishes them. A frame is only valid for
+ * the duration of the onNext call that delivers it; subscribers must not modify its arrays or keep a
+ * reference to it afterwards, and copy out anything they need later.
+ */
+public final class VisionFrame {
+    private static final double[] kEmpty = new double[0];
+
+    /* Indices into the botpose array header */
+    private static final int kBotPoseTagCountIndex = 7;
+    /* Values per tag in rawfiducials */
+    private static final int kValuesPerRawFiducial = 7;
+
+    String cameraName;
+    long sequence;
+    double captureTimeSeconds;
+    double receiveTimeSeconds;
+    double[] botPose = kEmpty;
+    double[] rawFiducials = kEmpty;
+    double[] rawDetections = kEmpty;
+    boolean hasBotPose;
+    boolean hasRawFiducials;
+    boolean hasRawDetections;
+    /* Subscribers still holding this frame, delivered or buffered; the stream's thread only */
+    int references;
+
+    VisionFrame() {}
+
+    /* Drops the payload so a pooled frame does not keep the last arrays alive */
+    void clear() {
+        botPose = kEmpty;
+        rawFiducials = kEmpty;
+        rawDetections = kEmpty;
+        hasBotPose = false;
+        hasRawFiducials = false;
+        hasRawDetections = false;
+    }
+
+    /** NetworkTables name of the Limelight that produced the frame */
+    public String getCameraName() {
+        return cameraName;
+    }
+
+    /** Position of the frame in its camera's stream, counting from 0 at startup */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /** FPGA time the frame was captured */
+    public double getCaptureTimeSeconds() {
+        return captureTimeSeconds;
+    }
+
+    /** FPGA time the frame reached robot code */
+    public double getReceiveTimeSeconds() {
+        return receiveTimeSeconds;
+    }
+
+    /** Whether the camera published a botpose_orb_wpiblue value for this frame */
+    public boolean hasBotPose() {
+        return hasBotPose;
+    }
+
+    /** MegaTag2 pose in the Limelight botpose layout, or an empty array; do not modify */
+    public double[] getBotPose() {
+        return botPose;
+    }
+
+    /** Whether the camera published a rawfiducials value for this frame */
+    public boolean hasRawFiducials() {
+        return hasRawFiducials;
+    }
+
+    /** Fiducials in the Limelight rawfiducials layout, 7 values per tag; do not modify */
+    public double[] getRawFiducials() {
+        return rawFiducials;
+    }
+
+    /** Whether the camera published a rawdetections value for this frame */
+    public boolean hasRawDetections() {
+        return hasRawDetections;
+    }
+
+    /** Detections in the Limelight rawdetections layout, 12 values per detection; do not modify */
+    public double[] getRawDetections() {
+        return rawDetections;
+    }
+
+    /** Number of AprilTags seen in the frame */
+    public int getTagCount() {
+        if (botPose.length > kBotPoseTagCountIndex) {
+            return (int) botPose[kBotPoseTagCountIndex];
+        }
+        return rawFiducials.length / kValuesPerRawFiducial;
+    }
+}
@@ -0,0 +1,380 @@
+package frc.robot.vision;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Flow;
+
+import edu.wpi.first.networktables.DoubleArraySubscriber;
+import edu.wpi.first.networktables.DoubleSubscriber;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.PubSubOption;
+import edu.wpi.first.networktables.TimestampedDoubleArray;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import frc.robot.Constants.VisionConstants;
+import frc.robot.LimelightHelpers;
+
+/**
+ * Publishes every frame a Limelight sends as a {@link VisionFrame}, read from NetworkTables once and
+ * handed to each subscriber exactly once.
+ *
+ * Each poll reads the queues of the camera's botpose_orb_wpiblue, rawfiducials and rawdetections
+ * topics and groups values published within a couple of milliseconds of each other into one frame,
+ * since the camera publishes all of a frame's outputs together. Frames the camera's
+ * {@link LimelightHealthMonitor} does not consider fresh are dropped before anyone sees them.
+ *
+ * Delivery follows {@link Flow}: a subscriber receives frames only while it has outstanding demand.
+ * Frames that arrive without demand wait in that subscriber's own bounded buffer; when the buffer is
+ * full the oldest frame is dropped, so a slow or pull-driven subscriber always gets the latest frames
+ * and never holds up the others. A subscriber that wants every frame as it arrives requests
+ * Long.MAX_VALUE; one that only wants the newest frame now and then subscribes with a one-frame buffer
+ * and requests one at a time.
+ *
+ * Frames are pooled and reference counted, so steady-state delivery allocates no frame objects; see
+ * {@link VisionFrame} for how long a frame stays valid. There is one stream per camera, shared
+ * through {@link #forCamera(String)}, and {@link #pollAll()} runs once per loop before the scheduler.
+ * Everything here is main thread only.
+ */
+public class VisionFrameStream implements Flow.Publisher<VisionFrame> {
+    private static final Map<String, VisionFrameStream> streams = new HashMap<>();
+    /* Same streams as the map, for iterating without an iterator */
+    private static VisionFrameStream[] all = new VisionFrameStream[0];
+
+    /* Index of the total latency in the botpose array header */
+    private static final int kBotPoseLatencyIndex = 6;
+
+    private final class FrameSubscription implements Flow.Subscription {
+        final Flow.Subscriber<? super VisionFrame> subscriber;
+        /* Ring buffer of frames waiting for demand, oldest at head */
+        final VisionFrame[] buffer;
+        int head = 0;
+        int size = 0;
+        long demand = 0;
+        boolean cancelled = false;
+        /* Guards against onNext calling request() and recursing into delivery */
+        boolean delivering = false;
+        long dropped = 0;
+
+        FrameSubscription(Flow.Subscriber<? super VisionFrame> subscriber, int bufferSize) {
+            this.subscriber = subscriber;
+            this.buffer = new VisionFrame[Math.max(1, bufferSize)];
+        }
+
+        @Override
+        public void request(long n) {
+            if (cancelled) {
+                return;
+            }
+            if (n <= 0) {
+                cancel();
+                subscriber.onError(new IllegalArgumentException("Requested " + n + " frames; must be positive"));
+                return;
+            }
+            demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+            deliver();
+        }
+
+        @Override
+        public void cancel() {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            while (size > 0) {
+                release(takeOldest());
+            }
+            removeSubscription(this);
+        }
+
+        void offer(VisionFrame frame) {
+            if (size == buffer.length) {
+                release(takeOldest());
+                dropped++;
+            }
+            frame.references++;
+            buffer[(head + size) % buffer.length] = frame;
+            size++;
+            deliver();
+        }
+
+        private VisionFrame takeOldest() {
+            VisionFrame frame = buffer[head];
+            buffer[head] = null;
+            head = (head + 1) % buffer.length;
+            size--;
+            return frame;
+        }
+
+        private void deliver() {
+            if (delivering) {
+                return;
+            }
+            delivering = true;
+            while (demand > 0 && size > 0 && !cancelled) {
+                VisionFrame frame = takeOldest();
+                if (demand != Long.MAX_VALUE) {
+                    demand--;
+                }
+                try {
+                    subscriber.onNext(frame);
+                } catch (RuntimeException ex) {
+                    DriverStation.reportError("Vision frame subscriber on " + cameraName + " failed: " + ex, ex.getStackTrace());
+                }
+                release(frame);
+            }
+            delivering = false;
+        }
+    }
+
+    private final String cameraName;
+    private final String keyPrefix;
+    private final DoubleArraySubscriber botPose;
+    private final DoubleArraySubscriber rawFiducials;
+    private final DoubleArraySubscriber rawDetections;
+    private final DoubleSubscriber pipelineLatency;
+    private final DoubleSubscriber captureLatency;
+    private final LimelightHealthMonitor health;
+    private final long groupingMicros;
+    private final int defaultBufferSize;
+
+    private FrameSubscription[] subscriptions = new FrameSubscription[0];
+    private final ArrayDeque<VisionFrame> pool = new ArrayDeque<>();
+    private long nextSequence = 0;
+
+    /* Counters since construction */
+    private long framesReceived = 0;
+    private long framesStale = 0;
+
+    /**
+     * Gets the shared stream for a camera, creating it on first use. Main thread only.
+     *
+     * @param cameraName NetworkTables name of the Limelight
+     */
+    public static VisionFrameStream forCamera(String cameraName) {
+        NetworkTable table = LimelightHelpers.getLimelightNTTable(cameraName);
+        VisionFrameStream stream = streams.get(table.getPath());
+        if (stream == null) {
+            stream = new VisionFrameStream(cameraName, table, VisionConstants.kPoseFrameQueueDepth,
+                VisionConstants.kFrameGroupingSeconds, VisionConstants.kFrameSubscriberBufferSize);
+            streams.put(table.getPath(), stream);
+            VisionFrameStream[] grown = new VisionFrameStream[all.length + 1];
+            System.arraycopy(all, 0, grown, 0, all.length);
+            grown[all.length] = stream;
+            all = grown;
+        }
+        return stream;
+    }
+
+    /**
+     * Polls every stream. Call once per loop, after the health monitors update and before the scheduler.
+     */
+    public static void pollAll() {
+        for (VisionFrameStream stream : all) {
+            stream.poll();
+        }
+    }
+
+    /**
+     * Publishes frame counts of every stream under "Vision/Frames/". Register with a RateGroupScheduler
+     * at dashboard rate.
+     */
+    public static void publishAllTelemetry() {
+        for (VisionFrameStream stream : all) {
+            stream.publishTelemetry();
+        }
+    }
+
+    /**
+     * @param cameraName NetworkTables name of the Limelight
+     * @param table The Limelight's table
+     * @param queueDepth Values of each topic kept between polls; extra values are dropped oldest first
+     * @param groupingSeconds Values published this close together belong to the same frame
+     * @param defaultBufferSize Buffer size for subscribers added with {@link #subscribe(Flow.Subscriber)}
+     */
+    private VisionFrameStream(String cameraName, NetworkTable table, int queueDepth, double groupingSeconds,
+            int defaultBufferSize) {
+        this.cameraName = cameraName;
+        this.keyPrefix = "Vision/Frames/" + cameraName + "/";
+        // Identical consecutive values are still separate frames, so keep duplicates
+        this.botPose = table.getDoubleArrayTopic("botpose_orb_wpiblue")
+            .subscribe(new double[0], PubSubOption.keepDuplicates(true), PubSubOption.pollStorage(queueDepth));
+        this.rawFiducials = table.getDoubleArrayTopic("rawfiducials")
+            .subscribe(new double[0], PubSubOption.keepDuplicates(true), PubSubOption.pollStorage(queueDepth));
+        this.rawDetections = table.getDoubleArrayTopic("rawdetections")
+            .subscribe(new double[0], PubSubOption.keepDuplicates(true), PubSubOption.pollStorage(queueDepth));
+        this.pipelineLatency = table.getDoubleTopic("tl").subscribe(0.0);
+        this.captureLatency = table.getDoubleTopic("cl").subscribe(0.0);
+        this.health = LimelightHealthMonitor.forCamera(cameraName);
+        this.groupingMicros = (long) (groupingSeconds * 1e6);
+        this.defaultBufferSize = defaultBufferSize;
+    }
+
+    /**
+     * Subscribes with the default buffer size.
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super VisionFrame> subscriber) {
+        subscribe(subscriber, defaultBufferSize);
+    }
+
+    /**
+     * Subscribes with a buffer of the given size for frames that arrive without demand.
+     *
+     * @param subscriber Receives frames on the main thread
+     * @param bufferSize Frames kept for this subscriber; 1 keeps only the latest
+     */
+    public void subscribe(Flow.Subscriber<? super VisionFrame> subscriber, int bufferSize) {
+        FrameSubscription subscription = new FrameSubscription(subscriber, bufferSize);
+        FrameSubscription[] grown = new FrameSubscription[subscriptions.length + 1];
+        System.arraycopy(subscriptions, 0, grown, 0, subscriptions.length);
+        grown[subscriptions.length] = subscription;
+        subscriptions = grown;
+        subscriber.onSubscribe(subscription);
+    }
+
+    private void removeSubscription(FrameSubscription subscription) {
+        int index = -1;
+        for (int i = 0; i < subscriptions.length; i++) {
+            if (subscriptions[i] == subscription) {
+                index = i;
+            }
+        }
+        if (index < 0) {
+            return;
+        }
+        FrameSubscription[] shrunk = new FrameSubscription[subscriptions.length - 1];
+        System.arraycopy(subscriptions, 0, shrunk, 0, index);
+        System.arraycopy(subscriptions, index + 1, shrunk, index, shrunk.length - index);
+        subscriptions = shrunk;
+    }
+
+    /**
+     * Reads every value the camera published since the previous poll and publishes the fresh frames,
+     * oldest first. {@link #pollAll()} calls this every loop; calling it again in the same loop only
+     * picks up values that arrived since.
+     *
+     * @return Number of frames received, including stale ones that were dropped
+     */
+    public int poll() {
+        TimestampedDoubleArray[] poses = botPose.readQueue();
+        TimestampedDoubleArray[] fiducials = rawFiducials.readQueue();
+        TimestampedDoubleArray[] detections = rawDetections.readQueue();
+        if (poses.length == 0 && fiducials.length == 0 && detections.length == 0) {
+            return 0;
+        }
+        // Latency topics update with every frame; using the latest values is accurate to within a frame
+        double latencySeconds = (pipelineLatency.get() + captureLatency.get()) / 1000.0;
+
+        int p = 0;
+        int f = 0;
+        int d = 0;
+        int received = 0;
+        while (p < poses.length || f < fiducials.length || d < detections.length) {
+            long first = Long.MAX_VALUE;
+            if (p < poses.length) {
+                first = Math.min(first, poses[p].timestamp);
+            }
+            if (f < fiducials.length) {
+                first = Math.min(first, fiducials[f].timestamp);
+            }
+            if (d < detections.length) {
+                first = Math.min(first, detections[d].timestamp);
+            }
+            long last = first + groupingMicros;
+
+            VisionFrame frame = acquire();
+            frame.receiveTimeSeconds = first / 1e6;
+            frame.captureTimeSeconds = frame.receiveTimeSeconds - latencySeconds;
+            if (p < poses.length && poses[p].timestamp <= last) {
+                frame.botPose = poses[p].value;
+                frame.hasBotPose = true;
+                // The pose carries its own frame's total latency
+                if (frame.botPose.length > kBotPoseLatencyIndex) {
+                    frame.captureTimeSeconds = poses[p].timestamp / 1e6 - frame.botPose[kBotPoseLatencyIndex] / 1000.0;
+                }
+                p++;
+            }
+            if (f < fiducials.length && fiducials[f].timestamp <= last) {
+                frame.rawFiducials = fiducials[f].value;
+                frame.hasRawFiducials = true;
+                f++;
+            }
+            if (d < detections.length && detections[d].timestamp <= last) {
+                frame.rawDetections = detections[d].value;
+                frame.hasRawDetections = true;
+                d++;
+            }
+            received++;
+
+            if (!health.isFresh(frame.captureTimeSeconds)) {
+                framesStale++;
+                recycle(frame);
+                continue;
+            }
+            frame.sequence = nextSequence++;
+            publish(frame);
+        }
+        framesReceived += received;
+        return received;
+    }
+
+    private void publish(VisionFrame frame) {
+        // The stream holds its own reference so a synchronous delivery cannot recycle the frame mid-publish
+        frame.references = 1;
+        for (FrameSubscription subscription : subscriptions) {
+            if (!subscription.cancelled) {
+                subscription.offer(frame);
+            }
+        }
+        release(frame);
+    }
+
+    private VisionFrame acquire() {
+        VisionFrame frame = pool.poll();
+        if (frame == null) {
+            frame = new VisionFrame();
+        }
+        frame.cameraName = cameraName;
+        return frame;
+    }
+
+    private void release(VisionFrame frame) {
+        if (--frame.references == 0) {
+            recycle(frame);
+        }
+    }
+
+    private void recycle(VisionFrame frame) {
+        frame.clear();
+        pool.add(frame);
+    }
+
+    /**
+     * Publishes this stream's frame counts under "Vision/Frames/" and the camera name.
+     */
+    public void publishTelemetry() {
+        long dropped = 0;
+        for (FrameSubscription subscription : subscriptions) {
+            dropped += subscription.dropped;
+        }
+        SmartDashboard.putNumber(keyPrefix + "Received", framesReceived);
+        SmartDashboard.putNumber(keyPrefix + "Stale", framesStale);
+        SmartDashboard.putNumber(keyPrefix + "Subscribers", subscriptions.length);
+        SmartDashboard.putNumber(keyPrefix + "Dropped", dropped);
+    }
+
+    public String getCameraName() {
+        return cameraName;
+    }
+
+    /** Frames received since construction, fresh or not */
+    public long getFramesReceived() {
+        return framesReceived;
+    }
+
+    /** Frames dropped since construction because the camera was disconnected or the frame too old */
+    public long getFramesStale() {
+        return framesStale;
+    }
+}
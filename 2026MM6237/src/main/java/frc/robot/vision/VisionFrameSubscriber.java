@@ -0,0 +1,104 @@
+package frc.robot.vision;
+
+import java.util.concurrent.Flow;
+
+import edu.wpi.first.wpilibj.DriverStation;
+
+/**
+ * Adapts a frame handler to a {@link VisionFrameStream} subscription.
+ *
+ * Subscribed with the default unbounded demand, the handler sees every frame as the stream publishes
+ * it. Subscribed with no initial demand, it only sees frames when {@link #requestLatest()} asks for
+ * one, which together with a one-frame buffer gives a latest-only pull for telemetry and other
+ * occasional readers.
+ */
+public class VisionFrameSubscriber implements Flow.Subscriber<VisionFrame> {
+    /**
+     * Receives one frame. The frame is only valid for the duration of the call.
+     */
+    @FunctionalInterface
+    public interface FrameHandler {
+        void accept(VisionFrame frame);
+    }
+
+    private final FrameHandler handler;
+    private final long initialDemand;
+    private Flow.Subscription subscription = null;
+    /* Frames requested and not yet delivered */
+    private long outstanding = 0;
+
+    /**
+     * Creates a subscriber that receives every frame.
+     */
+    public VisionFrameSubscriber(FrameHandler handler) {
+        this(handler, Long.MAX_VALUE);
+    }
+
+    /**
+     * @param handler Receives frames on the main thread
+     * @param initialDemand Frames requested on subscription; Long.MAX_VALUE for every frame, 0 to pull
+     */
+    public VisionFrameSubscriber(FrameHandler handler, long initialDemand) {
+        this.handler = handler;
+        this.initialDemand = initialDemand;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        if (this.subscription != null) {
+            // One handler, one stream
+            subscription.cancel();
+            return;
+        }
+        this.subscription = subscription;
+        if (initialDemand > 0) {
+            request(initialDemand);
+        }
+    }
+
+    @Override
+    public void onNext(VisionFrame frame) {
+        if (outstanding != Long.MAX_VALUE) {
+            outstanding--;
+        }
+        handler.accept(frame);
+    }
+
+    @Override
+    public void onError(Throwable error) {
+        DriverStation.reportError("Vision frame subscription failed: " + error, error.getStackTrace());
+    }
+
+    @Override
+    public void onComplete() {}
+
+    /**
+     * Requests more frames. Buffered frames are delivered before this returns.
+     */
+    public void request(long frames) {
+        if (subscription == null) {
+            return;
+        }
+        outstanding = outstanding + frames < 0 ? Long.MAX_VALUE : outstanding + frames;
+        subscription.request(frames);
+    }
+
+    /**
+     * Requests the newest buffered frame, unless a request is still waiting for a frame to arrive.
+     * With a one-frame buffer, the handler then sees the latest frame at most once per call.
+     */
+    public void requestLatest() {
+        if (outstanding == 0) {
+            request(1);
+        }
+    }
+
+    /**
+     * Stops delivery and releases any buffered frames.
+     */
+    public void cancel() {
+        if (subscription != null) {
+            subscription.cancel();
+        }
+    }
+}
@@ -0,0 +1,433 @@
+package frc.robot.vision;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N3;
+import edu.wpi.first.networktables.DoubleArrayPublisher;
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.PubSubOption;
+import edu.wpi.first.networktables.StringPublisher;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import frc.robot.Constants.VisionLoadTestConstants;
+import frc.robot.subsystems.LimelightSubsystem;
+import frc.robot.subsystems.VisionFusionSubsystem;
+import frc.robot.util.BackgroundWorkers;
+
+/**
+ * Measures how many cameras, frame rates and tags per frame the robot's vision consumers can keep up
+ * with, by driving them with synthetic Limelight frames over NetworkTables.
+ *
+ * Each synthetic camera is a thread that publishes MegaTag2 poses, raw fiducials and a JSON dump at a
+ * fixed rate through its own NetworkTables client connected to the simulator's server, so frames
+ * cross the same NT4 transport a real Limelight's do. On the robot loop, every camera gets a
+ * {@link LimelightSubsystem} (JSON parsed on the background workers) and a {@link VisionPoseFuser}
+ * whose measurements go on to the drivetrain. When the run ends, the publishers stop, in-flight frames
+ * are given time to arrive, and a report of sustained frames/s, dropped frames, publish-to-consume
+ * latency percentiles and consumer loop time is printed and published under "VisionLoadTest/".
+ *
+ * Latency runs from the moment a frame is published to the moment its measurement reaches the
+ * drivetrain; it is recovered from the fused capture timestamp, which is the publish time minus the
+ * latency written into the frame.
+ */
+public class VisionLoadTest {
+    /* Values per tag in botpose arrays and rawfiducials */
+    private static final int kValuesPerTag = 7;
+    private static final int kBotPoseHeaderLength = 11;
+    private static final double kConnectTimeoutSeconds = 5.0;
+    private static final int kMaxLatencySamples = 1 << 20;
+    // Heading sent to the cameras and written into every frame; turn rate is always zero
+    private static final double kRobotYawDegrees = 0;
+
+    /**
+     * Size of the simulated load.
+     */
+    public static final class Settings {
+        public int cameras = VisionLoadTestConstants.kDefaultCameras;
+        public double framesPerSecond = VisionLoadTestConstants.kDefaultFramesPerSecond;
+        public int tagsPerFrame = VisionLoadTestConstants.kDefaultTagsPerFrame;
+        public double durationSeconds = VisionLoadTestConstants.kDefaultDurationSeconds;
+
+        /**
+         * Parses comma-separated key=value pairs, for example "cameras=4,fps=50,tags=8,seconds=20".
+         * Keys left out keep their defaults.
+         *
+         * @throws IllegalArgumentException if a key is unknown or a value is not a positive number
+         */
+        public static Settings parse(String spec) {
+            Settings settings = new Settings();
+            for (String pair : spec.split(",")) {
+                if (pair.isBlank()) {
+                    continue;
+                }
+                String[] parts = pair.split("=", 2);
+                if (parts.length != 2) {
+                    throw new IllegalArgumentException("Expected key=value, got '" + pair + "'");
+                }
+                String key = parts[0].trim();
+                double value = Double.parseDouble(parts[1].trim());
+                if (!(value > 0)) {
+                    throw new IllegalArgumentException("Load test setting " + key + " must be positive");
+                }
+                switch (key) {
+                    case "cameras" -> settings.cameras = (int) value;
+                    case "fps" -> settings.framesPerSecond = value;
+                    case "tags" -> settings.tagsPerFrame = (int) value;
+                    case "seconds" -> settings.durationSeconds = value;
+                    default -> throw new IllegalArgumentException("Unknown load test setting '" + key + "'");
+                }
+            }
+            return settings;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d cameras at %.0f fps, %d tags per frame, %.0f s", cameras, framesPerSecond,
+                tagsPerFrame, durationSeconds);
+        }
+    }
+
+    private enum State { CONNECTING, RUNNING, DRAINING, FINISHED }
+
+    /**
+     * One synthetic Limelight: a publisher thread and the robot-side consumers reading it.
+     */
+    private final class Camera implements Runnable {
+        final String name;
+        final int index;
+        final Thread thread;
+        final AtomicLong published = new AtomicLong();
+
+        final DoubleArrayPublisher botPoseOrb;
+        final DoubleArrayPublisher rawFiducials;
+        final DoublePublisher heartbeat;
+        final DoublePublisher pipelineLatency;
+        final DoublePublisher captureLatency;
+        final StringPublisher json;
+
+        final LimelightSubsystem limelight;
+        final VisionPoseFuser fuser;
+        LimelightResultsView lastResults;
+        long jsonResults = 0;
+
+        Camera(int index) {
+            this.index = index;
+            this.name = "limelight-load-" + (index + 1);
+            this.thread = new Thread(this, "Vision load " + (index + 1));
+            this.thread.setDaemon(true);
+
+            NetworkTable table = client.getTable(name);
+            // Send every frame rather than only the latest value at each network update
+            this.botPoseOrb = table.getDoubleArrayTopic("botpose_orb_wpiblue").publish(PubSubOption.sendAll(true));
+            this.rawFiducials = table.getDoubleArrayTopic("rawfiducials").publish(PubSubOption.sendAll(true));
+            this.heartbeat = table.getDoubleTopic("hb").publish();
+            this.pipelineLatency = table.getDoubleTopic("tl").publish();
+            this.captureLatency = table.getDoubleTopic("cl").publish();
+            this.json = table.getStringTopic("json").publish();
+
+            this.limelight = new LimelightSubsystem(name, workers);
+            this.fuser = VisionFusionSubsystem.createFuser(name, measurementSink);
+            this.lastResults = limelight.getLatestResults();
+        }
+
+        @Override
+        public void run() {
+            long periodNanos = (long) (1e9 / settings.framesPerSecond);
+            int tags = settings.tagsPerFrame;
+            double[] pose = new double[kBotPoseHeaderLength + kValuesPerTag * tags];
+            double[] fiducials = new double[kValuesPerTag * tags];
+            StringBuilder dump = new StringBuilder();
+            double latencyMillis = VisionLoadTestConstants.kSyntheticLatencyMillis;
+            pipelineLatency.set(latencyMillis / 2.0);
+            captureLatency.set(latencyMillis / 2.0);
+
+            long next = System.nanoTime();
+            long frame = 0;
+            while (running) {
+                fillFrame(frame, pose, fiducials, latencyMillis);
+                rawFiducials.set(fiducials);
+                json.set(buildJson(dump, pose, fiducials, latencyMillis));
+                heartbeat.set(frame);
+                // Published last so a consumer that sees the pose also sees the rest of the frame
+                botPoseOrb.set(pose);
+                client.flush();
+                published.incrementAndGet();
+                frame++;
+
+                next += periodNanos;
+                long wait = next - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                } else if (wait < -periodNanos) {
+                    // Fell more than a frame behind; publish at the achievable rate instead of bursting
+                    next = System.nanoTime();
+                }
+            }
+        }
+
+        /**
+         * Runs this camera's consumers for one loop.
+         */
+        void consume() {
+            // Robot polls every stream before the scheduler; this picks up frames that arrived since
+            limelight.getFrames().poll();
+            limelight.periodic();
+            LimelightResultsView results = limelight.getLatestResults();
+            if (results != lastResults) {
+                lastResults = results;
+                jsonResults++;
+            }
+            fuser.update(kRobotYawDegrees, 0);
+        }
+
+        /** Robot circling the middle of the field; each camera sees its own spread of tags */
+        private void fillFrame(long frame, double[] pose, double[] fiducials, double latencyMillis) {
+            double angle = frame * 0.01 + index;
+            int tags = settings.tagsPerFrame;
+            pose[0] = 8.27 + 2.0 * Math.cos(angle);
+            pose[1] = 4.1 + 2.0 * Math.sin(angle);
+            pose[5] = kRobotYawDegrees;
+            pose[6] = latencyMillis;
+            pose[7] = tags;
+            pose[8] = 1.0;
+            pose[9] = 2.5;
+            pose[10] = 0.5;
+            for (int n = 0; n < tags; n++) {
+                int offset = n * kValuesPerTag;
+                fiducials[offset] = 1 + (index * tags + n) % 22;
+                fiducials[offset + 1] = -20.0 + 40.0 * n / Math.max(1, tags - 1);
+                fiducials[offset + 2] = 5.0;
+                fiducials[offset + 3] = 0.5;
+                fiducials[offset + 4] = 2.5;
+                fiducials[offset + 5] = 2.6;
+                fiducials[offset + 6] = 0.1;
+            }
+            System.arraycopy(fiducials, 0, pose, kBotPoseHeaderLength, fiducials.length);
+        }
+    }
+
+    private final Settings settings;
+    private final BackgroundWorkers workers;
+    private final VisionPoseFuser.MeasurementConsumer downstream;
+    private final VisionPoseFuser.MeasurementConsumer measurementSink = this::recordMeasurement;
+    private final NetworkTableInstance client;
+    private final Camera[] cameras;
+
+    private volatile boolean running = false;
+    private State state = State.CONNECTING;
+    private double stateStartSeconds;
+    private double runSeconds = 0;
+    private long framesAtStop = 0;
+
+    /* Publish-to-consume latency per fused frame, in milliseconds */
+    private final double[] latencies = new double[kMaxLatencySamples];
+    private int latencyCount = 0;
+    private long loops = 0;
+    private long totalLoopNanos = 0;
+    private long maxLoopNanos = 0;
+
+    /**
+     * @param settings Load to generate
+     * @param workers Background workers the Limelight subsystems parse JSON on
+     * @param downstream Receives every fused measurement, typically drivetrain::addVisionMeasurement
+     */
+    public VisionLoadTest(Settings settings, BackgroundWorkers workers, VisionPoseFuser.MeasurementConsumer downstream) {
+        this.settings = settings;
+        this.workers = workers;
+        this.downstream = downstream;
+
+        this.client = NetworkTableInstance.create();
+        client.setServer("localhost", NetworkTableInstance.kDefaultPort4);
+        client.startClient4("vision-load-test");
+
+        this.cameras = new Camera[settings.cameras];
+        for (int i = 0; i < cameras.length; i++) {
+            cameras[i] = new Camera(i);
+        }
+        this.stateStartSeconds = Timer.getFPGATimestamp();
+    }
+
+    /**
+     * Creates a load test from the environment variable named in {@link VisionLoadTestConstants}.
+     *
+     * @return The load test, or null if the variable is not set or cannot be parsed
+     */
+    public static VisionLoadTest fromEnvironment(BackgroundWorkers workers, VisionPoseFuser.MeasurementConsumer downstream) {
+        String spec = System.getenv(VisionLoadTestConstants.kEnvironmentVariable);
+        if (spec == null) {
+            return null;
+        }
+        try {
+            return new VisionLoadTest(Settings.parse(spec), workers, downstream);
+        } catch (IllegalArgumentException ex) {
+            DriverStation.reportError("Vision load test not started: " + ex.getMessage(), false);
+            return null;
+        }
+    }
+
+    /**
+     * Runs the vision consumers for one loop and advances the test. Call once per simulation loop,
+     * after the background workers have been drained.
+     */
+    public void runCycle() {
+        double now = Timer.getFPGATimestamp();
+        double elapsed = now - stateStartSeconds;
+        switch (state) {
+            case CONNECTING:
+                if (client.isConnected()) {
+                    running = true;
+                    for (Camera camera : cameras) {
+                        camera.thread.start();
+                    }
+                    enter(State.RUNNING, now);
+                } else if (elapsed > kConnectTimeoutSeconds) {
+                    DriverStation.reportError("Vision load test could not connect to the local NetworkTables server", false);
+                    finish(now);
+                }
+                return;
+            case RUNNING:
+                if (elapsed >= settings.durationSeconds) {
+                    running = false;
+                    runSeconds = elapsed;
+                    framesAtStop = totalReceived();
+                    enter(State.DRAINING, now);
+                }
+                break;
+            case DRAINING:
+                if (elapsed >= VisionLoadTestConstants.kDrainSeconds) {
+                    report();
+                    finish(now);
+                    return;
+                }
+                break;
+            case FINISHED:
+                return;
+        }
+
+        long start = System.nanoTime();
+        for (Camera camera : cameras) {
+            camera.consume();
+        }
+        long loopNanos = System.nanoTime() - start;
+        loops++;
+        totalLoopNanos += loopNanos;
+        maxLoopNanos = Math.max(maxLoopNanos, loopNanos);
+    }
+
+    public boolean isFinished() {
+        return state == State.FINISHED;
+    }
+
+    private void enter(State next, double now) {
+        state = next;
+        stateStartSeconds = now;
+    }
+
+    private void finish(double now) {
+        running = false;
+        client.close();
+        enter(State.FINISHED, now);
+    }
+
+    private void recordMeasurement(Pose2d pose, double timestampSeconds, Matrix<N3, N1> stdDevs) {
+        double publishSeconds = timestampSeconds + VisionLoadTestConstants.kSyntheticLatencyMillis / 1000.0;
+        if (latencyCount < latencies.length) {
+            latencies[latencyCount++] = (Timer.getFPGATimestamp() - publishSeconds) * 1000.0;
+        }
+        downstream.accept(pose, timestampSeconds, stdDevs);
+    }
+
+    private long totalReceived() {
+        long received = 0;
+        for (Camera camera : cameras) {
+            received += camera.fuser.getFramesReceived();
+        }
+        return received;
+    }
+
+    private void report() {
+        long published = 0;
+        long jsonResults = 0;
+        for (Camera camera : cameras) {
+            published += camera.published.get();
+            jsonResults += camera.jsonResults;
+        }
+        long received = totalReceived();
+        long dropped = Math.max(0, published - received);
+        double framesPerSecond = runSeconds > 0 ? framesAtStop / runSeconds : 0;
+        double requestedPerSecond = settings.cameras * settings.framesPerSecond;
+
+        Arrays.sort(latencies, 0, latencyCount);
+        double p50 = percentile(0.50);
+        double p95 = percentile(0.95);
+        double p99 = percentile(0.99);
+        double max = latencyCount > 0 ? latencies[latencyCount - 1] : 0;
+        double meanLoopMillis = loops > 0 ? totalLoopNanos / 1e6 / loops : 0;
+        double maxLoopMillis = maxLoopNanos / 1e6;
+
+        StringBuilder report = new StringBuilder("********** Vision load test **********\n");
+        report.append(settings).append('\n');
+        report.append(String.format("Frames: %d published, %d received, %d dropped (%.2f%%)%n", published, received,
+            dropped, published > 0 ? 100.0 * dropped / published : 0));
+        report.append(String.format("Sustained: %.1f frames/s of %.1f requested%n", framesPerSecond, requestedPerSecond));
+        report.append(String.format("Latency ms: p50 %.2f, p95 %.2f, p99 %.2f, max %.2f%n", p50, p95, p99, max));
+        report.append(String.format("Consumer loop ms: mean %.3f, max %.3f over %d loops%n", meanLoopMillis, maxLoopMillis, loops));
+        report.append(String.format("JSON results parsed: %d (%.1f/s), worker rejections: %d%n", jsonResults,
+            runSeconds > 0 ? jsonResults / runSeconds : 0, workers.getRejectedCount()));
+        System.out.print(report);
+
+        SmartDashboard.putNumber("VisionLoadTest/Published", published);
+        SmartDashboard.putNumber("VisionLoadTest/Received", received);
+        SmartDashboard.putNumber("VisionLoadTest/Dropped", dropped);
+        SmartDashboard.putNumber("VisionLoadTest/Frames per s", framesPerSecond);
+        SmartDashboard.putNumber("VisionLoadTest/Latency p50 ms", p50);
+        SmartDashboard.putNumber("VisionLoadTest/Latency p95 ms", p95);
+        SmartDashboard.putNumber("VisionLoadTest/Latency p99 ms", p99);
+        SmartDashboard.putNumber("VisionLoadTest/Latency max ms", max);
+        SmartDashboard.putNumber("VisionLoadTest/Mean loop ms", meanLoopMillis);
+        SmartDashboard.putNumber("VisionLoadTest/Max loop ms", maxLoopMillis);
+    }
+
+    private double percentile(double fraction) {
+        if (latencyCount == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(fraction * latencyCount) - 1;
+        return latencies[Math.max(0, Math.min(latencyCount - 1, index))];
+    }
+
+    private static String buildJson(StringBuilder json, double[] pose, double[] fiducials, double latencyMillis) {
+        json.setLength(0);
+        json.append("{\"pID\":0,\"tl\":").append(latencyMillis / 2.0)
+            .append(",\"cl\":").append(latencyMillis / 2.0)
+            .append(",\"v\":1,\"botpose_wpiblue\":[").append(pose[0]).append(',').append(pose[1])
+            .append(",0,0,0,").append(pose[5]).append(']')
+            .append(",\"botpose_tagcount\":").append(pose[7])
+            .append(",\"botpose_avgdist\":").append(pose[9])
+            .append(",\"Fiducial\":[");
+        for (int offset = 0; offset < fiducials.length; offset += kValuesPerTag) {
+            if (offset > 0) {
+                json.append(',');
+            }
+            json.append("{\"fID\":").append((int) fiducials[offset]).append(",\"fam\":\"36H11\"")
+                .append(",\"t6c_ts\":[0,0,0,0,0,0],\"t6r_fs\":[").append(pose[0]).append(',').append(pose[1])
+                .append(",0,0,0,").append(pose[5]).append("],\"t6r_ts\":[0,0,").append(fiducials[offset + 5])
+                .append(",0,0,0],\"t6t_cs\":[0,0,").append(fiducials[offset + 4])
+                .append(",0,0,0],\"t6t_rs\":[0,0,").append(fiducials[offset + 5])
+                .append(",0,0,0],\"ta\":").append(fiducials[offset + 3])
+                .append(",\"tx\":").append(fiducials[offset + 1])
+                .append(",\"ty\":").append(fiducials[offset + 2])
+                .append('}');
+        }
+        json.append("],\"Retro\":[],\"Classifier\":[],\"Detector\":[],\"Barcode\":[]}");
+        return json.toString();
+    }
+}
@@ -0,0 +1,217 @@
+package frc.robot.vision;
+
+import java.util.Arrays;
+
+import edu.wpi.first.util.datalog.DoubleArrayLogEntry;
+import edu.wpi.first.wpilibj.DataLogManager;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+
+/**
+ * Standard deviations for one camera's vision poses, learned from how far each tag's poses land from
+ * the pose estimate.
+ *
+ * The prior matches the old fixed rule: XY standard deviation grows with the square of the tag's
+ * distance. Each tag ID and distance band keeps a variance scale, starting at 1, that multiplies the
+ * prior. Every fused frame compares its pose with the estimator's pose at the capture time; the squared
+ * residual over the predicted variance updates the scale of every tag in the frame, so tags whose poses
+ * keep landing close tighten and noisy ones loosen. A frame's tags combine like independent
+ * measurements, and a tag's pose ambiguity widens its share. The residual also carries the estimator's
+ * own error, which keeps the learned scales on the conservative side.
+ *
+ * Scales are exponentially weighted over the last memorySamples updates and blended with the prior by
+ * priorWeight, so a tag seen a few times stays near the prior. Every update is written to the match
+ * log under "Vision/NoiseModel/<camera>/Samples" as [tagId, distance, ambiguity, tagCount, residualX,
+ * residualY, predictedStdDev], and the scale table under ".../Scales", for fitting the constants
+ * offline. All state is in fixed primitive arrays. Main thread only.
+ */
+public class VisionNoiseModel {
+    /* Values per tag in rawfiducials: id, txnc, tync, ta, distToCamera, distToRobot, ambiguity */
+    private static final int kValuesPerRawFiducial = 7;
+    private static final int kDistanceIndex = 4;
+    private static final int kAmbiguityIndex = 6;
+
+    private final String keyPrefix;
+    private final int maxTagId;
+    private final int bands;
+    private final double bandWidthMeters;
+    private final double baseStdDevMeters;
+    private final double priorWeight;
+    private final double memorySamples;
+    private final double minScale;
+    private final double maxScale;
+    private final double ambiguityGain;
+    private final double maxResidualMeters;
+
+    /* Per tag ID and band, at [tagId * bands + band]: effective sample count and mean normalized squared residual */
+    private final double[] weights;
+    private final double[] meanSquaredResiduals;
+    /* Learned variance scale per cell, kept current so it can be logged as is */
+    private final double[] scales;
+
+    private final DoubleArrayLogEntry sampleLog;
+    private final DoubleArrayLogEntry scaleLog;
+    private final double[] sample = new double[7];
+
+    /* Counters since construction */
+    private long updates = 0;
+    private long gated = 0;
+    /* Mean normalized squared residual over all updates; near 1 when the model is calibrated */
+    private double meanNormalizedSquared = 0;
+
+    /**
+     * @param cameraName Camera the model learns, used in log and dashboard names
+     * @param maxTagId Highest fiducial ID on the field
+     * @param bands Distance bands per tag; the last one covers everything beyond
+     * @param bandWidthMeters Width of each distance band
+     * @param baseStdDevMeters XY standard deviation of one tag at 1 m before any learning
+     * @param priorWeight Samples' worth of weight given to the prior scale of 1
+     * @param memorySamples Effective number of recent samples each scale averages over
+     * @param minScale Smallest variance scale a tag can learn
+     * @param maxScale Largest variance scale a tag can learn
+     * @param ambiguityGain A tag's standard deviation is multiplied by 1 + gain * ambiguity
+     * @param maxResidualMeters Frames farther than this from the estimate do not update the model
+     */
+    public VisionNoiseModel(String cameraName, int maxTagId, int bands, double bandWidthMeters, double baseStdDevMeters,
+            double priorWeight, double memorySamples, double minScale, double maxScale, double ambiguityGain,
+            double maxResidualMeters) {
+        this.keyPrefix = "Vision/NoiseModel/" + cameraName + "/";
+        this.maxTagId = maxTagId;
+        this.bands = bands;
+        this.bandWidthMeters = bandWidthMeters;
+        this.baseStdDevMeters = baseStdDevMeters;
+        this.priorWeight = priorWeight;
+        this.memorySamples = memorySamples;
+        this.minScale = minScale;
+        this.maxScale = maxScale;
+        this.ambiguityGain = ambiguityGain;
+        this.maxResidualMeters = maxResidualMeters;
+
+        int cells = (maxTagId + 1) * bands;
+        this.weights = new double[cells];
+        this.meanSquaredResiduals = new double[cells];
+        this.scales = new double[cells];
+        Arrays.fill(scales, 1.0);
+
+        this.sampleLog = new DoubleArrayLogEntry(DataLogManager.getLog(), keyPrefix + "Samples");
+        this.scaleLog = new DoubleArrayLogEntry(DataLogManager.getLog(), keyPrefix + "Scales");
+    }
+
+    /* Cell of a tag at a distance, or -1 for IDs out of range */
+    private int cell(double tagId, double distanceMeters) {
+        int id = (int) tagId;
+        if (id < 0 || id > maxTagId) {
+            return -1;
+        }
+        int band = Math.min(bands - 1, Math.max(0, (int) (distanceMeters / bandWidthMeters)));
+        return id * bands + band;
+    }
+
+    /* Variance of one tag's contribution: prior at its distance, times its learned scale and ambiguity */
+    private double tagVariance(double[] rawFiducials, int base) {
+        double distance = rawFiducials[base + kDistanceIndex];
+        double stdDev = baseStdDevMeters * Math.max(1.0, distance * distance)
+            * (1.0 + ambiguityGain * rawFiducials[base + kAmbiguityIndex]);
+        int c = cell(rawFiducials[base], distance);
+        return stdDev * stdDev * (c >= 0 ? scales[c] : maxScale);
+    }
+
+    /**
+     * Predicts the XY standard deviation of a frame's pose from the tags it saw.
+     *
+     * @param rawFiducials Fiducials in the Limelight rawfiducials layout, as in rawfiducials or the
+     *     per-tag part of a botpose array
+     * @param offset Index of the first fiducial
+     * @return Standard deviation in meters, or NaN if the frame has no tags
+     */
+    public double predictStdDev(double[] rawFiducials, int offset) {
+        double information = 0;
+        for (int base = offset; base + kValuesPerRawFiducial <= rawFiducials.length; base += kValuesPerRawFiducial) {
+            information += 1.0 / tagVariance(rawFiducials, base);
+        }
+        return information > 0 ? Math.sqrt(1.0 / information) : Double.NaN;
+    }
+
+    /**
+     * Standard deviation the prior gives a frame, for poses that do not list their tags.
+     *
+     * @param averageDistanceMeters Average distance to the frame's tags
+     * @param tagCount Tags in the frame
+     */
+    public double getPriorStdDev(double averageDistanceMeters, int tagCount) {
+        return baseStdDevMeters * Math.max(1.0, averageDistanceMeters * averageDistanceMeters) / Math.sqrt(Math.max(1, tagCount));
+    }
+
+    /**
+     * Learns from one fused frame.
+     *
+     * @param rawFiducials Fiducials the frame's pose was solved from
+     * @param offset Index of the first fiducial
+     * @param residualX Vision X minus the estimated X at capture time
+     * @param residualY Vision Y minus the estimated Y at capture time
+     * @param predictedStdDev What {@link #predictStdDev} returned for the frame
+     */
+    public void update(double[] rawFiducials, int offset, double residualX, double residualY, double predictedStdDev) {
+        double squaredResidual = residualX * residualX + residualY * residualY;
+        if (!(predictedStdDev > 0) || squaredResidual > maxResidualMeters * maxResidualMeters) {
+            // A jump this large is a bad estimate or a bad frame; it would teach the model nothing useful
+            gated++;
+            return;
+        }
+        // Normalized per axis, so a calibrated model averages 1
+        double normalized = squaredResidual / (2.0 * predictedStdDev * predictedStdDev);
+        updates++;
+        meanNormalizedSquared += (normalized - meanNormalizedSquared) / updates;
+
+        int tagCount = (rawFiducials.length - offset) / kValuesPerRawFiducial;
+        sample[3] = tagCount;
+        sample[4] = residualX;
+        sample[5] = residualY;
+        sample[6] = predictedStdDev;
+        for (int base = offset; base + kValuesPerRawFiducial <= rawFiducials.length; base += kValuesPerRawFiducial) {
+            double distance = rawFiducials[base + kDistanceIndex];
+            int c = cell(rawFiducials[base], distance);
+            if (c >= 0) {
+                // Normalized residual of the frame in units of this tag's current scale
+                double tagNormalized = normalized * scales[c];
+                double weight = Math.min(weights[c] + 1.0, memorySamples);
+                weights[c] = weight;
+                meanSquaredResiduals[c] += (tagNormalized - meanSquaredResiduals[c]) / weight;
+                double scale = (priorWeight + weight * meanSquaredResiduals[c]) / (priorWeight + weight);
+                scales[c] = Math.max(minScale, Math.min(maxScale, scale));
+            }
+            sample[0] = rawFiducials[base];
+            sample[1] = distance;
+            sample[2] = rawFiducials[base + kAmbiguityIndex];
+            sampleLog.append(sample);
+        }
+    }
+
+    /**
+     * Learned variance scale of a tag at a distance; 1 is the prior.
+     */
+    public double getScale(int tagId, double distanceMeters) {
+        int c = cell(tagId, distanceMeters);
+        return c >= 0 ? scales[c] : maxScale;
+    }
+
+    /** Frames the model learned from since construction */
+    public long getUpdates() {
+        return updates;
+    }
+
+    /** Frames too far from the estimate to learn from since construction */
+    public long getGated() {
+        return gated;
+    }
+
+    /**
+     * Publishes update counts and calibration to SmartDashboard and writes the scale table to the log.
+     * Register with a RateGroupScheduler at health rate.
+     */
+    public void publishTelemetry() {
+        SmartDashboard.putNumber(keyPrefix + "Updates", updates);
+        SmartDashboard.putNumber(keyPrefix + "Gated", gated);
+        SmartDashboard.putNumber(keyPrefix + "Mean Normalized Residual", meanNormalizedSquared);
+        scaleLog.append(scales);
+    }
+}
@@ -0,0 +1,190 @@
+package frc.robot.vision;
+
+import java.util.Optional;
+
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.VecBuilder;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N3;
+
+/**
+ * Turns every MegaTag2 pose a Limelight publishes into a vision measurement for the drivetrain's pose
+ * estimator.
+ *
+ * Each update sends the robot's heading to the camera, which MegaTag2 needs to solve the pose. Frames
+ * arrive from the camera's {@link VisionFrameStream}, which hands over each one exactly once, so none
+ * are missed or counted twice when frames arrive faster than the loop runs, and only frames its
+ * {@link LimelightHealthMonitor} considers fresh are delivered. Frames without tags, or taken while
+ * the robot spins too fast for the sent heading to match the capture, are rejected. XY trust comes
+ * from the camera's {@link VisionNoiseModel}, which learns from each accepted frame how far its tags'
+ * poses land from the estimate at capture time; heading comes from the gyro, so vision heading is given
+ * effectively no weight.
+ */
+public class VisionPoseFuser {
+    /**
+     * Receives one accepted measurement. Matches the drivetrain's addVisionMeasurement.
+     */
+    @FunctionalInterface
+    public interface MeasurementConsumer {
+        /**
+         * @param pose Robot pose on the blue-origin field
+         * @param timestampSeconds FPGA time the frame was captured
+         * @param stdDevs X, Y (meters) and heading (radians) standard deviations; reused between calls
+         */
+        void accept(Pose2d pose, double timestampSeconds, Matrix<N3, N1> stdDevs);
+    }
+
+    /**
+     * Looks up the pose estimate at a past time. Matches the drivetrain's samplePoseAt, on the FPGA clock.
+     */
+    @FunctionalInterface
+    public interface PoseSampler {
+        /**
+         * @param timestampSeconds FPGA time
+         * @return Estimated robot pose then, or empty if the estimator has no history that old
+         */
+        Optional<Pose2d> sample(double timestampSeconds);
+    }
+
+    /* Indices into the botpose array header */
+    private static final int kYawIndex = 5;
+    private static final int kTagCountIndex = 7;
+    private static final int kAverageDistanceIndex = 9;
+    private static final int kHeaderLength = 11;
+    private static final int kValuesPerTag = 7;
+
+    private final String cameraName;
+    private final MeasurementConsumer consumer;
+    private final PoseSampler estimate;
+    private final VisionNoiseModel noiseModel;
+    private final VisionFrameStream frames;
+    private final LimelightWriteManager writer;
+    private final Matrix<N3, N1> stdDevs = VecBuilder.fill(0, 0, 0);
+
+    private final double maxYawRateDegreesPerSecond;
+    private final double maxTagDistanceMeters;
+    private final double headingStdDev;
+
+    private double lastYawRateDegreesPerSecond = 0;
+
+    /* Counters since construction */
+    private long framesReceived = 0;
+    private long framesAccepted = 0;
+    private long framesWithoutTags = 0;
+    private long framesRejected = 0;
+    private long receivedAtLastUpdate = 0;
+
+    /**
+     * @param cameraName NetworkTables name of the Limelight
+     * @param consumer Receives accepted measurements, typically drivetrain::addVisionMeasurement
+     * @param estimate Pose estimate history the noise model compares frames with
+     * @param noiseModel Gives and learns the XY standard deviation of each frame
+     * @param maxYawRateDegreesPerSecond Frames taken while turning faster than this are rejected
+     * @param maxTagDistanceMeters Frames whose average tag distance is beyond this are rejected
+     * @param headingStdDev Heading standard deviation in radians
+     */
+    public VisionPoseFuser(String cameraName, MeasurementConsumer consumer, PoseSampler estimate,
+            VisionNoiseModel noiseModel, double maxYawRateDegreesPerSecond, double maxTagDistanceMeters,
+            double headingStdDev) {
+        this.cameraName = cameraName;
+        this.consumer = consumer;
+        this.estimate = estimate;
+        this.noiseModel = noiseModel;
+        this.maxYawRateDegreesPerSecond = maxYawRateDegreesPerSecond;
+        this.maxTagDistanceMeters = maxTagDistanceMeters;
+        this.headingStdDev = headingStdDev;
+        this.writer = LimelightWriteManager.forCamera(cameraName);
+        this.frames = VisionFrameStream.forCamera(cameraName);
+        frames.subscribe(new VisionFrameSubscriber(this::addFrame));
+    }
+
+    /**
+     * Sends the robot heading to the camera. Call once per loop; the heading's turn rate also gates
+     * the frames delivered until the next call.
+     *
+     * @param yawDegrees Robot heading on the blue-origin field
+     * @param yawRateDegreesPerSecond Robot turn rate
+     * @return Number of frames received since the previous call
+     */
+    public int update(double yawDegrees, double yawRateDegreesPerSecond) {
+        // Flushed with the loop's other camera writes, so the camera has it for its next frame
+        writer.setRobotOrientation(yawDegrees, yawRateDegreesPerSecond);
+        lastYawRateDegreesPerSecond = yawRateDegreesPerSecond;
+
+        int received = (int) (framesReceived - receivedAtLastUpdate);
+        receivedAtLastUpdate = framesReceived;
+        return received;
+    }
+
+    private void addFrame(VisionFrame frame) {
+        if (!frame.hasBotPose()) {
+            return;
+        }
+        framesReceived++;
+        double[] pose = frame.getBotPose();
+        if (pose.length < kHeaderLength || pose[kTagCountIndex] < 1) {
+            framesWithoutTags++;
+            return;
+        }
+        double tagCount = pose[kTagCountIndex];
+        double averageDistance = pose[kAverageDistanceIndex];
+        if (Math.abs(lastYawRateDegreesPerSecond) > maxYawRateDegreesPerSecond || averageDistance > maxTagDistanceMeters) {
+            framesRejected++;
+            return;
+        }
+
+        // The pose lists each tag after the header in the rawfiducials layout
+        boolean listsTags = pose.length >= kHeaderLength + kValuesPerTag;
+        double xyStdDev = listsTags
+            ? noiseModel.predictStdDev(pose, kHeaderLength)
+            : noiseModel.getPriorStdDev(averageDistance, (int) tagCount);
+        if (listsTags) {
+            // Compared before this frame corrects the estimate
+            Optional<Pose2d> estimated = estimate.sample(frame.getCaptureTimeSeconds());
+            if (estimated.isPresent()) {
+                noiseModel.update(pose, kHeaderLength, pose[0] - estimated.get().getX(), pose[1] - estimated.get().getY(),
+                    xyStdDev);
+            }
+        }
+        stdDevs.set(0, 0, xyStdDev);
+        stdDevs.set(1, 0, xyStdDev);
+        stdDevs.set(2, 0, headingStdDev);
+        framesAccepted++;
+        consumer.accept(new Pose2d(pose[0], pose[1], Rotation2d.fromDegrees(pose[kYawIndex])), frame.getCaptureTimeSeconds(), stdDevs);
+    }
+
+    public String getCameraName() {
+        return cameraName;
+    }
+
+    public VisionNoiseModel getNoiseModel() {
+        return noiseModel;
+    }
+
+    /** Frames received since construction, whether or not they were fused */
+    public long getFramesReceived() {
+        return framesReceived;
+    }
+
+    /** Frames passed to the consumer since construction */
+    public long getFramesAccepted() {
+        return framesAccepted;
+    }
+
+    /** Frames with no tags in view since construction */
+    public long getFramesWithoutTags() {
+        return framesWithoutTags;
+    }
+
+    /** Frames with tags that failed the turn rate or distance checks since construction */
+    public long getFramesRejected() {
+        return framesRejected;
+    }
+
+    /** Frames the camera's stream dropped since startup because the camera was disconnected or the frame too old */
+    public long getFramesStale() {
+        return frames.getFramesStale();
+    }
+}
@@ -0,0 +1,117 @@
+package frc.robot.navigation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import frc.robot.vision.CameraConfig;
+import frc.robot.vision.GroundProjection;
+
+/**
+ * Checks that a layer matching a navgrid drops detections that project into or against one of its
+ * obstacles.
+ */
+class DynamicOccupancyLayerTest {
+    private static final int kRows = 20;
+    private static final int kCols = 20;
+    private static final double kNodeSize = 0.5;
+    private static final double kRobotX = 2.0;
+    /* Puts the detection on a node row's center line */
+    private static final double kRobotY = 5.25;
+    private static final double kTargetHeight = 0.3;
+    private static final double kMaxRange = 8.0;
+    private static final double kMinClearance = 0.1;
+
+    private final CameraConfig camera = new CameraConfig("detector", 0.3, 0, 0.5, 0, -20, 0, 62.5, 48.9);
+    /* One robot-class detection straight ahead and slightly down */
+    private final double[] detection = new double[DynamicOccupancyLayer.kValuesPerRawDetection];
+    private double hitForwardMeters;
+    private int hitRow;
+    private int hitCol;
+
+    @BeforeEach
+    void projectDetection() {
+        detection[2] = -5;
+        double[] hit = new double[3];
+        assertTrue(GroundProjection.projectToField(camera, 0, -5, kTargetHeight, kRobotX, kRobotY, 0, kMaxRange, hit, 0));
+        hitForwardMeters = hit[0] - kRobotX;
+        hitRow = (int) Math.floor(hit[1] / kNodeSize);
+        hitCol = (int) Math.floor(hit[0] / kNodeSize);
+    }
+
+    private DynamicOccupancyLayer layerOver(boolean[] obstacles) {
+        NavGridDistanceField navGrid = NavGridDistanceField.fromObstacles(kRows, kCols, kNodeSize,
+            kCols * kNodeSize, kRows * kNodeSize, obstacles);
+        DynamicOccupancyLayer layer = DynamicOccupancyLayer.matching(navGrid, 1.0, kMinClearance);
+        layer.setClassFootprint(0, 0.4, 0.5, kTargetHeight);
+        return layer;
+    }
+
+    private int add(DynamicOccupancyLayer layer) {
+        return add(layer, kRobotX);
+    }
+
+    private int add(DynamicOccupancyLayer layer, double robotX) {
+        return layer.addDetections(camera, detection, 0, robotX, kRobotY, 0, kMaxRange);
+    }
+
+    @Test
+    void detectionOnOpenFloorIsMarked() {
+        boolean[] obstacles = new boolean[kRows * kCols];
+        // A wall two nodes past the detection does not block it
+        obstacles[hitRow * kCols + hitCol + 2] = true;
+        DynamicOccupancyLayer layer = layerOver(obstacles);
+
+        assertEquals(1, add(layer));
+        assertEquals(0.5, layer.getOccupancy(hitRow, hitCol, 0), 1e-6);
+    }
+
+    @Test
+    void detectionInsideStaticObstacleIsDropped() {
+        boolean[] obstacles = new boolean[kRows * kCols];
+        obstacles[hitRow * kCols + hitCol] = true;
+        DynamicOccupancyLayer layer = layerOver(obstacles);
+
+        assertEquals(0, add(layer));
+        assertEquals(0, layer.getOccupancy(hitRow, hitCol, 0));
+    }
+
+    @Test
+    void detectionAgainstStaticObstacleIsDropped() {
+        boolean[] obstacles = new boolean[kRows * kCols];
+        // A wall along column 10, whose near edge is at x = 5 m
+        for (int row = 0; row < kRows; row++) {
+            obstacles[row * kCols + 10] = true;
+        }
+        DynamicOccupancyLayer layer = layerOver(obstacles);
+
+        // Detections 5 cm and 30 cm short of the wall
+        assertEquals(0, add(layer, 10 * kNodeSize - 0.05 - hitForwardMeters));
+        assertEquals(1, add(layer, 10 * kNodeSize - 0.3 - hitForwardMeters));
+    }
+
+    @Test
+    void layerWithoutNavgridAcceptsEveryDetection() {
+        DynamicOccupancyLayer layer = new DynamicOccupancyLayer(kRows, kCols, kNodeSize, 1.0);
+        layer.setClassFootprint(0, 0.4, 0.5, kTargetHeight);
+
+        assertEquals(1, add(layer));
+    }
+
+    @Test
+    void edgeClearanceMeasuresFromTheObstacleSquare() {
+        boolean[] obstacles = new boolean[kRows * kCols];
+        obstacles[10 * kCols + 10] = true;
+        NavGridDistanceField navGrid = NavGridDistanceField.fromObstacles(kRows, kCols, kNodeSize,
+            kCols * kNodeSize, kRows * kNodeSize, obstacles);
+
+        // Center of the node three columns over: 1.5 m from the obstacle center, 1.25 m from its edge
+        assertEquals(1.5, navGrid.getClearance(13.5 * kNodeSize, 10.5 * kNodeSize), 1e-6);
+        assertEquals(1.25, navGrid.getEdgeClearance(13.5 * kNodeSize, 10.5 * kNodeSize), 1e-6);
+        assertEquals(0, navGrid.getEdgeClearance(10.5 * kNodeSize, 10.5 * kNodeSize));
+        // Off the grid
+        assertEquals(0, navGrid.getEdgeClearance(-1, 1));
+    }
+}
@@ -0,0 +1,72 @@
+package frc.robot.util;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import com.ctre.phoenix6.swerve.SwerveRequest;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.wpilibj2.command.button.CommandXboxController;
+import frc.robot.Constants.AllocationConstants;
+import frc.robot.commands.FaceDirectionCommand;
+import frc.robot.controllers.DriverController;
+import frc.robot.subsystems.LimelightSubsystem;
+import frc.robot.vision.LimelightResultsView;
+
+/**
+ * Holds the per-loop paths that have allocation budgets in {@link AllocationConstants} to those
+ * budgets, measured once the JIT has warmed up, so a change that starts allocating every loop fails
+ * here instead of showing up as garbage collection pauses on the robot.
+ */
+class AllocationBudgetTest {
+    /* Limelight JSON dump with two tags, in the layout the camera publishes on "json" */
+    private static final String kLimelightDump = "{\"pID\":0,\"tl\":12.5,\"cl\":8.25,\"ts\":123456.0,\"v\":1,"
+        + "\"botpose_wpiblue\":[3.2,4.1,0,0,0,35.0],\"botpose_tagcount\":2,\"botpose_avgdist\":2.4,"
+        + "\"botpose_span\":0.6,\"botpose_avgarea\":0.8,\"Fiducial\":["
+        + "{\"fID\":7,\"fam\":\"36H11\",\"t6c_ts\":[0.1,0.2,2.1,0,0,0],\"t6r_fs\":[3.2,4.1,0,0,0,35.0],"
+        + "\"t6r_ts\":[0.1,0.2,2.3,0,0,0],\"t6t_cs\":[0.1,0.2,2.1,0,0,0],\"t6t_rs\":[0.1,0.2,2.3,0,0,0],"
+        + "\"ta\":0.9,\"tx\":-4.5,\"ty\":3.25},"
+        + "{\"fID\":8,\"fam\":\"36H11\",\"t6c_ts\":[-0.3,0.2,2.6,0,0,0],\"t6r_fs\":[3.21,4.09,0,0,0,35.1],"
+        + "\"t6r_ts\":[-0.3,0.2,2.8,0,0,0],\"t6t_cs\":[-0.3,0.2,2.6,0,0,0],\"t6t_rs\":[-0.3,0.2,2.8,0,0,0],"
+        + "\"ta\":0.7,\"tx\":6.0,\"ty\":2.75}],"
+        + "\"Retro\":[],\"Classifier\":[],\"Detector\":[],\"Barcode\":[]}";
+
+    /* Keeps each parsed view reachable so the JIT cannot drop the parse as dead code */
+    private static volatile LimelightResultsView lastView;
+    private static volatile SwerveRequest lastRequest;
+
+    @BeforeAll
+    static void setUp() {
+        // Controllers read the simulated driver station; nothing here needs the CTRE drivetrain
+        assertTrue(HAL.initialize(500, 0));
+    }
+
+    @Test
+    void defaultDriveRequestStaysWithinBudget() {
+        CommandXboxController controller = new CommandXboxController(0);
+        AllocationTracker.assertWithinBudget(DriverController.kDefaultDriveCommandName,
+            AllocationConstants.kDefaultDriveBudgetBytes, () -> lastRequest = DriverController.getDriveRequest(controller));
+    }
+
+    @Test
+    void faceDirectionRequestStaysWithinBudget() {
+        // Same request FaceDirectionCommand.execute hands the drivetrain each loop
+        SwerveRequest.FieldCentric request = new SwerveRequest.FieldCentric();
+        double target = Math.PI / 2;
+        AllocationTracker.assertWithinBudget(FaceDirectionCommand.class.getSimpleName(),
+            AllocationConstants.kFaceDirectionBudgetBytes, () -> lastRequest = request
+                .withVelocityX(0)
+                .withVelocityY(0)
+                .withRotationalRate(FaceDirectionCommand.getRotationalRate(target, 0.2)));
+    }
+
+    @Test
+    void limelightDecodeStaysWithinBudget() {
+        assertNull(LimelightResultsView.parse(kLimelightDump).getError());
+        AllocationTracker.assertWithinBudget(LimelightSubsystem.kJsonParseJobName,
+            AllocationConstants.kLimelightDecodeBudgetBytes, () -> lastView = LimelightResultsView.parse(kLimelightDump));
+    }
+}
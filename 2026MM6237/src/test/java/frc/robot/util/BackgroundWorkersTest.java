@@ -0,0 +1,73 @@
+package frc.robot.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that every job submitted to {@link BackgroundWorkers} comes back to the main thread through
+ * exactly one callback, including jobs whose work throws.
+ */
+class BackgroundWorkersTest {
+    private static final long kWaitMillis = 5000;
+
+    /* Drains the workers like robotPeriodic would until the condition holds */
+    private static void drainUntil(BackgroundWorkers workers, BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + kWaitMillis;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "Timed out waiting for the job");
+            workers.drain();
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    void failedJobRunsOnlyTheErrorCallback() throws InterruptedException {
+        BackgroundWorkers workers = new BackgroundWorkers("test-workers", 1, 2);
+        IllegalStateException thrown = new IllegalStateException("bad frame");
+        AtomicReference<Object> result = new AtomicReference<>();
+        AtomicReference<Throwable> error = new AtomicReference<>();
+
+        assertTrue(workers.submit("throws", () -> {
+            throw thrown;
+        }, result::set, error::set));
+        drainUntil(workers, () -> error.get() != null);
+
+        assertSame(thrown, error.get());
+        assertNull(result.get());
+        assertEquals(0, workers.getQueueDepth());
+    }
+
+    @Test
+    void inFlightFlagClearsAfterFailedParse() throws InterruptedException {
+        // Same hand-off LimelightSubsystem uses to keep one JSON parse in flight at a time
+        BackgroundWorkers workers = new BackgroundWorkers("test-workers", 1, 2);
+        boolean[] parseInFlight = {false};
+        String[] latest = {"previous"};
+
+        assertTrue(workers.<String>submit("parse", () -> {
+            throw new IllegalArgumentException("malformed dump");
+        }, parsed -> {
+            latest[0] = parsed;
+            parseInFlight[0] = false;
+        }, ex -> parseInFlight[0] = false));
+        parseInFlight[0] = true;
+        drainUntil(workers, () -> !parseInFlight[0]);
+        assertEquals("previous", latest[0]);
+
+        // The next dump is parsed as usual
+        assertTrue(workers.submit("parse", () -> "next", parsed -> {
+            latest[0] = parsed;
+            parseInFlight[0] = false;
+        }, ex -> parseInFlight[0] = false));
+        parseInFlight[0] = true;
+        drainUntil(workers, () -> !parseInFlight[0]);
+        assertEquals("next", latest[0]);
+    }
+}
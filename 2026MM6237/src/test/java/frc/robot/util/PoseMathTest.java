@@ -0,0 +1,74 @@
+package frc.robot.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Rotation3d;
+import edu.wpi.first.math.geometry.Translation3d;
+
+/**
+ * Checks the primitive pose math against the WPILib geometry classes it stands in for.
+ */
+class PoseMathTest {
+    private static final double kTolerance = 1e-9;
+
+    /* Angles away from odd multiples of pi, where [-pi, pi) and WPILib's (-pi, pi] disagree */
+    private static final double[] kAngles = {0, 0.3, -0.3, 1.2, -2.9, 3.1, -3.1, 4.0, -4.0, 7.5, -11.0, 25.0};
+
+    /* Roll, pitch, yaw triples in radians */
+    private static final double[][] kRotations = {
+        {0, 0, 0}, {0.4, 0, 0}, {0, -0.35, 0}, {0, 0, 2.1}, {0.2, -0.5, 1.3}, {-1.1, 0.7, -2.8}, {3.0, 1.4, 0.1}};
+
+    private static final double[][] kVectors = {{1, 0, 0}, {0, 1, 0}, {0, 0, 1}, {1.5, -2.0, 0.75}};
+
+    @Test
+    void angleModulusMatchesRotation2d() {
+        for (double angle : kAngles) {
+            assertEquals(new Rotation2d(angle).getRadians(), PoseMath.angleModulus(angle), kTolerance, "angle " + angle);
+        }
+    }
+
+    @Test
+    void angleModulusWrapsHalfTurnToMinusPi() {
+        assertEquals(-Math.PI, PoseMath.angleModulus(Math.PI), kTolerance);
+        assertEquals(-Math.PI, PoseMath.angleModulus(-Math.PI), kTolerance);
+        assertEquals(-Math.PI, PoseMath.angleModulus(3 * Math.PI), kTolerance);
+    }
+
+    @Test
+    void angleDifferenceMatchesRotation2dMinus() {
+        for (double to : kAngles) {
+            for (double from : kAngles) {
+                double expected = new Rotation2d(to).minus(new Rotation2d(from)).getRadians();
+                if (Math.abs(Math.abs(expected) - Math.PI) < 1e-6) {
+                    continue;
+                }
+                assertEquals(expected, PoseMath.angleDifference(to, from), kTolerance, "from " + from + " to " + to);
+            }
+        }
+    }
+
+    @Test
+    void rotationMatrixMatchesRotation3d() {
+        double[] matrix = new double[10];
+        for (double[] rpy : kRotations) {
+            // Written at an offset to check the output slice
+            PoseMath.rotationFromRollPitchYaw(rpy[0], rpy[1], rpy[2], matrix, 1);
+            Rotation3d rotation = new Rotation3d(rpy[0], rpy[1], rpy[2]);
+            for (double[] v : kVectors) {
+                Translation3d expected = new Translation3d(v[0], v[1], v[2]).rotateBy(rotation);
+                assertEquals(expected.getX(), matrix[1] * v[0] + matrix[2] * v[1] + matrix[3] * v[2], kTolerance);
+                assertEquals(expected.getY(), matrix[4] * v[0] + matrix[5] * v[1] + matrix[6] * v[2], kTolerance);
+                assertEquals(expected.getZ(), matrix[7] * v[0] + matrix[8] * v[1] + matrix[9] * v[2], kTolerance);
+            }
+        }
+    }
+
+    @Test
+    void norm3dMatchesTranslation3d() {
+        double[] pose = {9, 9, 1.5, -2.0, 0.75, 0.2, -0.5, 1.3};
+        assertEquals(new Translation3d(1.5, -2.0, 0.75).getNorm(), PoseMath.norm3d(pose, 2), kTolerance);
+    }
+}
@@ -0,0 +1,156 @@
+package frc.robot.vision;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Runs {@link LimelightHttpClient} against a stub camera on localhost. Every request the stub receives
+ * is counted and held until the test releases it, so the tests control what is on the wire.
+ */
+class LimelightHttpClientTest {
+    private static final String kCamera = "limelight-test";
+    private static final String kResultsBody = "{\"v\":1}";
+    private static final long kWaitMillis = 5000;
+
+    private HttpServer server;
+    private ExecutorService serverThreads;
+    private final AtomicInteger requestsReceived = new AtomicInteger();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private String urlFormat;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        serverThreads = Executors.newCachedThreadPool();
+        server.setExecutor(serverThreads);
+        server.createContext("/", this::handle);
+        server.start();
+        urlFormat = "http://127.0.0.1:" + server.getAddress().getPort() + "/%s/";
+    }
+
+    @AfterEach
+    void stopServer() {
+        release.countDown();
+        server.stop(0);
+        serverThreads.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requestsReceived.incrementAndGet();
+        try {
+            release.await(kWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        byte[] body = kResultsBody.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private LimelightHttpClient newClient(int maxConcurrent, int maxQueued, double requestTimeoutSeconds) {
+        return new LimelightHttpClient(urlFormat, 2, maxConcurrent, maxQueued, 1.0, requestTimeoutSeconds);
+    }
+
+    /* Drains the client like robotPeriodic would until the condition holds */
+    private static void drainUntil(LimelightHttpClient client, BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + kWaitMillis;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "Timed out waiting for responses");
+            client.drain();
+            Thread.sleep(5);
+        }
+    }
+
+    private void awaitRequestsReceived(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + kWaitMillis;
+        while (requestsReceived.get() < count) {
+            assertTrue(System.currentTimeMillis() < deadline, "Stub camera never received the request");
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    void identicalGetsShareOneRequest() throws InterruptedException {
+        LimelightHttpClient client = newClient(4, 4, 2.0);
+        List<LimelightHttpClient.Response> responses = new ArrayList<>();
+        assertTrue(client.getResults(kCamera, responses::add));
+        assertTrue(client.getResults(kCamera, responses::add));
+        assertEquals(1, client.getCoalescedCount());
+
+        awaitRequestsReceived(1);
+        release.countDown();
+        drainUntil(client, () -> responses.size() == 2);
+
+        assertEquals(1, requestsReceived.get());
+        for (LimelightHttpClient.Response response : responses) {
+            assertTrue(response.isOk());
+            assertEquals(kResultsBody, response.body);
+        }
+        assertEquals(0, client.getQueueDepth());
+    }
+
+    @Test
+    void slowResponseCountsAsTimeout() throws InterruptedException {
+        LimelightHttpClient client = newClient(4, 4, 0.2);
+        List<LimelightHttpClient.Response> responses = new ArrayList<>();
+        assertTrue(client.getResults(kCamera, responses::add));
+
+        // The stub holds the request past the client's timeout
+        drainUntil(client, () -> responses.size() == 1);
+
+        LimelightHttpClient.Response response = responses.get(0);
+        assertFalse(response.isOk());
+        assertEquals(0, response.statusCode);
+        assertInstanceOf(HttpTimeoutException.class, response.error);
+        assertEquals(1, client.getTimedOutCount());
+    }
+
+    @Test
+    void fullQueueRejectsNewRequests() throws InterruptedException {
+        LimelightHttpClient client = newClient(1, 1, 2.0);
+        List<LimelightHttpClient.Response> responses = new ArrayList<>();
+        assertTrue(client.get(kCamera, "first", responses::add));
+        assertTrue(client.get(kCamera, "second", responses::add));
+        assertEquals(2, client.getQueueDepth());
+
+        assertFalse(client.get(kCamera, "third", responses::add));
+        assertEquals(1, client.getRejectedCount());
+        // A copy of a request already waiting needs no room of its own
+        assertTrue(client.get(kCamera, "second", responses::add));
+        assertEquals(1, client.getCoalescedCount());
+
+        awaitRequestsReceived(1);
+        release.countDown();
+        drainUntil(client, () -> responses.size() == 3);
+
+        assertEquals(2, requestsReceived.get());
+        assertEquals(0, client.getQueueDepth());
+        assertEquals(1, client.getRejectedCount());
+    }
+}
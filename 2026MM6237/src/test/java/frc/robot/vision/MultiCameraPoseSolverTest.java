@@ -0,0 +1,137 @@
+package frc.robot.vision;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.apriltag.AprilTag;
+import edu.wpi.first.apriltag.AprilTagFieldLayout;
+import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.math.geometry.Rotation3d;
+import frc.robot.navigation.FieldModel;
+import frc.robot.util.PoseMath;
+
+/**
+ * Feeds {@link MultiCameraPoseSolver} the fiducial angles two cameras would measure from a known robot
+ * pose and checks that it solves back to that pose.
+ */
+class MultiCameraPoseSolverTest {
+    private static final double kTolerance = 1e-6;
+    private static final double kRobotX = 5.0;
+    private static final double kRobotY = 3.2;
+    private static final double kRobotHeading = 0.3;
+
+    /* Tag ID and field position x, y, z */
+    private static final double[][] kTags = {{1, 8, 3, 1.2}, {2, 8, 4.5, 0.9}, {5, 1, 1, 1.5}};
+
+    private final CameraConfig front = new CameraConfig("front", 0.3, 0.1, 0.5, 0, 15, 0, 62.5, 48.9);
+    private final CameraConfig back = new CameraConfig("back", -0.3, 0.2, 0.6, 3, 20, 170, 62.5, 48.9);
+    private MultiCameraPoseSolver solver;
+
+    @BeforeEach
+    void createSolver() {
+        AprilTag[] tags = new AprilTag[kTags.length];
+        for (int i = 0; i < kTags.length; i++) {
+            double[] tag = kTags[i];
+            tags[i] = new AprilTag((int) tag[0], new Pose3d(tag[1], tag[2], tag[3], new Rotation3d(0, 0, Math.PI)));
+        }
+        FieldModel field = new FieldModel(new AprilTagFieldLayout(List.of(tags), 16.5, 8.1), new double[] {1, 1}, 1.0, 8.0);
+        solver = new MultiCameraPoseSolver(field, new CameraConfig[] {front, back}, 24,
+            Math.toRadians(0.3), Math.toRadians(0.5), 8.0, 13.8);
+    }
+
+    /* The txnc and tync a camera on a robot at (robotX, robotY, heading) measures for a tag */
+    private static double[] angles(CameraConfig camera, double robotX, double robotY, double heading, double[] tag) {
+        double cos = Math.cos(heading);
+        double sin = Math.sin(heading);
+        double dx = tag[1] - robotX;
+        double dy = tag[2] - robotY;
+        double bx = cos * dx + sin * dy - camera.forwardMeters;
+        double by = -sin * dx + cos * dy - camera.sideMeters;
+        double bz = tag[3] - camera.upMeters;
+        double[] rotation = new double[9];
+        PoseMath.rotationFromRollPitchYaw(Math.toRadians(camera.rollDegrees), -Math.toRadians(camera.pitchDegrees),
+            Math.toRadians(camera.yawDegrees), rotation, 0);
+        // Robot frame into the camera frame is the transpose of the camera-to-robot rotation
+        double cx = rotation[0] * bx + rotation[3] * by + rotation[6] * bz;
+        double cy = rotation[1] * bx + rotation[4] * by + rotation[7] * bz;
+        double cz = rotation[2] * bx + rotation[5] * by + rotation[8] * bz;
+        return new double[] {Math.toDegrees(-Math.atan(cy / cx)), Math.toDegrees(Math.atan(cz / cx))};
+    }
+
+    private boolean observe(int camera, double[] tag, double offsetX, double txncError) {
+        CameraConfig config = camera == 0 ? front : back;
+        double[] measured = angles(config, kRobotX + offsetX, kRobotY, kRobotHeading, tag);
+        return solver.addObservation(camera, (int) tag[0], measured[0] + txncError, measured[1], kRobotHeading, offsetX, 0);
+    }
+
+    @Test
+    void exactAnglesFromTwoCamerasSolveToThePose() {
+        assertTrue(observe(0, kTags[0], 0, 0));
+        assertTrue(observe(0, kTags[1], 0, 0));
+        // Captured earlier, 5 cm behind the reference position
+        assertTrue(observe(1, kTags[2], -0.05, 0));
+
+        assertTrue(solver.solve());
+        assertEquals(kRobotX, solver.getX(), kTolerance);
+        assertEquals(kRobotY, solver.getY(), kTolerance);
+        assertEquals(3, solver.getTagsUsed());
+        assertEquals(2, solver.getCamerasUsed());
+        assertEquals(0, solver.getTagsRejected());
+    }
+
+    @Test
+    void singleTagSolvesFromHeadingAndElevation() {
+        assertTrue(observe(0, kTags[0], 0, 0));
+
+        assertTrue(solver.solve());
+        assertEquals(kRobotX, solver.getX(), kTolerance);
+        assertEquals(kRobotY, solver.getY(), kTolerance);
+        assertTrue(solver.getXStdDev() > 0 && solver.getYStdDev() > 0);
+    }
+
+    @Test
+    void outlierIsDroppedWhenThreeTagsRemain() {
+        observe(0, kTags[0], 0, 0);
+        observe(0, kTags[1], 0, 0);
+        observe(1, kTags[2], 0, 0);
+        // A second sighting of tag 5 three degrees off
+        observe(1, kTags[2], 0, 3.0);
+
+        assertTrue(solver.solve());
+        assertEquals(1, solver.getTagsRejected());
+        assertEquals(3, solver.getTagsUsed());
+        assertEquals(kRobotX, solver.getX(), kTolerance);
+        assertEquals(kRobotY, solver.getY(), kTolerance);
+    }
+
+    @Test
+    void twoTagsAreNeverRejected() {
+        observe(1, kTags[2], 0, 0);
+        observe(1, kTags[2], 0, 3.0);
+
+        assertTrue(solver.solve());
+        assertEquals(0, solver.getTagsRejected());
+        assertEquals(2, solver.getTagsUsed());
+    }
+
+    @Test
+    void unknownTagIsIgnored() {
+        assertFalse(solver.addObservation(0, 99, 0, 5, kRobotHeading, 0, 0));
+        assertEquals(0, solver.getObservationCount());
+        assertFalse(solver.solve());
+    }
+
+    @Test
+    void resetDropsPreviousObservations() {
+        observe(0, kTags[0], 0, 0);
+        solver.reset();
+        assertEquals(0, solver.getObservationCount());
+        assertFalse(solver.solve());
+    }
+}